@@ -31,6 +31,8 @@ import org.apache.hadoop.util.GenericOptionsParser;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * ARC to WARC conversion.
@@ -72,55 +74,109 @@ public class Arc2WarcMigration {
         }
         Arc2WarcMigration a2wm = new Arc2WarcMigration();
         long startMillis = System.currentTimeMillis();
-        File input = new File(config.getInputStr());
-
-        if(input.isDirectory()) {
-            config.setDirectoryInput(true);
-            a2wm.traverseDir(input);
-        } else {
-            migrate(input);
+        if (config.getDigestInputStr() != null) {
+            CrawlLogDigestLookup digestLookup = new CrawlLogDigestLookup();
+            digestLookup.load(new File(config.getDigestInputStr()));
+            LOG.info("Crawl log digests loaded: " + digestLookup.size());
+            config.setDigestLookup(digestLookup);
+        }
+        if (config.getDigestIndexStr() != null) {
+            config.setDigestIndex(new PayloadDigestIndex(new File(config.getDigestIndexStr())));
+        }
+        int status = 0;
+        try {
+            File input = new File(config.getInputStr());
+            if(input.isDirectory()) {
+                config.setDirectoryInput(true);
+                List<File> arcFiles = new ArrayList<File>();
+                a2wm.traverseDir(input, arcFiles);
+                if (config.getNumThreads() > 1) {
+                    ParallelArcMigration parallelMigration = new ParallelArcMigration(config, arcFiles);
+                    if (!parallelMigration.migrate()) {
+                        status = 1;
+                    }
+                } else {
+                    for (File arcFile : arcFiles) {
+                        migrate(arcFile);
+                    }
+                }
+            } else {
+                migrate(input);
+            }
+        } finally {
+            if (config.getDigestIndex() != null) {
+                config.getDigestIndex().close();
+            }
         }
         long elapsedTimeMillis = System.currentTimeMillis() - startMillis;
         LOG.info("Processing time (sec): " + elapsedTimeMillis / 1000F);
-        System.exit(0);
+        System.exit(status);
     }
 
     /**
-     * Traverse the root directory recursively
+     * Traverse the root directory recursively and collect the files matching
+     * the input path regex filter.
      *
      * @param dirStructItem Root directory
-     * @throws FileNotFoundException
-     * @throws IOException
+     * @param arcFiles List of ARC files
      */
-    private void traverseDir(File dirStructItem) {
+    private void traverseDir(File dirStructItem, List<File> arcFiles) {
         if (dirStructItem.isDirectory()) {
             String[] children = dirStructItem.list();
             for (String child : children) {
-                traverseDir(new File(dirStructItem, child));
+                traverseDir(new File(dirStructItem, child), arcFiles);
             }
         } else {
             String filePath = dirStructItem.getAbsolutePath();
             if (RegexUtils.pathMatchesRegexFilter(filePath, config.getInputPathRegexFilter())) {
-                migrate(dirStructItem);
+                arcFiles.add(dirStructItem);
             }
         }
     }
 
     private static void migrate(File dirStructItem) {
-        //first do normal migration.
-        File output = new File(config.getOutputStr(),
-                dirStructItem.getName()
-                             .replaceAll("\\.arc(.gz)?$", config.createCompressedWarc() ? ".warc.gz" : ".warc"));
-        ArcMigrator arcMigrator = new ArcMigrator(config, dirStructItem, output, false);
+        File output = getWarcFile(config, dirStructItem);
+        ArcMigrator arcMigrator;
+        if (isMetadataArcFile(dirStructItem)){
+            // normal migration and special deduplication warc file in one pass
+            arcMigrator = new ArcMigrator(config, dirStructItem, output, getDuplicationsWarcFile(output));
+        } else {
+            arcMigrator = new ArcMigrator(config, dirStructItem, output, false);
+        }
         arcMigrator.migrateArcFile();
+    }
+
+    /**
+     * Output WARC file of an ARC file.
+     *
+     * @param config Configuration
+     * @param arcFile ARC file
+     * @return WARC file in the output directory
+     */
+    static File getWarcFile(Arc2WarcMigrationConfig config, File arcFile) {
+        return new File(config.getOutputStr(),
+                arcFile.getName()
+                             .replaceAll("\\.arc(.gz)?$", config.createCompressedWarc() ? ".warc.gz" : ".warc"));
+    }
 
-        if (dirStructItem.getName().contains("-metadata-")){
-            //then make a special deduplication arc file
-            output = new File(config.getOutputStr(),
-                    output.getName().replace("-metadata-","-duplications-"));
-            arcMigrator = new ArcMigrator(config, dirStructItem, output,true);
-            arcMigrator.migrateArcFile();
+    /**
+     * Deduplication WARC file of the WARC file migrated from a metadata ARC
+     * file.
+     *
+     * @param warcFile WARC file
+     * @return Deduplication WARC file
+     */
+    static File getDuplicationsWarcFile(File warcFile) {
+        return new File(warcFile.getParentFile(), warcFile.getName().replace("-metadata-", "-duplications-"));
+    }
 
-        }
+    /**
+     * Metadata ARC files get an additional deduplication WARC file.
+     *
+     * @param arcFile ARC file
+     * @return True if the file is a metadata ARC file
+     */
+    static boolean isMetadataArcFile(File arcFile) {
+        return arcFile.getName().contains("-metadata-");
     }
 }
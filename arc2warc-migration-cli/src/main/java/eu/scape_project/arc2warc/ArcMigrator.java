@@ -16,24 +16,30 @@
 package eu.scape_project.arc2warc;
 
 import eu.scape_project.arc2warc.cli.Arc2WarcMigrationConfig;
+import eu.scape_project.hawarp.utils.DateUtils;
+import eu.scape_project.hawarp.utils.DigestService;
 import eu.scape_project.hawarp.utils.JwatArcReaderFactory;
 import eu.scape_project.hawarp.utils.RegexUtils;
+import eu.scape_project.hawarp.utils.StreamUtils;
 import eu.scape_project.hawarp.utils.UUIDGenerator;
 import eu.scape_project.tika_identify.tika.TikaIdentificationTask;
 import org.apache.commons.httpclient.HttpStatus;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.apache.commons.io.input.TeeInputStream;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.jwat.arc.ArcReader;
+import org.jwat.arc.ArcReaderFactory;
 import org.jwat.arc.ArcRecordBase;
 import org.jwat.common.HeaderLine;
 import org.jwat.warc.WarcConstants;
 import org.jwat.warc.WarcRecord;
 import org.jwat.warc.WarcWriter;
 import org.jwat.warc.WarcWriterFactory;
-import org.supercsv.io.CsvBeanReader;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -41,14 +47,20 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.RandomAccessFile;
 import java.io.SequenceInputStream;
 import java.net.URISyntaxException;
+import java.nio.channels.FileChannel;
 import java.util.Calendar;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
 
 import static eu.scape_project.hawarp.interfaces.Identifier.MIME_UNKNOWN;
-import static eu.scape_project.hawarp.utils.DateUtils.GMTUTCUnixTsFormat;
+import static eu.scape_project.hawarp.utils.IOUtils.BUFFER_SIZE;
 import static eu.scape_project.hawarp.utils.UUIDGenerator.getRecordID;
 
 /**
@@ -60,25 +72,92 @@ public class ArcMigrator {
 
     public static final int LIMIT_LARGE_PAYLOAD = 4194304; // 4MB
 
+    private static final String CRAWL_LOG_URL_REGEX = "^metadata://.*/crawl/logs/crawl\\.log.*$";
+
+    private static final int PIPE_BUFFER_SIZE = 65536;
+
+    private static final String FN_WARC_REFERS_TO_TARGET_URI = "WARC-Refers-To-Target-URI";
+
+    private static final String FN_WARC_REFERS_TO_DATE = "WARC-Refers-To-Date";
+
     private final Arc2WarcMigrationConfig config;
 
     private final File arcFile;
 
     private final File warcFile;
     private final boolean deduplicate;
+    private final File duplicationsWarcFile;
     private final byte[] buffer;
+    private final Random random = new Random();
+    private final DigestService payloadDigest;
 
     //Migration state
     private String warcInfoId;
     private WarcWriter writer;
+    private String duplicationsWarcInfoId;
+    private WarcWriter duplicationsWriter;
     private ArcReader reader;
+    private RandomAccessFile arcRandomAccessFile;
+    private FileChannel arcFileChannel;
 
     public ArcMigrator(Arc2WarcMigrationConfig config, File arcFile, File warcFile, boolean deduplicate) {
+        this(config, arcFile, warcFile, deduplicate, new byte[LIMIT_LARGE_PAYLOAD]);
+    }
+
+    /**
+     * Constructor with a payload buffer provided by the caller, a worker
+     * thread can reuse its buffer for all files it migrates. The buffer must
+     * not be shared between concurrently running migrators.
+     *
+     * @param config Configuration
+     * @param arcFile ARC file
+     * @param warcFile WARC file
+     * @param deduplicate Create the deduplication WARC file from the crawl log
+     * @param buffer Payload buffer of LIMIT_LARGE_PAYLOAD bytes
+     */
+    public ArcMigrator(Arc2WarcMigrationConfig config, File arcFile, File warcFile, boolean deduplicate, byte[] buffer) {
+        this(config, arcFile, warcFile, deduplicate, null, buffer);
+    }
+
+    /**
+     * Constructor for the single pass migration of a metadata ARC file. The
+     * migrated WARC file and the deduplication WARC file are written while
+     * the ARC file is read once.
+     *
+     * @param config Configuration
+     * @param arcFile Metadata ARC file
+     * @param warcFile WARC file
+     * @param duplicationsWarcFile Deduplication WARC file
+     */
+    public ArcMigrator(Arc2WarcMigrationConfig config, File arcFile, File warcFile, File duplicationsWarcFile) {
+        this(config, arcFile, warcFile, duplicationsWarcFile, new byte[LIMIT_LARGE_PAYLOAD]);
+    }
+
+    /**
+     * Constructor for the single pass migration of a metadata ARC file with a
+     * payload buffer provided by the caller.
+     *
+     * @param config Configuration
+     * @param arcFile Metadata ARC file
+     * @param warcFile WARC file
+     * @param duplicationsWarcFile Deduplication WARC file
+     * @param buffer Payload buffer of LIMIT_LARGE_PAYLOAD bytes
+     */
+    public ArcMigrator(Arc2WarcMigrationConfig config, File arcFile, File warcFile, File duplicationsWarcFile, byte[] buffer) {
+        this(config, arcFile, warcFile, false, duplicationsWarcFile, buffer);
+    }
+
+    private ArcMigrator(Arc2WarcMigrationConfig config, File arcFile, File warcFile, boolean deduplicate, File duplicationsWarcFile, byte[] buffer) {
+        if (buffer.length != LIMIT_LARGE_PAYLOAD) {
+            throw new IllegalArgumentException("Payload buffer size must be " + LIMIT_LARGE_PAYLOAD);
+        }
         this.config = config;
         this.arcFile = arcFile;
         this.warcFile = warcFile;
         this.deduplicate = deduplicate;
-        buffer = new byte[LIMIT_LARGE_PAYLOAD];
+        this.duplicationsWarcFile = duplicationsWarcFile;
+        this.buffer = buffer;
+        this.payloadDigest = DigestService.getInstance(config.getPayloadDigestAlgorithm());
     }
 
     public void migrateArcFile() {
@@ -87,7 +166,13 @@ public class ArcMigrator {
             FileUtils.forceMkdir(warcFile.getParentFile());
             writer = WarcWriterFactory.getWriter(new FileOutputStream(warcFile), config.createCompressedWarc());
             warcInfoId = getRecordID().toString();
-            createWarcInfoRecord();
+            createWarcInfoRecord(writer, warcInfoId, warcFile);
+            if (duplicationsWarcFile != null) {
+                FileUtils.forceMkdir(duplicationsWarcFile.getParentFile());
+                duplicationsWriter = WarcWriterFactory.getWriter(new FileOutputStream(duplicationsWarcFile), config.createCompressedWarc());
+                duplicationsWarcInfoId = getRecordID().toString();
+                createWarcInfoRecord(duplicationsWriter, duplicationsWarcInfoId, duplicationsWarcFile);
+            }
             Iterator<ArcRecordBase> arcIterator = reader.iterator();
             boolean first = true;
             while (arcIterator.hasNext()) {
@@ -96,10 +181,11 @@ public class ArcMigrator {
                     migrateMetadataRecord(jwatArcRecord);
                     first = false;
                 } else if (deduplicate) {
-                    if (RegexUtils.pathMatchesRegexFilter(jwatArcRecord.getUrlStr(),
-                            "^metadata://.*/crawl/logs/crawl\\.log.*$")) {
+                    if (isCrawlLog(jwatArcRecord)) {
                         migrateCrawlLog(jwatArcRecord, writer);
                     }
+                } else if (duplicationsWriter != null && isCrawlLog(jwatArcRecord) && jwatArcRecord.hasPayload()) {
+                    migrateCrawlLogRecord(jwatArcRecord);
                 } else {
                     migrateResponseRecord(jwatArcRecord);
                 }
@@ -117,6 +203,8 @@ public class ArcMigrator {
         } finally {
             IOUtils.closeQuietly(reader);
             IOUtils.closeQuietly(writer);
+            IOUtils.closeQuietly(duplicationsWriter);
+            IOUtils.closeQuietly(arcRandomAccessFile);
             clear();
         }
     }
@@ -125,44 +213,181 @@ public class ArcMigrator {
         warcInfoId = null;
         reader = null;
         writer = null;
+        duplicationsWarcInfoId = null;
+        duplicationsWriter = null;
+        arcRandomAccessFile = null;
+        arcFileChannel = null;
+    }
+
+    static boolean isCrawlLog(ArcRecordBase jwatArcRecord) {
+        return RegexUtils.pathMatchesRegexFilter(jwatArcRecord.getUrlStr(), CRAWL_LOG_URL_REGEX);
     }
 
     private void migrateMetadataRecord(ArcRecordBase jwatArcRecord) throws IOException, URISyntaxException {
-        migrateRecord(jwatArcRecord, true);
+        if (duplicationsWriter == null) {
+            migrateRecord(jwatArcRecord, true);
+            return;
+        }
+        // the ARC version block goes to both WARC files, it is small and
+        // read into memory once
+        long remaining = jwatArcRecord.hasPayload() ? getPayloadRemaining(jwatArcRecord) : 0;
+        byte[] versionBlock = (remaining > 0) ? IOUtils.toByteArray(jwatArcRecord.getPayloadContent()) : new byte[0];
+        migrateRecord(jwatArcRecord, true, writer, warcInfoId, new ByteArrayInputStream(versionBlock), remaining);
+        migrateRecord(jwatArcRecord, true, duplicationsWriter, duplicationsWarcInfoId, new ByteArrayInputStream(versionBlock), remaining);
     }
 
     private void migrateResponseRecord(ArcRecordBase jwatArcRecord) throws IOException, URISyntaxException {
         migrateRecord(jwatArcRecord, false);
     }
 
+    /**
+     * Migrate the crawl log record to the WARC file and create the revisit
+     * records of the deduplication WARC file in the same pass. The payload is
+     * passed through a pipe to a second thread which parses the crawl log
+     * while the record is written.
+     */
+    private void migrateCrawlLogRecord(ArcRecordBase jwatArcRecord) throws IOException, URISyntaxException {
+        long remaining = getPayloadRemaining(jwatArcRecord);
+        PipedInputStream pipeIn = new PipedInputStream(PIPE_BUFFER_SIZE);
+        PipedOutputStream pipeOut = new PipedOutputStream(pipeIn);
+        CrawlLogDeduplication crawlLogDeduplication = new CrawlLogDeduplication(pipeIn, duplicationsWriter);
+        Thread deduplicationThread = new Thread(crawlLogDeduplication, "crawl-log-deduplication");
+        deduplicationThread.start();
+        try {
+            InputStream teeStream = new TeeInputStream(jwatArcRecord.getPayloadContent(), pipeOut, true);
+            migrateRecord(jwatArcRecord, false, writer, warcInfoId, teeStream, remaining);
+        } finally {
+            IOUtils.closeQuietly(pipeOut);
+            boolean interrupted = false;
+            while (deduplicationThread.isAlive()) {
+                try {
+                    deduplicationThread.join();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (crawlLogDeduplication.exception != null) {
+            throw new IOException("Unable to create deduplication records", crawlLogDeduplication.exception);
+        }
+    }
 
-    public void createWarcInfoRecord() throws IOException, URISyntaxException {
-        WarcRecord record = WarcRecord.createRecord(writer);
+    /**
+     * Reads the crawl log from the pipe and writes the revisit records. The
+     * pipe is drained in any case, so that the writing thread never blocks.
+     */
+    private class CrawlLogDeduplication implements Runnable {
+
+        private final InputStream crawlLogStream;
+        private final WarcWriter deduplicationWriter;
+        private volatile Exception exception;
+
+        CrawlLogDeduplication(InputStream crawlLogStream, WarcWriter deduplicationWriter) {
+            this.crawlLogStream = crawlLogStream;
+            this.deduplicationWriter = deduplicationWriter;
+        }
+
+        @Override
+        public void run() {
+            try {
+                migrateCrawlLog(new CloseShieldInputStream(crawlLogStream), deduplicationWriter);
+            } catch (Exception ex) {
+                exception = ex;
+            } finally {
+                try {
+                    byte[] drain = new byte[BUFFER_SIZE];
+                    while (crawlLogStream.read(drain) != -1) {
+                        // discard the rest of the crawl log
+                    }
+                } catch (IOException ex) {
+                    // writing side closed
+                }
+                IOUtils.closeQuietly(crawlLogStream);
+            }
+        }
+    }
+
+    /**
+     * The current record in the ARC file as seekable source, large payloads
+     * are read a second time from the ARC file instead of being copied to a
+     * temporary file.
+     */
+    private PayloadContent.SeekableSource getSeekableSource() {
+        final long offset = reader.getStartOffset();
+        final boolean compressed = reader.isCompressed();
+        return new PayloadContent.SeekableSource() {
+            @Override
+            public InputStream openPayloadContent() throws IOException {
+                if (arcFileChannel == null) {
+                    arcRandomAccessFile = new RandomAccessFile(arcFile, "r");
+                    arcFileChannel = arcRandomAccessFile.getChannel();
+                }
+                InputStream in = new BufferedInputStream(StreamUtils.newInputStream(arcFileChannel, offset), BUFFER_SIZE);
+                ArcReader firstPassReader = compressed ? ArcReaderFactory.getReaderCompressed() : ArcReaderFactory.getReaderUncompressed();
+                ArcRecordBase arcRecord = firstPassReader.getNextRecordFrom(in, offset);
+                if (arcRecord == null || arcRecord.getPayloadContent() == null) {
+                    throw new IOException("No ARC record payload at offset " + offset);
+                }
+                return arcRecord.getPayloadContent();
+            }
+        };
+    }
+
+    private static long getPayloadRemaining(ArcRecordBase arcRecord) throws IOException {
+        try {
+            return arcRecord.getPayload().getRemaining();
+        } catch (IOException e) {
+            if (arcRecord.getStartOffset() == 0 && arcRecord.getArchiveLength() == 77) {
+                return 0;
+            } else {
+                throw new IOException(e);
+            }
+        }
+    }
+
+    private void createWarcInfoRecord(WarcWriter warcWriter, String infoId, File targetWarcFile) throws IOException, URISyntaxException {
+        WarcRecord record = WarcRecord.createRecord(warcWriter);
         record.header.addHeader(WarcConstants.FN_WARC_TYPE, WarcConstants.RT_WARCINFO);
         record.header.addHeader(WarcConstants.FN_WARC_DATE,
-                GMTUTCUnixTsFormat.format(Calendar.getInstance().getTime()));
-        record.header.addHeader(WarcConstants.FN_WARC_RECORD_ID, warcInfoId);
-        record.header.addHeader(WarcConstants.FN_WARC_FILENAME, warcFile.getName());
+                DateUtils.formatIsoDate(Calendar.getInstance().getTime()));
+        record.header.addHeader(WarcConstants.FN_WARC_RECORD_ID, infoId);
+        record.header.addHeader(WarcConstants.FN_WARC_FILENAME, targetWarcFile.getName());
         record.header.addHeader(WarcConstants.FN_CONTENT_TYPE, WarcConstants.CT_APP_WARC_FIELDS);
         String description
                 = "software: JWAT Version 1.0.0 https://sbforge.org/display/JWAT/JWAT-Tools\n" + "description: migrated from ARC " + "format: WARC file version 1.0";
         byte[] descriptionBytes = description.getBytes();
         record.header.addHeader(WarcConstants.FN_CONTENT_LENGTH, Long.toString(descriptionBytes.length));
-        writer.writeHeader(record);
+        warcWriter.writeHeader(record);
         ByteArrayInputStream inBytes = new ByteArrayInputStream(descriptionBytes);
-        writer.streamPayload(inBytes);
-        writer.closeRecord();
+        warcWriter.streamPayload(inBytes);
+        warcWriter.closeRecord();
     }
 
 
     public void migrateRecord(ArcRecordBase arcRecord, boolean arcMetadataRecord) throws
                                                                                   IOException,
                                                                                   URISyntaxException {
+        if (arcRecord.hasPayload()) {
+            long remaining = getPayloadRemaining(arcRecord);
+            migrateRecord(arcRecord, arcMetadataRecord, writer, warcInfoId, arcRecord.getPayloadContent(), remaining);
+        } else {
+            migrateRecord(arcRecord, arcMetadataRecord, writer, warcInfoId, null, 0);
+        }
+    }
+
+    private void migrateRecord(ArcRecordBase arcRecord, boolean arcMetadataRecord, WarcWriter warcWriter,
+                               String infoId, InputStream inputStream, long remaining) throws
+                                                                                          IOException,
+                                                                                          URISyntaxException {
         String recordId = getRecordID(arcFile, reader.getStartOffset()).toString();
-        WarcRecord warcRecord = WarcRecord.createRecord(writer);
+        String date = DateUtils.formatIsoDate(arcRecord.getArchiveDate());
+        WarcRecord warcRecord = WarcRecord.createRecord(warcWriter);
         // Standard headers, url, date, record id
         warcRecord.header.addHeader(WarcConstants.FN_WARC_TARGET_URI, arcRecord.getUrlStr());
-        warcRecord.header.addHeader(WarcConstants.FN_WARC_DATE, GMTUTCUnixTsFormat.format(arcRecord.getArchiveDate()));
+        warcRecord.header.addHeader(WarcConstants.FN_WARC_DATE, date);
         warcRecord.header.addHeader(WarcConstants.FN_WARC_RECORD_ID, recordId);
         /* Mimetype*/
         if (arcRecord.getContentType() != null) {
@@ -170,65 +395,131 @@ public class ArcMigrator {
         } else {
             warcRecord.header.addHeader(WarcConstants.FN_CONTENT_TYPE, MIME_UNKNOWN);
         }
-        // Is this metadata about the warc file or is it a "real" record
-        String type;
-        if (arcMetadataRecord) {
-            // ARC metadata record relates to the WARC info record
-            warcRecord.header.addHeader(WarcConstants.FN_WARC_CONCURRENT_TO, warcInfoId);
-            type = WarcConstants.RT_METADATA;
-        } else {
-            type = WarcConstants.RT_RESPONSE;
-        }
-        warcRecord.header.addHeader(WarcConstants.FN_WARC_TYPE, type);
-        if (arcRecord.getIpAddress() != null) {
-            warcRecord.header.addHeader(WarcConstants.FN_WARC_IP_ADDRESS, arcRecord.getIpAddress());
-        }
         // Payload metadata = HTTP Response lines
         String payloadHeader = constructPayloadHeader(arcRecord);
         InputStream payloadContentStream = null;
-        if (arcRecord.hasPayload()) {
-            InputStream inputStream = arcRecord.getPayloadContent();
-            long remaining;
-            try {
-                remaining = arcRecord.getPayload().getRemaining();
-            } catch (IOException e){
-                if (arcRecord.getStartOffset() == 0 && arcRecord.getArchiveLength() == 77){
-                    remaining = 0;
-                } else {
-                    throw new IOException(e);
+        PayloadContent payloadContent = null;
+        PayloadDigestIndex.Entry original = null;
+        try {
+            if (inputStream != null) {
+                payloadContent = new PayloadContent(inputStream, remaining, buffer);
+                payloadContent.setSeekableSource(getSeekableSource());
+                payloadContent.setDigestService(payloadDigest);
+                CrawlLogDigestLookup digestLookup = config.getDigestLookup();
+                if (digestLookup != null && !arcMetadataRecord && arcRecord.getArchiveDateStr() != null) {
+                    String knownDigest = digestLookup.get(arcRecord.getUrlStr(), arcRecord.getArchiveDateStr());
+                    if (knownDigest != null) {
+                        // a revisit record must not rest on an unverified crawl log digest,
+                        // the known digest only saves hashing if there is no digest index
+                        boolean verify = config.getDigestIndex() != null
+                                || random.nextDouble() < config.getDigestVerifyRate();
+                        payloadContent.setKnownDigest(knownDigest, verify);
+                    }
+                }
+                if (config.isContentTypeIdentification()) {
+                    TikaIdentificationTask ti = TikaIdentificationTask.getInstance();
+                    ti.setCurrentItemId(recordId);
+                    payloadContent.setIdentifier(ti);
+                    payloadContent.doPayloadIdentification(true);
+                }
+                payloadContentStream = payloadContent.getPayloadContentAsInputStream();
+                if (!arcMetadataRecord) {
+                    original = findOriginal(arcRecord, recordId, remaining, payloadContent.getDigestStr());
                 }
             }
-            long contentLength
-                    = remaining + payloadHeader.getBytes().length;// WARC content length is payload length + payload header length
-            warcRecord.header.addHeader(WarcConstants.FN_CONTENT_LENGTH, contentLength, null);
-            PayloadContent payloadContent = new PayloadContent(inputStream, remaining, buffer);
-            if (config.isContentTypeIdentification()) {
-                TikaIdentificationTask ti = TikaIdentificationTask.getInstance();
-                ti.setCurrentItemId(recordId);
-                payloadContent.setIdentifier(ti);
-                payloadContent.doPayloadIdentification(true);
+            // Is this metadata about the warc file or is it a "real" record
+            String type;
+            if (arcMetadataRecord) {
+                // ARC metadata record relates to the WARC info record
+                warcRecord.header.addHeader(WarcConstants.FN_WARC_CONCURRENT_TO, infoId);
+                type = WarcConstants.RT_METADATA;
+            } else if (original != null) {
+                type = WarcConstants.RT_REVISIT;
+            } else {
+                type = WarcConstants.RT_RESPONSE;
             }
-            payloadContentStream = payloadContent.getPayloadContentAsInputStream();
-            if (payloadContent.getDigestStr() != null) {
-                warcRecord.header.addHeader(WarcConstants.FN_WARC_PAYLOAD_DIGEST, payloadContent.getDigestStr());
+            warcRecord.header.addHeader(WarcConstants.FN_WARC_TYPE, type);
+            if (original != null) {
+                // same payload as a record migrated before
+                warcRecord.header.addHeader(WarcConstants.FN_WARC_PROFILE, WarcConstants.PROFILE_IDENTICAL_PAYLOAD_DIGEST);
+                warcRecord.header.addHeader(WarcConstants.FN_WARC_REFERS_TO, original.getRecordId());
+                warcRecord.header.addHeader(FN_WARC_REFERS_TO_TARGET_URI, original.getTargetUri());
+                warcRecord.header.addHeader(FN_WARC_REFERS_TO_DATE, original.getDate());
             }
-            if (config.isContentTypeIdentification()) {
-                warcRecord.header.addHeader(WarcConstants.FN_WARC_IDENTIFIED_PAYLOAD_TYPE,
-                        payloadContent.getIdentifiedPayLoadType());
+            if (arcRecord.getIpAddress() != null) {
+                warcRecord.header.addHeader(WarcConstants.FN_WARC_IP_ADDRESS, arcRecord.getIpAddress());
             }
-        } else {
-            warcRecord.header.addHeader(WarcConstants.FN_CONTENT_LENGTH, 0, null);
+            if (payloadContent != null) {
+                // WARC content length is payload length + payload header length,
+                // a revisit record contains the payload header only
+                long contentLength = payloadHeader.getBytes().length + ((original != null) ? 0 : remaining);
+                warcRecord.header.addHeader(WarcConstants.FN_CONTENT_LENGTH, contentLength, null);
+                if (payloadContent.getDigestStr() != null) {
+                    warcRecord.header.addHeader(WarcConstants.FN_WARC_PAYLOAD_DIGEST, payloadContent.getDigestStr());
+                }
+                if (config.isContentTypeIdentification()) {
+                    warcRecord.header.addHeader(WarcConstants.FN_WARC_IDENTIFIED_PAYLOAD_TYPE,
+                            payloadContent.getIdentifiedPayLoadType());
+                }
+            } else {
+                warcRecord.header.addHeader(WarcConstants.FN_CONTENT_LENGTH, 0, null);
+            }
+            // finished creating header, write it to the WARC record
+            warcWriter.writeHeader(warcRecord);
+            // Record payload
+            if (original != null) {
+                warcWriter.streamPayload(new ByteArrayInputStream(payloadHeader.getBytes()));
+            } else if (payloadContent != null) {
+                // Prepend payload metadata = HTTP Response lines
+                ByteArrayInputStream payloadHeaderStream = new ByteArrayInputStream(payloadHeader.getBytes());
+                SequenceInputStream sis = new SequenceInputStream(payloadHeaderStream, payloadContentStream);
+                warcWriter.streamPayload(sis);
+                payloadContent.checkStreamedDigest();
+            }
+            warcWriter.closeRecord();
+            if (payloadContent != null && !arcMetadataRecord && original == null) {
+                addOriginal(arcRecord, recordId, date, remaining, payloadContent.getDigestStr());
+            }
+        } finally {
+            IOUtils.closeQuietly(payloadContentStream);
         }
-        // finished creating header, write it to the WARC record
-        writer.writeHeader(warcRecord);
-        // Record payload
-        if (arcRecord.hasPayload()) {
-            // Prepend payload metadata = HTTP Response lines
-            ByteArrayInputStream payloadHeaderStream = new ByteArrayInputStream(payloadHeader.getBytes());
-            SequenceInputStream sis = new SequenceInputStream(payloadHeaderStream, payloadContentStream);
-            writer.streamPayload(sis);
+    }
+
+    /**
+     * Look up the payload digest in the payload digest index. Only HTTP
+     * responses with a non-empty payload are deduplicated.
+     *
+     * @return Record which contained the payload first, null if the record
+     * is not a duplicate
+     */
+    private PayloadDigestIndex.Entry findOriginal(ArcRecordBase arcRecord, String recordId, long remaining,
+                                                  String digestStr) throws IOException {
+        if (!isIndexable(arcRecord, remaining, digestStr)) {
+            return null;
         }
-        writer.closeRecord();
+        PayloadDigestIndex.Entry original = config.getDigestIndex().get(digestStr);
+        if (original != null && original.getRecordId().equals(recordId)) {
+            // record of a file which is migrated again
+            return null;
+        }
+        return original;
+    }
+
+    /**
+     * Add the response record to the payload digest index. Must only be
+     * called after the record has been written completely, so that revisit
+     * records never refer to a record which is missing in the WARC files.
+     */
+    private void addOriginal(ArcRecordBase arcRecord, String recordId, String date, long remaining,
+                             String digestStr) throws IOException {
+        if (isIndexable(arcRecord, remaining, digestStr)) {
+            config.getDigestIndex().putIfAbsent(digestStr, new PayloadDigestIndex.Entry(recordId, arcRecord.getUrlStr(), date));
+        }
+    }
+
+    private boolean isIndexable(ArcRecordBase arcRecord, long remaining, String digestStr) {
+        return config.getDigestIndex() != null && digestStr != null && remaining != 0
+                && arcRecord.getHttpHeader() != null;
     }
 
     private String constructPayloadHeader(ArcRecordBase jwatArcRecord) {
@@ -254,15 +545,26 @@ public class ArcMigrator {
 
 
     public void migrateCrawlLog(ArcRecordBase jwatArcRecord, WarcWriter writer) throws IOException, URISyntaxException {
-        final CsvBeanReader beanReader = CrawlLogEntry.getCsvBeanReader(jwatArcRecord);
+        migrateCrawlLog(jwatArcRecord.getPayloadContent(), writer);
+    }
+
+    /**
+     * Write a revisit record for each duplicate entry of the crawl log.
+     *
+     * @param crawlLogStream Crawl log content
+     * @param writer WARC writer
+     * @throws IOException
+     * @throws URISyntaxException
+     */
+    public void migrateCrawlLog(InputStream crawlLogStream, WarcWriter writer) throws IOException, URISyntaxException {
+        CrawlLogReader crawlLogReader = new CrawlLogReader(crawlLogStream);
         try {
-            Iterator<CrawlLogEntry> iterator = CrawlLogEntry.asIterator(beanReader);
-            while (iterator.hasNext()) {
-                CrawlLogEntry crawlLogEntry = iterator.next();
+            CrawlLogEntry crawlLogEntry;
+            while ((crawlLogEntry = crawlLogReader.readEntry()) != null) {
                 writeDuplicateEntry(crawlLogEntry, writer);
             }
         } finally {
-            IOUtils.closeQuietly(beanReader);
+            IOUtils.closeQuietly(crawlLogReader);
         }
     }
 
@@ -278,7 +580,7 @@ public class ArcMigrator {
         record.header.addHeader(WarcConstants.FN_WARC_TYPE, WarcConstants.RT_REVISIT);
         record.header.addHeader(WarcConstants.FN_WARC_TARGET_URI, crawlLogEntry.getDownloaded());
         record.header.addHeader(WarcConstants.FN_WARC_DATE,
-                GMTUTCUnixTsFormat.format(crawlLogEntry.getLoggingTimestamp()));
+                DateUtils.formatIsoDate(crawlLogEntry.getLoggingTimestamp()));
         record.header.addHeader(WarcConstants.FN_WARC_PROFILE, WarcConstants.PROFILE_IDENTICAL_PAYLOAD_DIGEST);
         record.header.addHeader(WarcConstants.FN_WARC_RECORD_ID, UUIDGenerator.getRecordID().toString());
         record.header.addHeader(WarcConstants.FN_WARC_REFERS_TO,
@@ -0,0 +1,303 @@
+/*
+ * Copyright 2014 scape.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scape_project.arc2warc;
+
+import eu.scape_project.hawarp.utils.DigestService;
+import eu.scape_project.hawarp.utils.JwatArcReaderFactory;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.jwat.arc.ArcReader;
+import org.jwat.arc.ArcRecordBase;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.util.Iterator;
+
+/**
+ * Payload digests of a Heritrix crawl log, keyed by URL and fetch timestamp
+ * (14 digits, the date of the ARC record).
+ *
+ * The entries are kept off-heap in direct byte buffers. An entry consists of
+ * the MD5 hash of the key (16 bytes) and the binary SHA-1 digest (20 bytes),
+ * the buffers are open addressing hash tables (linear probing) which are
+ * doubled when half full. The table is split into segments by the first
+ * bits of the key hash, so that the size of one buffer stays below 2 GB.
+ *
+ * Entries must be added before the lookup is shared between threads; get()
+ * can then be called concurrently.
+ *
+ * @author Sven Schlarb <https://github.com/shsdev>
+ */
+public class CrawlLogDigestLookup {
+
+    private static final Log LOG = LogFactory.getLog(CrawlLogDigestLookup.class);
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final int KEY_LENGTH = 16;
+
+    private static final int DIGEST_LENGTH = 20;
+
+    private static final int ENTRY_LENGTH = KEY_LENGTH + DIGEST_LENGTH;
+
+    private static final int SEGMENT_BITS = 6;
+
+    private static final int INITIAL_SEGMENT_SLOTS = 1024;
+
+    private static final int MAX_SEGMENT_SLOTS = Integer.MAX_VALUE / ENTRY_LENGTH;
+
+    private static final String SHA1_PREFIX = "sha1:";
+
+    private final ByteBuffer[] segments = new ByteBuffer[1 << SEGMENT_BITS];
+
+    private final int[] segmentSizes = new int[1 << SEGMENT_BITS];
+
+    private long size;
+
+    private final DigestService keyDigest = DigestService.getInstance("MD5");
+
+    public CrawlLogDigestLookup() {
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = ByteBuffer.allocateDirect(INITIAL_SEGMENT_SLOTS * ENTRY_LENGTH);
+        }
+    }
+
+    /**
+     * Load the crawl log digests. The file is either a crawl log, a metadata
+     * ARC file containing crawl log records, or a directory which is
+     * traversed recursively for metadata ARC files and files named
+     * crawl.log*.
+     *
+     * @param file Crawl log file, metadata ARC file or directory
+     * @throws IOException
+     */
+    public void load(File file) throws IOException {
+        if (file.isDirectory()) {
+            String[] children = file.list();
+            for (String child : children) {
+                File childFile = new File(file, child);
+                if (childFile.isDirectory() || isArcFile(childFile) || child.startsWith("crawl.log")) {
+                    load(childFile);
+                }
+            }
+        } else if (isArcFile(file)) {
+            if (Arc2WarcMigration.isMetadataArcFile(file)) {
+                loadMetadataArc(file);
+            }
+        } else {
+            InputStream in = new FileInputStream(file);
+            try {
+                load(in);
+            } finally {
+                IOUtils.closeQuietly(in);
+            }
+            LOG.info("Crawl log digests loaded from " + file.getAbsolutePath() + ", " + size + " entries");
+        }
+    }
+
+    private static boolean isArcFile(File file) {
+        return file.getName().matches("^.*\\.arc(\\.gz)?$");
+    }
+
+    private void loadMetadataArc(File metadataArcFile) throws IOException {
+        ArcReader reader = JwatArcReaderFactory.getReader(new FileInputStream(metadataArcFile));
+        if (reader == null) {
+            throw new IOException("Unable to read ARC file " + metadataArcFile.getAbsolutePath());
+        }
+        try {
+            Iterator<ArcRecordBase> iterator = reader.iterator();
+            while (iterator.hasNext()) {
+                ArcRecordBase arcRecord = iterator.next();
+                if (ArcMigrator.isCrawlLog(arcRecord) && arcRecord.hasPayload()) {
+                    load(arcRecord.getPayloadContent());
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        LOG.info("Crawl log digests loaded from " + metadataArcFile.getAbsolutePath() + ", " + size + " entries");
+    }
+
+    /**
+     * Load the digests of a crawl log. Lines without a SHA-1 digest or fetch
+     * timestamp are skipped. The stream is not closed.
+     *
+     * @param crawlLogStream Crawl log content
+     * @throws IOException
+     */
+    public void load(InputStream crawlLogStream) throws IOException {
+        CrawlLogReader reader = new CrawlLogReader(crawlLogStream);
+        CrawlLogEntry entry;
+        while ((entry = reader.readEntry()) != null) {
+            if (entry.getFetchTimestamp().length() < 14) {
+                continue;
+            }
+            byte[] digest = decodeSha1(entry.getSha1Digest());
+            if (digest != null) {
+                put(entry.getDownloaded(), entry.getFetchTimestamp().substring(0, 14), digest);
+            }
+        }
+    }
+
+    /**
+     * Add a digest.
+     *
+     * @param url URL
+     * @param timestamp Fetch timestamp (yyyyMMddHHmmss)
+     * @param sha1Digest Digest in the format sha1:BASE32
+     */
+    public void put(String url, String timestamp, String sha1Digest) {
+        byte[] digest = decodeSha1(sha1Digest);
+        if (digest == null) {
+            throw new IllegalArgumentException("Invalid SHA-1 digest: " + sha1Digest);
+        }
+        put(url, timestamp, digest);
+    }
+
+    /**
+     * Get the digest of the URL fetched at the timestamp.
+     *
+     * @param url URL
+     * @param timestamp Fetch timestamp (yyyyMMddHHmmss)
+     * @return Digest in the format sha1:BASE32, null if not known
+     */
+    public String get(String url, String timestamp) {
+        byte[] key = key(url, timestamp);
+        int segment = segmentOf(key);
+        ByteBuffer table = segments[segment];
+        int slot = find(table, key);
+        if (isEmpty(table, slot)) {
+            return null;
+        }
+        byte[] digest = new byte[DIGEST_LENGTH];
+        for (int i = 0; i < DIGEST_LENGTH; i++) {
+            digest[i] = table.get(slot * ENTRY_LENGTH + KEY_LENGTH + i);
+        }
+        return SHA1_PREFIX + DigestService.toBase32(digest);
+    }
+
+    /**
+     * @return Number of entries
+     */
+    public long size() {
+        return size;
+    }
+
+    private void put(String url, String timestamp, byte[] digest) {
+        byte[] key = key(url, timestamp);
+        int segment = segmentOf(key);
+        ByteBuffer table = segments[segment];
+        int slot = find(table, key);
+        if (isEmpty(table, slot)) {
+            if ((segmentSizes[segment] + 1) * 2 > slots(table)) {
+                table = grow(segment);
+                slot = find(table, key);
+            }
+            segmentSizes[segment]++;
+            size++;
+        }
+        write(table, slot, key, digest);
+    }
+
+    private ByteBuffer grow(int segment) {
+        ByteBuffer old = segments[segment];
+        if (slots(old) * 2 > MAX_SEGMENT_SLOTS) {
+            throw new IllegalStateException("Digest lookup segment is full");
+        }
+        ByteBuffer table = ByteBuffer.allocateDirect(slots(old) * 2 * ENTRY_LENGTH);
+        byte[] key = new byte[KEY_LENGTH];
+        byte[] digest = new byte[DIGEST_LENGTH];
+        for (int slot = 0; slot < slots(old); slot++) {
+            if (!isEmpty(old, slot)) {
+                old.position(slot * ENTRY_LENGTH);
+                old.get(key);
+                old.get(digest);
+                write(table, find(table, key), key, digest);
+            }
+        }
+        segments[segment] = table;
+        return table;
+    }
+
+    /**
+     * Slot of the key, or the empty slot where the key is inserted.
+     */
+    private static int find(ByteBuffer table, byte[] key) {
+        int slots = slots(table);
+        int slot = (int) ((readLong(key, 8) & Long.MAX_VALUE) % slots);
+        while (!isEmpty(table, slot) && !keyEquals(table, slot, key)) {
+            slot = (slot + 1 == slots) ? 0 : slot + 1;
+        }
+        return slot;
+    }
+
+    private static int slots(ByteBuffer table) {
+        return table.capacity() / ENTRY_LENGTH;
+    }
+
+    private static boolean isEmpty(ByteBuffer table, int slot) {
+        int offset = slot * ENTRY_LENGTH;
+        return table.getLong(offset) == 0 && table.getLong(offset + 8) == 0;
+    }
+
+    private static boolean keyEquals(ByteBuffer table, int slot, byte[] key) {
+        int offset = slot * ENTRY_LENGTH;
+        return table.getLong(offset) == readLong(key, 0) && table.getLong(offset + 8) == readLong(key, 8);
+    }
+
+    private static void write(ByteBuffer table, int slot, byte[] key, byte[] digest) {
+        table.position(slot * ENTRY_LENGTH);
+        table.put(key);
+        table.put(digest);
+    }
+
+    private static int segmentOf(byte[] key) {
+        return (key[0] & 0xff) >>> (8 - SEGMENT_BITS);
+    }
+
+    private static long readLong(byte[] b, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            value = (value << 8) | (b[i] & 0xff);
+        }
+        return value;
+    }
+
+    private byte[] key(String url, String timestamp) {
+        MessageDigest md = keyDigest.getMessageDigest();
+        md.update(timestamp.getBytes(UTF8));
+        md.update((byte) ' ');
+        return md.digest(url.getBytes(UTF8));
+    }
+
+    /**
+     * Decode a digest in the format sha1:BASE32, null if it is not a valid
+     * SHA-1 digest.
+     */
+    static byte[] decodeSha1(String sha1Digest) {
+        if (!sha1Digest.startsWith(SHA1_PREFIX) || sha1Digest.length() != SHA1_PREFIX.length() + 32) {
+            return null;
+        }
+        return DigestService.fromBase32(sha1Digest.substring(SHA1_PREFIX.length()));
+    }
+
+}
@@ -17,6 +17,7 @@ import org.supercsv.util.CsvContext;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.StringReader;
 import java.util.Collections;
@@ -61,7 +62,14 @@ public class CrawlLogEntry {
     public CrawlLogEntry() {
     }
 
-    static Iterator<CrawlLogEntry> asIterator(final CsvBeanReader beanReader) {
+    /**
+     * Iterator over the crawl log entries of a SuperCSV bean reader. The
+     * iterator returns the same entry object for each line.
+     *
+     * @param beanReader Bean reader, see getCsvBeanReader()
+     * @return Crawl log entry iterator
+     */
+    public static Iterator<CrawlLogEntry> asIterator(final CsvBeanReader beanReader) {
         // the header elements are used to map the values to the bean (names must match)
         final String[] header = new String[]{"loggingTimestamp", "statusCode", "size", "downloaded", "breadcrumbs",
                                              "referrer", "mimetype", "workerThreadID", "fetchTimestamp", "sha1Digest",
@@ -119,7 +127,17 @@ public class CrawlLogEntry {
     }
 
     static CsvBeanReader getCsvBeanReader(ArcRecordBase jwatArcRecord) {
-        final BufferedReader reader = new BufferedReader(new InputStreamReader(jwatArcRecord.getPayloadContent()));
+        return getCsvBeanReader(jwatArcRecord.getPayloadContent());
+    }
+
+    /**
+     * SuperCSV bean reader of a crawl log, see asIterator().
+     *
+     * @param crawlLogStream Crawl log input stream
+     * @return Bean reader
+     */
+    public static CsvBeanReader getCsvBeanReader(InputStream crawlLogStream) {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(crawlLogStream));
         return new CsvBeanReader(new ITokenizer() {
 
             int l = 0;
@@ -268,6 +286,9 @@ public class CrawlLogEntry {
     }
 
     public String findDuplicationEntry() {
+        if (annotations == null || !annotations.contains("duplicate:")) {
+            return null;
+        }
         for (String annotation : getAnnotationsList()) {
             if (annotation.startsWith("duplicate:")) {
                 return annotation.split(":")[1];
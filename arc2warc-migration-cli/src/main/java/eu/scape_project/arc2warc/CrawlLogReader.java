@@ -0,0 +1,274 @@
+/*
+ * Copyright 2014 scape.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scape_project.arc2warc;
+
+import eu.scape_project.hawarp.utils.DateUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Date;
+
+/**
+ * Streaming reader for Heritrix crawl logs.
+ *
+ * The lines are split into whitespace separated fields directly in the byte
+ * buffer, numbers and the logging timestamp are parsed from the bytes, and
+ * all values are set on a single mutable entry which is returned by every
+ * call to readEntry(). Callers must copy values they want to keep.
+ *
+ * Lines with less than 12 fields, or with an invalid logging timestamp or
+ * status code, are skipped. Additional fields are ignored. A size of "-" is
+ * returned as -1.
+ *
+ * @author Sven Schlarb <https://github.com/shsdev>
+ */
+public class CrawlLogReader implements Closeable {
+
+    private static final Log LOG = LogFactory.getLog(CrawlLogReader.class);
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final int NUM_FIELDS = 12;
+
+    private static final int BUFFER_SIZE = 65536;
+
+    private final InputStream in;
+
+    private byte[] buf = new byte[BUFFER_SIZE];
+
+    private int pos;
+
+    private int limit;
+
+    private boolean eof;
+
+    private long lineNumber;
+
+    private final int[] fieldStart = new int[NUM_FIELDS];
+
+    private final int[] fieldEnd = new int[NUM_FIELDS];
+
+    private final CrawlLogEntry entry = new CrawlLogEntry();
+
+    private final Date loggingTimestamp = new Date(0);
+
+    /**
+     * Constructor
+     *
+     * @param in Crawl log input stream
+     */
+    public CrawlLogReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Read the next valid crawl log line.
+     *
+     * @return Entry, the same instance for every line, null at the end of the
+     * crawl log
+     * @throws IOException
+     */
+    public CrawlLogEntry readEntry() throws IOException {
+        int lineEnd;
+        while ((lineEnd = nextLine()) != -1) {
+            int lineStart = pos;
+            pos = lineEnd + 1;
+            lineNumber++;
+            if (parseLine(lineStart, lineEnd)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return Number of lines read
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Index of the line feed ending the line which starts at pos, the buffer
+     * is refilled or enlarged as needed. At the end of the stream the last
+     * line gets a virtual line feed.
+     */
+    private int nextLine() throws IOException {
+        int scan = pos;
+        while (true) {
+            for (; scan < limit; scan++) {
+                if (buf[scan] == '\n') {
+                    return scan;
+                }
+            }
+            if (eof) {
+                if (pos < limit) {
+                    // last line without line feed
+                    if (limit == buf.length) {
+                        grow();
+                        scan = limit;
+                    }
+                    buf[limit] = '\n';
+                    return limit++;
+                }
+                return -1;
+            }
+            // move the partial line to the start of the buffer and read more
+            int partial = limit - pos;
+            if (pos > 0) {
+                System.arraycopy(buf, pos, buf, 0, partial);
+                scan -= pos;
+                pos = 0;
+                limit = partial;
+            } else if (limit == buf.length) {
+                grow();
+            }
+            int n = in.read(buf, limit, buf.length - limit);
+            if (n == -1) {
+                eof = true;
+            } else {
+                limit += n;
+            }
+        }
+    }
+
+    private void grow() {
+        byte[] newBuf = new byte[buf.length * 2];
+        System.arraycopy(buf, 0, newBuf, 0, limit);
+        buf = newBuf;
+    }
+
+    private boolean parseLine(int start, int end) {
+        int numFields = 0;
+        int i = start;
+        while (numFields < NUM_FIELDS) {
+            while (i < end && isWhitespace(buf[i])) {
+                i++;
+            }
+            if (i == end) {
+                break;
+            }
+            fieldStart[numFields] = i;
+            while (i < end && !isWhitespace(buf[i])) {
+                i++;
+            }
+            fieldEnd[numFields] = i;
+            numFields++;
+        }
+        if (numFields < NUM_FIELDS) {
+            if (numFields > 0) {
+                LOG.warn("Skipping crawl log line " + lineNumber + ": only " + numFields + " fields");
+            }
+            return false;
+        }
+        long timestamp = parseTimestamp(fieldStart[0], fieldEnd[0]);
+        long statusCode = parseLong(fieldStart[1], fieldEnd[1]);
+        if (timestamp == Long.MIN_VALUE || statusCode == Long.MIN_VALUE) {
+            LOG.warn("Skipping crawl log line " + lineNumber + ": invalid timestamp or status code");
+            return false;
+        }
+        long size = parseLong(fieldStart[2], fieldEnd[2]);
+        loggingTimestamp.setTime(timestamp);
+        entry.setLoggingTimestamp(loggingTimestamp);
+        entry.setStatusCode((int) statusCode);
+        entry.setSize((size == Long.MIN_VALUE) ? -1 : size);
+        entry.setDownloaded(field(3));
+        entry.setBreadcrumbs(field(4));
+        entry.setReferrer(field(5));
+        entry.setMimetype(field(6));
+        entry.setWorkerThreadID(field(7));
+        entry.setFetchTimestamp(field(8));
+        entry.setSha1Digest(field(9));
+        entry.setSourceTag(field(10));
+        entry.setAnnotations(field(11));
+        return true;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == '\f' || b == 0x0b;
+    }
+
+    private String field(int index) {
+        int start = fieldStart[index];
+        int length = fieldEnd[index] - start;
+        for (int i = start; i < fieldEnd[index]; i++) {
+            if (buf[i] < 0) {
+                return new String(buf, start, length, UTF8);
+            }
+        }
+        // ASCII only, no decoder needed
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) buf[start + i];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Parse a decimal number, Long.MIN_VALUE if it is not a number.
+     */
+    private long parseLong(int start, int end) {
+        boolean negative = start < end && buf[start] == '-';
+        int i = negative ? start + 1 : start;
+        if (i == end) {
+            return Long.MIN_VALUE;
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = buf[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return Long.MIN_VALUE;
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parse a timestamp in the format yyyy-MM-dd'T'HH:mm:ss.SSS'Z' (UTC),
+     * Long.MIN_VALUE if the format does not match.
+     */
+    private long parseTimestamp(int start, int end) {
+        if (end - start != 24 || buf[start + 4] != '-' || buf[start + 7] != '-' || buf[start + 10] != 'T'
+                || buf[start + 13] != ':' || buf[start + 16] != ':' || buf[start + 19] != '.'
+                || buf[start + 23] != 'Z') {
+            return Long.MIN_VALUE;
+        }
+        long year = parseLong(start, start + 4);
+        long month = parseLong(start + 5, start + 7);
+        long day = parseLong(start + 8, start + 10);
+        long hour = parseLong(start + 11, start + 13);
+        long minute = parseLong(start + 14, start + 16);
+        long second = parseLong(start + 17, start + 19);
+        long millis = parseLong(start + 20, start + 23);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31 || hour < 0 || hour > 23
+                || minute < 0 || minute > 59 || second < 0 || second > 60 || millis < 0) {
+            return Long.MIN_VALUE;
+        }
+        long days = DateUtils.daysFromCivil(year, month, day);
+        return (((days * 24 + hour) * 60 + minute) * 60 + second) * 1000 + millis;
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2014 scape.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scape_project.arc2warc;
+
+import eu.scape_project.arc2warc.cli.Arc2WarcMigrationConfig;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Parallel ARC to WARC migration for a list of ARC files. The files are
+ * migrated by a fixed size pool of worker threads, each worker thread reuses
+ * one payload buffer for all files it migrates. Metadata ARC files are
+ * migrated in a single pass which also creates the deduplication WARC file.
+ *
+ * @author Sven Schlarb <https://github.com/shsdev>
+ */
+public class ParallelArcMigration {
+
+    private static final Log LOG = LogFactory.getLog(ParallelArcMigration.class);
+
+    private final Arc2WarcMigrationConfig config;
+
+    private final List<File> arcFiles;
+
+    private final ThreadLocal<byte[]> buffers = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[ArcMigrator.LIMIT_LARGE_PAYLOAD];
+        }
+    };
+
+    public ParallelArcMigration(Arc2WarcMigrationConfig config, List<File> arcFiles) {
+        this.config = config;
+        this.arcFiles = arcFiles;
+    }
+
+    /**
+     * Migrate all ARC files and wait until all migrations are finished.
+     *
+     * @return True if all files have been migrated successfully
+     */
+    public boolean migrate() {
+        ExecutorService executor = Executors.newFixedThreadPool(config.getNumThreads());
+        List<MigrationCallable> tasks = new ArrayList<MigrationCallable>();
+        for (File arcFile : arcFiles) {
+            File warcFile = Arc2WarcMigration.getWarcFile(config, arcFile);
+            File duplicationsWarcFile = null;
+            if (Arc2WarcMigration.isMetadataArcFile(arcFile)) {
+                duplicationsWarcFile = Arc2WarcMigration.getDuplicationsWarcFile(warcFile);
+            }
+            tasks.add(new MigrationCallable(arcFile, warcFile, duplicationsWarcFile));
+        }
+        int failed = 0;
+        try {
+            List<Future<File>> futures = executor.invokeAll(tasks);
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    futures.get(i).get();
+                } catch (ExecutionException ex) {
+                    failed++;
+                    LOG.error("Unable to migrate file: " + tasks.get(i).arcFile.getAbsolutePath(), ex.getCause());
+                }
+            }
+        } catch (InterruptedException ex) {
+            LOG.error("Interrupted while waiting for ARC migration", ex);
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            executor.shutdownNow();
+        }
+        if (failed > 0) {
+            LOG.error(failed + " of " + tasks.size() + " migration tasks failed");
+        }
+        return failed == 0;
+    }
+
+    /**
+     * Migrate one ARC file using the payload buffer of the worker thread.
+     */
+    private class MigrationCallable implements Callable<File> {
+
+        private final File arcFile;
+        private final File warcFile;
+        private final File duplicationsWarcFile;
+
+        MigrationCallable(File arcFile, File warcFile, File duplicationsWarcFile) {
+            this.arcFile = arcFile;
+            this.warcFile = warcFile;
+            this.duplicationsWarcFile = duplicationsWarcFile;
+        }
+
+        @Override
+        public File call() {
+            ArcMigrator arcMigrator;
+            if (duplicationsWarcFile != null) {
+                arcMigrator = new ArcMigrator(config, arcFile, warcFile, duplicationsWarcFile, buffers.get());
+            } else {
+                arcMigrator = new ArcMigrator(config, arcFile, warcFile, false, buffers.get());
+            }
+            arcMigrator.migrateArcFile();
+            return warcFile;
+        }
+    }
+
+}
@@ -16,13 +16,13 @@
 package eu.scape_project.arc2warc;
 
 import eu.scape_project.hawarp.interfaces.Identifier;
+import eu.scape_project.hawarp.utils.DigestService;
 import eu.scape_project.hawarp.utils.StreamUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.input.NullInputStream;
 import org.apache.commons.lang.RandomStringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.jwat.common.Base32;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
@@ -33,8 +33,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.security.DigestInputStream;
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 
 import static eu.scape_project.hawarp.interfaces.Identifier.MIME_UNKNOWN;
 import static eu.scape_project.hawarp.utils.IOUtils.BUFFER_SIZE;
@@ -62,6 +62,31 @@ public class PayloadContent {
 
     private String digestStr;
 
+    private SeekableSource seekableSource;
+
+    private MessageDigest streamedDigest;
+
+    private String knownDigestStr;
+
+    private boolean verifyKnownDigest;
+
+    private DigestService digestService = DigestService.getInstance(DigestService.DEFAULT_ALGORITHM);
+
+    /**
+     * Source of the payload content which can be opened a second time, e.g.
+     * the record in the ARC file.
+     */
+    public interface SeekableSource {
+
+        /**
+         * Open a new stream of the payload content from the beginning.
+         *
+         * @return Payload content input stream
+         * @throws IOException
+         */
+        InputStream openPayloadContent() throws IOException;
+    }
+
 
     public PayloadContent(InputStream inputStream, long length, byte[] buffer) {
         this.length = length;
@@ -91,52 +116,170 @@ public class PayloadContent {
     }
 
 
+    /**
+     * Set the digest service of the payload digest (default: SHA-1).
+     *
+     * @param digestService Digest service
+     */
+    public void setDigestService(DigestService digestService) {
+        this.digestService = digestService;
+    }
+
+    public void setSeekableSource(SeekableSource seekableSource) {
+        this.seekableSource = seekableSource;
+    }
+
+    /**
+     * Set the digest of the payload if it is already known, e.g. from the
+     * crawl log. The payload is then not hashed, unless the known digest is
+     * to be verified. If verification fails, the computed digest is used.
+     *
+     * @param knownDigestStr Digest in the format label:BASE32, e.g. sha1:BASE32
+     * @param verify Compute the digest and compare it to the known digest
+     */
+    public void setKnownDigest(String knownDigestStr, boolean verify) {
+        this.knownDigestStr = knownDigestStr;
+        this.verifyKnownDigest = verify;
+    }
+
+    /**
+     * Get the payload content as input stream, the digest and identified
+     * payload type are available after this method returned. If the digest
+     * is known, the payload is streamed through without hashing. Small payloads
+     * are copied to the buffer. Large payloads are streamed straight through
+     * if a seekable source is available: the digest is computed in a first
+     * pass over the seekable source, and checked against the streamed payload
+     * by checkStreamedDigest(). Otherwise large payloads are copied to a
+     * temporary file which is deleted when the returned stream is closed.
+     *
+     * @return Payload content input stream
+     * @throws IOException
+     */
     public InputStream getPayloadContentAsInputStream() throws IOException {
+        if (knownDigestStr != null && !verifyKnownDigest) {
+            return getPayloadContentWithKnownDigest();
+        }
+        InputStream payloadContentStream = readPayloadContent();
+        if (knownDigestStr != null && !knownDigestStr.equalsIgnoreCase(digestStr)) {
+            LOG.warn("Known payload digest " + knownDigestStr + " differs from computed digest " + digestStr);
+        }
+        return payloadContentStream;
+    }
+
+    /**
+     * Stream the payload through with the known digest, only the first bytes
+     * are read in advance if the payload type is identified.
+     */
+    private InputStream getPayloadContentWithKnownDigest() throws IOException {
+        BufferedInputStream buffis = new BufferedInputStream(inputStream, BUFFER_SIZE);
+        if (doPayloadIdentification) {
+            buffis.mark(BUFFER_SIZE);
+            byte[] prefix = new byte[BUFFER_SIZE];
+            int total = 0;
+            int bytesRead;
+            while (total < prefix.length && (bytesRead = buffis.read(prefix, total, prefix.length - total)) != -1) {
+                total += bytesRead;
+            }
+            if (total > 0) {
+                identified = identifyPayloadType(prefix);
+            }
+            buffis.reset();
+        }
+        digestStr = knownDigestStr;
+        consumed = true;
+        return buffis;
+    }
+
+    private InputStream readPayloadContent() throws IOException {
         if (length >= buffer.length) {
+            if (seekableSource != null) {
+                InputStream firstPassStream = seekableSource.openPayloadContent();
+                copyAndCheck(firstPassStream, null);
+                streamedDigest = digestService.newMessageDigest();
+                return new DigestInputStream(inputStream, streamedDigest);
+            }
             File tempDir = org.apache.commons.io.FileUtils.getTempDirectory();
             final File tmp = File.createTempFile(RandomStringUtils.randomAlphabetic(10), "tmp", tempDir);
-            tmp.deleteOnExit();
             FileOutputStream outputStream = null;
             try {
                 outputStream = new FileOutputStream(tmp);
-                copyAndCheck(outputStream);
+                copyAndCheck(inputStream, outputStream);
+            } catch (IOException ex) {
+                IOUtils.closeQuietly(outputStream);
+                deleteTempFile(tmp);
+                throw ex;
             } finally {
                 IOUtils.closeQuietly(outputStream);
             }
-            return new FileInputStream(tmp);
+            return new FileInputStream(tmp) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        deleteTempFile(tmp);
+                    }
+                }
+            };
         } else {
             final ByteBuffer wrap = ByteBuffer.wrap(buffer);
             wrap.clear();
             OutputStream outStream = StreamUtils.newOutputStream(wrap);
-            copyAndCheck(outStream);
+            copyAndCheck(inputStream, outStream);
             wrap.flip();
             return StreamUtils.newInputStream(wrap);
         }
     }
 
+    /**
+     * Check that the payload streamed through after the first pass over the
+     * seekable source has the digest of the first pass. Must be called after
+     * the payload content stream has been read completely.
+     *
+     * @throws IOException If the digests differ
+     */
+    public void checkStreamedDigest() throws IOException {
+        if (streamedDigest == null) {
+            return;
+        }
+        String streamedDigestStr = digestService.toLabelledBase32(streamedDigest.digest());
+        streamedDigest = null;
+        if (!streamedDigestStr.equals(digestStr)) {
+            throw new IOException("Streamed payload digest " + streamedDigestStr
+                    + " differs from first pass digest " + digestStr);
+        }
+    }
 
-    private void copyAndCheck(OutputStream outputStream) throws IOException {
-        MessageDigest md;
-        try {
-            md = MessageDigest.getInstance("SHA-1");
-        } catch (NoSuchAlgorithmException ex) {
-            throw new RuntimeException("SHA-1 not known");
+    private static void deleteTempFile(File tmp) {
+        if (tmp.exists() && !tmp.delete()) {
+            LOG.warn("Unable to delete temporary file " + tmp.getAbsolutePath());
         }
-        BufferedInputStream buffis = new BufferedInputStream(inputStream);
-        BufferedOutputStream buffos = new BufferedOutputStream(outputStream);
+    }
+
+    /**
+     * Read the input stream completely, compute the digest and identify the
+     * payload type from the first bytes. The bytes are copied to the output
+     * stream if it is not null. Both streams are closed.
+     */
+    private void copyAndCheck(InputStream in, OutputStream outputStream) throws IOException {
+        MessageDigest md = digestService.getMessageDigest();
+        BufferedInputStream buffis = new BufferedInputStream(in);
+        BufferedOutputStream buffos = (outputStream != null) ? new BufferedOutputStream(outputStream) : null;
         try {
             byte[] tempBuffer = new byte[BUFFER_SIZE];
             int bytesRead;
             boolean firstByteArray = true;
             while ((bytesRead = buffis.read(tempBuffer)) != -1) {
                 md.update(tempBuffer, 0, bytesRead);
-                buffos.write(tempBuffer, 0, bytesRead);
+                if (buffos != null) {
+                    buffos.write(tempBuffer, 0, bytesRead);
+                }
                 if (doPayloadIdentification && firstByteArray && bytesRead > 0) {
                     identified = identifyPayloadType(tempBuffer);
                 }
                 firstByteArray = false;
             }
-            digestStr = "sha1:" + calcDigest(md);
+            digestStr = digestService.toLabelledBase32(md.digest());
             consumed = true;
         } finally {
             IOUtils.closeQuietly(buffis);
@@ -144,11 +287,6 @@ public class PayloadContent {
         }
     }
 
-    private String calcDigest(MessageDigest md) {
-        byte[] mdbytes = md.digest();
-        return Base32.encodeArray(mdbytes);
-    }
-
     private boolean identifyPayloadType(byte[] prefix) {
         if (identifier != null) {
             identifiedPayLoadType = identifier.identify(prefix);
@@ -0,0 +1,448 @@
+/*
+ * Copyright 2014 scape.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scape_project.arc2warc;
+
+import eu.scape_project.hawarp.utils.DigestService;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Persistent index of payload digests to the WARC record which first
+ * contained the payload (WARC-Record-ID, target URI and date), used to write
+ * identical payloads as revisit records across WARC files. Digests of any
+ * algorithm with at least 160 bits can be used (e.g. SHA-1 or SHA-256), the
+ * index key are the first 160 bits of the digest.
+ *
+ * The index directory contains one hash table file per first byte of the
+ * digest, and a data file. The hash tables are memory mapped, a slot holds
+ * the binary digest (20 bytes) and the offset of the entry in the data file
+ * (8 bytes); a table is doubled into a new file when half full, which then
+ * replaces the table file by renaming it. A new table file left over by an
+ * interrupted doubling is discarded or, if the table file has already been
+ * removed, used instead when the index is opened. The entries are appended to
+ * the data file. Nothing is kept on the heap per entry, so
+ * the number of entries is limited by disk space and the address space only.
+ *
+ * The index can be used by several migration threads concurrently; the
+ * tables are locked individually.
+ *
+ * @author Sven Schlarb <https://github.com/shsdev>
+ */
+public class PayloadDigestIndex implements Closeable {
+
+    private static final Log LOG = LogFactory.getLog(PayloadDigestIndex.class);
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final int MAGIC = 0x50444931; // PDI1
+
+    private static final int HEADER_LENGTH = 16;
+
+    private static final int DIGEST_LENGTH = 20;
+
+    private static final int SLOT_LENGTH = DIGEST_LENGTH + 8;
+
+    private static final int INITIAL_SEGMENT_SLOTS = 4096;
+
+    private static final int MAX_SEGMENT_SLOTS = (Integer.MAX_VALUE - HEADER_LENGTH) / SLOT_LENGTH;
+
+    private static final String DATA_FILE_NAME = "entries.dat";
+
+    private final File indexDir;
+
+    private final Segment[] segments = new Segment[256];
+
+    private final RandomAccessFile dataFile;
+
+    private final FileChannel dataChannel;
+
+    private long dataLength;
+
+    /**
+     * WARC record which first contained a payload.
+     */
+    public static class Entry {
+
+        private final String recordId;
+        private final String targetUri;
+        private final String date;
+
+        public Entry(String recordId, String targetUri, String date) {
+            this.recordId = recordId;
+            this.targetUri = targetUri;
+            this.date = date;
+        }
+
+        public String getRecordId() {
+            return recordId;
+        }
+
+        public String getTargetUri() {
+            return targetUri;
+        }
+
+        public String getDate() {
+            return date;
+        }
+    }
+
+    /**
+     * Open the index in the directory, the directory and the index files are
+     * created if they do not exist.
+     *
+     * @param indexDir Index directory
+     * @throws IOException
+     */
+    public PayloadDigestIndex(File indexDir) throws IOException {
+        this.indexDir = indexDir;
+        FileUtils.forceMkdir(indexDir);
+        dataFile = new RandomAccessFile(new File(indexDir, DATA_FILE_NAME), "rw");
+        dataChannel = dataFile.getChannel();
+        dataLength = dataChannel.size();
+        try {
+            for (int i = 0; i < segments.length; i++) {
+                segments[i] = new Segment(new File(indexDir, String.format("digests-%02x.idx", i)), dataLength > 0);
+            }
+        } catch (IOException ex) {
+            close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Get the entry of the payload digest, or add the entry if the digest is
+     * not in the index yet.
+     *
+     * @param payloadDigest Payload digest in the format label:BASE32, e.g.
+     * sha1:BASE32
+     * @param entry Entry which is added if the digest is not known
+     * @return Existing entry, null if the entry has been added or if the
+     * digest is invalid or shorter than 160 bits
+     * @throws IOException
+     */
+    public Entry putIfAbsent(String payloadDigest, Entry entry) throws IOException {
+        byte[] digest = decodeKey(payloadDigest);
+        if (digest == null) {
+            return null;
+        }
+        return segments[digest[0] & 0xff].putIfAbsent(digest, entry);
+    }
+
+    /**
+     * Get the entry of the payload digest.
+     *
+     * @param payloadDigest Payload digest in the format label:BASE32, e.g.
+     * sha1:BASE32
+     * @return Entry, null if not known
+     * @throws IOException
+     */
+    public Entry get(String payloadDigest) throws IOException {
+        byte[] digest = decodeKey(payloadDigest);
+        if (digest == null) {
+            return null;
+        }
+        return segments[digest[0] & 0xff].get(digest);
+    }
+
+    /**
+     * Index key of a payload digest: the first 160 bits, null if the digest
+     * is invalid or shorter.
+     */
+    private static byte[] decodeKey(String payloadDigest) {
+        byte[] digest = DigestService.fromLabelledBase32(payloadDigest);
+        if (digest == null || digest.length < DIGEST_LENGTH) {
+            return null;
+        }
+        if (digest.length > DIGEST_LENGTH) {
+            byte[] key = new byte[DIGEST_LENGTH];
+            System.arraycopy(digest, 0, key, 0, DIGEST_LENGTH);
+            return key;
+        }
+        return digest;
+    }
+
+    /**
+     * @return Number of entries
+     */
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Write the tables and the data file to disk and close the files.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        for (Segment segment : segments) {
+            if (segment != null) {
+                segment.close();
+            }
+        }
+        dataChannel.force(true);
+        dataFile.close();
+        LOG.info("Payload digest index closed: " + indexDir.getAbsolutePath());
+    }
+
+    private long appendEntry(Entry entry) throws IOException {
+        byte[] recordId = entry.getRecordId().getBytes(UTF8);
+        byte[] targetUri = entry.getTargetUri().getBytes(UTF8);
+        byte[] date = entry.getDate().getBytes(UTF8);
+        ByteBuffer buf = ByteBuffer.allocate(16 + recordId.length + targetUri.length + date.length);
+        buf.putInt(buf.capacity() - 4);
+        buf.putInt(recordId.length).put(recordId);
+        buf.putInt(targetUri.length).put(targetUri);
+        buf.putInt(date.length).put(date);
+        buf.flip();
+        synchronized (dataChannel) {
+            long offset = dataLength;
+            long pos = offset;
+            while (buf.hasRemaining()) {
+                pos += dataChannel.write(buf, pos);
+            }
+            dataLength = pos;
+            return offset;
+        }
+    }
+
+    private Entry readEntry(long offset) throws IOException {
+        ByteBuffer lengthBuf = ByteBuffer.allocate(4);
+        readFully(lengthBuf, offset);
+        ByteBuffer buf = ByteBuffer.allocate(lengthBuf.getInt(0));
+        readFully(buf, offset + 4);
+        buf.flip();
+        return new Entry(readString(buf), readString(buf), readString(buf));
+    }
+
+    private void readFully(ByteBuffer buf, long offset) throws IOException {
+        long pos = offset;
+        while (buf.hasRemaining()) {
+            int n = dataChannel.read(buf, pos);
+            if (n == -1) {
+                throw new EOFException("Truncated payload digest index entry at offset " + offset);
+            }
+            pos += n;
+        }
+    }
+
+    private static String readString(ByteBuffer buf) {
+        byte[] bytes = new byte[buf.getInt()];
+        buf.get(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    /**
+     * Hash table file of the digests starting with the same byte. A slot
+     * holds the digest and the data file offset plus one, zero marks an
+     * empty slot.
+     */
+    private final class Segment {
+
+        private final File file;
+        private RandomAccessFile raf;
+        private MappedByteBuffer table;
+        private int slots;
+        private int count;
+
+        Segment(File file, boolean existingIndex) throws IOException {
+            this.file = file;
+            recover(existingIndex);
+            if (file.exists()) {
+                open();
+                if (table.getInt(0) != MAGIC) {
+                    raf.close();
+                    throw new IOException("Not a payload digest index file: " + file.getAbsolutePath());
+                }
+                slots = table.getInt(4);
+                count = table.getInt(8);
+            } else {
+                create(file, INITIAL_SEGMENT_SLOTS).close();
+                open();
+                slots = INITIAL_SEGMENT_SLOTS;
+                count = 0;
+            }
+        }
+
+        /**
+         * Clean up after a doubling of the table which has been interrupted.
+         * If the table file still exists, the new table file may be
+         * incomplete and is deleted. Otherwise the new table file has been
+         * completed and only the rename is missing. A table file of an index
+         * with entries must not be missing.
+         */
+        private void recover(boolean existingIndex) throws IOException {
+            File tmpFile = getTmpFile();
+            if (!tmpFile.exists()) {
+                if (existingIndex && !file.exists()) {
+                    throw new IOException("Payload digest index file is missing: " + file.getAbsolutePath());
+                }
+                return;
+            }
+            if (file.exists()) {
+                LOG.warn("Deleting incomplete payload digest index file: " + tmpFile.getAbsolutePath());
+                if (!tmpFile.delete()) {
+                    throw new IOException("Unable to delete payload digest index file: " + tmpFile.getAbsolutePath());
+                }
+            } else {
+                LOG.warn("Recovering payload digest index file: " + file.getAbsolutePath());
+                if (!tmpFile.renameTo(file)) {
+                    throw new IOException("Unable to recover payload digest index file: " + file.getAbsolutePath());
+                }
+            }
+        }
+
+        private File getTmpFile() {
+            return new File(file.getParentFile(), file.getName() + ".tmp");
+        }
+
+        private void open() throws IOException {
+            raf = new RandomAccessFile(file, "rw");
+            table = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, raf.length());
+        }
+
+        synchronized long size() {
+            return count;
+        }
+
+        synchronized Entry get(byte[] digest) throws IOException {
+            int slot = find(table, slots, digest);
+            long offset = table.getLong(slotPosition(slot) + DIGEST_LENGTH);
+            return (offset == 0) ? null : readEntry(offset - 1);
+        }
+
+        synchronized Entry putIfAbsent(byte[] digest, Entry entry) throws IOException {
+            int slot = find(table, slots, digest);
+            long offset = table.getLong(slotPosition(slot) + DIGEST_LENGTH);
+            if (offset != 0) {
+                return readEntry(offset - 1);
+            }
+            if ((count + 1) * 2 > slots) {
+                grow();
+                slot = find(table, slots, digest);
+            }
+            long dataOffset = appendEntry(entry);
+            table.position(slotPosition(slot));
+            table.put(digest);
+            table.putLong(dataOffset + 1);
+            count++;
+            table.putInt(8, count);
+            return null;
+        }
+
+        private void grow() throws IOException {
+            if (slots * 2 > MAX_SEGMENT_SLOTS) {
+                throw new IOException("Payload digest index table is full: " + file.getAbsolutePath());
+            }
+            int newSlots = slots * 2;
+            File tmpFile = getTmpFile();
+            RandomAccessFile tmpRaf = create(tmpFile, newSlots);
+            try {
+                MappedByteBuffer newTable = tmpRaf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, tmpRaf.length());
+                byte[] digest = new byte[DIGEST_LENGTH];
+                for (int slot = 0; slot < slots; slot++) {
+                    table.position(slotPosition(slot));
+                    table.get(digest);
+                    long offset = table.getLong();
+                    if (offset != 0) {
+                        newTable.position(slotPosition(find(newTable, newSlots, digest)));
+                        newTable.put(digest);
+                        newTable.putLong(offset);
+                    }
+                }
+                newTable.putInt(8, count);
+                newTable.force();
+            } finally {
+                tmpRaf.close();
+            }
+            raf.close();
+            table = null;
+            // the rename replaces the table file atomically on POSIX file
+            // systems, other file systems require the table file to be deleted
+            if (!tmpFile.renameTo(file) && !(file.delete() && tmpFile.renameTo(file))) {
+                throw new IOException("Unable to replace payload digest index file: " + file.getAbsolutePath());
+            }
+            open();
+            slots = newSlots;
+        }
+
+        void close() throws IOException {
+            synchronized (this) {
+                if (raf != null) {
+                    table.force();
+                    raf.close();
+                    raf = null;
+                }
+            }
+        }
+    }
+
+    private static RandomAccessFile create(File file, int slots) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(HEADER_LENGTH + (long) slots * SLOT_LENGTH);
+        raf.writeInt(MAGIC);
+        raf.writeInt(slots);
+        raf.writeInt(0);
+        return raf;
+    }
+
+    private static int slotPosition(int slot) {
+        return HEADER_LENGTH + slot * SLOT_LENGTH;
+    }
+
+    /**
+     * Slot of the digest, or the empty slot where the digest is inserted.
+     */
+    private static int find(ByteBuffer table, int slots, byte[] digest) {
+        long hash = 0;
+        for (int i = 1; i < 9; i++) {
+            hash = (hash << 8) | (digest[i] & 0xff);
+        }
+        int slot = (int) ((hash & Long.MAX_VALUE) % slots);
+        while (true) {
+            int pos = slotPosition(slot);
+            if (table.getLong(pos + DIGEST_LENGTH) == 0 || digestEquals(table, pos, digest)) {
+                return slot;
+            }
+            slot = (slot + 1 == slots) ? 0 : slot + 1;
+        }
+    }
+
+    private static boolean digestEquals(ByteBuffer table, int pos, byte[] digest) {
+        for (int i = 0; i < DIGEST_LENGTH; i++) {
+            if (table.get(pos + i) != digest[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -16,6 +16,9 @@
  */
 package eu.scape_project.arc2warc.cli;
 
+import eu.scape_project.arc2warc.CrawlLogDigestLookup;
+import eu.scape_project.arc2warc.PayloadDigestIndex;
+import eu.scape_project.hawarp.utils.DigestService;
 import eu.scape_project.hawarp.cli.CliConfig;
 
 /**
@@ -29,6 +32,13 @@ public class Arc2WarcMigrationConfig extends CliConfig {
     private String inputPathRegexFilter;
     private boolean createCompressedWarc;
     private boolean directoryInput;
+    private int numThreads = 1;
+    private String digestInputStr;
+    private double digestVerifyRate;
+    private CrawlLogDigestLookup digestLookup;
+    private String digestIndexStr;
+    private PayloadDigestIndex digestIndex;
+    private String payloadDigestAlgorithm = DigestService.DEFAULT_ALGORITHM;
 
     /**
      * Empty constructor
@@ -69,4 +79,60 @@ public class Arc2WarcMigrationConfig extends CliConfig {
         this.directoryInput = directoryInput;
     }
 
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    public void setNumThreads(int numThreads) {
+        this.numThreads = numThreads;
+    }
+
+    public String getDigestInputStr() {
+        return digestInputStr;
+    }
+
+    public void setDigestInputStr(String digestInputStr) {
+        this.digestInputStr = digestInputStr;
+    }
+
+    public double getDigestVerifyRate() {
+        return digestVerifyRate;
+    }
+
+    public void setDigestVerifyRate(double digestVerifyRate) {
+        this.digestVerifyRate = digestVerifyRate;
+    }
+
+    public CrawlLogDigestLookup getDigestLookup() {
+        return digestLookup;
+    }
+
+    public void setDigestLookup(CrawlLogDigestLookup digestLookup) {
+        this.digestLookup = digestLookup;
+    }
+
+    public String getDigestIndexStr() {
+        return digestIndexStr;
+    }
+
+    public void setDigestIndexStr(String digestIndexStr) {
+        this.digestIndexStr = digestIndexStr;
+    }
+
+    public PayloadDigestIndex getDigestIndex() {
+        return digestIndex;
+    }
+
+    public void setDigestIndex(PayloadDigestIndex digestIndex) {
+        this.digestIndex = digestIndex;
+    }
+
+    public String getPayloadDigestAlgorithm() {
+        return payloadDigestAlgorithm;
+    }
+
+    public void setPayloadDigestAlgorithm(String payloadDigestAlgorithm) {
+        this.payloadDigestAlgorithm = payloadDigestAlgorithm;
+    }
+
 }
@@ -17,6 +17,7 @@
 package eu.scape_project.arc2warc.cli;
 
 import eu.scape_project.hawarp.cli.CliOptions;
+import eu.scape_project.hawarp.utils.DigestService;
 import org.apache.commons.cli.CommandLine;
 
 import java.io.File;
@@ -40,11 +41,41 @@ public class Arc2WarcMigrationOptions extends CliOptions {
     public String WARCCOMPRESSED_OPT = "comprwarc";
     public String WARCCOMPRESSED_OPT_DESC = "Create compressed WARC file. [optional].";
 
+    public String NUMTHREADS_FLG = "t";
+    public String NUMTHREADS_OPT = "threads";
+    public String NUMTHREADS_OPT_DESC = "Number of threads for migrating the files of an input directory "
+            + "in parallel (default: 1). [optional].";
+
+    public String DIGESTINPUT_FLG = "d";
+    public String DIGESTINPUT_OPT = "digests";
+    public String DIGESTINPUT_OPT_DESC = "Crawl log, metadata ARC file or directory of them providing the payload "
+            + "digests, known digests are not recomputed. [optional].";
+
+    public String DIGESTVERIFY_FLG = "v";
+    public String DIGESTVERIFY_OPT = "verifyrate";
+    public String DIGESTVERIFY_OPT_DESC = "Fraction of known payload digests which are verified, between 0 and 1 "
+            + "(default: 0). [optional].";
+
+    public String DIGESTINDEX_FLG = "e";
+    public String DIGESTINDEX_OPT = "dedupindex";
+    public String DIGESTINDEX_OPT_DESC = "Directory of the persistent payload digest index, responses with a "
+            + "payload which is already in the index are written as revisit records. [optional].";
+
+    public String DIGESTALGORITHM_FLG = "a";
+    public String DIGESTALGORITHM_OPT = "digestalgorithm";
+    public String DIGESTALGORITHM_OPT_DESC = "Message digest algorithm of the WARC payload digests, e.g. SHA-256 "
+            + "(default: SHA-1). Crawl log digests (-d) can only be used with SHA-1. [optional].";
+
     public Arc2WarcMigrationOptions() {
         options.addOption(OUTPUT_FLG, OUTPUT_OPT, true, OUTPUT_OPT_DESC);
         options.addOption(CONTENTTYPEID_FLG, CONTENTTYPEID_OPT, false, CONTENTTYPEID_OPT_DESC);
         options.addOption(INPUTPATHREGEX_FLG, INPUTPATHREGEX_OPT, true, INPUTPATHREGEX_OPT_DESC);
         options.addOption(WARCCOMPRESSED_FLG, WARCCOMPRESSED_OPT, false, WARCCOMPRESSED_OPT_DESC);
+        options.addOption(NUMTHREADS_FLG, NUMTHREADS_OPT, true, NUMTHREADS_OPT_DESC);
+        options.addOption(DIGESTINPUT_FLG, DIGESTINPUT_OPT, true, DIGESTINPUT_OPT_DESC);
+        options.addOption(DIGESTVERIFY_FLG, DIGESTVERIFY_OPT, true, DIGESTVERIFY_OPT_DESC);
+        options.addOption(DIGESTALGORITHM_FLG, DIGESTALGORITHM_OPT, true, DIGESTALGORITHM_OPT_DESC);
+        options.addOption(DIGESTINDEX_FLG, DIGESTINDEX_OPT, true, DIGESTINDEX_OPT_DESC);
     }
 
     public void initOptions(CommandLine cmd, Arc2WarcMigrationConfig pc) {
@@ -73,6 +104,71 @@ public class Arc2WarcMigrationOptions extends CliOptions {
             System.out.println("Create compressed WARC file output");
         }
 
+        // number of threads
+        if (cmd.hasOption(NUMTHREADS_OPT) && cmd.getOptionValue(NUMTHREADS_OPT) != null) {
+            String numThreadsStr = cmd.getOptionValue(NUMTHREADS_OPT);
+            int numThreads;
+            try {
+                numThreads = Integer.parseInt(numThreadsStr);
+            } catch (NumberFormatException ex) {
+                numThreads = 0;
+            }
+            if (numThreads < 1) {
+                exit("Number of threads must be a positive integer: " + numThreadsStr, 1);
+            }
+            pc.setNumThreads(numThreads);
+            System.out.println("Number of threads: " + numThreads);
+        }
+
+        // payload digest algorithm
+        if (cmd.hasOption(DIGESTALGORITHM_OPT) && cmd.getOptionValue(DIGESTALGORITHM_OPT) != null) {
+            String algorithmStr = cmd.getOptionValue(DIGESTALGORITHM_OPT);
+            String algorithm = null;
+            try {
+                algorithm = DigestService.getInstance(algorithmStr).getAlgorithm();
+            } catch (IllegalArgumentException ex) {
+                exit("Digest algorithm not available: " + algorithmStr, 1);
+            }
+            pc.setPayloadDigestAlgorithm(algorithm);
+            System.out.println("Payload digest algorithm: " + algorithm);
+        }
+
+        // known payload digests
+        if (cmd.hasOption(DIGESTINPUT_OPT) && cmd.getOptionValue(DIGESTINPUT_OPT) != null) {
+            String digestInputStr = cmd.getOptionValue(DIGESTINPUT_OPT);
+            if (!new File(digestInputStr).exists()) {
+                exit("Digest input does not exist: " + digestInputStr, 1);
+            }
+            if (!DigestService.SHA1.equals(pc.getPayloadDigestAlgorithm())) {
+                exit("Crawl log digests can only be used with the SHA-1 payload digest", 1);
+            }
+            pc.setDigestInputStr(digestInputStr);
+            System.out.println("Payload digests from: " + digestInputStr);
+        }
+
+        // verify rate of known payload digests
+        if (cmd.hasOption(DIGESTVERIFY_OPT) && cmd.getOptionValue(DIGESTVERIFY_OPT) != null) {
+            String verifyRateStr = cmd.getOptionValue(DIGESTVERIFY_OPT);
+            double verifyRate;
+            try {
+                verifyRate = Double.parseDouble(verifyRateStr);
+            } catch (NumberFormatException ex) {
+                verifyRate = -1;
+            }
+            if (verifyRate < 0 || verifyRate > 1) {
+                exit("Digest verify rate must be between 0 and 1: " + verifyRateStr, 1);
+            }
+            pc.setDigestVerifyRate(verifyRate);
+            System.out.println("Digest verify rate: " + verifyRate);
+        }
+
+        // payload digest index for deduplication across files
+        if (cmd.hasOption(DIGESTINDEX_OPT) && cmd.getOptionValue(DIGESTINDEX_OPT) != null) {
+            String digestIndexStr = cmd.getOptionValue(DIGESTINDEX_OPT);
+            pc.setDigestIndexStr(digestIndexStr);
+            System.out.println("Payload digest index: " + digestIndexStr);
+        }
+
         if (cmd.hasOption(OUTPUT_OPT) && cmd.getOptionValue(OUTPUT_OPT) != null) {
             File input = new File(cmd.getOptionValue(INPUT_OPT));
             String outputStr = cmd.getOptionValue(OUTPUT_OPT);
@@ -19,6 +19,7 @@ package eu.scape_project.arc2warc;
 import com.google.common.io.Files;
 import com.google.common.io.Resources;
 import eu.scape_project.arc2warc.cli.Arc2WarcMigrationConfig;
+import eu.scape_project.hawarp.utils.DigestService;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.logging.Log;
@@ -40,7 +41,9 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -287,4 +290,180 @@ public class ArcMigratorTest {
         ArcMigrator warcCreator2 = new ArcMigrator(conf, arcFile2, tmpWarcFile2, false);
         warcCreator2.migrateArcFile();
     }
-}
\ No newline at end of file
+    @Test
+    public void testSinglePassDeduplication() throws Exception {
+        Arc2WarcMigrationConfig conf = new Arc2WarcMigrationConfig();
+
+        File arcFile = new File(Resources.getResource("arc-dedup/1-1-20130522081727-00000-prepc2.arc").toURI());
+        File tmpWarcFile1 = new File(tempDir, "old.warc");
+        ArcMigrator warcCreator = new ArcMigrator(conf, arcFile, tmpWarcFile1, false);
+        warcCreator.migrateArcFile();
+
+        File arcFile2 = new File(Resources.getResource("arc-dedup/2-metadata-1.arc").toURI());
+        File tmpWarcFile2 = new File(tempDir, "2-metadata-1.warc");
+        File tmpDuplicationsFile2 = new File(tempDir, "2-duplications-1.warc");
+        ArcMigrator warcCreator2 = new ArcMigrator(conf, arcFile2, tmpWarcFile2, tmpDuplicationsFile2);
+        warcCreator2.migrateArcFile();
+
+        ArcMigratorTest.validateDeduplicated(tmpWarcFile1, tmpDuplicationsFile2);
+
+        // the migrated WARC file must be the same as from a normal migration
+        File tmpWarcFile3 = new File(tempDir, "normal.warc");
+        ArcMigrator warcCreator3 = new ArcMigrator(conf, arcFile2, tmpWarcFile3, false);
+        warcCreator3.migrateArcFile();
+        assertEquals(getRecordSummaries(tmpWarcFile3), getRecordSummaries(tmpWarcFile2));
+    }
+
+    @Test
+    public void testKnownDigests() throws Exception {
+        File arcFile = new File(Resources.getResource("arc-dedup/2-1-20130522082952-00000-prepc2.arc").toURI());
+        Arc2WarcMigrationConfig conf = new Arc2WarcMigrationConfig();
+        File tmpWarcFile1 = new File(tempDir, "computed.warc");
+        new ArcMigrator(conf, arcFile, tmpWarcFile1, false).migrateArcFile();
+
+        CrawlLogDigestLookup digestLookup = new CrawlLogDigestLookup();
+        digestLookup.load(new File(Resources.getResource("arc-dedup/2-metadata-1.arc").toURI()));
+        assertEquals("sha1:RANOOZRTRT75UDOQ3X6KTVKVUFUZLSD4",
+                digestLookup.get("http://fue.onb.ac.at/robots.txt", "20130522082953"));
+        conf.setDigestLookup(digestLookup);
+        File tmpWarcFile2 = new File(tempDir, "known.warc");
+        new ArcMigrator(conf, arcFile, tmpWarcFile2, false).migrateArcFile();
+        conf.setDigestVerifyRate(1.0);
+        File tmpWarcFile3 = new File(tempDir, "verified.warc");
+        new ArcMigrator(conf, arcFile, tmpWarcFile3, false).migrateArcFile();
+
+        List<String> computedDigests = getPayloadDigests(tmpWarcFile1);
+        assertEquals(3, computedDigests.size());
+        assertEquals(computedDigests, getPayloadDigests(tmpWarcFile2));
+        assertEquals(computedDigests, getPayloadDigests(tmpWarcFile3));
+        assertEquals(getRecordSummaries(tmpWarcFile1).size(), getRecordSummaries(tmpWarcFile2).size());
+    }
+
+    @Test
+    public void testSha256PayloadDigests() throws Exception {
+        File arcFile = new File(Resources.getResource("arc-dedup/2-1-20130522082952-00000-prepc2.arc").toURI());
+        Arc2WarcMigrationConfig conf = new Arc2WarcMigrationConfig();
+        conf.setPayloadDigestAlgorithm(DigestService.SHA256);
+        File tmpWarcFile = new File(tempDir, "sha256.warc");
+        new ArcMigrator(conf, arcFile, tmpWarcFile, false).migrateArcFile();
+        List<String> digests = getPayloadDigests(tmpWarcFile);
+        assertEquals(3, digests.size());
+        for (String digest : digests) {
+            assertTrue(digest.startsWith("sha256:"));
+            assertEquals(32, DigestService.fromLabelledBase32(digest).length);
+        }
+    }
+
+    @Test
+    public void testCrossFileDeduplication() throws Exception {
+        Arc2WarcMigrationConfig conf = new Arc2WarcMigrationConfig();
+        PayloadDigestIndex digestIndex = new PayloadDigestIndex(new File(tempDir, "index"));
+        conf.setDigestIndex(digestIndex);
+        File tmpWarcFile1 = new File(tempDir, "1.warc");
+        File tmpWarcFile2 = new File(tempDir, "2.warc");
+        try {
+            File arcFile1 = new File(Resources.getResource("arc-dedup/1-1-20130522081727-00000-prepc2.arc").toURI());
+            new ArcMigrator(conf, arcFile1, tmpWarcFile1, false).migrateArcFile();
+            File arcFile2 = new File(Resources.getResource("arc-dedup/2-1-20130522082952-00000-prepc2.arc").toURI());
+            new ArcMigrator(conf, arcFile2, tmpWarcFile2, false).migrateArcFile();
+            // migrating the first file again does not refer to itself
+            new ArcMigrator(conf, arcFile1, new File(tempDir, "1-again.warc"), false).migrateArcFile();
+        } finally {
+            digestIndex.close();
+        }
+        List<String> summaries1 = getRecordSummaries(tmpWarcFile1);
+        assertEquals(getRecordSummaries(new File(tempDir, "1-again.warc")), summaries1);
+        List<String> recordIds1 = new ArrayList<String>();
+        for (String summary : summaries1) {
+            recordIds1.add(summary.split(" ")[0]);
+        }
+
+        // robots.txt and test page have the same payload in both crawls
+        int revisits = 0;
+        InputStream is = new FileInputStream(tmpWarcFile2);
+        try {
+            Iterator<WarcRecord> warcIterator = WarcReaderFactory.getReader(is).iterator();
+            while (warcIterator.hasNext()) {
+                WarcRecord warcRecord = warcIterator.next();
+                if ("revisit".equals(warcRecord.getHeader(WarcConstants.FN_WARC_TYPE).value)) {
+                    revisits++;
+                    String refersTo = warcRecord.getHeader(WarcConstants.FN_WARC_REFERS_TO).value;
+                    assertTrue(recordIds1.contains(refersTo));
+                    assertEquals(warcRecord.getHeader(WarcConstants.FN_WARC_TARGET_URI).value,
+                            warcRecord.getHeader("WARC-Refers-To-Target-URI").value);
+                    String httpHeader = IOUtils.toString(warcRecord.getPayloadContent());
+                    assertTrue(httpHeader.startsWith("HTTP/1.1 "));
+                    assertTrue(httpHeader.endsWith("\r\n\r\n"));
+                }
+            }
+        } finally {
+            is.close();
+        }
+        assertEquals(2, revisits);
+    }
+
+    @Test
+    public void testWrongKnownDigestWithDigestIndex() throws Exception {
+        File arcFile = new File(Resources.getResource("arc-dedup/2-1-20130522082952-00000-prepc2.arc").toURI());
+        Arc2WarcMigrationConfig conf = new Arc2WarcMigrationConfig();
+        File tmpWarcFile1 = new File(tempDir, "computed.warc");
+        new ArcMigrator(conf, arcFile, tmpWarcFile1, false).migrateArcFile();
+
+        // the crawl log claims that the test page has the payload of robots.txt,
+        // which is migrated before and added to the index
+        CrawlLogDigestLookup digestLookup = new CrawlLogDigestLookup();
+        digestLookup.put("http://fue.onb.ac.at/test/", "20130522082953", "sha1:RANOOZRTRT75UDOQ3X6KTVKVUFUZLSD4");
+        conf.setDigestLookup(digestLookup);
+        PayloadDigestIndex digestIndex = new PayloadDigestIndex(new File(tempDir, "index"));
+        conf.setDigestIndex(digestIndex);
+        File tmpWarcFile2 = new File(tempDir, "wrong.warc");
+        try {
+            new ArcMigrator(conf, arcFile, tmpWarcFile2, false).migrateArcFile();
+        } finally {
+            digestIndex.close();
+        }
+
+        // all records stay full responses with the computed digests
+        List<String> computedDigests = getPayloadDigests(tmpWarcFile1);
+        assertEquals(3, computedDigests.size());
+        assertEquals(computedDigests, getPayloadDigests(tmpWarcFile2));
+        assertEquals(getRecordSummaries(tmpWarcFile1).size(), getRecordSummaries(tmpWarcFile2).size());
+    }
+
+    private static List<String> getPayloadDigests(File warcFile) throws IOException {
+        List<String> digests = new ArrayList<String>();
+        InputStream is = new FileInputStream(warcFile);
+        try {
+            Iterator<WarcRecord> warcIterator = WarcReaderFactory.getReader(is).iterator();
+            while (warcIterator.hasNext()) {
+                WarcRecord warcRecord = warcIterator.next();
+                if ("response".equals(warcRecord.getHeader(WarcConstants.FN_WARC_TYPE).value)) {
+                    digests.add(warcRecord.getHeader(WarcConstants.FN_WARC_PAYLOAD_DIGEST).value);
+                }
+            }
+        } finally {
+            is.close();
+        }
+        return digests;
+    }
+
+    private static List<String> getRecordSummaries(File warcFile) throws IOException {
+        List<String> summaries = new ArrayList<String>();
+        InputStream is = new FileInputStream(warcFile);
+        try {
+            org.jwat.warc.WarcReader warcReader = WarcReaderFactory.getReader(is);
+            Iterator<WarcRecord> warcIterator = warcReader.iterator();
+            while (warcIterator.hasNext()) {
+                WarcRecord warcRecord = warcIterator.next();
+                if (!"warcinfo".equals(warcRecord.getHeader(WarcConstants.FN_WARC_TYPE).value)) {
+                    summaries.add(warcRecord.getHeader(WarcConstants.FN_WARC_RECORD_ID).value + " "
+                            + warcRecord.getHeader(WarcConstants.FN_CONTENT_LENGTH).value);
+                }
+            }
+        } finally {
+            is.close();
+        }
+        return summaries;
+    }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2014 scape.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scape_project.arc2warc;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import org.jwat.common.Base32;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test of the crawl log digest lookup.
+ *
+ * @author Sven Schlarb <https://github.com/shsdev>
+ */
+public class CrawlLogDigestLookupTest {
+
+    private static String digestOf(int i) {
+        byte[] digest = new byte[20];
+        for (int j = 0; j < digest.length; j++) {
+            digest[j] = (byte) (i * 31 + j);
+        }
+        return "sha1:" + Base32.encodeArray(digest);
+    }
+
+    @Test
+    public void testPutGet() {
+        CrawlLogDigestLookup lookup = new CrawlLogDigestLookup();
+        int n = 200000;
+        for (int i = 0; i < n; i++) {
+            lookup.put("http://example.org/" + i, "20130522082953", digestOf(i));
+        }
+        assertEquals(n, lookup.size());
+        for (int i = 0; i < n; i++) {
+            assertEquals(digestOf(i), lookup.get("http://example.org/" + i, "20130522082953"));
+        }
+        assertNull(lookup.get("http://example.org/0", "20130522082954"));
+        assertNull(lookup.get("http://example.org/" + n, "20130522082953"));
+    }
+
+    @Test
+    public void testLoadCrawlLog() throws IOException {
+        String crawlLog = "2013-05-22T08:29:53.196Z   404        287 http://fue.onb.ac.at/robots.txt P "
+                + "http://fue.onb.ac.at/test/ text/html #046 20130522082953013+175 sha1:RANOOZRTRT75UDOQ3X6KTVKVUFUZLSD4 "
+                + "- content-size:490\n"
+                + "2013-05-22T08:29:54.000Z    -9          - http://fue.onb.ac.at/missing P - - #046 - - - -\n";
+        CrawlLogDigestLookup lookup = new CrawlLogDigestLookup();
+        lookup.load(new ByteArrayInputStream(crawlLog.getBytes("UTF-8")));
+        assertEquals(1, lookup.size());
+        assertEquals("sha1:RANOOZRTRT75UDOQ3X6KTVKVUFUZLSD4",
+                lookup.get("http://fue.onb.ac.at/robots.txt", "20130522082953"));
+        assertNull(CrawlLogDigestLookup.decodeSha1("md5:RANOOZRTRT75UDOQ3X6KTVKVUFUZLSD4"));
+    }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2014 scape.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scape_project.arc2warc;
+
+import com.google.common.io.Resources;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import org.jwat.arc.ArcReader;
+import org.jwat.arc.ArcReaderFactory;
+import org.jwat.arc.ArcRecordBase;
+import org.supercsv.io.CsvBeanReader;
+import static org.junit.Assert.*;
+
+/**
+ * Test of the streaming crawl log reader.
+ *
+ * @author Sven Schlarb <https://github.com/shsdev>
+ */
+public class CrawlLogReaderTest {
+
+    static byte[] getCrawlLog(String metadataArcResource) throws Exception {
+        File arcFile = new File(Resources.getResource(metadataArcResource).toURI());
+        FileInputStream in = new FileInputStream(arcFile);
+        try {
+            ArcReader reader = ArcReaderFactory.getReader(in);
+            Iterator<ArcRecordBase> iterator = reader.iterator();
+            while (iterator.hasNext()) {
+                ArcRecordBase arcRecord = iterator.next();
+                if (ArcMigrator.isCrawlLog(arcRecord)) {
+                    return IOUtils.toByteArray(arcRecord.getPayloadContent());
+                }
+            }
+        } finally {
+            in.close();
+        }
+        throw new IllegalStateException("No crawl log in " + metadataArcResource);
+    }
+
+    private static String summary(CrawlLogEntry entry) {
+        // logging timestamp excluded, the bean reader parses it in the default time zone
+        return entry.getStatusCode() + " " + entry.getSize() + " " + entry.getDownloaded() + " "
+                + entry.getBreadcrumbs() + " " + entry.getReferrer() + " " + entry.getMimetype() + " "
+                + entry.getWorkerThreadID() + " " + entry.getFetchTimestamp() + " " + entry.getSha1Digest() + " "
+                + entry.getSourceTag() + " " + entry.getAnnotations() + " " + entry.findDuplicationEntry();
+    }
+
+    @Test
+    public void testSameEntriesAsBeanReader() throws Exception {
+        byte[] crawlLog = getCrawlLog("arc-dedup/2-metadata-1.arc");
+        List<String> expected = new ArrayList<String>();
+        CsvBeanReader beanReader = CrawlLogEntry.getCsvBeanReader(new ByteArrayInputStream(crawlLog));
+        Iterator<CrawlLogEntry> iterator = CrawlLogEntry.asIterator(beanReader);
+        while (iterator.hasNext()) {
+            expected.add(summary(iterator.next()));
+        }
+        beanReader.close();
+
+        List<String> actual = new ArrayList<String>();
+        CrawlLogReader reader = new CrawlLogReader(new ByteArrayInputStream(crawlLog));
+        CrawlLogEntry entry;
+        while ((entry = reader.readEntry()) != null) {
+            actual.add(summary(entry));
+        }
+        reader.close();
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testParseLines() throws IOException {
+        StringBuilder longUrl = new StringBuilder("http://example.org/");
+        for (int i = 0; i < 70000; i++) {
+            longUrl.append('a');
+        }
+        String crawlLog = "2013-05-22T08:29:53.196Z   404        287 http://fue.onb.ac.at/robots.txt P "
+                + "http://fue.onb.ac.at/test/ text/html #046 20130522082953013+175 sha1:RANOOZRTRT75UDOQ3X6KTVKVUFUZLSD4 "
+                + "- content-size:490\r\n"
+                + "not a crawl log line\n"
+                + "\n"
+                + "2000-02-29T23:59:59.999Z 200 - " + longUrl + " - - text/html #001 - - - duplicate:x,content-size:1";
+        CrawlLogReader reader = new CrawlLogReader(new ByteArrayInputStream(crawlLog.getBytes("UTF-8")));
+        CrawlLogEntry entry = reader.readEntry();
+        assertEquals(1369211393196L, entry.getLoggingTimestamp().getTime());
+        assertEquals(404, entry.getStatusCode());
+        assertEquals(287, entry.getSize());
+        assertEquals("http://fue.onb.ac.at/robots.txt", entry.getDownloaded());
+        assertEquals("sha1:RANOOZRTRT75UDOQ3X6KTVKVUFUZLSD4", entry.getSha1Digest());
+        assertEquals("content-size:490", entry.getAnnotations());
+        assertNull(entry.findDuplicationEntry());
+        entry = reader.readEntry();
+        assertEquals(951868799999L, entry.getLoggingTimestamp().getTime());
+        assertEquals(-1, entry.getSize());
+        assertEquals(longUrl.toString(), entry.getDownloaded());
+        assertEquals("x", entry.findDuplicationEntry());
+        assertNull(reader.readEntry());
+        assertEquals(4, reader.getLineNumber());
+    }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2012 The SCAPE Project Consortium.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * under the License.
+package eu.scape_project.arc2warc;
+
+import com.google.common.io.Files;
+import com.google.common.io.Resources;
+import eu.scape_project.arc2warc.cli.Arc2WarcMigrationConfig;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Parallel ARC migration test class
+ *
+ * @author Sven Schlarb https://github.com/shsdev
+ */
+public class ParallelArcMigrationTest {
+
+    private File tempDir;
+
+    @Before
+    public void setUp() throws Exception {
+        tempDir = Files.createTempDir();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(tempDir);
+    }
+
+    @Test
+    public void testMigrate() throws Exception {
+        Arc2WarcMigrationConfig conf = new Arc2WarcMigrationConfig();
+        conf.setOutputStr(tempDir.getAbsolutePath());
+        conf.setNumThreads(4);
+        List<File> arcFiles = new ArrayList<File>();
+        arcFiles.add(new File(Resources.getResource("arc/example.arc.gz").toURI()));
+        File arcDedupDir = new File(Resources.getResource("arc-dedup").toURI());
+        for (File arcFile : arcDedupDir.listFiles()) {
+            arcFiles.add(arcFile);
+        }
+        ParallelArcMigration parallelMigration = new ParallelArcMigration(conf, arcFiles);
+        assertTrue(parallelMigration.migrate());
+
+        ArcMigratorTest.validateExampleArcGzMigrated(new File(tempDir, "example.warc"));
+        for (File arcFile : arcDedupDir.listFiles()) {
+            File warcFile = Arc2WarcMigration.getWarcFile(conf, arcFile);
+            assertTrue(warcFile.exists());
+            if (Arc2WarcMigration.isMetadataArcFile(arcFile)) {
+                assertTrue(Arc2WarcMigration.getDuplicationsWarcFile(warcFile).exists());
+            }
+        }
+        ArcMigratorTest.validateDeduplicated(new File(tempDir, "1-1-20130522081727-00000-prepc2.warc"),
+                new File(tempDir, "2-duplications-1.warc"));
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2014 scape.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scape_project.arc2warc;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test of the large payload paths of PayloadContent.
+ *
+ * @author Sven Schlarb <https://github.com/shsdev>
+ */
+public class PayloadContentTest {
+
+    private static final int BUFFER_LENGTH = 1024;
+
+    private static byte[] createPayload() {
+        byte[] payload = new byte[BUFFER_LENGTH * 10 + 17];
+        new Random(42).nextBytes(payload);
+        return payload;
+    }
+
+    private static PayloadContent.SeekableSource sourceOf(final byte[] payload) {
+        return new PayloadContent.SeekableSource() {
+            @Override
+            public InputStream openPayloadContent() throws IOException {
+                return new ByteArrayInputStream(payload);
+            }
+        };
+    }
+
+    @Test
+    public void testStreamedLargePayload() throws IOException {
+        byte[] payload = createPayload();
+        PayloadContent tempFileContent = new PayloadContent(new ByteArrayInputStream(payload), payload.length, new byte[BUFFER_LENGTH]);
+        InputStream tempFileStream = tempFileContent.getPayloadContentAsInputStream();
+        assertTrue(Arrays.equals(payload, IOUtils.toByteArray(tempFileStream)));
+        tempFileStream.close();
+
+        PayloadContent streamedContent = new PayloadContent(new ByteArrayInputStream(payload), payload.length, new byte[BUFFER_LENGTH]);
+        streamedContent.setSeekableSource(sourceOf(payload));
+        InputStream streamed = streamedContent.getPayloadContentAsInputStream();
+        assertEquals(tempFileContent.getDigestStr(), streamedContent.getDigestStr());
+        assertTrue(Arrays.equals(payload, IOUtils.toByteArray(streamed)));
+        streamedContent.checkStreamedDigest();
+        streamed.close();
+    }
+
+    @Test(expected = IOException.class)
+    public void testStreamedPayloadDigestMismatch() throws IOException {
+        byte[] payload = createPayload();
+        byte[] modified = payload.clone();
+        modified[modified.length - 1]++;
+        PayloadContent content = new PayloadContent(new ByteArrayInputStream(modified), payload.length, new byte[BUFFER_LENGTH]);
+        content.setSeekableSource(sourceOf(payload));
+        IOUtils.toByteArray(content.getPayloadContentAsInputStream());
+        content.checkStreamedDigest();
+    }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2012 The SCAPE Project Consortium.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * under the License.
+ */
+package eu.scape_project.arc2warc;
+
+import com.google.common.io.Files;
+import eu.scape_project.hawarp.utils.DigestService;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Payload digest index test class
+ *
+ * @author Sven Schlarb https://github.com/shsdev
+ */
+public class PayloadDigestIndexTest {
+
+    private File tempDir;
+
+    @Before
+    public void setUp() throws Exception {
+        tempDir = Files.createTempDir();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(tempDir);
+    }
+
+    /**
+     * SHA-1 digest starting with a zero byte, all digests are in the same
+     * table file.
+     */
+    private static String digest(int i) {
+        byte[] digest = new byte[20];
+        for (int j = 0; j < 4; j++) {
+            digest[1 + j] = (byte) (i >>> (24 - 8 * j));
+        }
+        return "sha1:" + DigestService.toBase32(digest);
+    }
+
+    private void putEntries(int numEntries) throws IOException {
+        PayloadDigestIndex index = new PayloadDigestIndex(tempDir);
+        try {
+            for (int i = 0; i < numEntries; i++) {
+                assertNull(index.putIfAbsent(digest(i), new PayloadDigestIndex.Entry("<urn:uuid:" + i + ">",
+                        "http://example.org/" + i, "2013-05-22T08:17:28Z")));
+            }
+        } finally {
+            index.close();
+        }
+    }
+
+    private void assertEntries(int numEntries) throws IOException {
+        PayloadDigestIndex index = new PayloadDigestIndex(tempDir);
+        try {
+            assertEquals(numEntries, index.size());
+            for (int i = 0; i < numEntries; i++) {
+                assertEquals("http://example.org/" + i, index.get(digest(i)).getTargetUri());
+            }
+            assertNull(index.get(digest(numEntries)));
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void testGrowAndReopen() throws Exception {
+        putEntries(5000);
+        assertFalse(new File(tempDir, "digests-00.idx.tmp").exists());
+        assertEntries(5000);
+    }
+
+    @Test
+    public void testRecoverInterruptedGrow() throws Exception {
+        putEntries(10);
+        // the table file has been deleted, but the new table file not renamed
+        File file = new File(tempDir, "digests-00.idx");
+        FileUtils.moveFile(file, new File(tempDir, "digests-00.idx.tmp"));
+        assertEntries(10);
+    }
+
+    @Test
+    public void testDiscardIncompleteGrow() throws Exception {
+        putEntries(10);
+        File tmpFile = new File(tempDir, "digests-00.idx.tmp");
+        FileUtils.writeByteArrayToFile(tmpFile, new byte[100]);
+        assertEntries(10);
+        assertFalse(tmpFile.exists());
+    }
+
+    @Test(expected = IOException.class)
+    public void testMissingTableFile() throws Exception {
+        putEntries(10);
+        FileUtils.forceDelete(new File(tempDir, "digests-00.idx"));
+        new PayloadDigestIndex(tempDir).close();
+    }
+}
@@ -15,30 +15,17 @@
  */
 package eu.scape_project.cdx_creator;
 
-import com.fasterxml.jackson.databind.MapperFeature;
-import com.fasterxml.jackson.databind.ObjectWriter;
-import com.fasterxml.jackson.databind.SerializationConfig;
-import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter.FilterExceptFilter;
-import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
-import com.fasterxml.jackson.dataformat.csv.CsvMapper;
-import com.fasterxml.jackson.dataformat.csv.CsvSchema;
 import eu.scape_project.cdx_creator.cli.CDXCreatorConfig;
 import eu.scape_project.hawarp.interfaces.ArchiveReader;
-import static eu.scape_project.hawarp.utils.DateUtils.GMTGTechDateFormat;
 import eu.scape_project.hawarp.utils.StringUtils;
 import eu.scape_project.hawarp.webarchive.ArchiveReaderFactory;
 import eu.scape_project.hawarp.webarchive.ArchiveRecord;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-import java.util.TimeZone;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -68,7 +55,7 @@ public class CDXCreationTask {
         this.config = config;
         this.archiveFile = archiveFile;
         this.archiveFileName = archiveFileName;
-        if (config.isDirectoryInput()) {
+        if (config.isDirectoryInput() && config.getOutputStr() != null) {
             String inputFileName = archiveFile.getName();
             String warcExt = ".cdx.csv";
             cdxFileName = inputFileName + warcExt;
@@ -90,79 +77,82 @@ public class CDXCreationTask {
         }
     }
 
+    /**
+     * Write the CDX header and the CDX lines of the archive file to the CDX
+     * file of the archive file in the output directory (directory input), to
+     * the output file, or to standard output if no output is defined.
+     */
     public void createIndex() {
-        FileInputStream fileInputStream = null;
-        ArchiveReader reader = null;
-        FileOutputStream outputStream = null;
+        PrintStream pout = null;
         try {
-            fileInputStream = new FileInputStream(archiveFile);
-            reader = ArchiveReaderFactory.getReader(fileInputStream,this.archiveFileName);
-            reader.setComputePayloadDigest(config.isCreatePayloadDigest());
-            List<CdxArchiveRecord> cdxArchRecords = new ArrayList<CdxArchiveRecord>();
-            while (reader.hasNext()) {
-                ArchiveRecord archRec = (ArchiveRecord) reader.next();
-                CdxArchiveRecord cdxArchRec = CdxArchiveRecord.fromArchiveRecord(archRec);
-                cdxArchRec.setContainerFileName(archiveFileName);
-                cdxArchRec.setContainerLengthStr(Long.toString(archiveFile.length()));
-                cdxArchRecords.add(cdxArchRec);
-            }
-
-            CsvMapper mapper = new CsvMapper();
-            mapper.setDateFormat(GMTGTechDateFormat);
-            
-            String cdxfileCsColumns = config.getCdxfileCsColumns();
-            List<String> cdxfileCsColumnsList = Arrays.asList(cdxfileCsColumns.split("\\s*,\\s*"));
-            String[] cdxfileCsColumnsArray = cdxfileCsColumnsList.toArray(new String[cdxfileCsColumnsList.size()]);
-
-            CsvSchema.Builder builder = CsvSchema.builder();
-            for (String cdxField : cdxfileCsColumnsList) {
-                builder.addColumn(cdxField);
-            }
-            builder.setColumnSeparator(' ');
-            CsvSchema schema = builder.build();
-            schema = schema.withoutQuoteChar();
-
-            SimpleFilterProvider filterProvider = new SimpleFilterProvider()
-                    .addFilter("cdxfields", FilterExceptFilter.filterOutAllExcept(cdxfileCsColumnsArray));
-
-            ObjectWriter cdxArchRecordsWriter = mapper.writer(filterProvider).withSchema(schema);
-
-            PrintStream pout = null;
             String outputPathStr = config.getOutputStr();
+            if (config.isDirectoryInput() && outputPathStr != null) {
+                outputPathStr = cdxFilePath;
+            }
             if (outputPathStr != null) {
                 FileOutputStream fos;
                 try {
                     fos = new FileOutputStream(outputPathStr, true);
                     pout = new PrintStream(fos);
-                    System.setOut(pout);
                 } catch (FileNotFoundException ex) {
                     LOG.error("File not found error", ex);
                 }
             }
-            System.out.println(" "+config.getCdxfileCsHeader());
+            PrintStream out = (pout != null) ? pout : System.out;
+            out.println(" "+config.getCdxfileCsHeader());
 
-            cdxArchRecordsWriter.writeValue(System.out, cdxArchRecords);
-
-            if (pout != null) {
-                pout.close();
-            }
+            createIndex(out);
+            out.flush();
 
         } catch (FileNotFoundException ex) {
             LOG.error("File not found error", ex);
         } catch (IOException ex) {
             LOG.error("I/O Error", ex);
         } finally {
-            try {
-                if (fileInputStream != null) {
-                    fileInputStream.close();
-                }
-
-                if (outputStream != null) {
-                    outputStream.close();
-                }
+            if (pout != null) {
+                pout.close();
+            }
+        }
+    }
 
-            } catch (IOException ex) {
-                LOG.error("I/O Error", ex);
+    /**
+     * Write the CDX lines of the archive file to the output stream. Each
+     * record is written as soon as it has been read from the archive file.
+     * The CDX header line is not written, the caller is responsible for
+     * writing it once at the beginning of the output. The output stream is
+     * flushed but not closed.
+     *
+     * @param outputStream Output stream
+     * @throws IOException
+     */
+    public void createIndex(OutputStream outputStream) throws IOException {
+        ArchiveReader reader = null;
+        CdxArchiveRecordWriter cdxArchRecordWriter = null;
+        try {
+            // in directory mode the threads are used for indexing files in
+            // parallel, otherwise for inflating the gzip members of the file
+            int inflateThreads = config.isDirectoryInput() ? 1 : config.getNumThreads();
+            reader = ArchiveReaderFactory.getReader(archiveFile, inflateThreads);
+            if (reader == null) {
+                throw new IOException("Unsupported container file: " + archiveFileName);
+            }
+            reader.setComputePayloadDigest(config.isCreatePayloadDigest());
+            reader.setPayloadDigestAlgorithm(config.getPayloadDigestAlgorithm());
+            String containerLengthStr = Long.toString(archiveFile.length());
+            cdxArchRecordWriter = new CdxArchiveRecordWriter(config, outputStream);
+            while (reader.hasNext()) {
+                ArchiveRecord archRec = (ArchiveRecord) reader.next();
+                CdxArchiveRecord cdxArchRec = CdxArchiveRecord.fromArchiveRecord(archRec);
+                cdxArchRec.setContainerFileName(archiveFileName);
+                cdxArchRec.setContainerLengthStr(containerLengthStr);
+                cdxArchRecordWriter.write(cdxArchRec);
+            }
+        } finally {
+            if (cdxArchRecordWriter != null) {
+                cdxArchRecordWriter.close();
+            }
+            if (reader != null) {
+                reader.close();
             }
         }
     }
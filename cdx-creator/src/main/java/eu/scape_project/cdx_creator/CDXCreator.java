@@ -18,12 +18,29 @@ package eu.scape_project.cdx_creator;
 
 import eu.scape_project.cdx_creator.cli.CDXCreatorConfig;
 import eu.scape_project.cdx_creator.cli.CDXCreatorOptions;
+import eu.scape_project.cdx_creator.hadoop.ArchiveRecordInputFormat;
 import eu.scape_project.hawarp.utils.PropertyUtil;
+import eu.scape_project.hawarp.webarchive.ArchiveRecord;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.PosixParser;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
+import org.apache.hadoop.mapreduce.lib.partition.InputSampler;
+import org.apache.hadoop.mapreduce.lib.partition.TotalOrderPartitioner;
 import org.apache.hadoop.util.GenericOptionsParser;
 
 import org.apache.commons.logging.Log;
@@ -32,20 +49,86 @@ import org.apache.commons.logging.LogFactory;
 import eu.scape_project.hawarp.utils.RegexUtils;
 
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
 import org.apache.commons.cli.ParseException;
 
 /**
- * ARC to WARC conversion.
+ * CDX index creation for ARC and WARC files.
  *
  * @author Sven Schlarb <https://github.com/shsdev>
  */
 public class CDXCreator {
 
+    private static final Log LOG = LogFactory.getLog(CDXCreator.class);
+
     private static CDXCreatorConfig config;
 
     private static PropertyUtil pu;
 
+    /**
+     * Configuration property: comma separated CDX columns
+     */
+    public static final String CDXFILE_CSCOLUMNS = "cdxcreator.cdxfile.cscolumns";
+
+    /**
+     * Mapper class. Creates the CDX lines of the archive records of one
+     * container file, the CDX line is the key so that the output of the
+     * reducers is sorted.
+     */
+    public static class CdxCreationMapper
+            extends Mapper<Text, ArchiveRecord, Text, NullWritable> {
+
+        private ByteArrayOutputStream lineBuffer;
+
+        private CdxArchiveRecordWriter cdxArchRecordWriter;
+
+        private String containerLengthStr;
+
+        private final Text cdxLine = new Text();
+
+        @Override
+        public void setup(Context context) throws IOException {
+            CDXCreatorConfig mapperConfig = new CDXCreatorConfig();
+            mapperConfig.setCdxfileCsColumns(context.getConfiguration().get(CDXFILE_CSCOLUMNS));
+            lineBuffer = new ByteArrayOutputStream();
+            cdxArchRecordWriter = new CdxArchiveRecordWriter(mapperConfig, lineBuffer);
+            // container files are not split, the split length is the file length
+            containerLengthStr = Long.toString(((FileSplit) context.getInputSplit()).getLength());
+        }
+
+        @Override
+        public void map(Text key, ArchiveRecord value, Context context) throws IOException, InterruptedException {
+            CdxArchiveRecord cdxArchRec = CdxArchiveRecord.fromArchiveRecord(value);
+            cdxArchRec.setContainerFileName(key.toString());
+            cdxArchRec.setContainerLengthStr(containerLengthStr);
+            lineBuffer.reset();
+            cdxArchRecordWriter.write(cdxArchRec);
+            cdxArchRecordWriter.flush();
+            byte[] line = lineBuffer.toByteArray();
+            int length = line.length;
+            while (length > 0 && (line[length - 1] == '\n' || line[length - 1] == '\r')) {
+                length--;
+            }
+            cdxLine.set(line, 0, length);
+            context.write(cdxLine, NullWritable.get());
+        }
+    }
+
+    /**
+     * Reducer class. Writes the sorted CDX lines, duplicate lines are kept.
+     */
+    public static class CdxLineReducer
+            extends Reducer<Text, NullWritable, Text, NullWritable> {
+
+        @Override
+        public void reduce(Text key, Iterable<NullWritable> values, Context context) throws IOException, InterruptedException {
+            for (NullWritable value : values) {
+                context.write(key, value);
+            }
+        }
+    }
+
     public CDXCreator() {
     }
 
@@ -84,39 +167,183 @@ public class CDXCreator {
         config.setCdxfileCsColumns(pu.getProp("cdxfile.cscolumns"));
         config.setCdxfileCsHeader(pu.getProp("cdxfile.csheader"));
         
+        if (config.isHadoopJob()) {
+            boolean success = startHadoopJob(conf);
+            System.exit(success ? 0 : 1);
+        }
+
         CDXCreator cdxCreator = new CDXCreator();
 
         File input = new File(config.getInputStr());
 
+        // when sorting, the unsorted index is written to a temporary file
+        // first which is then sorted into the requested output
+        String outputStr = config.getOutputStr();
+        File unsortedCdxFile = null;
+        if (config.isSortCdx()) {
+            unsortedCdxFile = File.createTempFile("cdxunsorted", ".cdx", getSortTempDir());
+            config.setOutputStr(unsortedCdxFile.getAbsolutePath());
+        }
+
         if (input.isDirectory()) {
             config.setDirectoryInput(true);
-            cdxCreator.traverseDir(input);
+            List<File> archiveFiles = new ArrayList<File>();
+            cdxCreator.traverseDir(input, archiveFiles);
+            // the number of threads does not change the output, one CDX file
+            // per archive file or one combined output (sorting, standard output)
+            ParallelCDXCreation parallelCdxCreation = new ParallelCDXCreation(config, archiveFiles);
+            parallelCdxCreation.createIndex();
         } else {
             CDXCreationTask cdxCreationTask = new CDXCreationTask(config, input, input.getName());
             cdxCreationTask.createIndex();
         }
 
+        if (config.isSortCdx()) {
+            config.setOutputStr(outputStr);
+            sortIndex(unsortedCdxFile, outputStr);
+        }
+
         System.exit(0);
     }
 
     /**
-     * Traverse the root directory recursively
+     * Start Hadoop job. With one reducer, the CDX lines created by the
+     * mappers are sorted by the shuffle phase into one part file. With more
+     * than one reducer, the CDX lines are first written to a temporary
+     * sequence file directory by a map-only job, the key range of each
+     * reducer is then determined by sampling these lines, and a second job
+     * sorts them using the total order partitioner, so that the concatenated
+     * part files are sorted.
+     *
+     * @param conf Hadoop configuration
+     * @return true if the job(s) completed successfully
+     * @throws IOException
+     */
+    private static boolean startHadoopJob(Configuration conf) throws IOException {
+        try {
+            conf.set(CDXFILE_CSCOLUMNS, config.getCdxfileCsColumns());
+            conf.setBoolean(ArchiveRecordInputFormat.COMPUTE_PAYLOAD_DIGEST, config.isCreatePayloadDigest());
+            conf.set(ArchiveRecordInputFormat.PAYLOAD_DIGEST_ALGORITHM, config.getPayloadDigestAlgorithm());
+            if (config.isPseudoDistributed()) {
+                // local debugging (pseudo-distributed)
+                conf.set("mapred.job.tracker", "local");
+                conf.set("fs.default.name", "file:///");
+            }
+            String outpath = config.getOutputStr();
+            if (outpath == null || outpath.isEmpty()) {
+                outpath = "cdx_creation/" + System.currentTimeMillis();
+            }
+            Path outputPath = new Path(outpath);
+
+            Job indexJob = new Job(conf, "cdx_creation");
+            indexJob.setJarByClass(CDXCreator.class);
+            indexJob.setInputFormatClass(ArchiveRecordInputFormat.class);
+            indexJob.setMapperClass(CDXCreator.CdxCreationMapper.class);
+            indexJob.setMapOutputKeyClass(Text.class);
+            indexJob.setMapOutputValueClass(NullWritable.class);
+            indexJob.setOutputKeyClass(Text.class);
+            indexJob.setOutputValueClass(NullWritable.class);
+            ArchiveRecordInputFormat.addInputPath(indexJob, new Path(config.getInputStr()));
+
+            if (config.getNumReducers() == 1) {
+                indexJob.setReducerClass(CDXCreator.CdxLineReducer.class);
+                indexJob.setNumReduceTasks(1);
+                indexJob.setOutputFormatClass(TextOutputFormat.class);
+                FileOutputFormat.setOutputPath(indexJob, outputPath);
+                return indexJob.waitForCompletion(true);
+            }
+
+            Path cdxLinesPath = new Path(outpath + "_cdxlines");
+            Path partitionFile = new Path(outpath + "_partitions");
+            FileSystem fs = outputPath.getFileSystem(conf);
+            try {
+                indexJob.setNumReduceTasks(0);
+                indexJob.setOutputFormatClass(SequenceFileOutputFormat.class);
+                FileOutputFormat.setOutputPath(indexJob, cdxLinesPath);
+                if (!indexJob.waitForCompletion(true)) {
+                    return false;
+                }
+
+                Job sortJob = new Job(conf, "cdx_sort");
+                sortJob.setJarByClass(CDXCreator.class);
+                sortJob.setInputFormatClass(SequenceFileInputFormat.class);
+                sortJob.setMapperClass(Mapper.class);
+                sortJob.setReducerClass(CDXCreator.CdxLineReducer.class);
+                sortJob.setNumReduceTasks(config.getNumReducers());
+                sortJob.setMapOutputKeyClass(Text.class);
+                sortJob.setMapOutputValueClass(NullWritable.class);
+                sortJob.setOutputKeyClass(Text.class);
+                sortJob.setOutputValueClass(NullWritable.class);
+                sortJob.setOutputFormatClass(TextOutputFormat.class);
+                SequenceFileInputFormat.addInputPath(sortJob, cdxLinesPath);
+                FileOutputFormat.setOutputPath(sortJob, outputPath);
+
+                sortJob.setPartitionerClass(TotalOrderPartitioner.class);
+                TotalOrderPartitioner.setPartitionFile(sortJob.getConfiguration(), partitionFile);
+                InputSampler.Sampler<Text, NullWritable> sampler
+                        = new InputSampler.RandomSampler<Text, NullWritable>(0.01, 10000, 100);
+                InputSampler.writePartitionFile(sortJob, sampler);
+
+                return sortJob.waitForCompletion(true);
+            } finally {
+                fs.delete(cdxLinesPath, true);
+                fs.delete(partitionFile, false);
+            }
+        } catch (InterruptedException ex) {
+            LOG.error("Hadoop job interrupted", ex);
+            Thread.currentThread().interrupt();
+        } catch (ClassNotFoundException ex) {
+            LOG.error("Class not found", ex);
+        }
+        return false;
+    }
+
+    /**
+     * Sort the index using an external merge sort.
      *
-     * @param dir Root directory
-     * @throws FileNotFoundException
+     * @param unsortedCdxFile Unsorted CDX file, deleted after sorting
+     * @param outputStr Output file path, standard output if null
      * @throws IOException
      */
-    private void traverseDir(File dirStructItem) {
+    private static void sortIndex(File unsortedCdxFile, String outputStr) throws IOException {
+        long startMillis = System.currentTimeMillis();
+        ExternalCdxSorter sorter = new ExternalCdxSorter(config.getSortMemoryMb() * 1024L * 1024L,
+                config.getSortMaxMergeRuns(), getSortTempDir());
+        try {
+            if (outputStr != null) {
+                sorter.sort(unsortedCdxFile, new File(outputStr));
+            } else {
+                sorter.sort(unsortedCdxFile, System.out);
+            }
+        } finally {
+            if (!unsortedCdxFile.delete()) {
+                LOG.warn("Unable to delete unsorted CDX file: " + unsortedCdxFile.getAbsolutePath());
+            }
+        }
+        LOG.info("Sorting time (sec): " + (System.currentTimeMillis() - startMillis) / 1000F);
+    }
+
+    private static File getSortTempDir() {
+        return (config.getSortTempDir() != null) ? new File(config.getSortTempDir()) : null;
+    }
+
+    /**
+     * Traverse the root directory recursively and collect the files matching
+     * the input path regex filter.
+     *
+     * @param dirStructItem Root directory
+     * @param archiveFiles List of files to be indexed
+     */
+    private void traverseDir(File dirStructItem, List<File> archiveFiles) {
         if (dirStructItem.isDirectory()) {
             String[] children = dirStructItem.list();
             for (String child : children) {
-                traverseDir(new File(dirStructItem, child));
+                traverseDir(new File(dirStructItem, child), archiveFiles);
             }
         } else if (!dirStructItem.isDirectory()) {
             String filePath = dirStructItem.getAbsolutePath();
             if (RegexUtils.pathMatchesRegexFilter(filePath, config.getInputPathRegexFilter())) {
-                CDXCreationTask cdxCreationTask = new CDXCreationTask(config, dirStructItem, dirStructItem.getName());
-                cdxCreationTask.createIndex();
+                archiveFiles.add(dirStructItem);
             }
         }
     }
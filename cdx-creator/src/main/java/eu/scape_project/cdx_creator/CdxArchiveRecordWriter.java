@@ -0,0 +1,135 @@
+/*
+ * Copyright 2014 onbscs.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scape_project.cdx_creator;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter.FilterExceptFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import eu.scape_project.cdx_creator.cli.CDXCreatorConfig;
+import eu.scape_project.hawarp.utils.DateUtils;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Streaming CDX writer. Each record is serialised as a CDX line as soon as it
+ * is written, the CSV generator and its line buffer are reused for all
+ * records, so memory use does not depend on the number of records. The
+ * columns written are the ones configured by the cdxfile.cscolumns property.
+ *
+ * @author Sven Schlarb <https://github.com/shsdev>
+ */
+public class CdxArchiveRecordWriter {
+
+    private final JsonGenerator generator;
+
+    private final ObjectWriter cdxArchRecordWriter;
+
+    /**
+     * Constructor
+     *
+     * @param config Configuration
+     * @param outputStream Output stream, it is not closed by the writer
+     * @throws IOException
+     */
+    public CdxArchiveRecordWriter(CDXCreatorConfig config, OutputStream outputStream) throws IOException {
+        CsvMapper mapper = new CsvMapper();
+        SimpleModule dateModule = new SimpleModule();
+        dateModule.addSerializer(Date.class, new GTechDateSerializer());
+        mapper.registerModule(dateModule);
+
+        String cdxfileCsColumns = config.getCdxfileCsColumns();
+        List<String> cdxfileCsColumnsList = Arrays.asList(cdxfileCsColumns.split("\\s*,\\s*"));
+        String[] cdxfileCsColumnsArray = cdxfileCsColumnsList.toArray(new String[cdxfileCsColumnsList.size()]);
+
+        CsvSchema.Builder builder = CsvSchema.builder();
+        for (String cdxField : cdxfileCsColumnsList) {
+            builder.addColumn(cdxField);
+        }
+        builder.setColumnSeparator(' ');
+        CsvSchema schema = builder.build();
+        schema = schema.withoutQuoteChar();
+
+        SimpleFilterProvider filterProvider = new SimpleFilterProvider()
+                .addFilter("cdxfields", FilterExceptFilter.filterOutAllExcept(cdxfileCsColumnsArray));
+
+        cdxArchRecordWriter = mapper.writer(filterProvider).withSchema(schema)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        generator = mapper.getFactory().createGenerator(outputStream);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setSchema(schema);
+    }
+
+    /**
+     * Write one record as CDX line.
+     *
+     * @param cdxArchRec CDX archive record
+     * @throws IOException
+     */
+    public void write(CdxArchiveRecord cdxArchRec) throws IOException {
+        cdxArchRecordWriter.writeValue(generator, cdxArchRec);
+    }
+
+    /**
+     * Flush buffered CDX lines to the output stream.
+     *
+     * @throws IOException
+     */
+    public void flush() throws IOException {
+        generator.flush();
+    }
+
+    /**
+     * Flush buffered CDX lines and release the generator. The underlying
+     * output stream is left open.
+     *
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        generator.close();
+    }
+
+    /**
+     * Writes dates in the 14 digit CDX format (yyyyMMddHHmmss, UTC) without
+     * a shared date format; the char buffer is reused per thread.
+     */
+    private static class GTechDateSerializer extends JsonSerializer<Date> {
+
+        private final ThreadLocal<char[]> buffer = new ThreadLocal<char[]>() {
+            @Override
+            protected char[] initialValue() {
+                return new char[DateUtils.GTECH_DATE_LENGTH];
+            }
+        };
+
+        @Override
+        public void serialize(Date value, JsonGenerator jgen, SerializerProvider provider) throws IOException {
+            char[] buf = buffer.get();
+            jgen.writeString(buf, 0, DateUtils.formatGTechDate(value.getTime(), buf, 0));
+        }
+    }
+
+}
@@ -0,0 +1,344 @@
+/*
+ * Copyright 2014 onbscs.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scape_project.cdx_creator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * External merge sort for CDX files. The CDX lines are read in chunks which
+ * are limited by the memory available for sorting, each chunk is sorted in
+ * memory and spilled to disk as a sorted run. The runs are then merged
+ * (k-way) into one sorted CDX file. If there are more runs than can be merged
+ * at once, intermediate merge passes are done until the number of runs is
+ * small enough for the final merge. A CDX header line (starting with " CDX ")
+ * at the beginning of the input is kept as first line of the output.
+ *
+ * The lines are handled as UTF-8 encoded bytes and compared as unsigned
+ * bytes, which is the order of "LC_ALL=C sort" expected by the binary search
+ * of Wayback and pywb.
+ *
+ * @author Sven Schlarb <https://github.com/shsdev>
+ */
+public class ExternalCdxSorter {
+
+    private static final Log LOG = LogFactory.getLog(ExternalCdxSorter.class);
+
+    public static final String CDX_HEADER_PREFIX = " CDX ";
+
+    /**
+     * Order of UTF-8 encoded lines, compared as unsigned bytes.
+     */
+    public static final Comparator<byte[]> BYTE_ORDER = new Comparator<byte[]>() {
+        @Override
+        public int compare(byte[] line1, byte[] line2) {
+            int length = Math.min(line1.length, line2.length);
+            for (int i = 0; i < length; i++) {
+                int diff = (line1[i] & 0xff) - (line2[i] & 0xff);
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return line1.length - line2.length;
+        }
+    };
+
+    private static final byte[] CDX_HEADER_PREFIX_BYTES = utf8Bytes(CDX_HEADER_PREFIX);
+
+    // approximate per line memory overhead of a byte array in the sort buffer
+    private static final int LINE_OVERHEAD_BYTES = 32;
+
+    private static final int IO_BUFFER_SIZE = 65536;
+
+    private final long maxRunBytes;
+
+    private final int maxMergeRuns;
+
+    private final File tempDir;
+
+    /**
+     * Constructor
+     *
+     * @param maxRunBytes Memory (bytes) used for sorting lines in memory
+     * before a sorted run is spilled to disk
+     * @param maxMergeRuns Maximum number of runs merged at once
+     * @param tempDir Directory for the sorted runs, null for the default
+     * temporary directory
+     */
+    public ExternalCdxSorter(long maxRunBytes, int maxMergeRuns, File tempDir) {
+        if (maxRunBytes < 1) {
+            throw new IllegalArgumentException("The sort memory must be greater than zero!");
+        }
+        if (maxMergeRuns < 2) {
+            throw new IllegalArgumentException("At least two runs must be merged at once!");
+        }
+        this.maxRunBytes = maxRunBytes;
+        this.maxMergeRuns = maxMergeRuns;
+        this.tempDir = tempDir;
+    }
+
+    /**
+     * Sort CDX file
+     *
+     * @param input Unsorted input CDX file
+     * @param outputStream Output stream for the sorted CDX lines, it is
+     * flushed but not closed
+     * @throws IOException
+     */
+    public void sort(File input, OutputStream outputStream) throws IOException {
+        List<File> runs = new ArrayList<File>();
+        try {
+            byte[] header = createRuns(input, runs);
+            LOG.info("Sorted runs created: " + runs.size());
+            while (runs.size() > maxMergeRuns) {
+                List<File> mergedRuns = new ArrayList<File>();
+                try {
+                    for (int i = 0; i < runs.size(); i += maxMergeRuns) {
+                        List<File> group = runs.subList(i, Math.min(i + maxMergeRuns, runs.size()));
+                        File mergedRun = createRunFile();
+                        mergedRuns.add(mergedRun);
+                        OutputStream runOutputStream = new FileOutputStream(mergedRun);
+                        try {
+                            merge(group, runOutputStream, null);
+                        } finally {
+                            runOutputStream.close();
+                        }
+                        deleteRuns(group);
+                    }
+                } catch (IOException ex) {
+                    deleteRuns(mergedRuns);
+                    throw ex;
+                }
+                runs = mergedRuns;
+                LOG.info("Intermediate merge pass done, remaining runs: " + runs.size());
+            }
+            merge(runs, outputStream, header);
+        } finally {
+            deleteRuns(runs);
+        }
+    }
+
+    /**
+     * Sort CDX file
+     *
+     * @param input Unsorted input CDX file
+     * @param output Sorted output CDX file
+     * @throws IOException
+     */
+    public void sort(File input, File output) throws IOException {
+        OutputStream outputStream = new FileOutputStream(output);
+        try {
+            sort(input, outputStream);
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    private byte[] createRuns(File input, List<File> runs) throws IOException {
+        LineReader reader = new LineReader(new FileInputStream(input));
+        byte[] header = null;
+        try {
+            List<byte[]> lines = new ArrayList<byte[]>();
+            long runBytes = 0;
+            byte[] line = reader.readLine();
+            if (line != null && startsWith(line, CDX_HEADER_PREFIX_BYTES)) {
+                header = line;
+                line = reader.readLine();
+            }
+            while (line != null) {
+                lines.add(line);
+                runBytes += line.length + LINE_OVERHEAD_BYTES;
+                if (runBytes >= maxRunBytes) {
+                    runs.add(writeRun(lines));
+                    lines.clear();
+                    runBytes = 0;
+                }
+                line = reader.readLine();
+            }
+            if (!lines.isEmpty()) {
+                runs.add(writeRun(lines));
+            }
+        } finally {
+            reader.close();
+        }
+        return header;
+    }
+
+    private File writeRun(List<byte[]> lines) throws IOException {
+        Collections.sort(lines, BYTE_ORDER);
+        File run = createRunFile();
+        OutputStream writer = new BufferedOutputStream(new FileOutputStream(run), IO_BUFFER_SIZE);
+        try {
+            for (byte[] line : lines) {
+                writer.write(line);
+                writer.write('\n');
+            }
+        } finally {
+            writer.close();
+        }
+        return run;
+    }
+
+    private void merge(List<File> runs, OutputStream outputStream, byte[] header) throws IOException {
+        OutputStream writer = new BufferedOutputStream(outputStream, IO_BUFFER_SIZE);
+        PriorityQueue<RunReader> queue = new PriorityQueue<RunReader>(Math.max(1, runs.size()));
+        List<RunReader> runReaders = new ArrayList<RunReader>();
+        try {
+            if (header != null) {
+                writer.write(header);
+                writer.write('\n');
+            }
+            for (File run : runs) {
+                RunReader runReader = new RunReader(run);
+                runReaders.add(runReader);
+                if (runReader.next()) {
+                    queue.add(runReader);
+                } else {
+                    runReader.close();
+                }
+            }
+            while (!queue.isEmpty()) {
+                RunReader runReader = queue.poll();
+                writer.write(runReader.line);
+                writer.write('\n');
+                if (runReader.next()) {
+                    queue.add(runReader);
+                } else {
+                    runReader.close();
+                }
+            }
+            writer.flush();
+        } finally {
+            for (RunReader runReader : runReaders) {
+                runReader.close();
+            }
+        }
+    }
+
+    private File createRunFile() throws IOException {
+        return File.createTempFile("cdxsort", ".run", tempDir);
+    }
+
+    private void deleteRuns(List<File> runs) {
+        for (File run : runs) {
+            if (run.exists() && !run.delete()) {
+                LOG.warn("Unable to delete sorted run: " + run.getAbsolutePath());
+            }
+        }
+    }
+
+    private static boolean startsWith(byte[] line, byte[] prefix) {
+        if (line.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (line[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] utf8Bytes(String str) {
+        try {
+            return str.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Reader for lines of bytes terminated by a line feed, a carriage return
+     * before the line feed is removed.
+     */
+    private static class LineReader {
+
+        private final InputStream in;
+
+        private byte[] buffer = new byte[256];
+
+        LineReader(InputStream in) {
+            this.in = new BufferedInputStream(in, IO_BUFFER_SIZE);
+        }
+
+        byte[] readLine() throws IOException {
+            int length = 0;
+            int b = in.read();
+            if (b == -1) {
+                return null;
+            }
+            while (b != -1 && b != '\n') {
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+                }
+                buffer[length++] = (byte) b;
+                b = in.read();
+            }
+            if (length > 0 && buffer[length - 1] == '\r') {
+                length--;
+            }
+            return Arrays.copyOf(buffer, length);
+        }
+
+        void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Reader for a sorted run, ordered by the current line.
+     */
+    private static class RunReader implements Comparable<RunReader> {
+
+        private final LineReader reader;
+
+        private byte[] line;
+
+        RunReader(File run) throws IOException {
+            reader = new LineReader(new FileInputStream(run));
+        }
+
+        boolean next() throws IOException {
+            line = reader.readLine();
+            return line != null;
+        }
+
+        void close() throws IOException {
+            reader.close();
+        }
+
+        @Override
+        public int compareTo(RunReader other) {
+            return BYTE_ORDER.compare(line, other.line);
+        }
+    }
+
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2014 onbscs.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scape_project.cdx_creator;
+
+import eu.scape_project.cdx_creator.cli.CDXCreatorConfig;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Parallel CDX creation for a list of archive files. The files are indexed by
+ * a fixed size pool of worker threads, the output does not depend on the
+ * number of threads:
+ * <ul>
+ * <li>Per file output (default): each file is indexed into its own CDX file
+ * in the output directory.</li>
+ * <li>Combined output (sorting or standard output): the CDX lines of all files
+ * are written to one output in the order of the file list. Each worker streams
+ * the CDX lines of a file into a temporary file which is appended to the
+ * output and deleted by a single writer. The number of files which are indexed
+ * but not yet written is bounded by twice the number of threads.</li>
+ * </ul>
+ *
+ * @author Sven Schlarb <https://github.com/shsdev>
+ */
+public class ParallelCDXCreation {
+
+    private static final Log LOG = LogFactory.getLog(ParallelCDXCreation.class);
+
+    private final CDXCreatorConfig config;
+
+    private final List<File> archiveFiles;
+
+    public ParallelCDXCreation(CDXCreatorConfig config, List<File> archiveFiles) {
+        this.config = config;
+        this.archiveFiles = archiveFiles;
+    }
+
+    public void createIndex() {
+        if (config.isCombinedOutput()) {
+            createCombinedIndex();
+        } else {
+            createPerFileIndex();
+        }
+    }
+
+    private void createPerFileIndex() {
+        ExecutorService executor = Executors.newFixedThreadPool(config.getNumThreads());
+        try {
+            for (final File archiveFile : archiveFiles) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        new CDXCreationTask(config, archiveFile, archiveFile.getName()).createIndex();
+                    }
+                });
+            }
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            LOG.error("Interrupted while waiting for CDX creation", ex);
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void createCombinedIndex() {
+        int numThreads = config.getNumThreads();
+        int maxPending = numThreads * 2;
+        ExecutorService executor = (numThreads > 1) ? Executors.newFixedThreadPool(numThreads) : null;
+        LinkedList<IndexResult> pending = new LinkedList<IndexResult>();
+        PrintStream pout = null;
+        try {
+            String outputPathStr = config.getOutputStr();
+            if (outputPathStr != null) {
+                pout = new PrintStream(new BufferedOutputStream(new FileOutputStream(outputPathStr, true)));
+            } else {
+                pout = System.out;
+            }
+            pout.println(" " + config.getCdxfileCsHeader());
+            for (File archiveFile : archiveFiles) {
+                if (executor == null) {
+                    // one thread, the CDX lines are written directly
+                    indexFile(archiveFile, pout);
+                    continue;
+                }
+                if (pending.size() >= maxPending) {
+                    writeResult(pending.removeFirst(), pout);
+                }
+                pending.addLast(new IndexResult(archiveFile, executor.submit(new IndexCallable(archiveFile))));
+            }
+            while (!pending.isEmpty()) {
+                writeResult(pending.removeFirst(), pout);
+            }
+            pout.flush();
+        } catch (IOException ex) {
+            LOG.error("I/O Error", ex);
+        } catch (InterruptedException ex) {
+            LOG.error("Interrupted while waiting for CDX creation", ex);
+            Thread.currentThread().interrupt();
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+            // temporary files of files which have not been written
+            for (IndexResult result : pending) {
+                try {
+                    deleteTempFile(result.future.get());
+                } catch (ExecutionException ex) {
+                    // already deleted by the worker
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (CancellationException ex) {
+                    // never started
+                }
+            }
+            if (pout != null && pout != System.out) {
+                pout.close();
+            }
+        }
+    }
+
+    private void indexFile(File archiveFile, PrintStream pout) {
+        try {
+            new CDXCreationTask(config, archiveFile, archiveFile.getName()).createIndex(pout);
+        } catch (IOException ex) {
+            LOG.error("Unable to create CDX index for file: " + archiveFile.getAbsolutePath(), ex);
+        }
+    }
+
+    private void writeResult(IndexResult result, PrintStream pout) throws IOException, InterruptedException {
+        try {
+            File cdxTempFile = result.future.get();
+            try {
+                FileUtils.copyFile(cdxTempFile, pout);
+            } finally {
+                deleteTempFile(cdxTempFile);
+            }
+        } catch (ExecutionException ex) {
+            LOG.error("Unable to create CDX index for file: " + result.archiveFile.getAbsolutePath(), ex.getCause());
+        }
+    }
+
+    private static void deleteTempFile(File cdxTempFile) {
+        if (cdxTempFile.exists() && !cdxTempFile.delete()) {
+            LOG.warn("Unable to delete temporary CDX file: " + cdxTempFile.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Pending result of a file, the future is kept together with the file for
+     * error reporting.
+     */
+    private static class IndexResult {
+
+        private final File archiveFile;
+        private final Future<File> future;
+
+        IndexResult(File archiveFile, Future<File> future) {
+            this.archiveFile = archiveFile;
+            this.future = future;
+        }
+    }
+
+    /**
+     * Index one archive file into a temporary file and return the temporary
+     * file.
+     */
+    private class IndexCallable implements Callable<File> {
+
+        private final File archiveFile;
+
+        IndexCallable(File archiveFile) {
+            this.archiveFile = archiveFile;
+        }
+
+        @Override
+        public File call() throws IOException {
+            File tempDir = (config.getSortTempDir() != null) ? new File(config.getSortTempDir()) : null;
+            File cdxTempFile = File.createTempFile("cdxpart", ".cdx", tempDir);
+            OutputStream out = new BufferedOutputStream(new FileOutputStream(cdxTempFile));
+            boolean success = false;
+            try {
+                CDXCreationTask cdxCreationTask = new CDXCreationTask(config, archiveFile, archiveFile.getName());
+                cdxCreationTask.createIndex(out);
+                success = true;
+            } finally {
+                out.close();
+                if (!success) {
+                    deleteTempFile(cdxTempFile);
+                }
+            }
+            return cdxTempFile;
+        }
+    }
+
+}
@@ -17,6 +17,7 @@
 package eu.scape_project.cdx_creator.cli;
 
 import eu.scape_project.hawarp.cli.CliConfig;
+import eu.scape_project.hawarp.utils.DigestService;
 
 /**
  * Process configuration
@@ -30,6 +31,15 @@ public class CDXCreatorConfig extends CliConfig {
     private String cdxfileCsColumns;
     private String cdxfileCsHeader;
     private boolean createPayloadDigest;
+    private String payloadDigestAlgorithm = DigestService.DEFAULT_ALGORITHM;
+    private int numThreads = 1;
+    private boolean sortCdx;
+    private boolean combinedOutput;
+    private int sortMemoryMb = 64;
+    private int sortMaxMergeRuns = 64;
+    private String sortTempDir;
+    private boolean hadoopJob;
+    private int numReducers = 1;
 
     /**
      * Empty constructor
@@ -77,5 +87,170 @@ public class CDXCreatorConfig extends CliConfig {
     public void setCreatePayloadDigest(boolean createPayloadDigest) {
         this.createPayloadDigest = createPayloadDigest;
     }
-    
+
+    /**
+     * Message digest algorithm of the payload digest.
+     *
+     * @return algorithm name, e.g. SHA-1
+     */
+    public String getPayloadDigestAlgorithm() {
+        return payloadDigestAlgorithm;
+    }
+
+    public void setPayloadDigestAlgorithm(String payloadDigestAlgorithm) {
+        this.payloadDigestAlgorithm = payloadDigestAlgorithm;
+    }
+
+    /**
+     * Number of threads used for indexing the files of an input directory.
+     *
+     * @return number of threads
+     */
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    /**
+     * Number of threads used for indexing the files of an input directory.
+     *
+     * @param numThreads number of threads
+     */
+    public void setNumThreads(int numThreads) {
+        this.numThreads = numThreads;
+    }
+
+    /**
+     * Sort the CDX output using an external merge sort.
+     *
+     * @return sort CDX output
+     */
+    public boolean isSortCdx() {
+        return sortCdx;
+    }
+
+    /**
+     * Sort the CDX output using an external merge sort.
+     *
+     * @param sortCdx sort CDX output
+     */
+    public void setSortCdx(boolean sortCdx) {
+        this.sortCdx = sortCdx;
+    }
+
+    /**
+     * Write the CDX lines of all files of an input directory to one output
+     * instead of one CDX file per archive file.
+     *
+     * @return combined output
+     */
+    public boolean isCombinedOutput() {
+        return combinedOutput;
+    }
+
+    /**
+     * Write the CDX lines of all files of an input directory to one output
+     * instead of one CDX file per archive file.
+     *
+     * @param combinedOutput combined output
+     */
+    public void setCombinedOutput(boolean combinedOutput) {
+        this.combinedOutput = combinedOutput;
+    }
+
+    /**
+     * Memory (megabytes) used for sorting CDX lines in memory before a sorted
+     * run is spilled to disk.
+     *
+     * @return sort memory in megabytes
+     */
+    public int getSortMemoryMb() {
+        return sortMemoryMb;
+    }
+
+    /**
+     * Memory (megabytes) used for sorting CDX lines in memory before a sorted
+     * run is spilled to disk.
+     *
+     * @param sortMemoryMb sort memory in megabytes
+     */
+    public void setSortMemoryMb(int sortMemoryMb) {
+        this.sortMemoryMb = sortMemoryMb;
+    }
+
+    /**
+     * Maximum number of sorted runs which are merged at once.
+     *
+     * @return maximum number of runs per merge
+     */
+    public int getSortMaxMergeRuns() {
+        return sortMaxMergeRuns;
+    }
+
+    /**
+     * Maximum number of sorted runs which are merged at once.
+     *
+     * @param sortMaxMergeRuns maximum number of runs per merge
+     */
+    public void setSortMaxMergeRuns(int sortMaxMergeRuns) {
+        this.sortMaxMergeRuns = sortMaxMergeRuns;
+    }
+
+    /**
+     * Directory for sorted runs, null for the default temporary directory.
+     *
+     * @return sort temporary directory
+     */
+    public String getSortTempDir() {
+        return sortTempDir;
+    }
+
+    /**
+     * Directory for sorted runs, null for the default temporary directory.
+     *
+     * @param sortTempDir sort temporary directory
+     */
+    public void setSortTempDir(String sortTempDir) {
+        this.sortTempDir = sortTempDir;
+    }
+
+    /**
+     * Execute as Hadoop job, input and output are paths in the Hadoop file
+     * system.
+     *
+     * @return Hadoop job execution
+     */
+    public boolean isHadoopJob() {
+        return hadoopJob;
+    }
+
+    /**
+     * Execute as Hadoop job, input and output are paths in the Hadoop file
+     * system.
+     *
+     * @param hadoopJob Hadoop job execution
+     */
+    public void setHadoopJob(boolean hadoopJob) {
+        this.hadoopJob = hadoopJob;
+    }
+
+    /**
+     * Number of reducers of the Hadoop job, each reducer creates one sorted
+     * CDX part file.
+     *
+     * @return number of reducers
+     */
+    public int getNumReducers() {
+        return numReducers;
+    }
+
+    /**
+     * Number of reducers of the Hadoop job, each reducer creates one sorted
+     * CDX part file.
+     *
+     * @param numReducers number of reducers
+     */
+    public void setNumReducers(int numReducers) {
+        this.numReducers = numReducers;
+    }
+
 }
@@ -17,6 +17,7 @@
 package eu.scape_project.cdx_creator.cli;
 
 import eu.scape_project.hawarp.cli.CliOptions;
+import eu.scape_project.hawarp.utils.DigestService;
 import java.io.File;
 import org.apache.commons.cli.CommandLine;
 
@@ -35,11 +36,64 @@ public class CDXCreatorOptions extends CliOptions {
     public String COMPUTEPAYLOADDIGEST_OPT = "digest";
     public String COMPUTEPAYLOADDIGEST_OPT_DESC = "Calculate payload digest. [optional].";
 
+    public String DIGESTALGORITHM_FLG = "a";
+    public String DIGESTALGORITHM_OPT = "digestalgorithm";
+    public String DIGESTALGORITHM_OPT_DESC = "Message digest algorithm of the payload "
+            + "digest, e.g. SHA-256 (default: SHA-1). [optional].";
+
+    public String NUMTHREADS_FLG = "t";
+    public String NUMTHREADS_OPT = "threads";
+    public String NUMTHREADS_OPT_DESC = "Number of threads for indexing the files of an input "
+            + "directory in parallel, the output is the same for any number of threads. "
+            + "For a single compressed input file, the number of threads for inflating "
+            + "gzip members (default: 1). [optional].";
+
+    public String SORT_FLG = "s";
+    public String SORT_OPT = "sort";
+    public String SORT_OPT_DESC = "Sort the CDX output using an external merge sort, "
+            + "an input directory is indexed into one output file. [optional].";
+
+    public String SORTMEMORY_FLG = "m";
+    public String SORTMEMORY_OPT = "sortmem";
+    public String SORTMEMORY_OPT_DESC = "Memory in megabytes for sorting CDX lines "
+            + "before a sorted run is spilled to disk (default: 64). [optional].";
+
+    public String SORTMERGERUNS_FLG = "k";
+    public String SORTMERGERUNS_OPT = "sortmerge";
+    public String SORTMERGERUNS_OPT_DESC = "Maximum number of sorted runs merged "
+            + "at once (default: 64). [optional].";
+
+    public String SORTTEMPDIR_FLG = "w";
+    public String SORTTEMPDIR_OPT = "sorttmp";
+    public String SORTTEMPDIR_OPT_DESC = "Directory for sorted runs (default: "
+            + "system temporary directory). [optional].";
+
+    public String HADOOPJOB_FLG = "j";
+    public String HADOOPJOB_OPT = "hadoopjob";
+    public String HADOOPJOB_OPT_DESC = "Execute as Hadoop job (hadoop jar ...), input and output "
+            + "are paths in the Hadoop file system and the output is a directory of "
+            + "sorted CDX part files. [optional].";
+
+    public String NUMREDUCERS_FLG = "n";
+    public String NUMREDUCERS_OPT = "reducers";
+    public String NUMREDUCERS_OPT_DESC = "Number of reducers of the Hadoop job, the part "
+            + "files are range partitioned so that their concatenation is sorted "
+            + "(default: 1). [optional].";
+
     public CDXCreatorOptions() {
         options.addOption(OUTPUT_FLG, OUTPUT_OPT, true, OUTPUT_OPT_DESC);
         options.addOption(INPUTPATHREGEX_FLG, INPUTPATHREGEX_OPT, true, INPUTPATHREGEX_OPT_DESC);
         options.addOption(PROPERTIESFILE_FLG, PROPERTIESFILE_OPT, true, PROPERTIESFILE_OPT_DESC);
         options.addOption(COMPUTEPAYLOADDIGEST_FLG, COMPUTEPAYLOADDIGEST_OPT, false, COMPUTEPAYLOADDIGEST_OPT_DESC);
+        options.addOption(DIGESTALGORITHM_FLG, DIGESTALGORITHM_OPT, true, DIGESTALGORITHM_OPT_DESC);
+        options.addOption(NUMTHREADS_FLG, NUMTHREADS_OPT, true, NUMTHREADS_OPT_DESC);
+        options.addOption(SORT_FLG, SORT_OPT, false, SORT_OPT_DESC);
+        options.addOption(SORTMEMORY_FLG, SORTMEMORY_OPT, true, SORTMEMORY_OPT_DESC);
+        options.addOption(SORTMERGERUNS_FLG, SORTMERGERUNS_OPT, true, SORTMERGERUNS_OPT_DESC);
+        options.addOption(SORTTEMPDIR_FLG, SORTTEMPDIR_OPT, true, SORTTEMPDIR_OPT_DESC);
+        options.addOption(HADOOPJOB_FLG, HADOOPJOB_OPT, false, HADOOPJOB_OPT_DESC);
+        options.addOption(NUMREDUCERS_FLG, NUMREDUCERS_OPT, true, NUMREDUCERS_OPT_DESC);
+        options.addOption(PSEUDO_FLG, PSEUDO_OPT, false, PSEUDO_OPT_DESC);
 
     }
 
@@ -47,6 +101,61 @@ public class CDXCreatorOptions extends CliOptions {
 
         super.initOptions(cmd, pc);
 
+        // input path regex filter
+        if (!(cmd.hasOption(INPUTPATHREGEX_OPT) && cmd.getOptionValue(INPUTPATHREGEX_OPT) != null)) {
+            pc.setInputPathRegexFilter(".*");
+        } else {
+            pc.setInputPathRegexFilter(cmd.getOptionValue(INPUTPATHREGEX_OPT));
+        }
+
+        // number of threads
+        if (cmd.hasOption(NUMTHREADS_OPT) && cmd.getOptionValue(NUMTHREADS_OPT) != null) {
+            int numThreads = getPositiveInt(cmd.getOptionValue(NUMTHREADS_OPT), NUMTHREADS_OPT);
+            pc.setNumThreads(numThreads);
+            LOG.info("Number of threads: " + numThreads);
+        }
+
+        // external merge sort
+        if (cmd.hasOption(SORT_OPT)) {
+            pc.setSortCdx(true);
+            LOG.info("Sort CDX output");
+            if (cmd.hasOption(SORTMEMORY_OPT) && cmd.getOptionValue(SORTMEMORY_OPT) != null) {
+                pc.setSortMemoryMb(getPositiveInt(cmd.getOptionValue(SORTMEMORY_OPT), SORTMEMORY_OPT));
+            }
+            if (cmd.hasOption(SORTMERGERUNS_OPT) && cmd.getOptionValue(SORTMERGERUNS_OPT) != null) {
+                int sortMaxMergeRuns = getPositiveInt(cmd.getOptionValue(SORTMERGERUNS_OPT), SORTMERGERUNS_OPT);
+                if (sortMaxMergeRuns < 2) {
+                    throw new IllegalArgumentException("At least two runs must be merged at once!");
+                }
+                pc.setSortMaxMergeRuns(sortMaxMergeRuns);
+            }
+            if (cmd.hasOption(SORTTEMPDIR_OPT) && cmd.getOptionValue(SORTTEMPDIR_OPT) != null) {
+                pc.setSortTempDir(cmd.getOptionValue(SORTTEMPDIR_OPT));
+            }
+        }
+
+        // payload digest, also used by the hadoop job
+        if (cmd.hasOption(COMPUTEPAYLOADDIGEST_FLG)) {
+            pc.setCreatePayloadDigest(true);
+        }
+        if (cmd.hasOption(DIGESTALGORITHM_OPT) && cmd.getOptionValue(DIGESTALGORITHM_OPT) != null) {
+            // fails early if the algorithm is not available
+            String algorithm = DigestService.getInstance(cmd.getOptionValue(DIGESTALGORITHM_OPT)).getAlgorithm();
+            pc.setPayloadDigestAlgorithm(algorithm);
+            LOG.info("Payload digest algorithm: " + algorithm);
+        }
+
+        // hadoop job
+        if (cmd.hasOption(HADOOPJOB_OPT)) {
+            pc.setHadoopJob(true);
+            LOG.info("Execute as Hadoop job");
+            if (cmd.hasOption(NUMREDUCERS_OPT) && cmd.getOptionValue(NUMREDUCERS_OPT) != null) {
+                pc.setNumReducers(getPositiveInt(cmd.getOptionValue(NUMREDUCERS_OPT), NUMREDUCERS_OPT));
+            }
+            // input and output are paths in the Hadoop file system
+            return;
+        }
+
         if (cmd.hasOption(OUTPUT_OPT) && cmd.getOptionValue(OUTPUT_OPT) != null) {
             File input = new File(cmd.getOptionValue(INPUT_OPT));
             String outputStr = cmd.getOptionValue(OUTPUT_OPT);
@@ -54,20 +163,32 @@ public class CDXCreatorOptions extends CliOptions {
             if (output.exists()) {
                 throw new IllegalArgumentException("The output file/directory must not exist!");
             }
-            if (input.isDirectory()) {
+            if (input.isDirectory() && !pc.isSortCdx()) {
                 output.mkdirs();
             }
         }
-        
-        if(cmd.hasOption(COMPUTEPAYLOADDIGEST_FLG)) {
-            pc.setCreatePayloadDigest(true);
-        }
 
+        // an input directory is indexed into one CDX file per archive file
+        // unless the output is sorted or written to standard output
+        pc.setCombinedOutput(pc.isSortCdx() || pc.getOutputStr() == null);
+
+    }
+
+    private int getPositiveInt(String value, String option) {
+        try {
+            int intValue = Integer.parseInt(value);
+            if (intValue < 1) {
+                throw new IllegalArgumentException("The value of option " + option + " must be greater than zero!");
+            }
+            return intValue;
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("The value of option " + option + " must be an integer value!");
+        }
     }
 
     @Override
     public String getUsage() {
-        return "hadoop jar "
-                + "target/arc2warc-migration-1.0-SNAPSHOT-jar-with-dependencies.jar";
+        return "(java -jar|hadoop jar) "
+                + "target/cdx-creator-1.0-jar-with-dependencies.jar";
     }
 }
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2014 onbscs.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scape_project.cdx_creator.hadoop;
+
+import eu.scape_project.hawarp.webarchive.ArchiveRecord;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+
+/**
+ * Input format for ARC and WARC container files. Container files are not
+ * split, each container file is read as a whole by one mapper. The key is the
+ * container file name, the value is the archive record.
+ *
+ * @author Sven Schlarb <https://github.com/shsdev>
+ */
+public class ArchiveRecordInputFormat extends FileInputFormat<Text, ArchiveRecord> {
+
+    /**
+     * Configuration property: compute payload digest of the records.
+     */
+    public static final String COMPUTE_PAYLOAD_DIGEST = "hawarp.archiverecord.payloaddigest";
+
+    /**
+     * Configuration property: message digest algorithm of the payload digest.
+     */
+    public static final String PAYLOAD_DIGEST_ALGORITHM = "hawarp.archiverecord.payloaddigest.algorithm";
+
+    @Override
+    protected boolean isSplitable(JobContext context, Path file) {
+        return false;
+    }
+
+    @Override
+    public RecordReader<Text, ArchiveRecord> createRecordReader(InputSplit split, TaskAttemptContext context) {
+        return new ArchiveRecordRecordReader();
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2014 onbscs.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scape_project.cdx_creator.hadoop;
+
+import eu.scape_project.hawarp.interfaces.ArchiveReader;
+import eu.scape_project.hawarp.utils.DigestService;
+import eu.scape_project.hawarp.webarchive.ArchiveReaderFactory;
+import eu.scape_project.hawarp.webarchive.ArchiveRecord;
+import java.io.IOException;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+
+/**
+ * Record reader which reads the archive records of a whole ARC or WARC
+ * container file.
+ *
+ * @author Sven Schlarb <https://github.com/shsdev>
+ */
+public class ArchiveRecordRecordReader extends RecordReader<Text, ArchiveRecord> {
+
+    private FSDataInputStream fileIn;
+
+    private ArchiveReader archiveReader;
+
+    private long length;
+
+    private Text key;
+
+    private ArchiveRecord value;
+
+    @Override
+    public void initialize(InputSplit split, TaskAttemptContext context) throws IOException, InterruptedException {
+        FileSplit fileSplit = (FileSplit) split;
+        Configuration conf = context.getConfiguration();
+        Path path = fileSplit.getPath();
+        FileSystem fs = path.getFileSystem(conf);
+        length = fileSplit.getLength();
+        fileIn = fs.open(path);
+        archiveReader = ArchiveReaderFactory.getReader(fileIn, path.getName());
+        if (archiveReader == null) {
+            throw new IOException("Unable to create archive reader for file: " + path);
+        }
+        archiveReader.setComputePayloadDigest(conf.getBoolean(ArchiveRecordInputFormat.COMPUTE_PAYLOAD_DIGEST, false));
+        archiveReader.setPayloadDigestAlgorithm(conf.get(ArchiveRecordInputFormat.PAYLOAD_DIGEST_ALGORITHM,
+                DigestService.DEFAULT_ALGORITHM));
+        key = new Text(path.getName());
+    }
+
+    @Override
+    public boolean nextKeyValue() throws IOException, InterruptedException {
+        if (archiveReader.hasNext()) {
+            value = archiveReader.next();
+            return true;
+        }
+        value = null;
+        return false;
+    }
+
+    @Override
+    public Text getCurrentKey() throws IOException, InterruptedException {
+        return key;
+    }
+
+    @Override
+    public ArchiveRecord getCurrentValue() throws IOException, InterruptedException {
+        return value;
+    }
+
+    @Override
+    public float getProgress() throws IOException, InterruptedException {
+        if (length == 0) {
+            return 1.0f;
+        }
+        return Math.min(1.0f, fileIn.getPos() / (float) length);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (fileIn != null) {
+            fileIn.close();
+        }
+    }
+
+}
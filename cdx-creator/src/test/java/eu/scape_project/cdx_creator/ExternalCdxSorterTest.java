@@ -0,0 +1,126 @@
+/*
+ * Copyright 2014 onbscs.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scape_project.cdx_creator;
+
+import com.google.common.io.Files;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * ExternalCdxSorter test class
+ *
+ * @author Sven Schlarb <https://github.com/shsdev>
+ */
+public class ExternalCdxSorterTest {
+
+    private static final String HEADER = " CDX N b a m s k r M V g";
+
+    private File tempDir;
+
+    @Before
+    public void setUp() {
+        tempDir = Files.createTempDir();
+    }
+
+    /**
+     * Test of sort method, of class ExternalCdxSorter. The sort memory is
+     * small enough to create many runs and to require intermediate merge
+     * passes.
+     */
+    @Test
+    public void testSort() throws IOException {
+        Random random = new Random(42);
+        List<String> lines = new ArrayList<String>();
+        for (int i = 0; i < 1000; i++) {
+            lines.add("example.org/" + random.nextInt(100000) + " 2013052208" + random.nextInt(10000) + " - - 0 example.arc.gz");
+        }
+        // warcinfo record without url, sorts before the header line
+        lines.add(" 20140626075501  application/warc-fields -1 - - - 0 example.warc");
+        File unsorted = new File(tempDir, "unsorted.cdx");
+        FileWriter writer = new FileWriter(unsorted);
+        writer.write(HEADER + "\n");
+        for (String line : lines) {
+            writer.write(line + "\n");
+        }
+        writer.close();
+
+        File sorted = new File(tempDir, "sorted.cdx");
+        ExternalCdxSorter sorter = new ExternalCdxSorter(4096, 3, tempDir);
+        sorter.sort(unsorted, sorted);
+
+        Collections.sort(lines);
+        BufferedReader reader = new BufferedReader(new FileReader(sorted));
+        assertEquals(HEADER, reader.readLine());
+        for (String line : lines) {
+            assertEquals(line, reader.readLine());
+        }
+        assertNull(reader.readLine());
+        reader.close();
+
+        // only the input and output files are left
+        assertEquals(2, tempDir.list().length);
+    }
+
+    /**
+     * Test of sort method, of class ExternalCdxSorter. Lines are sorted by
+     * their UTF-8 bytes as unsigned values (LC_ALL=C sort), which differs
+     * from the UTF-16 order of String.compareTo for supplementary characters.
+     */
+    @Test
+    public void testSortByteOrder() throws IOException {
+        String[] expected = {
+            "example.org/a 20130522082953 example.warc",
+            "example.org/\u00e9 20130522082953 example.warc",
+            "example.org/\uff61 20130522082953 example.warc",
+            "example.org/\ud83d\ude00 20130522082953 example.warc"
+        };
+        File unsorted = new File(tempDir, "unsorted.cdx");
+        Writer writer = new OutputStreamWriter(new FileOutputStream(unsorted), "UTF-8");
+        writer.write(HEADER + "\n");
+        for (int i = expected.length - 1; i >= 0; i--) {
+            writer.write(expected[i] + "\n");
+        }
+        writer.close();
+
+        File sorted = new File(tempDir, "sorted.cdx");
+        ExternalCdxSorter sorter = new ExternalCdxSorter(64, 2, tempDir);
+        sorter.sort(unsorted, sorted);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(sorted), "UTF-8"));
+        assertEquals(HEADER, reader.readLine());
+        for (String line : expected) {
+            assertEquals(line, reader.readLine());
+        }
+        assertNull(reader.readLine());
+        reader.close();
+    }
+
+}
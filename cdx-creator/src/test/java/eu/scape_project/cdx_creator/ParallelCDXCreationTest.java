@@ -0,0 +1,134 @@
+/*
+ * Copyright 2014 onbscs.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scape_project.cdx_creator;
+
+import com.google.common.io.Files;
+import com.google.common.io.Resources;
+import eu.scape_project.cdx_creator.cli.CDXCreatorConfig;
+import eu.scape_project.hawarp.utils.PropertyUtil;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * ParallelCDXCreation test class
+ *
+ * @author Sven Schlarb <https://github.com/shsdev>
+ */
+public class ParallelCDXCreationTest {
+
+    private File tempDir;
+
+    private CDXCreatorConfig conf;
+
+    @Before
+    public void setUp() throws Exception {
+        tempDir = Files.createTempDir();
+        PropertyUtil pu = new PropertyUtil("/eu/scape_project/cdx_creator/config.properties", false);
+        conf = new CDXCreatorConfig();
+        conf.setDirectoryInput(true);
+        conf.setCdxfileCsColumns(pu.getProp("cdxfile.cscolumns"));
+        conf.setCdxfileCsHeader(pu.getProp("cdxfile.csheader"));
+        conf.setCreatePayloadDigest(true);
+        conf.setNumThreads(3);
+    }
+
+    /**
+     * Test of createIndex method, of class ParallelCDXCreation. The CDX lines
+     * must be written in the order of the file list.
+     */
+    @Test
+    public void testCreateIndex() throws Exception {
+        List<File> archiveFiles = createArchiveFiles();
+        File outputFile = new File(tempDir, "index.cdx");
+        conf.setOutputStr(outputFile.getAbsolutePath());
+        conf.setCombinedOutput(true);
+        ParallelCDXCreation parallelCdxCreation = new ParallelCDXCreation(conf, archiveFiles);
+        parallelCdxCreation.createIndex();
+        assertTrue("File does not exist: " + outputFile, outputFile.exists());
+
+        BufferedReader input = new BufferedReader(new FileReader(outputFile));
+        assertEquals(" CDX N b a m s k r M V g", input.readLine());
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 5; j++) {
+                assertTrue(input.readLine().endsWith(" example" + i + ".arc.gz"));
+            }
+            for (int j = 0; j < 6; j++) {
+                assertTrue(input.readLine().endsWith(" example" + i + ".warc"));
+            }
+        }
+        assertNull(input.readLine());
+        input.close();
+    }
+
+    /**
+     * Test of createIndex method, of class ParallelCDXCreation. Without
+     * combined output, each file is indexed into its own CDX file as in
+     * single threaded execution.
+     */
+    @Test
+    public void testCreatePerFileIndex() throws Exception {
+        List<File> archiveFiles = createArchiveFiles();
+        File outputDir = new File(tempDir, "cdx");
+        outputDir.mkdirs();
+        conf.setOutputStr(outputDir.getAbsolutePath());
+        ParallelCDXCreation parallelCdxCreation = new ParallelCDXCreation(conf, archiveFiles);
+        parallelCdxCreation.createIndex();
+        assertEquals(8, outputDir.list().length);
+        for (File archiveFile : archiveFiles) {
+            File cdxFile = new File(outputDir, archiveFile.getName() + ".cdx.csv");
+            assertTrue("File does not exist: " + cdxFile, cdxFile.exists());
+            BufferedReader input = new BufferedReader(new FileReader(cdxFile));
+            assertEquals(" CDX N b a m s k r M V g", input.readLine());
+            int numLines = 0;
+            String line;
+            while ((line = input.readLine()) != null) {
+                assertTrue(line.endsWith(" " + archiveFile.getName()));
+                numLines++;
+            }
+            input.close();
+            assertEquals(archiveFile.getName().endsWith(".warc") ? 6 : 5, numLines);
+        }
+    }
+
+    private List<File> createArchiveFiles() throws IOException {
+        List<File> archiveFiles = new ArrayList<File>();
+        for (int i = 0; i < 4; i++) {
+            archiveFiles.add(copyResource("arc/example.arc.gz", "example" + i + ".arc.gz"));
+            archiveFiles.add(copyResource("warc/example.warc", "example" + i + ".warc"));
+        }
+        return archiveFiles;
+    }
+
+    private File copyResource(String resource, String fileName) throws IOException {
+        File file = new File(tempDir, fileName);
+        FileOutputStream fos = new FileOutputStream(file);
+        try {
+            Resources.copy(Resources.getResource(resource), fos);
+        } finally {
+            fos.close();
+        }
+        return file;
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2014 scape.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scape_project.hawarp.benchmarks;
+
+import com.google.common.io.Files;
+import eu.scape_project.arc2warc.ArcMigrator;
+import eu.scape_project.arc2warc.cli.Arc2WarcMigrationConfig;
+import eu.scape_project.hawarp.generator.CorpusGenerator;
+import eu.scape_project.hawarp.generator.cli.CorpusGeneratorConfig;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ARC to WARC migration of a synthetic ARC file. ArcMigrator.migrateRecord
+ * depends on the reader and writer state of a running migration, it is
+ * therefore measured by migrating a whole file; the score is the time per
+ * migrated record (ArcMigrator.migrateRecord call).
+ *
+ * @author Sven Schlarb <https://github.com/shsdev>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ArcMigratorBenchmark {
+
+    private static final int NUM_RECORDS = 500;
+
+    @Param({"false", "true"})
+    public boolean compressed;
+
+    @Param({"16384"})
+    public int payloadSize;
+
+    private File tempDir;
+
+    private File arcFile;
+
+    private File warcFile;
+
+    private Arc2WarcMigrationConfig config;
+
+    private byte[] buffer;
+
+    @Setup
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDir();
+        CorpusGeneratorConfig generatorConfig = new CorpusGeneratorConfig();
+        generatorConfig.setNumRecords(NUM_RECORDS);
+        generatorConfig.setPayloadSizeMedian(payloadSize);
+        arcFile = new CorpusGenerator(generatorConfig).generateFile(tempDir, compressed ? "arc.gz" : "arc", 0);
+        warcFile = new File(tempDir, compressed ? "synthetic.warc.gz" : "synthetic.warc");
+        config = new Arc2WarcMigrationConfig();
+        config.setCreateCompressedWarc(compressed);
+        buffer = new byte[ArcMigrator.LIMIT_LARGE_PAYLOAD];
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(tempDir);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_RECORDS + 1)
+    public long migrateArcFile() {
+        new ArcMigrator(config, arcFile, warcFile, false, buffer).migrateArcFile();
+        return warcFile.length();
+    }
+
+}
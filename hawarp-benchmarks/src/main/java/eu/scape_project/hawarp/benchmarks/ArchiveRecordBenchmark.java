@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014 scape.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scape_project.hawarp.benchmarks;
+
+import eu.scape_project.hawarp.generator.CorpusGenerator;
+import eu.scape_project.hawarp.generator.cli.CorpusGeneratorConfig;
+import eu.scape_project.hawarp.interfaces.ArchiveReader;
+import eu.scape_project.hawarp.webarchive.ArchiveReaderFactory;
+import eu.scape_project.hawarp.webarchive.ArchiveRecord;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Construction of ArchiveRecord objects from ARC and WARC containers, as done
+ * by the CDX creator. The container is read from memory, the score is the time
+ * per container.
+ *
+ * @author Sven Schlarb <https://github.com/shsdev>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ArchiveRecordBenchmark {
+
+    @Param({"arc", "arc.gz", "warc", "warc.gz"})
+    public String format;
+
+    @Param({"1000"})
+    public int numRecords;
+
+    @Param({"16384"})
+    public int payloadSize;
+
+    @Param({"false", "true"})
+    public boolean computePayloadDigest;
+
+    private byte[] container;
+
+    private String fileName;
+
+    @Setup
+    public void setUp() throws IOException {
+        CorpusGeneratorConfig config = new CorpusGeneratorConfig();
+        config.setNumRecords(numRecords);
+        config.setPayloadSizeMedian(payloadSize);
+        CorpusGenerator generator = new CorpusGenerator(config);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        generator.write(out, format, 0);
+        container = out.toByteArray();
+        fileName = generator.getFileName(format, 0);
+    }
+
+    @Benchmark
+    public void readRecords(Blackhole blackhole) throws IOException {
+        ArchiveReader reader = ArchiveReaderFactory.getReader(new ByteArrayInputStream(container), fileName);
+        reader.setComputePayloadDigest(computePayloadDigest);
+        try {
+            while (reader.hasNext()) {
+                ArchiveRecord record = reader.next();
+                blackhole.consume(record);
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+}
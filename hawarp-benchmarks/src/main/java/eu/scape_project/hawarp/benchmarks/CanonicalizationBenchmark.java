@@ -0,0 +1,95 @@
+/*
+ * Copyright 2014 scape.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scape_project.hawarp.benchmarks;
+
+import eu.scape_project.hawarp.generator.CorpusGenerator;
+import eu.scape_project.hawarp.generator.SyntheticRecord;
+import eu.scape_project.hawarp.generator.cli.CorpusGeneratorConfig;
+import eu.scape_project.hawarp.utils.StringUtils;
+import eu.scape_project.hawarp.utils.UrlUtils;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * URL canonicalization and mime type normalisation, which are applied to each
+ * record of a CDX index. The score is the time per URL or mime type.
+ *
+ * @author Sven Schlarb <https://github.com/shsdev>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CanonicalizationBenchmark {
+
+    private static final int NUM_VALUES = 1024;
+
+    private String[] urls;
+
+    private String[] mimeTypes;
+
+    @Setup
+    public void setUp() {
+        // the synthetic URLs are a mix of http and https URLs with and
+        // without www prefix
+        CorpusGenerator generator = new CorpusGenerator(new CorpusGeneratorConfig());
+        urls = new String[NUM_VALUES];
+        mimeTypes = new String[NUM_VALUES];
+        for (int i = 0; i < NUM_VALUES; i++) {
+            SyntheticRecord record = generator.getRecord(0, i);
+            urls[i] = record.getUrl();
+            mimeTypes[i] = record.getMimeType();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_VALUES)
+    public void canonicalizeUrl(Blackhole blackhole) {
+        for (String url : urls) {
+            blackhole.consume(UrlUtils.canonicalize(url));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_VALUES)
+    public void surtUrl(Blackhole blackhole) {
+        for (String url : urls) {
+            blackhole.consume(UrlUtils.toSurt(url));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_VALUES)
+    public void normaliseMimetype(Blackhole blackhole) {
+        for (String mimeType : mimeTypes) {
+            blackhole.consume(StringUtils.normaliseMimetype(mimeType));
+        }
+    }
+
+}
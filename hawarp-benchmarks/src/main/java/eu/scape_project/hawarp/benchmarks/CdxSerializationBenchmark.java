@@ -0,0 +1,123 @@
+/*
+ * Copyright 2014 scape.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scape_project.hawarp.benchmarks;
+
+import eu.scape_project.cdx_creator.CdxArchiveRecord;
+import eu.scape_project.cdx_creator.CdxArchiveRecordWriter;
+import eu.scape_project.cdx_creator.cli.CDXCreatorConfig;
+import eu.scape_project.hawarp.generator.CorpusGenerator;
+import eu.scape_project.hawarp.generator.cli.CorpusGeneratorConfig;
+import eu.scape_project.hawarp.interfaces.ArchiveReader;
+import eu.scape_project.hawarp.webarchive.ArchiveReaderFactory;
+import eu.scape_project.hawarp.webarchive.ArchiveRecord;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Conversion of archive records to CDX records and serialization of CDX
+ * lines with the default columns of the CDX creator. The records are read
+ * once from a synthetic WARC container, the score is the time per record.
+ *
+ * @author Sven Schlarb <https://github.com/shsdev>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CdxSerializationBenchmark {
+
+    private static final int NUM_RECORDS = 1000;
+
+    private static final String CDX_COLUMNS = "url,date,origUrl,mimeType,httpReturnCode,payloadDigestStr,"
+            + "redirectUrl,metaTags,offsetCompressedStr,containerFileName";
+
+    private static final String CONTAINER_FILE_NAME = "synthetic.warc.gz";
+
+    private CDXCreatorConfig config;
+
+    private List<ArchiveRecord> records;
+
+    private List<CdxArchiveRecord> cdxRecords;
+
+    @Setup
+    public void setUp() throws IOException {
+        config = new CDXCreatorConfig();
+        config.setCdxfileCsColumns(CDX_COLUMNS);
+        CorpusGeneratorConfig generatorConfig = new CorpusGeneratorConfig();
+        generatorConfig.setNumRecords(NUM_RECORDS);
+        generatorConfig.setPayloadSizeMedian(1024);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new CorpusGenerator(generatorConfig).write(out, "warc.gz", 0);
+        ArchiveReader reader = ArchiveReaderFactory.getReader(new ByteArrayInputStream(out.toByteArray()),
+                CONTAINER_FILE_NAME);
+        reader.setComputePayloadDigest(true);
+        records = new ArrayList<ArchiveRecord>();
+        cdxRecords = new ArrayList<CdxArchiveRecord>();
+        try {
+            while (reader.hasNext()) {
+                ArchiveRecord record = reader.next();
+                records.add(record);
+                cdxRecords.add(toCdxArchiveRecord(record));
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static CdxArchiveRecord toCdxArchiveRecord(ArchiveRecord record) {
+        CdxArchiveRecord cdxArchRec = CdxArchiveRecord.fromArchiveRecord(record);
+        cdxArchRec.setContainerFileName(CONTAINER_FILE_NAME);
+        return cdxArchRec;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_RECORDS)
+    public void fromArchiveRecord(Blackhole blackhole) {
+        for (ArchiveRecord record : records) {
+            blackhole.consume(toCdxArchiveRecord(record));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_RECORDS)
+    public void writeCdxLines() throws IOException {
+        CdxArchiveRecordWriter writer = new CdxArchiveRecordWriter(config, new NullOutputStream());
+        for (CdxArchiveRecord cdxArchRec : cdxRecords) {
+            writer.write(cdxArchRec);
+        }
+        writer.close();
+    }
+
+}
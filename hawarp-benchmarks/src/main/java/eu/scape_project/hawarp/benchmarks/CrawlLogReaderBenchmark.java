@@ -0,0 +1,105 @@
+/*
+ * Copyright 2014 scape.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scape_project.hawarp.benchmarks;
+
+import eu.scape_project.arc2warc.CrawlLogEntry;
+import eu.scape_project.arc2warc.CrawlLogReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.supercsv.io.CsvBeanReader;
+
+/**
+ * Crawl log parsing by the streaming CrawlLogReader and by the SuperCSV bean
+ * reader on a synthetic crawl log, every tenth line is a duplicate. The score
+ * is the time per crawl log line.
+ *
+ * @author Sven Schlarb <https://github.com/shsdev>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CrawlLogReaderBenchmark {
+
+    private static final int NUM_LINES = 100000;
+
+    private byte[] crawlLog;
+
+    @Setup
+    public void setUp() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < NUM_LINES; i++) {
+            sb.append("2013-05-22T08:29:53.196Z   200      ").append(1000 + i % 5000)
+                    .append(" http://fue.onb.ac.at/test/page").append(i).append(".html LLE http://fue.onb.ac.at/test/ ")
+                    .append("text/html #046 20130522082953013+175 sha1:RANOOZRTRT75UDOQ3X6KTVKVUFUZLSD4 - ")
+                    .append((i % 10 == 0) ? "duplicate:1-1-20130522081727-00000-prepc2.arc,content-size:490" : "content-size:490")
+                    .append('\n');
+        }
+        crawlLog = sb.toString().getBytes();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_LINES)
+    public long beanReader() throws IOException {
+        long duplicates = 0;
+        CsvBeanReader beanReader = CrawlLogEntry.getCsvBeanReader(new ByteArrayInputStream(crawlLog));
+        try {
+            Iterator<CrawlLogEntry> iterator = CrawlLogEntry.asIterator(beanReader);
+            while (iterator.hasNext()) {
+                if (iterator.next().findDuplicationEntry() != null) {
+                    duplicates++;
+                }
+            }
+        } finally {
+            beanReader.close();
+        }
+        return duplicates;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_LINES)
+    public long crawlLogReader() throws IOException {
+        long duplicates = 0;
+        CrawlLogReader reader = new CrawlLogReader(new ByteArrayInputStream(crawlLog));
+        try {
+            CrawlLogEntry entry;
+            while ((entry = reader.readEntry()) != null) {
+                if (entry.findDuplicationEntry() != null) {
+                    duplicates++;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return duplicates;
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2014 scape.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scape_project.hawarp.benchmarks;
+
+import eu.scape_project.arc2warc.ArcMigrator;
+import eu.scape_project.hawarp.generator.SyntheticPayloadInputStream;
+import eu.scape_project.hawarp.utils.DigestService;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Payload digest paths of the hawarp-core PayloadContent (payload read into
+ * memory, digest of the bytes as computed by the archive readers) and of the
+ * arc2warc PayloadContent (payload buffered or, above
+ * ArcMigrator.LIMIT_LARGE_PAYLOAD, spooled to a temporary file while it is
+ * hashed). The score is the time per payload.
+ *
+ * @author Sven Schlarb <https://github.com/shsdev>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PayloadDigestBenchmark {
+
+    @Param({"1024", "65536", "8388608"})
+    public int payloadSize;
+
+    @Param({DigestService.SHA1, DigestService.SHA256})
+    public String algorithm;
+
+    private byte[] payload;
+
+    private byte[] buffer;
+
+    private DigestService digestService;
+
+    private String knownDigest;
+
+    @Setup
+    public void setUp() throws IOException {
+        payload = IOUtils.toByteArray(new SyntheticPayloadInputStream(payloadSize, "application/octet-stream", 42L));
+        buffer = new byte[ArcMigrator.LIMIT_LARGE_PAYLOAD];
+        digestService = DigestService.getInstance(algorithm);
+        knownDigest = digestService.toLabelledBase32(digestService.digest(payload));
+    }
+
+    @Benchmark
+    public byte[] corePayloadContent() {
+        eu.scape_project.hawarp.webarchive.PayloadContent payloadContent
+                = new eu.scape_project.hawarp.webarchive.PayloadContent(new ByteArrayInputStream(payload));
+        payloadContent.readPayloadContent();
+        return digestService.digest(payloadContent.getPayloadBytes());
+    }
+
+    @Benchmark
+    public String arc2warcPayloadContent() throws IOException {
+        eu.scape_project.arc2warc.PayloadContent payloadContent
+                = new eu.scape_project.arc2warc.PayloadContent(new ByteArrayInputStream(payload), payload.length, buffer);
+        payloadContent.setDigestService(digestService);
+        drain(payloadContent.getPayloadContentAsInputStream());
+        return payloadContent.getDigestStr();
+    }
+
+    @Benchmark
+    public String arc2warcPayloadContentKnownDigest() throws IOException {
+        eu.scape_project.arc2warc.PayloadContent payloadContent
+                = new eu.scape_project.arc2warc.PayloadContent(new ByteArrayInputStream(payload), payload.length, buffer);
+        payloadContent.setDigestService(digestService);
+        payloadContent.setKnownDigest(knownDigest, false);
+        drain(payloadContent.getPayloadContentAsInputStream());
+        return payloadContent.getDigestStr();
+    }
+
+    private static void drain(InputStream inputStream) throws IOException {
+        try {
+            IOUtils.copyLarge(inputStream, new NullOutputStream());
+        } finally {
+            inputStream.close();
+        }
+    }
+
+}
@@ -0,0 +1,485 @@
+/*
+ * Copyright 2014 scape.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scape_project.hawarp.generator;
+
+import eu.scape_project.hawarp.generator.SyntheticRecord.Malformation;
+import eu.scape_project.hawarp.generator.cli.CorpusGeneratorConfig;
+import eu.scape_project.hawarp.generator.cli.CorpusGeneratorOptions;
+import eu.scape_project.hawarp.utils.DateUtils;
+import eu.scape_project.hawarp.utils.DigestService;
+import eu.scape_project.hawarp.utils.UUIDGenerator;
+import static eu.scape_project.hawarp.utils.IOUtils.BUFFER_SIZE;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.SequenceInputStream;
+import java.io.Writer;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.jwat.arc.ArcWriter;
+import org.jwat.arc.ArcWriterFactory;
+import org.jwat.warc.WarcConstants;
+import org.jwat.warc.WarcRecord;
+import org.jwat.warc.WarcWriter;
+import org.jwat.warc.WarcWriterFactory;
+
+/**
+ * Generator of synthetic ARC, ARC.gz, WARC and WARC.gz files for scale and
+ * throughput tests. The files are written with the JWAT writers.
+ *
+ * The records are deterministic: the same seed and configuration give the
+ * same records, and the files of the different formats with the same file
+ * index contain the same records. Payloads are generated while they are
+ * written, so that outliers of several GB can be created without holding them
+ * in memory. Optionally, a crawl.log metadata record listing the records with
+ * their SHA-1 payload digests is appended to each file (as in NetarchiveSuite
+ * metadata files), and a fraction of the records is malformed (see
+ * SyntheticRecord.Malformation).
+ *
+ * @author Sven Schlarb <https://github.com/shsdev>
+ */
+public class CorpusGenerator {
+
+    private static final Log LOG = LogFactory.getLog(CorpusGenerator.class);
+
+    public static final String[] FORMATS = {"arc", "arc.gz", "warc", "warc.gz"};
+
+    public static final String CRAWL_LOG_URL
+            = "metadata://netarkivet.dk/crawl/logs/crawl.log?heritrixVersion=1.14.4&harvestid=1&jobid=1";
+
+    private static final String ARC_VERSION_BLOCK = "1 1 InternetArchive\n"
+            + "URL IP-address Archive-date Content-type Archive-length\n";
+
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final long START_DATE = 1369211393000L; // 2013-05-22T08:29:53Z
+
+    private static final int NUM_HOSTS = 64;
+
+    private final CorpusGeneratorConfig config;
+
+    private final MimeTypeMix mimeTypeMix;
+
+    /**
+     * Constructor
+     *
+     * @param config Configuration
+     * @throws IllegalArgumentException If the mime type mix is invalid
+     */
+    public CorpusGenerator(CorpusGeneratorConfig config) {
+        this.config = config;
+        this.mimeTypeMix = new MimeTypeMix(config.getMimeTypeMix());
+    }
+
+    /**
+     * Main entry point.
+     *
+     * @param args
+     * @throws java.io.IOException
+     * @throws org.apache.commons.cli.ParseException
+     */
+    public static void main(String[] args) throws IOException, ParseException {
+        CorpusGeneratorConfig config = new CorpusGeneratorConfig();
+        CommandLineParser cmdParser = new PosixParser();
+        CorpusGeneratorOptions cgopt = new CorpusGeneratorOptions();
+        CommandLine cmd = cmdParser.parse(cgopt.options, args);
+        if ((args.length == 0) || (cmd.hasOption(cgopt.HELP_OPT))) {
+            cgopt.exit("Help", 0);
+        } else {
+            cgopt.initOptions(cmd, config);
+        }
+        long startMillis = System.currentTimeMillis();
+        List<File> files = new CorpusGenerator(config).generate(new File(config.getOutputStr()));
+        long elapsedTimeMillis = System.currentTimeMillis() - startMillis;
+        LOG.info("Files created: " + files.size());
+        LOG.info("Processing time (sec): " + elapsedTimeMillis / 1000F);
+    }
+
+    public static boolean isSupportedFormat(String format) {
+        for (String supportedFormat : FORMATS) {
+            if (supportedFormat.equals(format)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Create the configured number of files of each configured format.
+     *
+     * @param outputDir Output directory
+     * @return Files
+     * @throws IOException
+     */
+    public List<File> generate(File outputDir) throws IOException {
+        FileUtils.forceMkdir(outputDir);
+        List<File> files = new ArrayList<File>();
+        for (int fileIndex = 0; fileIndex < config.getNumFiles(); fileIndex++) {
+            for (String format : config.getFormats().split("\\s*,\\s*")) {
+                files.add(generateFile(outputDir, format, fileIndex));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Create one file.
+     *
+     * @param outputDir Output directory
+     * @param format Format, one of FORMATS
+     * @param fileIndex File index
+     * @return File
+     * @throws IOException
+     */
+    public File generateFile(File outputDir, String format, int fileIndex) throws IOException {
+        File file = new File(outputDir, getFileName(format, fileIndex));
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+        try {
+            write(out, format, fileIndex);
+        } finally {
+            out.close();
+        }
+        LOG.info("File created: " + file.getAbsolutePath());
+        return file;
+    }
+
+    /**
+     * File name, e.g. SYNTHETIC-42-00000.arc.gz
+     *
+     * @param format Format, one of FORMATS
+     * @param fileIndex File index
+     * @return File name
+     */
+    public String getFileName(String format, int fileIndex) {
+        return String.format("SYNTHETIC-%d-%05d.%s", config.getSeed(), fileIndex, format);
+    }
+
+    /**
+     * Write a container to the output stream. The output stream is closed.
+     *
+     * @param out Output stream
+     * @param format Format, one of FORMATS
+     * @param fileIndex File index
+     * @throws IOException
+     * @throws IllegalArgumentException If the format is not supported
+     */
+    public void write(OutputStream out, String format, int fileIndex) throws IOException {
+        if (!isSupportedFormat(format)) {
+            throw new IllegalArgumentException("Unsupported format: " + format);
+        }
+        boolean compressed = format.endsWith(".gz");
+        String fileName = getFileName(format, fileIndex);
+        CrawlLog crawlLog = config.isCrawlLogRecord() ? new CrawlLog() : null;
+        try {
+            if (format.startsWith("warc")) {
+                writeWarc(WarcWriterFactory.getWriter(out, compressed), fileName, fileIndex, crawlLog);
+            } else {
+                writeArc(ArcWriterFactory.getWriter(out, compressed), fileName, fileIndex, crawlLog);
+            }
+        } finally {
+            if (crawlLog != null) {
+                crawlLog.delete();
+            }
+        }
+    }
+
+    /**
+     * Get a record. The record only depends on the seed, the configuration
+     * and the indexes.
+     *
+     * @param fileIndex File index
+     * @param recordIndex Record index in the file
+     * @return Record
+     */
+    public SyntheticRecord getRecord(int fileIndex, int recordIndex) {
+        Random random = new Random(config.getSeed() ^ (fileIndex * 0x9E3779B97F4A7C15L)
+                ^ (recordIndex * 0xC2B2AE3D27D4EB4FL));
+        long index = (long) fileIndex * config.getNumRecords() + recordIndex;
+        // the values are always drawn in the same order, so that changing
+        // one rate does not change the other values of the record
+        String mimeType = mimeTypeMix.next(random);
+        int host = random.nextInt(NUM_HOSTS);
+        int dir = random.nextInt(100);
+        int query = random.nextInt(10000);
+        int ipSuffix = 1 + random.nextInt(254);
+        double outlierValue = random.nextDouble();
+        double sizeValue = random.nextGaussian();
+        double httpValue = random.nextDouble();
+        double malformedValue = random.nextDouble();
+        int malformationValue = random.nextInt(Malformation.values().length - 1);
+        long payloadSeed = random.nextLong();
+
+        String url = ((host % 8 == 0) ? "https://" : "http://") + ((host % 3 == 0) ? "" : "www.")
+                + "host" + host + ".example.org/dir" + dir + "/page" + index + getExtension(mimeType)
+                + ((query < 1000) ? "?id=" + query : "");
+        String ipAddress = "10.0." + host + "." + ipSuffix;
+        Date date = new Date(START_DATE + index * 1000L);
+        long payloadLength;
+        if (outlierValue < config.getOutlierRate()) {
+            payloadLength = config.getOutlierSize();
+        } else {
+            double size = config.getPayloadSizeMedian() * Math.exp(config.getPayloadSizeSigma() * sizeValue);
+            payloadLength = Math.min(config.getPayloadSizeMax(), Math.round(size));
+        }
+        boolean httpResponse = httpValue < config.getHttpResponseRate();
+        Malformation malformation = Malformation.NONE;
+        if (malformedValue < config.getMalformedRate()) {
+            malformation = Malformation.values()[1 + malformationValue];
+            if (!httpResponse && (malformation == Malformation.INVALID_HTTP_STATUS
+                    || malformation == Malformation.HTTP_LENGTH_MISMATCH)) {
+                malformation = Malformation.INVALID_DATE;
+            }
+        }
+        return new SyntheticRecord(index, url, ipAddress, date, mimeType, payloadLength, httpResponse,
+                malformation, payloadSeed);
+    }
+
+    private static String getExtension(String mimeType) {
+        if (mimeType.startsWith("text/html")) {
+            return ".html";
+        } else if (mimeType.equals("image/jpeg")) {
+            return ".jpg";
+        } else if (mimeType.equals("image/png")) {
+            return ".png";
+        } else if (mimeType.equals("image/gif")) {
+            return ".gif";
+        } else if (mimeType.equals("text/css")) {
+            return ".css";
+        } else if (mimeType.contains("javascript")) {
+            return ".js";
+        } else if (mimeType.equals("application/pdf")) {
+            return ".pdf";
+        } else if (mimeType.equals("text/plain")) {
+            return ".txt";
+        }
+        return "";
+    }
+
+    private void writeArc(ArcWriter writer, String fileName, int fileIndex, CrawlLog crawlLog) throws IOException {
+        try {
+            String arcFileName = fileName.endsWith(".gz") ? fileName.substring(0, fileName.length() - 3) : fileName;
+            byte[] versionBlock = ARC_VERSION_BLOCK.getBytes(ISO_8859_1);
+            String fileDate = DateUtils.formatGTechDate(getRecord(fileIndex, 0).getDate());
+            writeArcRecord(writer, "filedesc://" + arcFileName, "0.0.0.0", fileDate, "text/plain",
+                    versionBlock.length, new ByteArrayInputStream(versionBlock));
+            for (int i = 0; i < config.getNumRecords(); i++) {
+                SyntheticRecord record = getRecord(fileIndex, i);
+                // ARC header fields are separated by spaces
+                String contentType = record.getMimeType().replace(" ", "");
+                writeArcRecord(writer, record.getUrl(), record.getIpAddress(), record.getArcDateStr(), contentType,
+                        record.getContentLength(), openContent(record, crawlLog));
+            }
+            if (crawlLog != null) {
+                crawlLog.close();
+                InputStream in = crawlLog.open();
+                try {
+                    writeArcRecord(writer, CRAWL_LOG_URL, "0.0.0.0", fileDate, "text/plain", crawlLog.length(), in);
+                } finally {
+                    in.close();
+                }
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static void writeArcRecord(ArcWriter writer, String url, String ipAddress, String dateStr,
+            String contentType, long length, InputStream in) throws IOException {
+        String headerLine = url + " " + ipAddress + " " + dateStr + " " + contentType + " " + length + "\n";
+        writer.writeRawHeader(headerLine.getBytes(ISO_8859_1), length);
+        writer.streamPayload(in);
+        writer.closeRecord();
+    }
+
+    private void writeWarc(WarcWriter writer, String fileName, int fileIndex, CrawlLog crawlLog) throws IOException {
+        try {
+            String fileDate = DateUtils.formatIsoDate(getRecord(fileIndex, 0).getDate());
+            String warcInfoId = getRecordId(fileName, -1);
+            byte[] warcInfo = ("software: hawarp CorpusGenerator\r\n"
+                    + "format: WARC File Format 1.0\r\n"
+                    + "description: synthetic corpus, seed " + config.getSeed() + "\r\n").getBytes(UTF8);
+            WarcRecord record = WarcRecord.createRecord(writer);
+            record.header.addHeader(WarcConstants.FN_WARC_TYPE, WarcConstants.RT_WARCINFO);
+            record.header.addHeader(WarcConstants.FN_WARC_DATE, fileDate);
+            record.header.addHeader(WarcConstants.FN_WARC_FILENAME, fileName);
+            record.header.addHeader(WarcConstants.FN_WARC_RECORD_ID, warcInfoId);
+            record.header.addHeader(WarcConstants.FN_CONTENT_TYPE, WarcConstants.CT_APP_WARC_FIELDS);
+            writeWarcRecord(writer, record, warcInfo.length, new ByteArrayInputStream(warcInfo));
+            for (int i = 0; i < config.getNumRecords(); i++) {
+                SyntheticRecord syntheticRecord = getRecord(fileIndex, i);
+                record = WarcRecord.createRecord(writer);
+                if (syntheticRecord.isHttpResponse()) {
+                    record.header.addHeader(WarcConstants.FN_WARC_TYPE, WarcConstants.RT_RESPONSE);
+                } else {
+                    record.header.addHeader(WarcConstants.FN_WARC_TYPE, WarcConstants.RT_RESOURCE);
+                }
+                record.header.addHeader(WarcConstants.FN_WARC_TARGET_URI, syntheticRecord.getUrl());
+                record.header.addHeader(WarcConstants.FN_WARC_DATE, syntheticRecord.getWarcDateStr());
+                record.header.addHeader(WarcConstants.FN_WARC_RECORD_ID, getRecordId(fileName, i));
+                record.header.addHeader(WarcConstants.FN_WARC_WARCINFO_ID, warcInfoId);
+                record.header.addHeader(WarcConstants.FN_WARC_IP_ADDRESS, syntheticRecord.getIpAddress());
+                if (syntheticRecord.isHttpResponse()) {
+                    record.header.addHeader(WarcConstants.FN_CONTENT_TYPE, "application/http; msgtype=response");
+                } else {
+                    record.header.addHeader(WarcConstants.FN_CONTENT_TYPE, syntheticRecord.getMimeType());
+                }
+                writeWarcRecord(writer, record, syntheticRecord.getContentLength(),
+                        openContent(syntheticRecord, crawlLog));
+            }
+            if (crawlLog != null) {
+                crawlLog.close();
+                record = WarcRecord.createRecord(writer);
+                record.header.addHeader(WarcConstants.FN_WARC_TYPE, WarcConstants.RT_METADATA);
+                record.header.addHeader(WarcConstants.FN_WARC_TARGET_URI, CRAWL_LOG_URL);
+                record.header.addHeader(WarcConstants.FN_WARC_DATE, fileDate);
+                record.header.addHeader(WarcConstants.FN_WARC_RECORD_ID, getRecordId(fileName, config.getNumRecords()));
+                record.header.addHeader(WarcConstants.FN_WARC_WARCINFO_ID, warcInfoId);
+                record.header.addHeader(WarcConstants.FN_CONTENT_TYPE, "text/plain");
+                InputStream in = crawlLog.open();
+                try {
+                    writeWarcRecord(writer, record, crawlLog.length(), in);
+                } finally {
+                    in.close();
+                }
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static void writeWarcRecord(WarcWriter writer, WarcRecord record, long length, InputStream in)
+            throws IOException {
+        record.header.addHeader(WarcConstants.FN_CONTENT_LENGTH, length, null);
+        writer.writeHeader(record);
+        writer.streamPayload(in);
+        writer.closeRecord();
+    }
+
+    /**
+     * Deterministic record id, derived from the file name and record index.
+     */
+    private static String getRecordId(String fileName, int recordIndex) {
+        try {
+            return "<" + UUIDGenerator.getRecordID(fileName + "," + recordIndex) + ">";
+        } catch (URISyntaxException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Content of the record, HTTP header and payload. If a crawl log is
+     * created, the payload digest is computed while the content is read and
+     * the crawl log line is added when the end of the content is reached.
+     */
+    private static InputStream openContent(final SyntheticRecord record, final CrawlLog crawlLog) {
+        InputStream payload = record.openPayload();
+        if (crawlLog != null) {
+            final MessageDigest md = DigestService.getInstance(DigestService.SHA1).newMessageDigest();
+            payload = new DigestInputStream(payload, md) {
+                private boolean logged;
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int bytesRead = super.read(b, off, len);
+                    if (bytesRead == -1 && !logged) {
+                        logged = true;
+                        crawlLog.add(record, md.digest());
+                    }
+                    return bytesRead;
+                }
+            };
+        }
+        return new SequenceInputStream(new ByteArrayInputStream(record.getHttpHeader()), payload);
+    }
+
+    /**
+     * Heritrix crawl log of the records of a file, spooled to a temporary
+     * file.
+     */
+    private static class CrawlLog {
+
+        private final File file;
+
+        private final Writer writer;
+
+        CrawlLog() throws IOException {
+            file = File.createTempFile("hawarp-crawl", ".log");
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), UTF8), BUFFER_SIZE);
+        }
+
+        void add(SyntheticRecord record, byte[] payloadDigest) throws IOException {
+            Date date = record.getDate();
+            // logging timestamp with milliseconds, yyyy-MM-dd'T'HH:mm:ss.SSS'Z'
+            String loggingTimestamp = DateUtils.formatIsoDate(date);
+            writer.write(loggingTimestamp.substring(0, loggingTimestamp.length() - 1));
+            writer.write(".250Z ");
+            writer.write(record.isHttpResponse() ? "200 " : "1 ");
+            writer.write(String.valueOf(record.getContentLength()));
+            writer.write(' ');
+            writer.write(record.getUrl());
+            writer.write(" L - ");
+            writer.write(record.getMimeType().replace(" ", ""));
+            writer.write(" #001 ");
+            writer.write(DateUtils.formatGTechDate(date));
+            writer.write("000+250 sha1:");
+            writer.write(DigestService.toBase32(payloadDigest));
+            writer.write(" - content-size:");
+            writer.write(String.valueOf(record.getContentLength()));
+            writer.write('\n');
+        }
+
+        void close() throws IOException {
+            writer.close();
+        }
+
+        long length() {
+            return file.length();
+        }
+
+        InputStream open() throws IOException {
+            return new FileInputStream(file);
+        }
+
+        void delete() {
+            IOUtils.closeQuietly(writer);
+            FileUtils.deleteQuietly(file);
+        }
+    }
+
+}
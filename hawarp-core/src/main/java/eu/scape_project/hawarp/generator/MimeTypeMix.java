@@ -0,0 +1,100 @@
+/*
+ * Copyright 2014 scape.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scape_project.hawarp.generator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Weighted mix of mime types, e.g. "text/html:60,image/jpeg:30,no-type:10".
+ * A mime type without weight has the weight 1.
+ *
+ * @author Sven Schlarb <https://github.com/shsdev>
+ */
+public class MimeTypeMix {
+
+    public static final String DEFAULT_MIX = "text/html:45,text/html; charset=UTF-8:10,image/jpeg:15,image/png:8,"
+            + "image/gif:4,text/css:5,application/javascript:5,application/pdf:4,text/plain:2,no-type:2";
+
+    private final String[] mimeTypes;
+
+    private final double[] cumulativeWeights;
+
+    /**
+     * Constructor
+     *
+     * @param mix Comma separated list of mimetype:weight entries
+     * @throws IllegalArgumentException If the mix is empty or a weight is
+     * invalid
+     */
+    public MimeTypeMix(String mix) {
+        List<String> types = new ArrayList<String>();
+        List<Double> weights = new ArrayList<Double>();
+        for (String entry : mix.split(",")) {
+            String trimmed = entry.trim();
+            if (trimmed.length() == 0) {
+                continue;
+            }
+            int colon = trimmed.lastIndexOf(':');
+            double weight = 1;
+            if (colon > 0 && colon > trimmed.indexOf('/')) {
+                try {
+                    weight = Double.parseDouble(trimmed.substring(colon + 1).trim());
+                } catch (NumberFormatException ex) {
+                    throw new IllegalArgumentException("Invalid mime type weight: " + trimmed);
+                }
+                trimmed = trimmed.substring(0, colon).trim();
+            }
+            if (weight < 0 || Double.isNaN(weight) || Double.isInfinite(weight)) {
+                throw new IllegalArgumentException("Invalid mime type weight: " + entry);
+            }
+            types.add(trimmed);
+            weights.add(weight);
+        }
+        mimeTypes = types.toArray(new String[types.size()]);
+        cumulativeWeights = new double[mimeTypes.length];
+        double sum = 0;
+        for (int i = 0; i < mimeTypes.length; i++) {
+            sum += weights.get(i);
+            cumulativeWeights[i] = sum;
+        }
+        if (sum <= 0) {
+            throw new IllegalArgumentException("Mime type mix without weights: " + mix);
+        }
+    }
+
+    /**
+     * Pick a mime type according to the weights.
+     *
+     * @param random Random
+     * @return Mime type
+     */
+    public String next(Random random) {
+        double value = random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1];
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return mimeTypes[i];
+            }
+        }
+        return mimeTypes[mimeTypes.length - 1];
+    }
+
+    public String[] getMimeTypes() {
+        return mimeTypes.clone();
+    }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2014 scape.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scape_project.hawarp.generator;
+
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Deterministic payload of a synthetic record. The bytes are produced by a
+ * xorshift generator while the stream is read, so that payloads of several
+ * gigabytes do not need to be held in memory. Text payloads consist of
+ * printable characters and line breaks, binary payloads start with the magic
+ * number of the mime type (JPEG, PNG, GIF, PDF) followed by random bytes.
+ *
+ * @author Sven Schlarb <https://github.com/shsdev>
+ */
+public class SyntheticPayloadInputStream extends InputStream {
+
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    private static final byte[] TEXT_CHARS
+            = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789      .,;:<>/=\"\n".getBytes(ISO_8859_1);
+
+    private final long length;
+
+    private final boolean text;
+
+    private final byte[] prefix;
+
+    private long position;
+
+    private long state;
+
+    /**
+     * Constructor
+     *
+     * @param length Payload length in bytes
+     * @param mimeType Mime type, determines the kind of content
+     * @param seed Seed of the content
+     */
+    public SyntheticPayloadInputStream(long length, String mimeType, long seed) {
+        this.length = length;
+        this.text = mimeType.startsWith("text/") || mimeType.contains("javascript") || mimeType.contains("xml");
+        this.prefix = getPrefix(mimeType);
+        // zero is a fixed point of xorshift
+        this.state = (seed == 0) ? 0x9E3779B97F4A7C15L : seed;
+    }
+
+    private static byte[] getPrefix(String mimeType) {
+        String prefixStr;
+        if (mimeType.startsWith("text/html")) {
+            prefixStr = "<!DOCTYPE html>\n<html><head><title>synthetic</title></head><body>\n";
+        } else if (mimeType.equals("image/jpeg")) {
+            prefixStr = "\u00FF\u00D8\u00FF\u00E0\u0000\u0010JFIF\u0000";
+        } else if (mimeType.equals("image/png")) {
+            prefixStr = "\u0089PNG\r\n\u001A\n";
+        } else if (mimeType.equals("image/gif")) {
+            prefixStr = "GIF89a";
+        } else if (mimeType.equals("application/pdf")) {
+            prefixStr = "%PDF-1.4\n";
+        } else {
+            prefixStr = "";
+        }
+        return prefixStr.getBytes(ISO_8859_1);
+    }
+
+    private int nextByte() {
+        if (position < prefix.length) {
+            return prefix[(int) position] & 0xff;
+        }
+        state ^= state << 13;
+        state ^= state >>> 7;
+        state ^= state << 17;
+        int value = (int) (state >>> 32) & 0x7fffffff;
+        return text ? (TEXT_CHARS[value % TEXT_CHARS.length] & 0xff) : (value & 0xff);
+    }
+
+    @Override
+    public int read() {
+        if (position >= length) {
+            return -1;
+        }
+        int b = nextByte();
+        position++;
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        if (position >= length) {
+            return -1;
+        }
+        int n = (int) Math.min(len, length - position);
+        for (int i = 0; i < n; i++) {
+            b[off + i] = (byte) nextByte();
+            position++;
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) {
+        // the content must be generated to keep the sequence
+        long skipped = 0;
+        while (skipped < n && read() != -1) {
+            skipped++;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, length - position);
+    }
+
+}
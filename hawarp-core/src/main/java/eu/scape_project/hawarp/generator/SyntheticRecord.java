@@ -0,0 +1,199 @@
+/*
+ * Copyright 2014 scape.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scape_project.hawarp.generator;
+
+import eu.scape_project.hawarp.utils.DateUtils;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Date;
+
+/**
+ * Synthetic web archive record. All values are derived from the record seed,
+ * the payload is generated when it is read (see openPayload()).
+ *
+ * @author Sven Schlarb <https://github.com/shsdev>
+ */
+public class SyntheticRecord {
+
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    /**
+     * Kind of defect of a malformed record. Malformed records are still
+     * correctly framed, i.e. the declared record length is right, so that
+     * readers can continue with the next record.
+     */
+    public enum Malformation {
+
+        /**
+         * Well-formed record
+         */
+        NONE,
+        /**
+         * Date which can not be parsed
+         */
+        INVALID_DATE,
+        /**
+         * URI with characters which are not allowed
+         */
+        INVALID_URI,
+        /**
+         * HTTP response with an invalid status line
+         */
+        INVALID_HTTP_STATUS,
+        /**
+         * HTTP response with a Content-Length header not matching the
+         * payload length
+         */
+        HTTP_LENGTH_MISMATCH
+    }
+
+    private final long index;
+
+    private final String url;
+
+    private final String ipAddress;
+
+    private final Date date;
+
+    private final String mimeType;
+
+    private final long payloadLength;
+
+    private final boolean httpResponse;
+
+    private final Malformation malformation;
+
+    private final long payloadSeed;
+
+    private byte[] httpHeader;
+
+    public SyntheticRecord(long index, String url, String ipAddress, Date date, String mimeType, long payloadLength,
+            boolean httpResponse, Malformation malformation, long payloadSeed) {
+        this.index = index;
+        this.url = url;
+        this.ipAddress = ipAddress;
+        this.date = date;
+        this.mimeType = mimeType;
+        this.payloadLength = payloadLength;
+        this.httpResponse = httpResponse;
+        this.malformation = malformation;
+        this.payloadSeed = payloadSeed;
+    }
+
+    public long getIndex() {
+        return index;
+    }
+
+    /**
+     * @return URL, an invalid URI if the record is malformed accordingly
+     */
+    public String getUrl() {
+        if (malformation == Malformation.INVALID_URI) {
+            return url.replace("/page", "/pa^ge|<%>");
+        }
+        return url;
+    }
+
+    public String getIpAddress() {
+        return ipAddress;
+    }
+
+    public Date getDate() {
+        return date;
+    }
+
+    /**
+     * @return Date in the 14 digit ARC format, invalid if the record is
+     * malformed accordingly
+     */
+    public String getArcDateStr() {
+        String dateStr = DateUtils.formatGTechDate(date);
+        return (malformation == Malformation.INVALID_DATE) ? dateStr.substring(0, 8) + "T2XX00" : dateStr;
+    }
+
+    /**
+     * @return Date in the ISO-8601 WARC format, invalid if the record is
+     * malformed accordingly
+     */
+    public String getWarcDateStr() {
+        String dateStr = DateUtils.formatIsoDate(date);
+        return (malformation == Malformation.INVALID_DATE) ? dateStr.replace('T', ' ').replace(':', '.') : dateStr;
+    }
+
+    public String getMimeType() {
+        return mimeType;
+    }
+
+    public long getPayloadLength() {
+        return payloadLength;
+    }
+
+    /**
+     * @return True if the payload is preceded by an HTTP response header
+     */
+    public boolean isHttpResponse() {
+        return httpResponse;
+    }
+
+    public Malformation getMalformation() {
+        return malformation;
+    }
+
+    /**
+     * HTTP response header including the empty line, an empty array if the
+     * record is not an HTTP response.
+     *
+     * @return HTTP response header
+     */
+    public byte[] getHttpHeader() {
+        if (httpHeader == null) {
+            if (!httpResponse) {
+                httpHeader = new byte[0];
+            } else {
+                String statusLine = (malformation == Malformation.INVALID_HTTP_STATUS)
+                        ? "HTTP/1.1 2OO 0K" : "HTTP/1.1 200 OK";
+                long contentLength = (malformation == Malformation.HTTP_LENGTH_MISMATCH)
+                        ? payloadLength + 1 + index % 1000 : payloadLength;
+                String header = statusLine + "\r\n"
+                        + "Date: " + DateUtils.formatIsoDate(date) + "\r\n"
+                        + "Server: Apache/2.2.22\r\n"
+                        + "Content-Type: " + mimeType + "\r\n"
+                        + "Content-Length: " + contentLength + "\r\n"
+                        + "Connection: close\r\n"
+                        + "\r\n";
+                httpHeader = header.getBytes(ISO_8859_1);
+            }
+        }
+        return httpHeader;
+    }
+
+    /**
+     * @return Length of the record content, HTTP header and payload
+     */
+    public long getContentLength() {
+        return getHttpHeader().length + payloadLength;
+    }
+
+    /**
+     * Open the payload, the content is the same each time.
+     *
+     * @return Payload input stream
+     */
+    public InputStream openPayload() {
+        return new SyntheticPayloadInputStream(payloadLength, mimeType, payloadSeed);
+    }
+
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2014 scape.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scape_project.hawarp.generator.cli;
+
+import eu.scape_project.hawarp.cli.CliConfig;
+import eu.scape_project.hawarp.generator.MimeTypeMix;
+
+/**
+ * Configuration of the synthetic corpus generator.
+ *
+ * @author Sven Schlarb <https://github.com/shsdev>
+ */
+public class CorpusGeneratorConfig extends CliConfig {
+
+    private String formats = "arc,arc.gz,warc,warc.gz";
+    private int numFiles = 1;
+    private int numRecords = 1000;
+    private long payloadSizeMedian = 16384;
+    private double payloadSizeSigma = 1.0;
+    private long payloadSizeMax = 67108864L;
+    private double outlierRate;
+    private long outlierSize = 3221225472L;
+    private String mimeTypeMix = MimeTypeMix.DEFAULT_MIX;
+    private double httpResponseRate = 1.0;
+    private boolean crawlLogRecord;
+    private double malformedRate;
+    private long seed = 42L;
+
+    /**
+     * Empty constructor
+     */
+    public CorpusGeneratorConfig() {
+
+    }
+
+    /**
+     * @return Comma separated container formats: arc, arc.gz, warc, warc.gz
+     */
+    public String getFormats() {
+        return formats;
+    }
+
+    public void setFormats(String formats) {
+        this.formats = formats;
+    }
+
+    /**
+     * @return Number of files per format
+     */
+    public int getNumFiles() {
+        return numFiles;
+    }
+
+    public void setNumFiles(int numFiles) {
+        this.numFiles = numFiles;
+    }
+
+    /**
+     * @return Number of records per file, without the ARC version block,
+     * WARC info and crawl log records
+     */
+    public int getNumRecords() {
+        return numRecords;
+    }
+
+    public void setNumRecords(int numRecords) {
+        this.numRecords = numRecords;
+    }
+
+    /**
+     * Payload sizes are log-normally distributed with this median.
+     *
+     * @return Median payload size in bytes
+     */
+    public long getPayloadSizeMedian() {
+        return payloadSizeMedian;
+    }
+
+    public void setPayloadSizeMedian(long payloadSizeMedian) {
+        this.payloadSizeMedian = payloadSizeMedian;
+    }
+
+    /**
+     * @return Standard deviation of the logarithm of the payload size, 0 for
+     * a constant payload size
+     */
+    public double getPayloadSizeSigma() {
+        return payloadSizeSigma;
+    }
+
+    public void setPayloadSizeSigma(double payloadSizeSigma) {
+        this.payloadSizeSigma = payloadSizeSigma;
+    }
+
+    /**
+     * @return Maximum payload size of regular (non-outlier) records
+     */
+    public long getPayloadSizeMax() {
+        return payloadSizeMax;
+    }
+
+    public void setPayloadSizeMax(long payloadSizeMax) {
+        this.payloadSizeMax = payloadSizeMax;
+    }
+
+    /**
+     * @return Fraction of records with an outlier payload size
+     */
+    public double getOutlierRate() {
+        return outlierRate;
+    }
+
+    public void setOutlierRate(double outlierRate) {
+        this.outlierRate = outlierRate;
+    }
+
+    /**
+     * @return Payload size of outlier records in bytes, may be several GB
+     */
+    public long getOutlierSize() {
+        return outlierSize;
+    }
+
+    public void setOutlierSize(long outlierSize) {
+        this.outlierSize = outlierSize;
+    }
+
+    /**
+     * @return Mime type mix, see MimeTypeMix
+     */
+    public String getMimeTypeMix() {
+        return mimeTypeMix;
+    }
+
+    public void setMimeTypeMix(String mimeTypeMix) {
+        this.mimeTypeMix = mimeTypeMix;
+    }
+
+    /**
+     * @return Fraction of records with HTTP response header
+     */
+    public double getHttpResponseRate() {
+        return httpResponseRate;
+    }
+
+    public void setHttpResponseRate(double httpResponseRate) {
+        this.httpResponseRate = httpResponseRate;
+    }
+
+    /**
+     * @return Append a crawl.log metadata record listing the records of the
+     * file
+     */
+    public boolean isCrawlLogRecord() {
+        return crawlLogRecord;
+    }
+
+    public void setCrawlLogRecord(boolean crawlLogRecord) {
+        this.crawlLogRecord = crawlLogRecord;
+    }
+
+    /**
+     * @return Fraction of malformed records
+     */
+    public double getMalformedRate() {
+        return malformedRate;
+    }
+
+    public void setMalformedRate(double malformedRate) {
+        this.malformedRate = malformedRate;
+    }
+
+    /**
+     * @return Seed, the same seed and configuration give the same corpus
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2014 scape.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scape_project.hawarp.generator.cli;
+
+import eu.scape_project.hawarp.cli.CliOptions;
+import eu.scape_project.hawarp.generator.CorpusGenerator;
+import eu.scape_project.hawarp.generator.MimeTypeMix;
+import org.apache.commons.cli.CommandLine;
+
+/**
+ * Command line interface options of the corpus generator. The corpus is
+ * generated, so there is no input option; the output directory is required.
+ *
+ * @author Sven Schlarb <https://github.com/shsdev>
+ */
+public class CorpusGeneratorOptions extends CliOptions {
+
+    public String FORMATS_FLG = "f";
+    public String FORMATS_OPT = "formats";
+    public String FORMATS_OPT_DESC = "Comma separated container formats: arc, arc.gz, warc, warc.gz "
+            + "(default: all). [optional].";
+
+    public String NUMFILES_FLG = "k";
+    public String NUMFILES_OPT = "files";
+    public String NUMFILES_OPT_DESC = "Number of files per format (default: 1). [optional].";
+
+    public String NUMRECORDS_FLG = "n";
+    public String NUMRECORDS_OPT = "records";
+    public String NUMRECORDS_OPT_DESC = "Number of records per file (default: 1000). [optional].";
+
+    public String SIZEMEDIAN_FLG = "s";
+    public String SIZEMEDIAN_OPT = "sizemedian";
+    public String SIZEMEDIAN_OPT_DESC = "Median payload size in bytes, payload sizes are log-normally "
+            + "distributed (default: 16384). [optional].";
+
+    public String SIZESIGMA_FLG = "v";
+    public String SIZESIGMA_OPT = "sizesigma";
+    public String SIZESIGMA_OPT_DESC = "Standard deviation of the logarithm of the payload size, 0 for a "
+            + "constant size (default: 1.0). [optional].";
+
+    public String SIZEMAX_FLG = "x";
+    public String SIZEMAX_OPT = "sizemax";
+    public String SIZEMAX_OPT_DESC = "Maximum payload size in bytes of regular records (default: 67108864). "
+            + "[optional].";
+
+    public String OUTLIERRATE_FLG = "u";
+    public String OUTLIERRATE_OPT = "outlierrate";
+    public String OUTLIERRATE_OPT_DESC = "Fraction of records with outlier payload size, between 0 and 1 "
+            + "(default: 0). [optional].";
+
+    public String OUTLIERSIZE_FLG = "z";
+    public String OUTLIERSIZE_OPT = "outliersize";
+    public String OUTLIERSIZE_OPT_DESC = "Payload size in bytes of outlier records (default: 3221225472). "
+            + "[optional].";
+
+    public String MIMETYPES_FLG = "m";
+    public String MIMETYPES_OPT = "mimetypes";
+    public String MIMETYPES_OPT_DESC = "Mime type mix as comma separated mimetype:weight list (default: "
+            + MimeTypeMix.DEFAULT_MIX + "). [optional].";
+
+    public String HTTPRATE_FLG = "w";
+    public String HTTPRATE_OPT = "httprate";
+    public String HTTPRATE_OPT_DESC = "Fraction of records with HTTP response header, between 0 and 1 "
+            + "(default: 1). [optional].";
+
+    public String CRAWLLOG_FLG = "g";
+    public String CRAWLLOG_OPT = "crawllog";
+    public String CRAWLLOG_OPT_DESC = "Append a crawl.log metadata record to each file. [optional].";
+
+    public String MALFORMEDRATE_FLG = "e";
+    public String MALFORMEDRATE_OPT = "malformedrate";
+    public String MALFORMEDRATE_OPT_DESC = "Fraction of malformed records, between 0 and 1 (default: 0). "
+            + "[optional].";
+
+    public String SEED_FLG = "r";
+    public String SEED_OPT = "seed";
+    public String SEED_OPT_DESC = "Random seed (default: 42). [optional].";
+
+    public CorpusGeneratorOptions() {
+        // no input option
+        options = new org.apache.commons.cli.Options();
+        options.addOption(HELP_FLG, HELP_OPT, false, HELP_OPT_DESC);
+        options.addOption(OUTPUT_FLG, OUTPUT_OPT, true, "Output directory. [required].");
+        options.addOption(FORMATS_FLG, FORMATS_OPT, true, FORMATS_OPT_DESC);
+        options.addOption(NUMFILES_FLG, NUMFILES_OPT, true, NUMFILES_OPT_DESC);
+        options.addOption(NUMRECORDS_FLG, NUMRECORDS_OPT, true, NUMRECORDS_OPT_DESC);
+        options.addOption(SIZEMEDIAN_FLG, SIZEMEDIAN_OPT, true, SIZEMEDIAN_OPT_DESC);
+        options.addOption(SIZESIGMA_FLG, SIZESIGMA_OPT, true, SIZESIGMA_OPT_DESC);
+        options.addOption(SIZEMAX_FLG, SIZEMAX_OPT, true, SIZEMAX_OPT_DESC);
+        options.addOption(OUTLIERRATE_FLG, OUTLIERRATE_OPT, true, OUTLIERRATE_OPT_DESC);
+        options.addOption(OUTLIERSIZE_FLG, OUTLIERSIZE_OPT, true, OUTLIERSIZE_OPT_DESC);
+        options.addOption(MIMETYPES_FLG, MIMETYPES_OPT, true, MIMETYPES_OPT_DESC);
+        options.addOption(HTTPRATE_FLG, HTTPRATE_OPT, true, HTTPRATE_OPT_DESC);
+        options.addOption(CRAWLLOG_FLG, CRAWLLOG_OPT, false, CRAWLLOG_OPT_DESC);
+        options.addOption(MALFORMEDRATE_FLG, MALFORMEDRATE_OPT, true, MALFORMEDRATE_OPT_DESC);
+        options.addOption(SEED_FLG, SEED_OPT, true, SEED_OPT_DESC);
+    }
+
+    public void initOptions(CommandLine cmd, CorpusGeneratorConfig pc) {
+
+        // output directory
+        if (!(cmd.hasOption(OUTPUT_OPT) && cmd.getOptionValue(OUTPUT_OPT) != null)) {
+            exit("No output directory given.", 1);
+        }
+        pc.setOutputStr(cmd.getOptionValue(OUTPUT_OPT));
+        LOG.info("Output: " + pc.getOutputStr());
+
+        // container formats
+        if (cmd.hasOption(FORMATS_OPT) && cmd.getOptionValue(FORMATS_OPT) != null) {
+            String formats = cmd.getOptionValue(FORMATS_OPT);
+            for (String format : formats.split("\\s*,\\s*")) {
+                if (!CorpusGenerator.isSupportedFormat(format)) {
+                    exit("Unsupported format: " + format, 1);
+                }
+            }
+            pc.setFormats(formats);
+        }
+        System.out.println("Formats: " + pc.getFormats());
+
+        if (cmd.hasOption(NUMFILES_OPT)) {
+            pc.setNumFiles((int) getLong(cmd, NUMFILES_OPT, 1, Integer.MAX_VALUE));
+        }
+        if (cmd.hasOption(NUMRECORDS_OPT)) {
+            pc.setNumRecords((int) getLong(cmd, NUMRECORDS_OPT, 0, Integer.MAX_VALUE));
+        }
+        System.out.println("Files per format: " + pc.getNumFiles() + ", records per file: " + pc.getNumRecords());
+
+        // payload size distribution
+        if (cmd.hasOption(SIZEMEDIAN_OPT)) {
+            pc.setPayloadSizeMedian(getLong(cmd, SIZEMEDIAN_OPT, 0, Long.MAX_VALUE));
+        }
+        if (cmd.hasOption(SIZESIGMA_OPT)) {
+            pc.setPayloadSizeSigma(getDouble(cmd, SIZESIGMA_OPT, 0, 10));
+        }
+        if (cmd.hasOption(SIZEMAX_OPT)) {
+            pc.setPayloadSizeMax(getLong(cmd, SIZEMAX_OPT, 0, Long.MAX_VALUE));
+        }
+        if (cmd.hasOption(OUTLIERRATE_OPT)) {
+            pc.setOutlierRate(getDouble(cmd, OUTLIERRATE_OPT, 0, 1));
+        }
+        if (cmd.hasOption(OUTLIERSIZE_OPT)) {
+            pc.setOutlierSize(getLong(cmd, OUTLIERSIZE_OPT, 0, Long.MAX_VALUE));
+        }
+        System.out.println("Payload size median: " + pc.getPayloadSizeMedian() + ", sigma: "
+                + pc.getPayloadSizeSigma() + ", max: " + pc.getPayloadSizeMax() + ", outliers: "
+                + pc.getOutlierRate() + " x " + pc.getOutlierSize());
+
+        // mime type mix
+        if (cmd.hasOption(MIMETYPES_OPT) && cmd.getOptionValue(MIMETYPES_OPT) != null) {
+            String mimeTypeMix = cmd.getOptionValue(MIMETYPES_OPT);
+            try {
+                new MimeTypeMix(mimeTypeMix);
+            } catch (IllegalArgumentException ex) {
+                exit(ex.getMessage(), 1);
+            }
+            pc.setMimeTypeMix(mimeTypeMix);
+            System.out.println("Mime type mix: " + mimeTypeMix);
+        }
+
+        if (cmd.hasOption(HTTPRATE_OPT)) {
+            pc.setHttpResponseRate(getDouble(cmd, HTTPRATE_OPT, 0, 1));
+            System.out.println("HTTP response rate: " + pc.getHttpResponseRate());
+        }
+
+        if (cmd.hasOption(CRAWLLOG_OPT)) {
+            pc.setCrawlLogRecord(true);
+            System.out.println("Append crawl.log metadata records");
+        }
+
+        if (cmd.hasOption(MALFORMEDRATE_OPT)) {
+            pc.setMalformedRate(getDouble(cmd, MALFORMEDRATE_OPT, 0, 1));
+            System.out.println("Malformed record rate: " + pc.getMalformedRate());
+        }
+
+        if (cmd.hasOption(SEED_OPT)) {
+            pc.setSeed(getLong(cmd, SEED_OPT, Long.MIN_VALUE, Long.MAX_VALUE));
+        }
+        System.out.println("Seed: " + pc.getSeed());
+
+    }
+
+    private long getLong(CommandLine cmd, String opt, long min, long max) {
+        String valueStr = cmd.getOptionValue(opt);
+        long value = 0;
+        try {
+            value = Long.parseLong(valueStr);
+        } catch (NumberFormatException ex) {
+            exit("Invalid value of option " + opt + ": " + valueStr, 1);
+        }
+        if (value < min || value > max) {
+            exit("Value of option " + opt + " must be between " + min + " and " + max + ": " + valueStr, 1);
+        }
+        return value;
+    }
+
+    private double getDouble(CommandLine cmd, String opt, double min, double max) {
+        String valueStr = cmd.getOptionValue(opt);
+        double value = 0;
+        try {
+            value = Double.parseDouble(valueStr);
+        } catch (NumberFormatException ex) {
+            exit("Invalid value of option " + opt + ": " + valueStr, 1);
+        }
+        if (!(value >= min && value <= max)) {
+            exit("Value of option " + opt + " must be between " + min + " and " + max + ": " + valueStr, 1);
+        }
+        return value;
+    }
+
+    @Override
+    public String getUsage() {
+        return "java -cp hawarp-core-1.0.jar:... eu.scape_project.hawarp.generator.CorpusGenerator";
+    }
+}
@@ -17,14 +17,23 @@
 package eu.scape_project.hawarp.interfaces;
 
 import eu.scape_project.hawarp.webarchive.ArchiveRecord;
+import java.io.Closeable;
 import java.util.Iterator;
 
 /**
  *
  * @author onbscs
  */
-public interface ArchiveReader extends Iterator<ArchiveRecord> {
+public interface ArchiveReader extends Iterator<ArchiveRecord>, Closeable {
     
     public void setComputePayloadDigest(boolean computePayloadDigest);
+
+    /**
+     * Set the algorithm of the payload digest (default: SHA-1).
+     *
+     * @param algorithm Message digest algorithm, e.g. SHA-256
+     * @throws IllegalArgumentException If the algorithm is not available
+     */
+    public void setPayloadDigestAlgorithm(String algorithm);
     
 }
@@ -15,22 +15,238 @@
  */
 package eu.scape_project.hawarp.utils;
 
-import java.text.SimpleDateFormat;
-import java.util.TimeZone;
+import java.text.ParseException;
+import java.util.Date;
 
 /**
  * Date utils
  *
+ * Formatting and parsing of UTC dates in the 14 digit format (yyyyMMddHHmmss)
+ * used by ARC files and CDX indexes, and in the ISO-8601 format
+ * (yyyy-MM-dd'T'HH:mm:ss'Z') used by WARC files. The methods are stateless
+ * and can be called concurrently; the variants writing into a char array
+ * allocate nothing. Dates are in the proleptic Gregorian calendar, years
+ * 0 to 9999.
+ *
  * @author Sven Schlarb <https://github.com/shsdev>
  */
-public class DateUtils {
+public final class DateUtils {
+
+    /**
+     * Length of a 14 digit date, yyyyMMddHHmmss
+     */
+    public static final int GTECH_DATE_LENGTH = 14;
+
+    /**
+     * Length of an ISO-8601 date, yyyy-MM-dd'T'HH:mm:ss'Z'
+     */
+    public static final int ISO_DATE_LENGTH = 20;
+
+    private static final long MILLIS_PER_DAY = 86400000L;
+
+    private DateUtils() {
+    }
+
+    /**
+     * Format a date as yyyyMMddHHmmss (UTC).
+     *
+     * @param date Date
+     * @return Formatted date
+     */
+    public static String formatGTechDate(Date date) {
+        char[] buf = new char[GTECH_DATE_LENGTH];
+        formatGTechDate(date.getTime(), buf, 0);
+        return new String(buf);
+    }
 
-    public static final SimpleDateFormat GMTUTCUnixTsFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
-    public static final SimpleDateFormat GMTGTechDateFormat = new SimpleDateFormat("yyyyMMddHHmmss");
+    /**
+     * Write a date as yyyyMMddHHmmss (UTC) into the buffer.
+     *
+     * @param millis Milliseconds since the epoch
+     * @param buf Buffer
+     * @param offset Offset in the buffer
+     * @return Offset after the date
+     */
+    public static int formatGTechDate(long millis, char[] buf, int offset) {
+        return format(millis, buf, offset, false);
+    }
+
+    /**
+     * Format a date as yyyy-MM-dd'T'HH:mm:ss'Z' (UTC).
+     *
+     * @param date Date
+     * @return Formatted date
+     */
+    public static String formatIsoDate(Date date) {
+        char[] buf = new char[ISO_DATE_LENGTH];
+        formatIsoDate(date.getTime(), buf, 0);
+        return new String(buf);
+    }
+
+    /**
+     * Write a date as yyyy-MM-dd'T'HH:mm:ss'Z' (UTC) into the buffer.
+     *
+     * @param millis Milliseconds since the epoch
+     * @param buf Buffer
+     * @param offset Offset in the buffer
+     * @return Offset after the date
+     */
+    public static int formatIsoDate(long millis, char[] buf, int offset) {
+        return format(millis, buf, offset, true);
+    }
+
+    /**
+     * Parse a date in the format yyyyMMddHHmmss (UTC).
+     *
+     * @param str Date string
+     * @return Date
+     * @throws ParseException If the string is not a valid date
+     */
+    public static Date parseGTechDate(CharSequence str) throws ParseException {
+        if (str.length() != GTECH_DATE_LENGTH) {
+            throw new ParseException("Invalid date: " + str, 0);
+        }
+        return new Date(toMillis(str, digits(str, 0, 4), digits(str, 4, 2), digits(str, 6, 2),
+                digits(str, 8, 2), digits(str, 10, 2), digits(str, 12, 2), 0));
+    }
+
+    /**
+     * Parse a date in the format yyyy-MM-dd'T'HH:mm:ss'Z' (UTC), optionally
+     * with a fraction of seconds (yyyy-MM-dd'T'HH:mm:ss.SSS'Z').
+     *
+     * @param str Date string
+     * @return Date
+     * @throws ParseException If the string is not a valid date
+     */
+    public static Date parseIsoDate(CharSequence str) throws ParseException {
+        int length = str.length();
+        if (length < ISO_DATE_LENGTH || str.charAt(4) != '-' || str.charAt(7) != '-' || str.charAt(10) != 'T'
+                || str.charAt(13) != ':' || str.charAt(16) != ':' || str.charAt(length - 1) != 'Z') {
+            throw new ParseException("Invalid date: " + str, 0);
+        }
+        int millis = 0;
+        if (length > ISO_DATE_LENGTH) {
+            // fraction of seconds, only milliseconds are kept
+            if (str.charAt(19) != '.' || length == ISO_DATE_LENGTH + 1) {
+                throw new ParseException("Invalid date: " + str, 19);
+            }
+            int fractionDigits = length - ISO_DATE_LENGTH - 1;
+            millis = digits(str, 20, Math.min(fractionDigits, 3));
+            for (int i = fractionDigits; i < 3; i++) {
+                millis *= 10;
+            }
+            if (fractionDigits > 3) {
+                digits(str, 23, fractionDigits - 3);
+            }
+        } else if (str.charAt(19) != 'Z') {
+            throw new ParseException("Invalid date: " + str, 19);
+        }
+        return new Date(toMillis(str, digits(str, 0, 4), digits(str, 5, 2), digits(str, 8, 2),
+                digits(str, 11, 2), digits(str, 14, 2), digits(str, 17, 2), millis));
+    }
+
+    /**
+     * Days since 1970-01-01 of a date in the proleptic Gregorian calendar.
+     *
+     * @param year Year
+     * @param month Month, 1 to 12
+     * @param day Day of month, 1 to 31
+     * @return Days since the epoch
+     */
+    public static long daysFromCivil(long year, long month, long day) {
+        long y = (month <= 2) ? year - 1 : year;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yoe = y - era * 400;
+        long doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    private static int format(long millis, char[] buf, int offset, boolean iso) {
+        long days = floorDiv(millis, MILLIS_PER_DAY);
+        int secondOfDay = (int) ((millis - days * MILLIS_PER_DAY) / 1000);
+        // civil date of the day number, inverse of daysFromCivil
+        long z = days + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        int year = (int) (yoe + era * 400 + (month <= 2 ? 1 : 0));
+        if (year < 0 || year > 9999) {
+            throw new IllegalArgumentException("Year out of range: " + year);
+        }
+        int pos = offset;
+        pos = put(buf, pos, year, 4);
+        if (iso) {
+            buf[pos++] = '-';
+        }
+        pos = put(buf, pos, month, 2);
+        if (iso) {
+            buf[pos++] = '-';
+        }
+        pos = put(buf, pos, day, 2);
+        if (iso) {
+            buf[pos++] = 'T';
+        }
+        pos = put(buf, pos, secondOfDay / 3600, 2);
+        if (iso) {
+            buf[pos++] = ':';
+        }
+        pos = put(buf, pos, (secondOfDay / 60) % 60, 2);
+        if (iso) {
+            buf[pos++] = ':';
+        }
+        pos = put(buf, pos, secondOfDay % 60, 2);
+        if (iso) {
+            buf[pos++] = 'Z';
+        }
+        return pos;
+    }
+
+    private static int put(char[] buf, int pos, int value, int width) {
+        for (int i = pos + width - 1; i >= pos; i--) {
+            buf[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return pos + width;
+    }
+
+    private static long floorDiv(long x, long y) {
+        long q = x / y;
+        return (x % y != 0 && (x < 0) != (y < 0)) ? q - 1 : q;
+    }
+
+    private static int digits(CharSequence str, int start, int count) throws ParseException {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = str.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new ParseException("Invalid date: " + str, i);
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static long toMillis(CharSequence str, int year, int month, int day, int hour, int minute, int second,
+            int millis) throws ParseException {
+        if (month < 1 || month > 12 || day < 1 || day > daysOfMonth(year, month) || hour > 23 || minute > 59
+                || second > 60) {
+            throw new ParseException("Invalid date: " + str, 0);
+        }
+        long days = daysFromCivil(year, month, day);
+        return (((days * 24 + hour) * 60 + minute) * 60 + second) * 1000 + millis;
+    }
 
-    static {
-        GMTUTCUnixTsFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
-        GMTGTechDateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+    private static int daysOfMonth(int year, int month) {
+        if (month == 2) {
+            boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+            return leap ? 29 : 28;
+        }
+        return (month == 4 || month == 6 || month == 9 || month == 11) ? 30 : 31;
     }
 
 }
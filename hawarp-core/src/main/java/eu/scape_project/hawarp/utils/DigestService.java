@@ -0,0 +1,270 @@
+/*
+ * Copyright 2014 scape.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scape_project.hawarp.utils;
+
+import static eu.scape_project.hawarp.utils.IOUtils.BUFFER_SIZE;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Digest service for one message digest algorithm.
+ *
+ * The MessageDigest instances are cached per thread, so that computing a
+ * digest does not look up the provider each time. Any algorithm of the
+ * installed security providers can be used (e.g. SHA-1, SHA-256, SHA-512,
+ * MD5, or BLAKE2 if a provider for it is registered). Digests are formatted
+ * with table driven hex and Base32 encoders.
+ *
+ * @author Sven Schlarb <https://github.com/shsdev>
+ */
+public final class DigestService {
+
+    public static final String SHA1 = "SHA-1";
+
+    public static final String SHA256 = "SHA-256";
+
+    public static final String DEFAULT_ALGORITHM = SHA1;
+
+    private static final char[] HEX_UPPER = "0123456789ABCDEF".toCharArray();
+
+    private static final char[] HEX_LOWER = "0123456789abcdef".toCharArray();
+
+    private static final char[] BASE32 = "ABCDEFGHIJKLMNOPQRSTUVWXYZ234567".toCharArray();
+
+    private static final int[] BASE32_VALUES = new int[128];
+
+    static {
+        java.util.Arrays.fill(BASE32_VALUES, -1);
+        for (int i = 0; i < BASE32.length; i++) {
+            BASE32_VALUES[BASE32[i]] = i;
+            BASE32_VALUES[Character.toLowerCase(BASE32[i])] = i;
+        }
+    }
+
+    private static final ConcurrentMap<String, DigestService> INSTANCES = new ConcurrentHashMap<String, DigestService>();
+
+    private final String algorithm;
+
+    private final String label;
+
+    private final ThreadLocal<MessageDigest> digests = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            return newMessageDigest();
+        }
+    };
+
+    private DigestService(String algorithm) throws NoSuchAlgorithmException {
+        // fail early if the algorithm is not available
+        MessageDigest.getInstance(algorithm);
+        this.algorithm = algorithm;
+        this.label = algorithm.toLowerCase().replace("-", "");
+    }
+
+    /**
+     * Get the digest service of an algorithm.
+     *
+     * @param algorithm Algorithm name, e.g. SHA-1
+     * @return Digest service
+     * @throws IllegalArgumentException If the algorithm is not available
+     */
+    public static DigestService getInstance(String algorithm) {
+        DigestService service = INSTANCES.get(algorithm);
+        if (service == null) {
+            try {
+                service = new DigestService(algorithm);
+            } catch (NoSuchAlgorithmException ex) {
+                throw new IllegalArgumentException("Digest algorithm not available: " + algorithm, ex);
+            }
+            DigestService existing = INSTANCES.putIfAbsent(algorithm, service);
+            if (existing != null) {
+                service = existing;
+            }
+        }
+        return service;
+    }
+
+    /**
+     * @return Algorithm name, e.g. SHA-1
+     */
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * @return Label of the algorithm used as digest prefix, e.g. sha1
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Message digest of the current thread, reset and ready for use. The
+     * digest must be completed before this method is called again on the
+     * same thread; use newMessageDigest() for digests which are kept.
+     *
+     * @return Message digest
+     */
+    public MessageDigest getMessageDigest() {
+        MessageDigest md = digests.get();
+        md.reset();
+        return md;
+    }
+
+    /**
+     * @return New message digest instance
+     */
+    public MessageDigest newMessageDigest() {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("Digest algorithm not available: " + algorithm, ex);
+        }
+    }
+
+    public byte[] digest(byte[] bytes) {
+        return getMessageDigest().digest(bytes);
+    }
+
+    /**
+     * Digest of the remaining bytes of the buffer, the position of the
+     * buffer is not changed.
+     *
+     * @param buffer Byte buffer
+     * @return Digest
+     */
+    public byte[] digest(ByteBuffer buffer) {
+        MessageDigest md = getMessageDigest();
+        md.update(buffer.duplicate());
+        return md.digest();
+    }
+
+    /**
+     * Digest of the input stream, which is consumed but not closed.
+     *
+     * @param inputStream Input stream
+     * @return Digest
+     * @throws IOException
+     */
+    public byte[] digest(InputStream inputStream) throws IOException {
+        MessageDigest md = getMessageDigest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int bytesRead;
+        while ((bytesRead = inputStream.read(buffer)) != -1) {
+            md.update(buffer, 0, bytesRead);
+        }
+        return md.digest();
+    }
+
+    /**
+     * Format a digest of this algorithm as label:BASE32, e.g. sha1:ABC...,
+     * which is the format of the WARC-Payload-Digest header.
+     *
+     * @param digest Digest
+     * @return Labelled Base32 digest
+     */
+    public String toLabelledBase32(byte[] digest) {
+        return label + ":" + toBase32(digest);
+    }
+
+    public static String toHex(byte[] bytes, boolean uppercase) {
+        char[] table = uppercase ? HEX_UPPER : HEX_LOWER;
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[2 * i] = table[(bytes[i] >> 4) & 0x0f];
+            chars[2 * i + 1] = table[bytes[i] & 0x0f];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Base32 encoding (RFC 4648) without padding.
+     *
+     * @param bytes Bytes
+     * @return Base32 string
+     */
+    public static String toBase32(byte[] bytes) {
+        char[] chars = new char[(bytes.length * 8 + 4) / 5];
+        int buffer = 0;
+        int numBits = 0;
+        int pos = 0;
+        for (byte b : bytes) {
+            buffer = (buffer << 8) | (b & 0xff);
+            numBits += 8;
+            while (numBits >= 5) {
+                numBits -= 5;
+                chars[pos++] = BASE32[(buffer >> numBits) & 0x1f];
+            }
+        }
+        if (numBits > 0) {
+            chars[pos++] = BASE32[(buffer << (5 - numBits)) & 0x1f];
+        }
+        return new String(chars, 0, pos);
+    }
+
+    /**
+     * Decode a Base32 string (RFC 4648, padding is ignored).
+     *
+     * @param str Base32 string
+     * @return Bytes, null if the string contains invalid characters
+     */
+    public static byte[] fromBase32(String str) {
+        int length = str.length();
+        while (length > 0 && str.charAt(length - 1) == '=') {
+            length--;
+        }
+        byte[] bytes = new byte[length * 5 / 8];
+        int buffer = 0;
+        int numBits = 0;
+        int pos = 0;
+        for (int i = 0; i < length; i++) {
+            char c = str.charAt(i);
+            int value = (c < 128) ? BASE32_VALUES[c] : -1;
+            if (value == -1) {
+                return null;
+            }
+            buffer = (buffer << 5) | value;
+            numBits += 5;
+            if (numBits >= 8) {
+                numBits -= 8;
+                if (pos < bytes.length) {
+                    bytes[pos++] = (byte) (buffer >> numBits);
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Decode a digest in the format label:BASE32.
+     *
+     * @param labelledDigest Labelled Base32 digest, e.g. sha1:ABC...
+     * @return Digest, null if the format is invalid
+     */
+    public static byte[] fromLabelledBase32(String labelledDigest) {
+        int colon = labelledDigest.indexOf(':');
+        if (colon == -1) {
+            return null;
+        }
+        return fromBase32(labelledDigest.substring(colon + 1));
+    }
+
+}
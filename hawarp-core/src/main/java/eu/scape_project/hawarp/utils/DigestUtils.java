@@ -15,9 +15,9 @@
  */
 package eu.scape_project.hawarp.utils;
 
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.Formatter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Digest utility methods
@@ -27,30 +27,44 @@ import java.util.Formatter;
 public class DigestUtils {
 
     public static String SHAsum(byte[] convertme, boolean prefix, boolean uppercase) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("SHA-1");
-            String sha1 = byteArray2Hex(md.digest(convertme));
-            if (prefix) {
-                return "sha1:" + sha1;
-            } else {
-                if(uppercase) {
-                    return sha1.toUpperCase();
-                } else {
-                    
-                }
-                return sha1;
-            }
-        } catch (NoSuchAlgorithmException e) {
-            return "";
-        }
+        return formatSHAsum(DigestService.getInstance(DigestService.SHA1).digest(convertme), prefix, uppercase);
+    }
+
+    /**
+     * Compute the SHA-1 digest of an input stream. The stream is read chunk
+     * by chunk into a fixed size buffer, so memory use does not depend on the
+     * length of the stream. The stream is consumed but not closed.
+     *
+     * @param inputStream Input stream
+     * @param prefix Prefix digest with "sha1:"
+     * @param uppercase Upper case hex digest (only without prefix)
+     * @return Hex digest string
+     * @throws IOException
+     */
+    public static String SHAsum(InputStream inputStream, boolean prefix, boolean uppercase) throws IOException {
+        return formatSHAsum(DigestService.getInstance(DigestService.SHA1).digest(inputStream), prefix, uppercase);
+    }
+
+    /**
+     * Compute the SHA-1 digest of the remaining bytes of a byte buffer. The
+     * digest is computed directly from the buffer, the position of the buffer
+     * is not changed.
+     *
+     * @param buffer Byte buffer, e.g. a slice of a memory mapped file
+     * @param prefix Prefix digest with "sha1:"
+     * @param uppercase Upper case hex digest (only without prefix)
+     * @return Hex digest string
+     */
+    public static String SHAsum(ByteBuffer buffer, boolean prefix, boolean uppercase) {
+        return formatSHAsum(DigestService.getInstance(DigestService.SHA1).digest(buffer), prefix, uppercase);
     }
 
-    private static String byteArray2Hex(final byte[] hash) {
-        Formatter formatter = new Formatter();
-        for (byte b : hash) {
-            formatter.format("%02x", b);
+    private static String formatSHAsum(byte[] digest, boolean prefix, boolean uppercase) {
+        if (prefix) {
+            return "sha1:" + DigestService.toHex(digest, false);
+        } else {
+            return DigestService.toHex(digest, uppercase);
         }
-        return formatter.toString();
     }
 
 }
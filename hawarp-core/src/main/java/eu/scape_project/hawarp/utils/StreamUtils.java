@@ -5,6 +5,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 public class StreamUtils {
     public static InputStream newInputStream(final ByteBuffer buf) {
@@ -13,20 +14,24 @@ public class StreamUtils {
                 if (!buf.hasRemaining()) {
                     return -1;
                 }
-                return buf.get();
+                return buf.get() & 0xff;
             }
 
-
-
             public synchronized int read(byte[] bytes, int off, int len) throws IOException {
-                // Read only what's left
-                len = Math.min(len, buf.remaining());
                 if (len == 0) {
+                    return 0;
+                }
+                if (!buf.hasRemaining()) {
                     return -1;
-                } else {
-                    buf.get(bytes, off, len);
-                    return len;
                 }
+                // Read only what's left
+                len = Math.min(len, buf.remaining());
+                buf.get(bytes, off, len);
+                return len;
+            }
+
+            public synchronized int available() throws IOException {
+                return buf.remaining();
             }
         };
     }
@@ -50,4 +55,47 @@ public class StreamUtils {
             }
         };
     }
+
+    /**
+     * Input stream reading from a file channel starting at the given
+     * position. Positional reads are used, the position of the channel is not
+     * changed, so several streams can read from the same channel
+     * concurrently. Closing the stream does not close the channel.
+     *
+     * @param channel File channel
+     * @param position Start position
+     * @return Input stream
+     */
+    public static InputStream newInputStream(final FileChannel channel, final long position) {
+        return new InputStream() {
+            private long pos = position;
+
+            public int read() throws IOException {
+                byte[] b = new byte[1];
+                int n = read(b, 0, 1);
+                return (n == -1) ? -1 : (b[0] & 0xff);
+            }
+
+            public int read(byte[] bytes, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                int n = channel.read(ByteBuffer.wrap(bytes, off, len), pos);
+                if (n > 0) {
+                    pos += n;
+                }
+                return n;
+            }
+
+            public long skip(long n) throws IOException {
+                long k = Math.max(0, Math.min(n, channel.size() - pos));
+                pos += k;
+                return k;
+            }
+
+            public int available() throws IOException {
+                return (int) Math.max(0, Math.min(Integer.MAX_VALUE, channel.size() - pos));
+            }
+        };
+    }
 }
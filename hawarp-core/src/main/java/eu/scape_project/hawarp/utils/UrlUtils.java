@@ -13,21 +13,322 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package eu.scape_project.hawarp.utils;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 /**
+ * URL canonicalization.
+ *
+ * canonicalize() gives the URL keys used so far by hawarp (scheme and www
+ * prefix removed). toSurt() gives the SURT keys used by wayback and pywb.
+ * Both methods scan the URL once, char by char, without regular expressions.
  *
  * @author onbscs
  */
 public class UrlUtils {
-    
+
+    private static final String HTTP = "http://";
+
+    private static final String WWW = "www.";
+
+    /**
+     * Remove all occurrences of "http://" and "www." if the URL starts with
+     * "http://", e.g. http://www.example.org/ becomes example.org/
+     *
+     * @param url URL
+     * @return Canonicalized URL
+     */
     public static String canonicalize(String url) {
-        String canUrl = url;
-        if(canUrl.startsWith("http://")) {
-            canUrl = canUrl.replaceAll("(http://|http://www\\.|www\\.)","");
+        if (url == null || !url.startsWith(HTTP)) {
+            return url;
+        }
+        int length = url.length();
+        StringBuilder sb = new StringBuilder(length);
+        int i = 0;
+        while (i < length) {
+            if (url.startsWith(HTTP, i)) {
+                i += HTTP.length();
+            } else if (url.startsWith(WWW, i)) {
+                i += WWW.length();
+            } else {
+                sb.append(url.charAt(i++));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * SURT (Sort-friendly URI Reordering Transform) of an HTTP(S) URL, e.g.
+     * http://www.Example.org:80/Path/?b=2&a=1#top becomes
+     * org,example)/path?a=1&b=2
+     *
+     * The rules are the ones of the default wayback/pywb canonicalizer: the
+     * scheme, user info, fragment, default port (80 for http, 443 for https)
+     * and a www, www1, www2... host prefix are removed; the URL is lower
+     * cased; host labels are reversed and separated by commas (not for IP
+     * addresses); a trailing slash of the path is removed unless the path is
+     * empty; empty query parameters and session ids (jsessionid, phpsessid,
+     * sid, aspsessionid, cfid, cftoken) are removed and the query parameters
+     * are sorted. URLs without scheme are treated as http URLs. URLs of other
+     * schemes (dns:, filedesc:, ...) are only lower cased.
+     *
+     * @param url URL
+     * @return SURT
+     */
+    public static String toSurt(String url) {
+        if (url == null) {
+            return null;
+        }
+        int start = 0;
+        int end = url.length();
+        while (start < end && url.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && url.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        int pos = start;
+        String defaultPort = "80";
+
+        // scheme
+        int schemeEnd = findSchemeEnd(url, start, end);
+        if (schemeEnd != -1) {
+            int schemeLength = schemeEnd - start;
+            if (schemeLength == 5 && url.regionMatches(true, start, "https", 0, 5)) {
+                defaultPort = "443";
+            } else if (!(schemeLength == 4 && url.regionMatches(true, start, "http", 0, 4))) {
+                return url.substring(start, end).toLowerCase();
+            }
+            pos = schemeEnd + 1;
+            while (pos < end && (url.charAt(pos) == '/' || url.charAt(pos) == '\\')) {
+                pos++;
+            }
+        }
+
+        // authority: [userinfo@]host[:port]
+        int authorityEnd = pos;
+        int at = -1;
+        while (authorityEnd < end) {
+            char c = url.charAt(authorityEnd);
+            if (c == '/' || c == '\\' || c == '?' || c == '#') {
+                break;
+            }
+            if (c == '@') {
+                at = authorityEnd;
+            }
+            authorityEnd++;
+        }
+        int hostStart = (at != -1) ? at + 1 : pos;
+        int hostEnd = authorityEnd;
+        int portStart = -1;
+        for (int i = authorityEnd - 1; i >= hostStart; i--) {
+            char c = url.charAt(i);
+            if (c == ':') {
+                portStart = i + 1;
+                hostEnd = i;
+                break;
+            }
+            if (c < '0' || c > '9') {
+                break;
+            }
+        }
+        while (hostEnd > hostStart && url.charAt(hostEnd - 1) == '.') {
+            hostEnd--;
+        }
+        hostStart = skipWwwPrefix(url, hostStart, hostEnd);
+
+        StringBuilder sb = new StringBuilder(end - start);
+        appendSurtHost(sb, url, hostStart, hostEnd);
+        if (portStart != -1 && portStart < authorityEnd && !url.substring(portStart, authorityEnd).equals(defaultPort)) {
+            sb.append(':').append(url, portStart, authorityEnd);
+        }
+        sb.append(')');
+
+        // path
+        int pathStart = authorityEnd;
+        int pathEnd = pathStart;
+        while (pathEnd < end && url.charAt(pathEnd) != '?' && url.charAt(pathEnd) != '#') {
+            pathEnd++;
+        }
+        int pathLength = sb.length();
+        if (pathStart == pathEnd || url.charAt(pathStart) != '/' && url.charAt(pathStart) != '\\') {
+            sb.append('/');
         }
-        return canUrl;
+        appendPath(sb, url, pathStart, pathEnd);
+        if (sb.length() > pathLength + 1 && sb.charAt(sb.length() - 1) == '/') {
+            sb.setLength(sb.length() - 1);
+        }
+
+        // query, the fragment is dropped
+        if (pathEnd < end && url.charAt(pathEnd) == '?') {
+            appendQuery(sb, url, pathEnd + 1, end);
+        }
+        return sb.toString();
     }
-    
+
+    /**
+     * Position of the colon after the scheme, -1 if the URL has no scheme.
+     * A host name followed by a port number (example.org:8080) is not taken
+     * for a scheme.
+     */
+    private static int findSchemeEnd(String url, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = url.charAt(i);
+            if (c == ':') {
+                if (i == start) {
+                    return -1;
+                }
+                boolean slashes = i + 1 < end && url.charAt(i + 1) == '/';
+                boolean portFollows = i + 1 < end && url.charAt(i + 1) >= '0' && url.charAt(i + 1) <= '9';
+                return (slashes || !portFollows) ? i : -1;
+            }
+            boolean letter = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+            boolean other = (c >= '0' && c <= '9') || c == '+' || c == '-' || c == '.';
+            if (!letter && !(other && i > start)) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Skip a www, www1, www2... prefix of the host name.
+     */
+    private static int skipWwwPrefix(String url, int hostStart, int hostEnd) {
+        if (hostEnd - hostStart > 4 && url.regionMatches(true, hostStart, "www", 0, 3)) {
+            int i = hostStart + 3;
+            while (i < hostEnd && url.charAt(i) >= '0' && url.charAt(i) <= '9') {
+                i++;
+            }
+            if (i < hostEnd - 1 && url.charAt(i) == '.') {
+                return i + 1;
+            }
+        }
+        return hostStart;
+    }
+
+    /**
+     * Append the lower cased host labels in reverse order, separated by
+     * commas. IP addresses are appended unchanged.
+     */
+    private static void appendSurtHost(StringBuilder sb, String url, int hostStart, int hostEnd) {
+        boolean ipAddress = hostStart < hostEnd;
+        for (int i = hostStart; i < hostEnd && ipAddress; i++) {
+            char c = url.charAt(i);
+            ipAddress = (c >= '0' && c <= '9') || c == '.' || c == ':' || c == '[' || c == ']';
+        }
+        if (ipAddress) {
+            appendLowerCase(sb, url, hostStart, hostEnd);
+            return;
+        }
+        int labelEnd = hostEnd;
+        for (int i = hostEnd - 1; i >= hostStart - 1; i--) {
+            if (i < hostStart || url.charAt(i) == '.') {
+                if (labelEnd < hostEnd) {
+                    sb.append(',');
+                }
+                appendLowerCase(sb, url, i + 1, labelEnd);
+                labelEnd = i;
+            }
+        }
+    }
+
+    /**
+     * Append the lower cased path, backslashes are replaced by slashes and
+     * jsessionid path parameters are removed.
+     */
+    private static void appendPath(StringBuilder sb, String url, int pathStart, int pathEnd) {
+        int i = pathStart;
+        while (i < pathEnd) {
+            char c = url.charAt(i);
+            if (c == ';' && url.regionMatches(true, i + 1, "jsessionid=", 0, 11)) {
+                int valueEnd = i + 12;
+                while (valueEnd < pathEnd && url.charAt(valueEnd) != '/' && url.charAt(valueEnd) != ';') {
+                    valueEnd++;
+                }
+                i = valueEnd;
+                continue;
+            }
+            sb.append(c == '\\' ? '/' : Character.toLowerCase(c));
+            i++;
+        }
+    }
+
+    /**
+     * Append the lower cased and sorted query parameters without empty
+     * parameters and session ids.
+     */
+    private static void appendQuery(StringBuilder sb, String url, int queryStart, int queryEnd) {
+        List<String> params = null;
+        int paramStart = queryStart;
+        for (int i = queryStart; i <= queryEnd; i++) {
+            if (i == queryEnd || url.charAt(i) == '&' || url.charAt(i) == '#') {
+                if (i > paramStart && !isSessionIdParam(url, paramStart, i)) {
+                    if (params == null) {
+                        params = new ArrayList<String>();
+                    }
+                    params.add(url.substring(paramStart, i).toLowerCase());
+                }
+                if (i < queryEnd && url.charAt(i) == '#') {
+                    break;
+                }
+                paramStart = i + 1;
+            }
+        }
+        if (params == null) {
+            return;
+        }
+        if (params.size() > 1) {
+            Collections.sort(params);
+        }
+        sb.append('?');
+        for (int i = 0; i < params.size(); i++) {
+            if (i > 0) {
+                sb.append('&');
+            }
+            sb.append(params.get(i));
+        }
+    }
+
+    private static boolean isSessionIdParam(String url, int start, int end) {
+        int eq = start;
+        while (eq < end && url.charAt(eq) != '=') {
+            eq++;
+        }
+        if (eq == end) {
+            return false;
+        }
+        int nameLength = eq - start;
+        int valueLength = end - eq - 1;
+        if (nameLength == 10 && url.regionMatches(true, start, "jsessionid", 0, 10)
+                || nameLength == 9 && url.regionMatches(true, start, "phpsessid", 0, 9)
+                || nameLength == 3 && url.regionMatches(true, start, "sid", 0, 3)) {
+            return valueLength == 32 && isAlphanumeric(url, eq + 1, end);
+        }
+        if (nameLength == 20 && url.regionMatches(true, start, "aspsessionid", 0, 12)) {
+            return valueLength == 24;
+        }
+        return nameLength == 4 && url.regionMatches(true, start, "cfid", 0, 4)
+                || nameLength == 7 && url.regionMatches(true, start, "cftoken", 0, 7);
+    }
+
+    private static boolean isAlphanumeric(String str, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = str.charAt(i);
+            if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void appendLowerCase(StringBuilder sb, String str, int start, int end) {
+        for (int i = start; i < end; i++) {
+            sb.append(Character.toLowerCase(str.charAt(i)));
+        }
+    }
+
 }
@@ -16,6 +16,7 @@
 package eu.scape_project.hawarp.webarchive;
 
 import eu.scape_project.hawarp.interfaces.ArchiveReader;
+import eu.scape_project.hawarp.utils.DigestService;
 import org.jwat.arc.ArcReader;
 import org.jwat.arc.ArcReaderFactory;
 import org.jwat.arc.ArcRecordBase;
@@ -33,6 +34,7 @@ public class ArcArchiveReader implements ArchiveReader {
 
     Iterator<ArcRecordBase> iterator;
     private boolean computePayloadDigest;
+    private DigestService payloadDigest = DigestService.getInstance(DigestService.DEFAULT_ALGORITHM);
 
     public ArcArchiveReader(InputStream is) throws IOException {
         reader = ArcReaderFactory.getReader(is);
@@ -53,7 +55,7 @@ public class ArcArchiveReader implements ArchiveReader {
             throw new IllegalStateException("Iterator not initialised!");
         }
         ArcRecordBase arcRecord = iterator.next();
-        ArchiveRecord archiveRecord = new ArchiveRecord(arcRecord, computePayloadDigest);
+        ArchiveRecord archiveRecord = new ArchiveRecord(arcRecord, computePayloadDigest ? payloadDigest : null);
         return archiveRecord;
     }
 
@@ -69,4 +71,14 @@ public class ArcArchiveReader implements ArchiveReader {
     public void setComputePayloadDigest(boolean computePayloadDigest) {
         this.computePayloadDigest = computePayloadDigest;
     }
+
+    @Override
+    public void setPayloadDigestAlgorithm(String algorithm) {
+        this.payloadDigest = DigestService.getInstance(algorithm);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
 }
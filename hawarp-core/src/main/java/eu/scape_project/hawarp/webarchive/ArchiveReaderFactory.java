@@ -17,64 +17,220 @@ package eu.scape_project.hawarp.webarchive;
 
 import eu.scape_project.hawarp.interfaces.ArchiveReader;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.nio.charset.Charset;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import org.jwat.arc.ArcConstants;
+import org.jwat.warc.WarcConstants;
 
 /**
+ * Factory for archive readers. The container format (ARC or WARC) is detected
+ * from the magic header at the beginning of the (inflated) content, the file
+ * name suffix is only used if the content does not start with a magic
+ * header, e.g. an ARC file without version block.
  *
  * @author onbscs
  */
 public class ArchiveReaderFactory {
 
+    /**
+     * Container format
+     */
+    public enum ArchiveFormat {
+
+        ARC, WARC
+    }
+
     public static final int LEADING_BYTES_BUFFER_LENGTH = 16;
 
+    /**
+     * Number of leading bytes read for format detection. Must be large
+     * enough to contain the gzip header and the compressed leading bytes of
+     * the first record.
+     */
+    public static final int PUSHBACK_BUFFER_LENGTH = 8192;
+
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    private static final Logger LOG = Logger.getLogger(ArchiveReaderFactory.class.getName());
+
+    /**
+     * Get a reader for the container input stream.
+     *
+     * @param inputStream Input stream of the container file
+     * @param archiveFileName Container file name, used if the format can not
+     * be detected from the content
+     * @return Archive reader, null if the format is not supported
+     */
     public static ArchiveReader getReader(InputStream inputStream, String archiveFileName) {
         ArchiveReader reader = null;
         try {
-            if (archiveFileName.endsWith("arc.gz") || archiveFileName.endsWith(".arc")) {
-                reader = new ArcArchiveReader(inputStream);
-            } else if (archiveFileName.endsWith(".warc") || archiveFileName.endsWith(".warc.gz")) {
-                reader = new WarcArchiveReader(inputStream);
+            PushbackInputStream pbin = new PushbackInputStream(inputStream, PUSHBACK_BUFFER_LENGTH);
+            byte[] head = new byte[PUSHBACK_BUFFER_LENGTH];
+            int headLength = readHead(pbin, head);
+            if (headLength > 0) {
+                pbin.unread(head, 0, headLength);
+            }
+            ArchiveFormat format = detectFormat(head, headLength, archiveFileName);
+            if (format == ArchiveFormat.ARC) {
+                reader = new ArcArchiveReader(pbin);
+            } else if (format == ArchiveFormat.WARC) {
+                reader = new WarcArchiveReader(pbin);
+            } else {
+                LOG.log(Level.WARNING, "Unsupported container format: {0}", archiveFileName);
             }
         } catch (IOException ex) {
-            Logger.getLogger(ArchiveReaderFactory.class.getName()).log(Level.SEVERE, null, ex);
+            LOG.log(Level.SEVERE, null, ex);
         }
-
-//        try {
-//            ByteCountingPushBackInputStream mainBcPbin = new ByteCountingPushBackInputStream(inputStream, LEADING_BYTES_BUFFER_LENGTH);
-//            if (GzipReader.isGzipped(mainBcPbin)) {
-//                GzipPushbackStream gzPbis = new GzipPushbackStream(mainBcPbin);
-//                ByteCountingPushBackInputStream subBcPbin = new ByteCountingPushBackInputStream(gzPbis, LEADING_BYTES_BUFFER_LENGTH);
-//                Logger.getLogger(ArchiveReaderFactory.class.getName()).log(Level.INFO, "Using GZIP Reader");
-//                reader = getReaderByMagicHeader(subBcPbin);
-//            } else {
-//                Logger.getLogger(ArchiveReaderFactory.class.getName()).log(Level.INFO, "Using uncompressed Reader");
-//                reader = getReaderByMagicHeader(mainBcPbin);
-//            }
-//            return reader;
-//        } catch (IOException ex) {
-//            Logger.getLogger(ArchiveReaderFactory.class.getName()).log(Level.SEVERE, null, ex);
-//        }
         return reader;
     }
 
-//    private static ArchiveReader getReaderByMagicHeader(ByteCountingPushBackInputStream bcPbis) throws IOException {
-//        byte[] leadingBytes = new byte[LEADING_BYTES_BUFFER_LENGTH];
-//        bcPbis.read(leadingBytes);
-//        String leadingStr = new String(leadingBytes);
-//        bcPbis.unread(leadingBytes);
-//        if (leadingStr.startsWith(ArcConstants.ARC_MAGIC_HEADER)) {
-//            Logger.getLogger(ArchiveReaderFactory.class.getName()).log(Level.INFO, "Using ARC Reader");
-//            return new ArcArchiveReader(bcPbis);
-//        } else if (leadingStr.startsWith(WarcConstants.WARC_MAGIC_HEADER)) {
-//            Logger.getLogger(ArchiveReaderFactory.class.getName()).log(Level.INFO, "Using WARC Reader");
-//            return new WarcArchiveReader(bcPbis);
-//        } else {
-//            Logger.getLogger(ArchiveReaderFactory.class.getName()).log(Level.SEVERE, "Reader cannot be initialised");
-//            return null;
-//        }
-//
-//    }
+    /**
+     * Get a reader for the container file. Uncompressed container files are
+     * read from memory mapped regions by a MappedArchiveReader. Compressed
+     * container files are inflated in parallel by a ParallelGzipArchiveReader
+     * if more than one thread is requested. The reader must be closed after
+     * use.
+     *
+     * @param archiveFile Container file
+     * @param numThreads Number of threads used for inflating gzip members
+     * @return Archive reader, null if the format is not supported
+     * @throws IOException
+     */
+    public static ArchiveReader getReader(File archiveFile, int numThreads) throws IOException {
+        byte[] head = new byte[PUSHBACK_BUFFER_LENGTH];
+        int headLength = readHead(archiveFile, head);
+        ArchiveFormat format = detectFormat(head, headLength, archiveFile.getName());
+        if (format == null) {
+            LOG.log(Level.WARNING, "Unsupported container format: {0}", archiveFile.getName());
+            return null;
+        }
+        boolean warc = (format == ArchiveFormat.WARC);
+        if (!isGzipped(head, headLength)) {
+            return new MappedArchiveReader(archiveFile, warc);
+        }
+        if (numThreads > 1) {
+            return new ParallelGzipArchiveReader(archiveFile, warc, numThreads);
+        }
+        FileInputStream fileInputStream = new FileInputStream(archiveFile);
+        try {
+            return warc ? new WarcArchiveReader(fileInputStream) : new ArcArchiveReader(fileInputStream);
+        } catch (IOException ex) {
+            fileInputStream.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Detect the format of the container file.
+     *
+     * @param archiveFile Container file
+     * @return Container format, null if the format is not supported
+     * @throws IOException
+     */
+    public static ArchiveFormat detectFormat(File archiveFile) throws IOException {
+        byte[] head = new byte[PUSHBACK_BUFFER_LENGTH];
+        int headLength = readHead(archiveFile, head);
+        return detectFormat(head, headLength, archiveFile.getName());
+    }
+
+    /**
+     * Check if the container file is a WARC file, used by the file based
+     * readers.
+     *
+     * @param archiveFile Container file
+     * @return True if WARC, false if ARC
+     * @throws IOException
+     * @throws IllegalArgumentException If the format is not supported
+     */
+    static boolean isWarc(File archiveFile) throws IOException {
+        ArchiveFormat format = detectFormat(archiveFile);
+        if (format == null) {
+            throw new IllegalArgumentException("Unsupported container file: " + archiveFile.getName());
+        }
+        return format == ArchiveFormat.WARC;
+    }
+
+    /**
+     * Detect the format from the leading bytes of the container file, if
+     * they are gzip compressed the leading bytes of the first member are
+     * inflated. Falls back to the file name suffix.
+     *
+     * @param head Leading bytes
+     * @param headLength Number of leading bytes
+     * @param archiveFileName Container file name, may be null
+     * @return Container format, null if the format is not supported
+     */
+    static ArchiveFormat detectFormat(byte[] head, int headLength, String archiveFileName) {
+        byte[] leading = head;
+        int leadingLength = headLength;
+        if (isGzipped(head, headLength)) {
+            leading = new byte[LEADING_BYTES_BUFFER_LENGTH];
+            leadingLength = inflateLeadingBytes(head, headLength, leading);
+        }
+        String leadingStr = new String(leading, 0, Math.min(leadingLength, LEADING_BYTES_BUFFER_LENGTH), ISO_8859_1);
+        if (leadingStr.startsWith(ArcConstants.ARC_MAGIC_HEADER)) {
+            return ArchiveFormat.ARC;
+        } else if (leadingStr.startsWith(WarcConstants.WARC_MAGIC_HEADER)) {
+            return ArchiveFormat.WARC;
+        }
+        return getFormatBySuffix(archiveFileName);
+    }
+
+    static ArchiveFormat getFormatBySuffix(String archiveFileName) {
+        if (archiveFileName == null) {
+            return null;
+        }
+        if (archiveFileName.endsWith("arc.gz") || archiveFileName.endsWith(".arc")) {
+            return ArchiveFormat.ARC;
+        } else if (archiveFileName.endsWith(".warc") || archiveFileName.endsWith(".warc.gz")) {
+            return ArchiveFormat.WARC;
+        }
+        return null;
+    }
+
+    private static boolean isGzipped(byte[] head, int headLength) {
+        return headLength >= 2 && (head[0] & 0xff) == 0x1f && (head[1] & 0xff) == 0x8b;
+    }
+
+    private static int inflateLeadingBytes(byte[] compressed, int length, byte[] leading) {
+        int n = 0;
+        try {
+            GZIPInputStream gzin = new GZIPInputStream(new ByteArrayInputStream(compressed, 0, length));
+            int read;
+            while (n < leading.length && (read = gzin.read(leading, n, leading.length - n)) != -1) {
+                n += read;
+            }
+        } catch (IOException ex) {
+            // only part of the first member is available, use what has been
+            // inflated so far
+        }
+        return n;
+    }
+
+    private static int readHead(File archiveFile, byte[] head) throws IOException {
+        FileInputStream fis = new FileInputStream(archiveFile);
+        try {
+            return readHead(fis, head);
+        } finally {
+            fis.close();
+        }
+    }
+
+    private static int readHead(InputStream inputStream, byte[] head) throws IOException {
+        int n = 0;
+        int read;
+        while (n < head.length && (read = inputStream.read(head, n, head.length - n)) != -1) {
+            n += read;
+        }
+        return n;
+    }
+
 }
@@ -15,15 +15,14 @@
  */
 package eu.scape_project.hawarp.webarchive;
 
-import static eu.scape_project.hawarp.utils.DateUtils.GMTUTCUnixTsFormat;
-import eu.scape_project.hawarp.utils.DigestUtils;
+import eu.scape_project.hawarp.utils.DateUtils;
+import eu.scape_project.hawarp.utils.DigestService;
 import static eu.scape_project.hawarp.utils.IOUtils.BUFFER_SIZE;
 import eu.scape_project.hawarp.utils.StringUtils;
 import eu.scape_project.hawarp.utils.UrlUtils;
 import java.io.IOException;
 import java.io.PushbackInputStream;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.TimeZone;
 import java.util.logging.Level;
@@ -51,6 +50,17 @@ public class ArchiveRecord extends ArchiveRecordBase {
     }
 
     ArchiveRecord(ArcRecordBase arcRecord, boolean computePayloadDigest) {
+        this(arcRecord, computePayloadDigest ? DigestService.getInstance(DigestService.DEFAULT_ALGORITHM) : null);
+    }
+
+    /**
+     * Constructor for ARC records
+     *
+     * @param arcRecord ARC record
+     * @param payloadDigest Digest service for the payload digest, null if no
+     * payload digest is computed
+     */
+    ArchiveRecord(ArcRecordBase arcRecord, DigestService payloadDigest) {
 
         this.url = UrlUtils.canonicalize(arcRecord.getUrlStr());
         this.origUrl = arcRecord.getUrlStr();
@@ -116,17 +126,11 @@ public class ArchiveRecord extends ArchiveRecordBase {
             }
         }
         // compute payload digest
-        if (computePayloadDigest) {
+        if (payloadDigest != null) {
             try {
-                pbin = new ByteCountingPushBackInputStream(arcRecord.getPayloadContent(), BUFFER_SIZE);
-                pl = arcRecord.getPayload();
-                PayloadContent pc = new PayloadContent(pbin);
-                pc.readPayloadContent();
-                byte[] payloadBytes = pc.getPayloadBytes();
-                long length = pl.getTotalLength();
-                long consumed = length - pbin.getConsumed();
-                pbin.unread((int) consumed);
-                this.payloadDigestStr = DigestUtils.SHAsum(payloadBytes, false, true);
+                // stream the payload through the digest, the payload is never
+                // held in memory as a whole
+                this.payloadDigestStr = DigestService.toHex(payloadDigest.digest(arcRecord.getPayloadContent()), true);
                 if (this.payloadDigestStr == null || this.payloadDigestStr.isEmpty()) {
                     this.payloadDigestStr = "-";
                 }
@@ -137,6 +141,17 @@ public class ArchiveRecord extends ArchiveRecordBase {
     }
 
     ArchiveRecord(WarcRecord warcRecord, boolean computePayloadDigest) {
+        this(warcRecord, computePayloadDigest ? DigestService.getInstance(DigestService.DEFAULT_ALGORITHM) : null);
+    }
+
+    /**
+     * Constructor for WARC records
+     *
+     * @param warcRecord WARC record
+     * @param payloadDigest Digest service for the payload digest, null if no
+     * payload digest is computed
+     */
+    ArchiveRecord(WarcRecord warcRecord, DigestService payloadDigest) {
         boolean isResponseType = false;
 
         if (warcRecord.getHeaderList() != null) {
@@ -176,7 +191,7 @@ public class ArchiveRecord extends ArchiveRecordBase {
             HeaderLine dateHl = warcRecord.getHeader("WARC-Date");
             if (dateHl != null) {
                 try {
-                    this.date = GMTUTCUnixTsFormat.parse(dateHl.value);
+                    this.date = DateUtils.parseIsoDate(dateHl.value);
                 } catch (ParseException ex) {
                     this.date = new Date(0);
                 }
@@ -206,17 +221,9 @@ public class ArchiveRecord extends ArchiveRecordBase {
             }
 
             // compute payload digest
-            if (computePayloadDigest) {
+            if (payloadDigest != null) {
                 try {
-                    ByteCountingPushBackInputStream pbin = new ByteCountingPushBackInputStream(warcRecord.getPayloadContent(), BUFFER_SIZE);
-                    Payload pl = warcRecord.getPayload();
-                    PayloadContent pc = new PayloadContent(pbin);
-                    pc.readPayloadContent();
-                    byte[] payloadBytes = pc.getPayloadBytes();
-                    long length = pl.getTotalLength();
-                    long consumed = length - pbin.getConsumed();
-                    pbin.unread((int) consumed);
-                    this.payloadDigestStr = DigestUtils.SHAsum(payloadBytes, false, true);
+                    this.payloadDigestStr = DigestService.toHex(payloadDigest.digest(warcRecord.getPayloadContent()), true);
                     if (this.payloadDigestStr == null || this.payloadDigestStr.isEmpty()) {
                         this.payloadDigestStr = "-";
                     }
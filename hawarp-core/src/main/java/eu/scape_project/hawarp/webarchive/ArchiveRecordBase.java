@@ -16,6 +16,7 @@
 
 package eu.scape_project.hawarp.webarchive;
 
+import eu.scape_project.hawarp.utils.UrlUtils;
 import java.util.Date;
 
 /**
@@ -26,6 +27,7 @@ public abstract class ArchiveRecordBase {
     
     public String url = null;
     public String origUrl = null;
+    public String surtUrl = null;
     public String mimeType = null;
     public String identifiedPayloadType;
     public Date date = null;
@@ -66,6 +68,23 @@ public abstract class ArchiveRecordBase {
         this.origUrl = origUrl;
     }
 
+    /**
+     * SURT of the original URL, e.g. org,example)/path, as used for the CDX
+     * keys of wayback and pywb. It is computed when it is first requested.
+     *
+     * @return SURT URL
+     */
+    public String getSurtUrl() {
+        if (surtUrl == null && origUrl != null) {
+            surtUrl = UrlUtils.toSurt(origUrl);
+        }
+        return surtUrl;
+    }
+
+    public void setSurtUrl(String surtUrl) {
+        this.surtUrl = surtUrl;
+    }
+
     public String getMimeType() {
         return mimeType;
     }
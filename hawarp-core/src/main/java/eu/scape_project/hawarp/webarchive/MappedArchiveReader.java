@@ -0,0 +1,417 @@
+/*
+ * Copyright 2014 onbscs.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scape_project.hawarp.webarchive;
+
+import eu.scape_project.hawarp.interfaces.ArchiveReader;
+import eu.scape_project.hawarp.utils.DigestService;
+import static eu.scape_project.hawarp.utils.IOUtils.BUFFER_SIZE;
+import eu.scape_project.hawarp.utils.StreamUtils;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.NoSuchElementException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.jwat.arc.ArcReaderFactory;
+import org.jwat.arc.ArcRecordBase;
+import org.jwat.warc.WarcReaderFactory;
+import org.jwat.warc.WarcRecord;
+
+/**
+ * Archive reader for uncompressed ARC and WARC container files (.arc, .warc)
+ * backed by memory mapped regions of the file.
+ *
+ * The record boundaries are determined in place in the mapped buffer (ARC
+ * header line length field, WARC Content-Length header). Each record is
+ * parsed from its buffer slice, and the payload (the record block without the
+ * HTTP header) is available as a read-only buffer slice without copying,
+ * see getPayload(). The payload digest is computed directly from that slice.
+ *
+ * The file is mapped in windows of at most MAX_WINDOW_SIZE bytes, only one
+ * window is referenced at a time. When the reader moves to the next window or
+ * is closed, the references to the window and the payload slices are dropped
+ * and the mapping is released by the garbage collector. Records which do not
+ * fit into one window are parsed from a stream on the file channel instead.
+ * Unlike the sequential stream readers, the reader relies on the declared
+ * record lengths. Read errors and record headers which cannot be parsed are
+ * thrown by hasNext() as a RuntimeException.
+ *
+ * @author Sven Schlarb <https://github.com/shsdev>
+ */
+public class MappedArchiveReader implements ArchiveReader {
+
+    private static final Log LOG = LogFactory.getLog(MappedArchiveReader.class);
+
+    public static final long MAX_WINDOW_SIZE = 1024L * 1024L * 1024L;
+
+    private static final int MAX_HEADER_LENGTH = 64 * 1024;
+
+    private static final byte[] CONTENT_LENGTH = "content-length:".getBytes();
+
+    private final RandomAccessFile raf;
+
+    private final FileChannel channel;
+
+    private final long fileSize;
+
+    private final boolean warc;
+
+    private final long maxWindowSize;
+
+    private boolean computePayloadDigest;
+    private DigestService payloadDigest = DigestService.getInstance(DigestService.DEFAULT_ALGORITHM);
+
+    private MappedByteBuffer window;
+
+    private long windowStart;
+
+    private long position;
+
+    private boolean finished;
+
+    private ArchiveRecord nextRecord;
+
+    private ByteBuffer nextPayload;
+
+    private ByteBuffer payload;
+
+    /**
+     * Constructor
+     *
+     * @param containerFile Uncompressed ARC or WARC container file
+     * @throws IOException
+     */
+    public MappedArchiveReader(File containerFile) throws IOException {
+        this(containerFile, ArchiveReaderFactory.isWarc(containerFile));
+    }
+
+    /**
+     * Constructor
+     *
+     * @param containerFile Uncompressed ARC or WARC container file
+     * @param warc True if WARC, false if ARC
+     * @throws IOException
+     */
+    public MappedArchiveReader(File containerFile, boolean warc) throws IOException {
+        this(containerFile, warc, MAX_WINDOW_SIZE);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param containerFile Uncompressed ARC or WARC container file
+     * @param warc True if WARC, false if ARC
+     * @param maxWindowSize Maximum size of a mapped window
+     * @throws IOException
+     */
+    MappedArchiveReader(File containerFile, boolean warc, long maxWindowSize) throws IOException {
+        this.warc = warc;
+        this.maxWindowSize = maxWindowSize;
+        raf = new RandomAccessFile(containerFile, "r");
+        channel = raf.getChannel();
+        fileSize = channel.size();
+    }
+
+    @Override
+    public void setComputePayloadDigest(boolean computePayloadDigest) {
+        this.computePayloadDigest = computePayloadDigest;
+    }
+
+    @Override
+    public void setPayloadDigestAlgorithm(String algorithm) {
+        this.payloadDigest = DigestService.getInstance(algorithm);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextRecord == null && !finished) {
+            try {
+                readRecord();
+            } catch (IOException ex) {
+                finished = true;
+                throw new RuntimeException("Unable to read record at offset " + position, ex);
+            }
+        }
+        return nextRecord != null;
+    }
+
+    @Override
+    public ArchiveRecord next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        ArchiveRecord record = nextRecord;
+        payload = nextPayload;
+        nextRecord = null;
+        nextPayload = null;
+        return record;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Not supported.");
+    }
+
+    /**
+     * Payload of the record returned by the last call to next(). For records
+     * with an HTTP header, the payload starts after the HTTP header. The
+     * buffer is a read-only slice of the mapped window, it should not be kept
+     * after the next call to hasNext(), next() or close(), so that the window
+     * can be released.
+     *
+     * @return Payload buffer, null if next() has not been called yet or if the
+     * record does not fit into one window
+     */
+    public ByteBuffer getPayload() {
+        return payload;
+    }
+
+    /**
+     * Close the container file and release the current window.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        finished = true;
+        nextPayload = null;
+        payload = null;
+        window = null;
+        raf.close();
+    }
+
+    private void readRecord() throws IOException {
+        if (position >= fileSize) {
+            finished = true;
+            return;
+        }
+        // records are separated by line breaks
+        ByteBuffer header = region(position, Math.min(Math.min(MAX_HEADER_LENGTH, maxWindowSize), fileSize - position));
+        int skip = 0;
+        while (skip < header.limit() && (header.get(skip) == '\r' || header.get(skip) == '\n')) {
+            skip++;
+        }
+        position += skip;
+        if (position >= fileSize) {
+            finished = true;
+            return;
+        }
+        header.position(skip);
+        header = header.slice();
+        int headerLength;
+        long contentLength;
+        if (warc) {
+            headerLength = indexOfHeaderEnd(header, header.limit());
+            contentLength = (headerLength != -1) ? parseContentLength(header, headerLength) : -1;
+        } else {
+            headerLength = indexOfLineEnd(header, header.limit());
+            contentLength = (headerLength != -1) ? parseLastField(header, headerLength) : -1;
+        }
+        if (headerLength == -1 || contentLength == -1) {
+            throw new IOException("Invalid record header");
+        }
+        long offset = position;
+        long recordLength = headerLength + contentLength;
+        if (offset + recordLength > fileSize) {
+            LOG.warn("Truncated record at offset " + offset);
+            recordLength = fileSize - offset;
+        }
+        if (recordLength > maxWindowSize) {
+            readRecordFromStream(offset, recordLength);
+            return;
+        }
+        ByteBuffer recordBuffer = region(offset, recordLength);
+        recordBuffer.position(headerLength);
+        ByteBuffer block = recordBuffer.slice();
+        recordBuffer.position(0);
+
+        boolean hasHttpHeader;
+        ArchiveRecord record;
+        if (warc) {
+            WarcRecord warcRecord = WarcReaderFactory.getReaderUncompressed().getNextRecordFrom(StreamUtils.newInputStream(recordBuffer), offset);
+            if (warcRecord == null) {
+                throw new IOException("No WARC record");
+            }
+            hasHttpHeader = warcRecord.getHttpHeader() != null;
+            record = new ArchiveRecord(warcRecord, false);
+        } else {
+            ArcRecordBase arcRecord = ArcReaderFactory.getReaderUncompressed().getNextRecordFrom(StreamUtils.newInputStream(recordBuffer), offset);
+            if (arcRecord == null) {
+                throw new IOException("No ARC record");
+            }
+            hasHttpHeader = arcRecord.getHttpHeader() != null;
+            record = new ArchiveRecord(arcRecord, false);
+        }
+        if (hasHttpHeader) {
+            int httpHeaderLength = indexOfHeaderEnd(block, Math.min(block.limit(), MAX_HEADER_LENGTH));
+            if (httpHeaderLength != -1) {
+                block.position(httpHeaderLength);
+                block = block.slice();
+            }
+        }
+        if (computePayloadDigest) {
+            record.setPayloadDigestStr(DigestService.toHex(payloadDigest.digest(block), true));
+        }
+        nextRecord = record;
+        nextPayload = block.asReadOnlyBuffer();
+        position = offset + recordLength;
+    }
+
+    /**
+     * Parse a record which does not fit into one window from a stream on the
+     * file channel, the payload digest is computed while streaming the
+     * payload.
+     */
+    private void readRecordFromStream(long offset, long recordLength) throws IOException {
+        InputStream in = new BufferedInputStream(StreamUtils.newInputStream(channel, offset), BUFFER_SIZE);
+        ArchiveRecord record;
+        if (warc) {
+            WarcRecord warcRecord = WarcReaderFactory.getReaderUncompressed().getNextRecordFrom(in, offset);
+            if (warcRecord == null) {
+                throw new IOException("No WARC record");
+            }
+            record = new ArchiveRecord(warcRecord, computePayloadDigest ? payloadDigest : null);
+        } else {
+            ArcRecordBase arcRecord = ArcReaderFactory.getReaderUncompressed().getNextRecordFrom(in, offset);
+            if (arcRecord == null) {
+                throw new IOException("No ARC record");
+            }
+            record = new ArchiveRecord(arcRecord, computePayloadDigest ? payloadDigest : null);
+        }
+        nextRecord = record;
+        nextPayload = null;
+        position = offset + recordLength;
+    }
+
+    /**
+     * Get a buffer for the file region, the current window is released and a
+     * new window is mapped if the region is not inside of it. The length must
+     * not exceed the maximum window size.
+     */
+    private ByteBuffer region(long offset, long length) throws IOException {
+        if (window == null || offset < windowStart || offset + length > windowStart + window.capacity()) {
+            // drop all references to the old window before mapping a new one
+            payload = null;
+            nextPayload = null;
+            window = null;
+            long size = Math.min(fileSize - offset, maxWindowSize);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+            windowStart = offset;
+        }
+        ByteBuffer buf = window.duplicate();
+        int start = (int) (offset - windowStart);
+        buf.limit(start + (int) length);
+        buf.position(start);
+        return buf.slice();
+    }
+
+    /**
+     * Length of the header including the terminating empty line (CRLF CRLF
+     * or LF LF), -1 if the end of the header is not found.
+     */
+    static int indexOfHeaderEnd(ByteBuffer buf, int limit) {
+        for (int i = 0; i < limit; i++) {
+            if (buf.get(i) == '\n') {
+                if (i + 1 < limit && buf.get(i + 1) == '\n') {
+                    return i + 2;
+                }
+                if (i + 2 < limit && buf.get(i + 1) == '\r' && buf.get(i + 2) == '\n') {
+                    return i + 3;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Length of the first line including the line feed, -1 if there is no
+     * line feed.
+     */
+    static int indexOfLineEnd(ByteBuffer buf, int limit) {
+        for (int i = 0; i < limit; i++) {
+            if (buf.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Value of the Content-Length header line, -1 if not available.
+     */
+    static long parseContentLength(ByteBuffer buf, int headerLength) {
+        int lineStart = 0;
+        while (lineStart < headerLength) {
+            if (startsWithIgnoreCase(buf, lineStart, headerLength, CONTENT_LENGTH)) {
+                return parseLong(buf, lineStart + CONTENT_LENGTH.length, headerLength);
+            }
+            while (lineStart < headerLength && buf.get(lineStart) != '\n') {
+                lineStart++;
+            }
+            lineStart++;
+        }
+        return -1;
+    }
+
+    /**
+     * Value of the last space separated field of the line (the ARC record
+     * length), -1 if not a number.
+     */
+    static long parseLastField(ByteBuffer buf, int lineLength) {
+        int end = lineLength;
+        while (end > 0 && (buf.get(end - 1) == '\n' || buf.get(end - 1) == '\r' || buf.get(end - 1) == ' ')) {
+            end--;
+        }
+        int start = end;
+        while (start > 0 && buf.get(start - 1) != ' ') {
+            start--;
+        }
+        return parseLong(buf, start, end);
+    }
+
+    private static boolean startsWithIgnoreCase(ByteBuffer buf, int offset, int limit, byte[] prefix) {
+        if (offset + prefix.length > limit) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (Character.toLowerCase((char) buf.get(offset + i)) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long parseLong(ByteBuffer buf, int offset, int limit) {
+        int i = offset;
+        while (i < limit && (buf.get(i) == ' ' || buf.get(i) == '\t')) {
+            i++;
+        }
+        long value = 0;
+        int digits = 0;
+        while (i < limit && buf.get(i) >= '0' && buf.get(i) <= '9') {
+            value = value * 10 + (buf.get(i) - '0');
+            digits++;
+            i++;
+        }
+        return (digits > 0) ? value : -1;
+    }
+
+}
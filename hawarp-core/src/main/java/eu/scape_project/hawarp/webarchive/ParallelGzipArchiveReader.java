@@ -0,0 +1,355 @@
+/*
+ * Copyright 2014 onbscs.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scape_project.hawarp.webarchive;
+
+import eu.scape_project.hawarp.interfaces.ArchiveReader;
+import eu.scape_project.hawarp.utils.DigestService;
+import static eu.scape_project.hawarp.utils.IOUtils.BUFFER_SIZE;
+import eu.scape_project.hawarp.utils.StreamUtils;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.jwat.arc.ArcReader;
+import org.jwat.arc.ArcRecordBase;
+import org.jwat.arc.ArcReaderFactory;
+import org.jwat.warc.WarcReader;
+import org.jwat.warc.WarcReaderFactory;
+import org.jwat.warc.WarcRecord;
+
+/**
+ * Archive reader for compressed ARC and WARC container files (.arc.gz,
+ * .warc.gz) which inflates the gzip members on a pool of worker threads.
+ *
+ * A scanner thread reads the container file sequentially and looks for gzip
+ * member headers (magic bytes 0x1f 0x8b, deflate method, no reserved flags).
+ * Each candidate offset is handed to a worker which inflates the member and
+ * parses the record. The futures are passed to the consumer in file order
+ * through a bounded queue, so records are returned in the same order as by the
+ * sequential readers, and the number of records held in memory is limited.
+ *
+ * The header bytes can also occur inside a member, by chance in the
+ * compressed data or in gzip data stored verbatim (e.g. an archived .warc.gz
+ * file in a deflate stored block). The consumer keeps track of the end of the
+ * last accepted member, using the number of compressed bytes consumed by the
+ * JWAT reader, and drops all candidates before this offset. A candidate at or
+ * after this offset must be a valid member, otherwise the container file is
+ * corrupt and hasNext() throws a RuntimeException, as do read errors.
+ *
+ * The pipeline is started with the first call to hasNext() or next(). The
+ * worker threads are stopped and the container file is closed when all
+ * records have been read, or by calling close().
+ *
+ * @author Sven Schlarb <https://github.com/shsdev>
+ */
+public class ParallelGzipArchiveReader implements ArchiveReader {
+
+    private static final Log LOG = LogFactory.getLog(ParallelGzipArchiveReader.class);
+
+    private static final int SCAN_BUFFER_SIZE = 1024 * 1024;
+
+    private static final int GZIP_HEADER_PREFIX_LENGTH = 4;
+
+    private final RandomAccessFile raf;
+
+    private final FileChannel channel;
+
+    private final boolean warc;
+
+    private final ExecutorService executor;
+
+    private final BlockingQueue<Future<Member>> queue;
+
+    private final FutureTask<Member> endOfMembers;
+
+    private Thread scanner;
+
+    private volatile boolean computePayloadDigest;
+    private volatile DigestService payloadDigest = DigestService.getInstance(DigestService.DEFAULT_ALGORITHM);
+
+    private ArchiveRecord nextRecord;
+
+    // end offset of the last accepted member
+    private long memberEnd;
+
+    private boolean finished;
+
+    /**
+     * Constructor
+     *
+     * @param containerFile Compressed ARC or WARC container file
+     * @param numThreads Number of worker threads
+     * @throws IOException
+     */
+    public ParallelGzipArchiveReader(File containerFile, int numThreads) throws IOException {
+        this(containerFile, ArchiveReaderFactory.isWarc(containerFile), numThreads);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param containerFile Compressed ARC or WARC container file
+     * @param warc True if WARC, false if ARC
+     * @param numThreads Number of worker threads
+     * @throws IOException
+     */
+    public ParallelGzipArchiveReader(File containerFile, boolean warc, int numThreads) throws IOException {
+        this.warc = warc;
+        if (numThreads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive");
+        }
+        raf = new RandomAccessFile(containerFile, "r");
+        channel = raf.getChannel();
+        executor = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "gzip-member-inflater");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        queue = new ArrayBlockingQueue<Future<Member>>(numThreads * 4);
+        endOfMembers = new FutureTask<Member>(new Callable<Member>() {
+            public Member call() {
+                return null;
+            }
+        });
+        endOfMembers.run();
+    }
+
+    @Override
+    public void setComputePayloadDigest(boolean computePayloadDigest) {
+        this.computePayloadDigest = computePayloadDigest;
+    }
+
+    @Override
+    public void setPayloadDigestAlgorithm(String algorithm) {
+        this.payloadDigest = DigestService.getInstance(algorithm);
+    }
+
+    @Override
+    public boolean hasNext() {
+        start();
+        while (nextRecord == null && !finished) {
+            Future<Member> future;
+            try {
+                future = queue.take();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                finish();
+                break;
+            }
+            if (future == endOfMembers) {
+                finish();
+                break;
+            }
+            Member member;
+            try {
+                member = future.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                finish();
+                break;
+            } catch (ExecutionException ex) {
+                finish();
+                throw new RuntimeException("Error reading container file", ex.getCause());
+            }
+            if (member.offset < memberEnd) {
+                // header bytes inside the last member
+                continue;
+            }
+            if (member.record == null) {
+                finish();
+                throw new RuntimeException("Invalid gzip member at offset " + member.offset, member.error);
+            }
+            nextRecord = member.record;
+            memberEnd = member.end;
+        }
+        return nextRecord != null;
+    }
+
+    @Override
+    public ArchiveRecord next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        ArchiveRecord record = nextRecord;
+        nextRecord = null;
+        return record;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Not supported.");
+    }
+
+    /**
+     * Stop the scanner and worker threads and close the container file.
+     *
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        finished = true;
+        nextRecord = null;
+        if (scanner != null) {
+            scanner.interrupt();
+        }
+        executor.shutdownNow();
+        raf.close();
+    }
+
+    private void start() {
+        if (scanner != null || finished) {
+            return;
+        }
+        scanner = new Thread(new Runnable() {
+            public void run() {
+                scanMembers();
+            }
+        }, "gzip-member-scanner");
+        scanner.setDaemon(true);
+        scanner.start();
+    }
+
+    private void finish() {
+        try {
+            close();
+        } catch (IOException ex) {
+            LOG.error("Error closing container file", ex);
+        }
+    }
+
+    /**
+     * Scan the container file for gzip member headers and submit a parse task
+     * for each candidate. The last bytes of a buffer are carried over to the
+     * next one, so that headers spanning two reads are found.
+     */
+    private void scanMembers() {
+        try {
+            byte[] buf = new byte[SCAN_BUFFER_SIZE + GZIP_HEADER_PREFIX_LENGTH];
+            int carry = 0;
+            long bufOffset = 0;
+            long readPos = 0;
+            int n;
+            while ((n = channel.read(ByteBuffer.wrap(buf, carry, SCAN_BUFFER_SIZE), readPos)) > 0) {
+                readPos += n;
+                int limit = carry + n;
+                for (int i = 0; i + GZIP_HEADER_PREFIX_LENGTH <= limit; i++) {
+                    if (buf[i] == (byte) 0x1f && buf[i + 1] == (byte) 0x8b
+                            && buf[i + 2] == 8 && (buf[i + 3] & 0xe0) == 0) {
+                        queue.put(executor.submit(new MemberParser(bufOffset + i)));
+                    }
+                }
+                carry = Math.min(GZIP_HEADER_PREFIX_LENGTH - 1, limit);
+                System.arraycopy(buf, limit - carry, buf, 0, carry);
+                bufOffset += limit - carry;
+            }
+            queue.put(endOfMembers);
+        } catch (InterruptedException ex) {
+            // reader closed
+        } catch (final IOException ex) {
+            FutureTask<Member> failed = new FutureTask<Member>(new Callable<Member>() {
+                public Member call() throws IOException {
+                    throw ex;
+                }
+            });
+            failed.run();
+            try {
+                queue.put(failed);
+            } catch (InterruptedException ie) {
+                // reader closed
+            }
+        }
+    }
+
+    /**
+     * Parse result of a gzip member candidate. The record is null if there is
+     * no valid record at the candidate offset, the error is the cause if
+     * parsing failed.
+     */
+    private static class Member {
+
+        private final long offset;
+        private final long end;
+        private final ArchiveRecord record;
+        private final Exception error;
+
+        Member(long offset, long end, ArchiveRecord record, Exception error) {
+            this.offset = offset;
+            this.end = end;
+            this.record = record;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Inflate the gzip member at the candidate offset and parse the record.
+     * The record is closed, so that the gzip member is read to its end and
+     * the number of compressed bytes consumed gives the end of the member.
+     */
+    private class MemberParser implements Callable<Member> {
+
+        private final long offset;
+
+        MemberParser(long offset) {
+            this.offset = offset;
+        }
+
+        public Member call() {
+            InputStream in = new BufferedInputStream(StreamUtils.newInputStream(channel, offset), BUFFER_SIZE);
+            try {
+                ArchiveRecord record = null;
+                long consumed;
+                if (warc) {
+                    WarcReader reader = WarcReaderFactory.getReaderCompressed();
+                    WarcRecord warcRecord = reader.getNextRecordFrom(in, offset);
+                    if (warcRecord != null) {
+                        record = new ArchiveRecord(warcRecord, computePayloadDigest ? payloadDigest : null);
+                        warcRecord.close();
+                    }
+                    consumed = reader.getConsumed();
+                } else {
+                    ArcReader reader = ArcReaderFactory.getReaderCompressed();
+                    ArcRecordBase arcRecord = reader.getNextRecordFrom(in, offset);
+                    if (arcRecord != null) {
+                        record = new ArchiveRecord(arcRecord, computePayloadDigest ? payloadDigest : null);
+                        arcRecord.close();
+                    }
+                    consumed = reader.getConsumed();
+                }
+                return new Member(offset, offset + consumed, record, null);
+            } catch (Exception ex) {
+                LOG.debug("No record at gzip member candidate offset " + offset, ex);
+                return new Member(offset, offset, null, ex);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2014 onbscs.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scape_project.hawarp.webarchive;
+
+import eu.scape_project.hawarp.utils.DigestService;
+import static eu.scape_project.hawarp.utils.IOUtils.BUFFER_SIZE;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.jwat.arc.ArcReader;
+import org.jwat.arc.ArcReaderFactory;
+import org.jwat.arc.ArcRecordBase;
+import org.jwat.warc.WarcReader;
+import org.jwat.warc.WarcReaderFactory;
+import org.jwat.warc.WarcRecord;
+
+/**
+ * Random access reader for ARC and WARC container files. A single record is
+ * read from a given offset (the offsetCompressedStr of an ArchiveRecord, or
+ * the "V" field of a CDX line) without reading the container file from the
+ * beginning. For compressed container files, only the gzip member of the
+ * record is inflated. Compression is detected from the gzip magic bytes at
+ * the offset, ARC or WARC format by the ArchiveReaderFactory.
+ *
+ * The reader is not thread-safe, a record or payload stream must be consumed
+ * before the next one is requested.
+ *
+ * @author Sven Schlarb <https://github.com/shsdev>
+ */
+public class RandomAccessArchiveReader implements Closeable {
+
+    private static final int GZIP_MAGIC_0 = 0x1f;
+    private static final int GZIP_MAGIC_1 = 0x8b;
+
+    private final RandomAccessFile raf;
+
+    private final FileChannel channel;
+
+    private final boolean warc;
+
+    private boolean computePayloadDigest;
+    private DigestService payloadDigest = DigestService.getInstance(DigestService.DEFAULT_ALGORITHM);
+
+    /**
+     * Constructor
+     *
+     * @param containerFile ARC or WARC container file
+     * @throws IOException
+     */
+    public RandomAccessArchiveReader(File containerFile) throws IOException {
+        this.warc = ArchiveReaderFactory.isWarc(containerFile);
+        raf = new RandomAccessFile(containerFile, "r");
+        channel = raf.getChannel();
+    }
+
+    public void setComputePayloadDigest(boolean computePayloadDigest) {
+        this.computePayloadDigest = computePayloadDigest;
+    }
+
+    /**
+     * Set the algorithm of the payload digest (default: SHA-1).
+     *
+     * @param algorithm Message digest algorithm, e.g. SHA-256
+     */
+    public void setPayloadDigestAlgorithm(String algorithm) {
+        this.payloadDigest = DigestService.getInstance(algorithm);
+    }
+
+    /**
+     * Read the archive record at the given offset.
+     *
+     * @param offset Offset of the record (of the gzip member if compressed)
+     * @return Archive record
+     * @throws IOException If no record can be read at the offset
+     */
+    public ArchiveRecord getRecord(long offset) throws IOException {
+        if (warc) {
+            return new ArchiveRecord(getWarcRecord(offset), computePayloadDigest ? payloadDigest : null);
+        } else {
+            return new ArchiveRecord(getArcRecord(offset), computePayloadDigest ? payloadDigest : null);
+        }
+    }
+
+    /**
+     * Get the payload stream of the record at the given offset. For HTTP
+     * response records, the stream starts after the HTTP header.
+     *
+     * @param offset Offset of the record (of the gzip member if compressed)
+     * @return Payload input stream
+     * @throws IOException If no record can be read at the offset
+     */
+    public InputStream getPayloadStream(long offset) throws IOException {
+        if (warc) {
+            return getWarcRecord(offset).getPayloadContent();
+        } else {
+            return getArcRecord(offset).getPayloadContent();
+        }
+    }
+
+    /**
+     * Close the container file.
+     *
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        raf.close();
+    }
+
+    private ArcRecordBase getArcRecord(long offset) throws IOException {
+        boolean compressed = isGzipMember(offset);
+        ArcReader reader = compressed ? ArcReaderFactory.getReaderCompressed() : ArcReaderFactory.getReaderUncompressed();
+        ArcRecordBase arcRecord = reader.getNextRecordFrom(openStream(offset), offset);
+        if (arcRecord == null) {
+            throw new IOException("No ARC record at offset " + offset);
+        }
+        return arcRecord;
+    }
+
+    private WarcRecord getWarcRecord(long offset) throws IOException {
+        boolean compressed = isGzipMember(offset);
+        WarcReader reader = compressed ? WarcReaderFactory.getReaderCompressed() : WarcReaderFactory.getReaderUncompressed();
+        WarcRecord warcRecord = reader.getNextRecordFrom(openStream(offset), offset);
+        if (warcRecord == null) {
+            throw new IOException("No WARC record at offset " + offset);
+        }
+        return warcRecord;
+    }
+
+    private boolean isGzipMember(long offset) throws IOException {
+        if (offset < 0 || offset >= channel.size()) {
+            throw new IOException("Offset " + offset + " outside of container file");
+        }
+        ByteBuffer magic = ByteBuffer.allocate(2);
+        while (magic.hasRemaining() && channel.read(magic, offset + magic.position()) != -1) {
+            // read until the two magic bytes are available or end of file
+        }
+        return magic.position() == 2
+                && (magic.get(0) & 0xff) == GZIP_MAGIC_0
+                && (magic.get(1) & 0xff) == GZIP_MAGIC_1;
+    }
+
+    private InputStream openStream(long offset) throws IOException {
+        channel.position(offset);
+        // the channel stream must not be closed by the JWAT reader, closing it
+        // would close the channel
+        return new BufferedInputStream(new CloseShieldInputStream(Channels.newInputStream(channel)), BUFFER_SIZE);
+    }
+
+}
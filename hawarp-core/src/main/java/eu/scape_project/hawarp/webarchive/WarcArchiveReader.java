@@ -16,6 +16,7 @@
 package eu.scape_project.hawarp.webarchive;
 
 import eu.scape_project.hawarp.interfaces.ArchiveReader;
+import eu.scape_project.hawarp.utils.DigestService;
 import org.jwat.warc.WarcReader;
 import org.jwat.warc.WarcReaderFactory;
 import org.jwat.warc.WarcRecord;
@@ -34,6 +35,7 @@ public class WarcArchiveReader implements ArchiveReader {
 
     Iterator<WarcRecord> iterator;
     private boolean computePayloadDigest;
+    private DigestService payloadDigest = DigestService.getInstance(DigestService.DEFAULT_ALGORITHM);
 
     public WarcArchiveReader(InputStream is) throws IOException {
         reader = WarcReaderFactory.getReader(is);
@@ -54,7 +56,7 @@ public class WarcArchiveReader implements ArchiveReader {
             throw new IllegalStateException("Iterator not initialised!");
         }
         WarcRecord arcRecord = iterator.next();
-        ArchiveRecord archiveRecord = new ArchiveRecord(arcRecord,computePayloadDigest);
+        ArchiveRecord archiveRecord = new ArchiveRecord(arcRecord, computePayloadDigest ? payloadDigest : null);
         return archiveRecord;
     }
 
@@ -71,4 +73,14 @@ public class WarcArchiveReader implements ArchiveReader {
        this.computePayloadDigest = computePayloadDigest;
     }
 
+    @Override
+    public void setPayloadDigestAlgorithm(String algorithm) {
+        this.payloadDigest = DigestService.getInstance(algorithm);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
 }
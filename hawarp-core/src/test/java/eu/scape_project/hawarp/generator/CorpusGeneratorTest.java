@@ -0,0 +1,208 @@
+/*
+ * Copyright 2014 scape.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scape_project.hawarp.generator;
+
+import com.google.common.io.Files;
+import eu.scape_project.hawarp.generator.SyntheticRecord.Malformation;
+import eu.scape_project.hawarp.generator.cli.CorpusGeneratorConfig;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.jwat.arc.ArcReaderFactory;
+import org.jwat.arc.ArcRecordBase;
+import org.jwat.warc.WarcReaderFactory;
+import org.jwat.warc.WarcRecord;
+import static org.junit.Assert.*;
+
+/**
+ * Corpus generator test class
+ *
+ * @author Sven Schlarb <https://github.com/shsdev>
+ */
+public class CorpusGeneratorTest {
+
+    private static final int NUM_RECORDS = 25;
+
+    private File tempDir;
+
+    public CorpusGeneratorTest() {
+    }
+
+    @Before
+    public void setUp() {
+        tempDir = Files.createTempDir();
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(tempDir);
+    }
+
+    private static CorpusGeneratorConfig createConfig() {
+        CorpusGeneratorConfig config = new CorpusGeneratorConfig();
+        config.setNumRecords(NUM_RECORDS);
+        config.setPayloadSizeMedian(2048);
+        config.setHttpResponseRate(0.8);
+        config.setMalformedRate(0.2);
+        config.setCrawlLogRecord(true);
+        return config;
+    }
+
+    /**
+     * Record indexes of large corpora exceed the int range, the page URLs
+     * must stay unique and the dates increasing.
+     */
+    @Test
+    public void testLargeCorpusIndex() {
+        CorpusGeneratorConfig config = createConfig();
+        config.setNumRecords(1000000);
+        CorpusGenerator generator = new CorpusGenerator(config);
+        SyntheticRecord before = generator.getRecord(2147, 483647);
+        SyntheticRecord after = generator.getRecord(2147, 483648);
+        assertEquals(2147483647L, before.getIndex());
+        assertEquals(2147483648L, after.getIndex());
+        assertTrue(after.getUrl().contains("/page2147483648"));
+        assertEquals(before.getDate().getTime() + 1000, after.getDate().getTime());
+    }
+
+    /**
+     * The files of all formats must contain the generated records followed
+     * by the crawl log record.
+     */
+    @Test
+    public void testGenerate() throws IOException {
+        CorpusGenerator generator = new CorpusGenerator(createConfig());
+        List<File> files = generator.generate(tempDir);
+        assertEquals(4, files.size());
+        for (File file : files) {
+            List<String> urls = new ArrayList<String>();
+            byte[] lastPayload = null;
+            InputStream in = new FileInputStream(file);
+            try {
+                if (file.getName().contains(".warc")) {
+                    Iterator<WarcRecord> iterator = WarcReaderFactory.getReader(in).iterator();
+                    iterator.next(); // warcinfo record
+                    while (iterator.hasNext()) {
+                        WarcRecord record = iterator.next();
+                        urls.add(record.header.warcTargetUriStr);
+                        lastPayload = IOUtils.toByteArray(record.getPayloadContent());
+                    }
+                } else {
+                    Iterator<ArcRecordBase> iterator = ArcReaderFactory.getReader(in).iterator();
+                    iterator.next(); // version block
+                    while (iterator.hasNext()) {
+                        ArcRecordBase record = iterator.next();
+                        urls.add(record.getUrlStr());
+                        lastPayload = IOUtils.toByteArray(record.getPayloadContent());
+                    }
+                }
+            } finally {
+                in.close();
+            }
+            assertEquals(file.getName(), NUM_RECORDS + 1, urls.size());
+            for (int i = 0; i < NUM_RECORDS; i++) {
+                assertEquals(file.getName(), generator.getRecord(0, i).getUrl(), urls.get(i));
+            }
+            assertEquals(CorpusGenerator.CRAWL_LOG_URL, urls.get(NUM_RECORDS));
+            String[] crawlLogLines = new String(lastPayload, "UTF-8").split("\n");
+            assertEquals(NUM_RECORDS, crawlLogLines.length);
+            assertTrue(crawlLogLines[0].contains(" sha1:"));
+        }
+    }
+
+    /**
+     * The same seed must give the same files.
+     */
+    @Test
+    public void testDeterministic() throws IOException {
+        CorpusGeneratorConfig config = createConfig();
+        config.setFormats("warc.gz");
+        File first = new CorpusGenerator(config).generateFile(new File(tempDir, "1"), "warc.gz", 0);
+        File second = new CorpusGenerator(config).generateFile(new File(tempDir, "2"), "warc.gz", 0);
+        assertTrue(FileUtils.contentEquals(first, second));
+        config.setSeed(43);
+        File third = new CorpusGenerator(config).generateFile(new File(tempDir, "3"), "warc.gz", 0);
+        assertFalse(FileUtils.contentEquals(first, third));
+    }
+
+    /**
+     * Outliers of several GB are only described by the record, the payload is
+     * generated when it is read.
+     */
+    @Test
+    public void testPayloadSizes() throws IOException {
+        CorpusGeneratorConfig config = createConfig();
+        config.setNumRecords(10000);
+        config.setPayloadSizeMax(100000);
+        config.setOutlierRate(0.01);
+        config.setOutlierSize(5L * 1024 * 1024 * 1024);
+        CorpusGenerator generator = new CorpusGenerator(config);
+        int outliers = 0;
+        int malformed = 0;
+        for (int i = 0; i < config.getNumRecords(); i++) {
+            SyntheticRecord record = generator.getRecord(0, i);
+            if (record.getPayloadLength() == config.getOutlierSize()) {
+                outliers++;
+                assertTrue(record.getContentLength() > record.getPayloadLength() || !record.isHttpResponse());
+            } else {
+                assertTrue(record.getPayloadLength() <= config.getPayloadSizeMax());
+            }
+            if (record.getMalformation() != Malformation.NONE) {
+                malformed++;
+            }
+        }
+        assertTrue("Outliers: " + outliers, outliers > 50 && outliers < 150);
+        assertTrue("Malformed: " + malformed, malformed > 1500 && malformed < 2500);
+
+        SyntheticRecord record = generator.getRecord(0, 1);
+        byte[] payload = IOUtils.toByteArray(record.openPayload());
+        assertEquals(record.getPayloadLength(), payload.length);
+        assertArrayEquals(payload, IOUtils.toByteArray(record.openPayload()));
+    }
+
+    @Test
+    public void testMimeTypeMix() {
+        MimeTypeMix mix = new MimeTypeMix("text/html; charset=UTF-8:3, image/png, application/pdf:0");
+        assertArrayEquals(new String[]{"text/html; charset=UTF-8", "image/png", "application/pdf"},
+                mix.getMimeTypes());
+        Random random = new Random(42);
+        int html = 0;
+        for (int i = 0; i < 4000; i++) {
+            String mimeType = mix.next(random);
+            assertFalse(mimeType.equals("application/pdf"));
+            if (mimeType.startsWith("text/html")) {
+                html++;
+            }
+        }
+        assertTrue("HTML: " + html, html > 2800 && html < 3200);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMimeTypeMix() {
+        new MimeTypeMix("text/html:x");
+    }
+
+}
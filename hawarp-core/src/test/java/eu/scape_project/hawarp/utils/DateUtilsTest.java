@@ -0,0 +1,88 @@
+/*
+ * Copyright 2014 scape.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scape_project.hawarp.utils;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Date utilities test class
+ *
+ * @author Sven Schlarb <https://github.com/shsdev>
+ */
+public class DateUtilsTest {
+
+    public DateUtilsTest() {
+    }
+
+    @Test
+    public void testFormat() throws ParseException {
+        Date date = new Date(1369211393000L);
+        assertEquals("20130522082953", DateUtils.formatGTechDate(date));
+        assertEquals("2013-05-22T08:29:53Z", DateUtils.formatIsoDate(date));
+        assertEquals(date, DateUtils.parseGTechDate("20130522082953"));
+        assertEquals(date, DateUtils.parseIsoDate("2013-05-22T08:29:53Z"));
+        assertEquals(new Date(1369211393120L), DateUtils.parseIsoDate("2013-05-22T08:29:53.12Z"));
+        assertEquals("19700101000000", DateUtils.formatGTechDate(new Date(0)));
+        assertEquals("1969-12-31T23:59:59Z", DateUtils.formatIsoDate(new Date(-1)));
+    }
+
+    @Test
+    public void testFormatIntoBuffer() {
+        char[] buf = new char[40];
+        int pos = DateUtils.formatGTechDate(1369211393000L, buf, 2);
+        assertEquals(2 + DateUtils.GTECH_DATE_LENGTH, pos);
+        pos = DateUtils.formatIsoDate(1369211393000L, buf, pos);
+        assertEquals("20130522082953" + "2013-05-22T08:29:53Z", new String(buf, 2, pos - 2));
+    }
+
+    /**
+     * The formatters must give the same results as SimpleDateFormat.
+     */
+    @Test
+    public void testCompareWithSimpleDateFormat() throws ParseException {
+        SimpleDateFormat gtechFormat = new SimpleDateFormat("yyyyMMddHHmmss");
+        gtechFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+        SimpleDateFormat isoFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+        isoFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            // dates between 1900 and 2100, whole seconds
+            long seconds = (long) (random.nextDouble() * 6311433600L) - 2208988800L;
+            Date date = new Date(seconds * 1000);
+            assertEquals(gtechFormat.format(date), DateUtils.formatGTechDate(date));
+            assertEquals(isoFormat.format(date), DateUtils.formatIsoDate(date));
+            assertEquals(date, DateUtils.parseGTechDate(gtechFormat.format(date)));
+            assertEquals(date, DateUtils.parseIsoDate(isoFormat.format(date)));
+        }
+    }
+
+    @Test(expected = ParseException.class)
+    public void testParseInvalidDay() throws ParseException {
+        DateUtils.parseGTechDate("20130230000000");
+    }
+
+    @Test(expected = ParseException.class)
+    public void testParseInvalidFormat() throws ParseException {
+        DateUtils.parseIsoDate("2013-05-22 08:29:53Z");
+    }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2014 scape.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scape_project.hawarp.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.jwat.common.Base32;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Digest service test class
+ *
+ * @author Sven Schlarb <https://github.com/shsdev>
+ */
+public class DigestServiceTest {
+
+    public DigestServiceTest() {
+    }
+
+    @Test
+    public void testSha1() throws IOException {
+        DigestService service = DigestService.getInstance(DigestService.SHA1);
+        assertSame(service, DigestService.getInstance(DigestService.SHA1));
+        assertEquals("sha1", service.getLabel());
+        byte[] abc = "abc".getBytes();
+        assertEquals("a9993e364706816aba3e25717850c26c9cd0d89d", DigestService.toHex(service.digest(abc), false));
+        ByteBuffer buffer = ByteBuffer.wrap(abc);
+        assertEquals("A9993E364706816ABA3E25717850C26C9CD0D89D", DigestService.toHex(service.digest(buffer), true));
+        assertEquals(0, buffer.position());
+        byte[] streamed = service.digest(new ByteArrayInputStream(abc));
+        assertEquals("sha1:VGMT4NSHA2AWVOR6EVYXQUGCNSONBWE5", service.toLabelledBase32(streamed));
+    }
+
+    @Test
+    public void testSha256() {
+        DigestService service = DigestService.getInstance(DigestService.SHA256);
+        assertEquals("sha256", service.getLabel());
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+                DigestService.toHex(service.digest("abc".getBytes()), false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownAlgorithm() {
+        DigestService.getInstance("NO-SUCH-DIGEST");
+    }
+
+    /**
+     * Test of the Base32 encoder against the JWAT encoder, which is used for
+     * the payload digests of existing WARC files.
+     */
+    @Test
+    public void testBase32() {
+        for (int length = 0; length < 40; length++) {
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = (byte) (i * 37 + length);
+            }
+            String encoded = DigestService.toBase32(bytes);
+            if (length % 5 == 0) {
+                assertEquals(Base32.encodeArray(bytes), encoded);
+            }
+            assertArrayEquals(bytes, DigestService.fromBase32(encoded));
+            assertArrayEquals(bytes, DigestService.fromBase32(encoded.toLowerCase()));
+        }
+        assertNull(DigestService.fromBase32("ABC1"));
+        assertNull(DigestService.fromLabelledBase32("VGMT4NSHA2AWVOR6EVYXQUGCNSONBWE5"));
+    }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2014 scape.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scape_project.hawarp.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Digest utilities test class
+ *
+ * @author Sven Schlarb <https://github.com/shsdev>
+ */
+public class DigestUtilsTest {
+
+    public DigestUtilsTest() {
+    }
+
+    /**
+     * Test of SHAsum method, of class DigestUtils.
+     */
+    @Test
+    public void testSHAsum() {
+        String result = DigestUtils.SHAsum("abc".getBytes(), false, true);
+        assertEquals("A9993E364706816ABA3E25717850C26C9CD0D89D", result);
+        result = DigestUtils.SHAsum("abc".getBytes(), true, false);
+        assertEquals("sha1:a9993e364706816aba3e25717850c26c9cd0d89d", result);
+    }
+
+    /**
+     * Test of SHAsum method using an input stream, the stream is larger than
+     * the read buffer.
+     */
+    @Test
+    public void testSHAsumInputStream() throws IOException {
+        byte[] content = new byte[IOUtils.BUFFER_SIZE * 3 + 17];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i % 251);
+        }
+        String expected = DigestUtils.SHAsum(content, false, true);
+        String result = DigestUtils.SHAsum(new ByteArrayInputStream(content), false, true);
+        assertEquals(expected, result);
+    }
+
+}
@@ -59,5 +59,45 @@ public class UrlUtilsTest {
         String result = UrlUtils.canonicalize(url);
         assertEquals(expResult, result);
     }
+
+    /**
+     * canonicalize must give the same results as the former regex based
+     * implementation, which removed all occurrences of http:// and www.
+     */
+    @Test
+    public void testCanonicalizeAsRegex() {
+        String[] urls = {"http://www.onb.ac.at/", "http://fue.onb.ac.at/?url=http://www.example.org",
+            "https://www.onb.ac.at/", "dns:www.onb.ac.at", "http://", ""};
+        for (String url : urls) {
+            String expected = url.startsWith("http://") ? url.replaceAll("(http://|http://www\\.|www\\.)", "") : url;
+            assertEquals(expected, UrlUtils.canonicalize(url));
+        }
+    }
+
+    /**
+     * Test of toSurt method, of class UrlUtils.
+     */
+    @Test
+    public void testToSurt() {
+        assertEquals("at,ac,onb,fue)/", UrlUtils.toSurt("http://fue.onb.ac.at"));
+        assertEquals("org,example)/path/index.html?a=1&b=2",
+                UrlUtils.toSurt("http://www.Example.org/Path/Index.html?b=2&a=1#top"));
+        assertEquals("org,example)/", UrlUtils.toSurt("https://user:pw@WWW2.example.org:443/"));
+        assertEquals("org,example:8080)/a", UrlUtils.toSurt("http://example.org:8080/a/"));
+        assertEquals("org,example:8080)/a", UrlUtils.toSurt("example.org:8080/a"));
+        assertEquals("org,example)/", UrlUtils.toSurt("http://example.org/?"));
+        assertEquals("127.0.0.1)/x", UrlUtils.toSurt("http://127.0.0.1:80/x"));
+        assertEquals("at,ac,onb,fue)/test", UrlUtils.toSurt("fue.onb.ac.at/test/"));
+        assertEquals("dns:fue.onb.ac.at", UrlUtils.toSurt("dns:fue.onb.ac.at"));
+    }
+
+    @Test
+    public void testToSurtSessionIds() {
+        assertEquals("org,example)/a?x=1", UrlUtils.toSurt("http://example.org/a;jsessionid=0123456789ABCDEF0123456789ABCDEF"
+                + "?x=1&PHPSESSID=0123456789abcdef0123456789abcdef"));
+        assertEquals("org,example)/a?x=1", UrlUtils.toSurt("http://example.org/a?cfid=123&x=1&cftoken=456"));
+        // a short sid value is not a session id
+        assertEquals("org,example)/a?sid=1", UrlUtils.toSurt("http://example.org/a?sid=1"));
+    }
     
 }
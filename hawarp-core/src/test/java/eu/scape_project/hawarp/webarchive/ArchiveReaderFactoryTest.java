@@ -19,8 +19,10 @@ import eu.scape_project.hawarp.interfaces.ArchiveReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -35,6 +37,7 @@ import static org.junit.Assert.*;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameters;
+import org.apache.commons.io.FileUtils;
 import org.jwat.arc.ArcReader;
 import org.jwat.arc.ArcReaderFactory;
 import org.jwat.arc.ArcRecordBase;
@@ -128,4 +131,45 @@ public class ArchiveReaderFactoryTest {
         //assertEquals("Number of records incorrect", expected[expValSetIndex].length, i);
     }
 
+    /**
+     * Test of format detection, the records of a container file without file
+     * name suffix must be the same as the ones of the original file.
+     */
+    @Test
+    public void testGetReaderWithoutSuffix() throws IOException, URISyntaxException {
+        File containerFile = new File(getClass().getClassLoader().getResource(testResource).toURI());
+        File partFile = File.createTempFile("part-", "");
+        try {
+            FileUtils.copyFile(containerFile, partFile);
+            List<String> expectedUrls = new ArrayList<String>();
+            ArchiveReader reader = ArchiveReaderFactory.getReader(containerFile, 1);
+            while (reader.hasNext()) {
+                expectedUrls.add(reader.next().getUrl());
+            }
+            reader.close();
+            assertFalse(expectedUrls.isEmpty());
+
+            List<String> urls = new ArrayList<String>();
+            FileInputStream fis = new FileInputStream(partFile);
+            reader = ArchiveReaderFactory.getReader(fis, partFile.getName());
+            assertNotNull(reader);
+            while (reader.hasNext()) {
+                urls.add(reader.next().getUrl());
+            }
+            reader.close();
+            assertEquals(expectedUrls, urls);
+
+            urls.clear();
+            reader = ArchiveReaderFactory.getReader(partFile, 1);
+            assertNotNull(reader);
+            while (reader.hasNext()) {
+                urls.add(reader.next().getUrl());
+            }
+            reader.close();
+            assertEquals(expectedUrls, urls);
+        } finally {
+            partFile.delete();
+        }
+    }
+
 }
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2014 onbscs.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scape_project.hawarp.webarchive;
+
+import eu.scape_project.hawarp.interfaces.ArchiveReader;
+import eu.scape_project.hawarp.utils.DigestUtils;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Test class for the memory mapped archive reader.
+ *
+ * @author Sven Schlarb <https://github.com/shsdev>
+ */
+@RunWith(Parameterized.class)
+public class MappedArchiveReaderTest {
+
+    private final String testResource;
+
+    public MappedArchiveReaderTest(String testResource) {
+        this.testResource = testResource;
+    }
+
+    @Parameters
+    public static Collection<Object[]> data() {
+        Object[][] data = new Object[][]{
+            {"arc/example.arc"},
+            {"warc/example.warc"},
+            {"warc/a2w_migrated.warc"}
+        };
+        return Arrays.asList(data);
+    }
+
+    /**
+     * The records read from the mapped file must be the same as the records
+     * read sequentially, the payload slice must have the payload digest.
+     */
+    @Test
+    public void testRecords() throws IOException, URISyntaxException {
+        File containerFile = new File(getClass().getClassLoader().getResource(testResource).toURI());
+        List<ArchiveRecord> sequentialRecords = new ArrayList<ArchiveRecord>();
+        FileInputStream fis = new FileInputStream(containerFile);
+        ArchiveReader reader = ArchiveReaderFactory.getReader(fis, testResource);
+        reader.setComputePayloadDigest(true);
+        while (reader.hasNext()) {
+            sequentialRecords.add(reader.next());
+        }
+        reader.close();
+        assertFalse(sequentialRecords.isEmpty());
+
+        MappedArchiveReader mappedReader = new MappedArchiveReader(containerFile);
+        mappedReader.setComputePayloadDigest(true);
+        try {
+            int i = 0;
+            while (mappedReader.hasNext()) {
+                assertTrue(i < sequentialRecords.size());
+                ArchiveRecord expected = sequentialRecords.get(i);
+                ArchiveRecord record = mappedReader.next();
+                assertEquals(expected.getUrl(), record.getUrl());
+                assertEquals(expected.getMimeType(), record.getMimeType());
+                assertEquals(expected.getHttpReturnCode(), record.getHttpReturnCode());
+                assertEquals(expected.getOffsetCompressedStr(), record.getOffsetCompressedStr());
+                assertEquals(expected.getPayloadDigestStr(), record.getPayloadDigestStr());
+                assertEquals(expected.getPayloadDigestStr(), DigestUtils.SHAsum(mappedReader.getPayload(), false, true));
+                i++;
+            }
+            assertEquals(sequentialRecords.size(), i);
+        } finally {
+            mappedReader.close();
+        }
+    }
+
+    /**
+     * With a window smaller than some of the records, the records which do
+     * not fit into one window are read from a stream and the windows are
+     * remapped for the other records.
+     */
+    @Test
+    public void testSmallWindow() throws IOException, URISyntaxException {
+        File containerFile = new File(getClass().getClassLoader().getResource(testResource).toURI());
+        List<ArchiveRecord> sequentialRecords = new ArrayList<ArchiveRecord>();
+        FileInputStream fis = new FileInputStream(containerFile);
+        ArchiveReader reader = ArchiveReaderFactory.getReader(fis, testResource);
+        reader.setComputePayloadDigest(true);
+        while (reader.hasNext()) {
+            sequentialRecords.add(reader.next());
+        }
+        reader.close();
+
+        MappedArchiveReader mappedReader = new MappedArchiveReader(containerFile,
+                ArchiveReaderFactory.isWarc(containerFile), 1024);
+        mappedReader.setComputePayloadDigest(true);
+        try {
+            int i = 0;
+            while (mappedReader.hasNext()) {
+                assertTrue(i < sequentialRecords.size());
+                ArchiveRecord expected = sequentialRecords.get(i);
+                ArchiveRecord record = mappedReader.next();
+                assertEquals(expected.getUrl(), record.getUrl());
+                assertEquals(expected.getOffsetCompressedStr(), record.getOffsetCompressedStr());
+                assertEquals(expected.getPayloadDigestStr(), record.getPayloadDigestStr());
+                if (mappedReader.getPayload() != null) {
+                    assertEquals(expected.getPayloadDigestStr(), DigestUtils.SHAsum(mappedReader.getPayload(), false, true));
+                }
+                i++;
+            }
+            assertEquals(sequentialRecords.size(), i);
+        } finally {
+            mappedReader.close();
+        }
+    }
+
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2014 onbscs.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scape_project.hawarp.webarchive;
+
+import eu.scape_project.hawarp.interfaces.ArchiveReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Test class for the parallel gzip member reader.
+ *
+ * @author Sven Schlarb <https://github.com/shsdev>
+ */
+@RunWith(Parameterized.class)
+public class ParallelGzipArchiveReaderTest {
+
+    private final String testResource;
+
+    public ParallelGzipArchiveReaderTest(String testResource) {
+        this.testResource = testResource;
+    }
+
+    @Parameters
+    public static Collection<Object[]> data() {
+        Object[][] data = new Object[][]{
+            {"arc/example.arc.gz"},
+            {"arc-dedup/3-2-20130522085320-00000-prepc2.arc.gz"}
+        };
+        return Arrays.asList(data);
+    }
+
+    /**
+     * The records read in parallel must be the same and in the same order as
+     * the records read sequentially.
+     */
+    @Test
+    public void testRecordOrder() throws IOException, URISyntaxException {
+        File containerFile = new File(getClass().getClassLoader().getResource(testResource).toURI());
+        List<ArchiveRecord> sequentialRecords = new ArrayList<ArchiveRecord>();
+        FileInputStream fis = new FileInputStream(containerFile);
+        ArchiveReader reader = ArchiveReaderFactory.getReader(fis, testResource);
+        reader.setComputePayloadDigest(true);
+        while (reader.hasNext()) {
+            sequentialRecords.add(reader.next());
+        }
+        reader.close();
+        assertFalse(sequentialRecords.isEmpty());
+
+        ArchiveReader parallelReader = ArchiveReaderFactory.getReader(containerFile, 4);
+        assertTrue(parallelReader instanceof ParallelGzipArchiveReader);
+        parallelReader.setComputePayloadDigest(true);
+        try {
+            int i = 0;
+            while (parallelReader.hasNext()) {
+                assertTrue(i < sequentialRecords.size());
+                ArchiveRecord expected = sequentialRecords.get(i);
+                ArchiveRecord record = parallelReader.next();
+                assertEquals(expected.getUrl(), record.getUrl());
+                assertEquals(expected.getOffsetCompressedStr(), record.getOffsetCompressedStr());
+                assertEquals(expected.getPayloadDigestStr(), record.getPayloadDigestStr());
+                i++;
+            }
+            assertEquals(sequentialRecords.size(), i);
+        } finally {
+            parallelReader.close();
+        }
+    }
+
+    /**
+     * A container file truncated in the last member must not be read as a
+     * complete file.
+     */
+    @Test(expected = RuntimeException.class)
+    public void testTruncatedFile() throws IOException, URISyntaxException {
+        File containerFile = new File(getClass().getClassLoader().getResource(testResource).toURI());
+        File truncatedFile = File.createTempFile("truncated", ".arc.gz");
+        truncatedFile.deleteOnExit();
+        FileInputStream fis = new FileInputStream(containerFile);
+        FileOutputStream fos = new FileOutputStream(truncatedFile);
+        try {
+            byte[] buf = new byte[(int) containerFile.length() - 16];
+            int n = 0;
+            while (n < buf.length) {
+                n += fis.read(buf, n, buf.length - n);
+            }
+            fos.write(buf);
+        } finally {
+            fis.close();
+            fos.close();
+        }
+        ArchiveReader parallelReader = new ParallelGzipArchiveReader(truncatedFile, false, 4);
+        try {
+            while (parallelReader.hasNext()) {
+                parallelReader.next();
+            }
+        } finally {
+            parallelReader.close();
+        }
+    }
+
+    /**
+     * Gzip members stored verbatim in the payload of a record (deflate stored
+     * blocks) must not be returned as records.
+     */
+    @Test
+    public void testStoredGzipPayload() throws IOException {
+        byte[] innerRecord = gzip(warcRecord("http://example.org/inner", "inner payload".getBytes("UTF-8")), Deflater.DEFAULT_COMPRESSION);
+        byte[] innerWarcGz = new byte[3 * innerRecord.length];
+        for (int i = 0; i < 3; i++) {
+            System.arraycopy(innerRecord, 0, innerWarcGz, i * innerRecord.length, innerRecord.length);
+        }
+        File containerFile = File.createTempFile("stored", ".warc.gz");
+        containerFile.deleteOnExit();
+        OutputStream out = new FileOutputStream(containerFile);
+        try {
+            out.write(gzip(warcRecord("http://example.org/first", "first".getBytes("UTF-8")), Deflater.NO_COMPRESSION));
+            out.write(gzip(warcRecord("http://example.org/inner.warc.gz", innerWarcGz), Deflater.NO_COMPRESSION));
+            out.write(gzip(warcRecord("http://example.org/last", "last".getBytes("UTF-8")), Deflater.NO_COMPRESSION));
+        } finally {
+            out.close();
+        }
+        ArchiveReader parallelReader = new ParallelGzipArchiveReader(containerFile, true, 4);
+        List<String> urls = new ArrayList<String>();
+        try {
+            while (parallelReader.hasNext()) {
+                urls.add(parallelReader.next().getUrl());
+            }
+        } finally {
+            parallelReader.close();
+        }
+        assertEquals(Arrays.asList("http://example.org/first", "http://example.org/inner.warc.gz",
+                "http://example.org/last"), urls);
+    }
+
+    private static byte[] warcRecord(String url, byte[] payload) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        String header = "WARC/1.0\r\n"
+                + "WARC-Type: resource\r\n"
+                + "WARC-Target-URI: " + url + "\r\n"
+                + "WARC-Date: 2014-06-26T07:55:01Z\r\n"
+                + "WARC-Record-ID: <urn:uuid:" + UUID.nameUUIDFromBytes(url.getBytes("UTF-8")) + ">\r\n"
+                + "Content-Type: application/octet-stream\r\n"
+                + "Content-Length: " + payload.length + "\r\n"
+                + "\r\n";
+        baos.write(header.getBytes("ISO-8859-1"));
+        baos.write(payload);
+        baos.write("\r\n\r\n".getBytes("ISO-8859-1"));
+        return baos.toByteArray();
+    }
+
+    private static byte[] gzip(byte[] data, final int level) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        GZIPOutputStream gzout = new GZIPOutputStream(baos) {
+            {
+                def.setLevel(level);
+            }
+        };
+        gzout.write(data);
+        gzout.close();
+        return baos.toByteArray();
+    }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2014 onbscs.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.scape_project.hawarp.webarchive;
+
+import eu.scape_project.hawarp.interfaces.ArchiveReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Random access archive reader test
+ *
+ * @author Sven Schlarb <https://github.com/shsdev>
+ */
+@RunWith(Parameterized.class)
+public class RandomAccessArchiveReaderTest {
+
+    private final String testResource;
+
+    public RandomAccessArchiveReaderTest(String testResource) {
+        this.testResource = testResource;
+    }
+
+    @Parameters
+    public static Collection<Object[]> data() {
+        Object[][] data = new Object[][]{
+            {"arc/example.arc.gz"},
+            {"warc/example.warc"}
+        };
+        return Arrays.asList(data);
+    }
+
+    /**
+     * Read the records in reverse order by offset and compare them with the
+     * records read sequentially.
+     */
+    @Test
+    public void testGetRecord() throws IOException, URISyntaxException {
+        File containerFile = new File(getClass().getClassLoader().getResource(testResource).toURI());
+        List<ArchiveRecord> sequentialRecords = new ArrayList<ArchiveRecord>();
+        FileInputStream fis = new FileInputStream(containerFile);
+        ArchiveReader reader = ArchiveReaderFactory.getReader(fis, testResource);
+        reader.setComputePayloadDigest(true);
+        while (reader.hasNext()) {
+            sequentialRecords.add(reader.next());
+        }
+        fis.close();
+        assertFalse(sequentialRecords.isEmpty());
+
+        RandomAccessArchiveReader raReader = new RandomAccessArchiveReader(containerFile);
+        raReader.setComputePayloadDigest(true);
+        try {
+            for (int i = sequentialRecords.size() - 1; i >= 0; i--) {
+                ArchiveRecord expected = sequentialRecords.get(i);
+                long offset = Long.parseLong(expected.getOffsetCompressedStr());
+                ArchiveRecord record = raReader.getRecord(offset);
+                assertEquals(expected.getUrl(), record.getUrl());
+                assertEquals(expected.getOffsetCompressedStr(), record.getOffsetCompressedStr());
+                assertEquals(expected.getPayloadDigestStr(), record.getPayloadDigestStr());
+            }
+        } finally {
+            raReader.close();
+        }
+    }
+
+}
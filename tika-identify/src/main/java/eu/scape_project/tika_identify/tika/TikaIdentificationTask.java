@@ -62,7 +62,7 @@ public class TikaIdentificationTask implements Identifier {
      * @throws IOException
      * @throws SignatureParseException
      */
-    public static TikaIdentificationTask getInstance() throws IOException {
+    public static synchronized TikaIdentificationTask getInstance() throws IOException {
         if (instance == null) {
             instance = new TikaIdentificationTask();
         }
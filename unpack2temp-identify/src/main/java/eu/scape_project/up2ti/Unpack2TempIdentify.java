@@ -20,15 +20,20 @@ import eu.scape_project.up2ti.cli.Up2tiCliConfig;
 import eu.scape_project.up2ti.cli.Up2tiCliOptions;
 import eu.scape_project.up2ti.container.ArcContainer;
 import eu.scape_project.up2ti.container.Container;
+import eu.scape_project.up2ti.container.ItemContent;
+import eu.scape_project.up2ti.container.ItemHandler;
 import eu.scape_project.up2ti.container.ZipContainer;
+import eu.scape_project.up2ti.identifiers.ConcurrentIdentification;
 import eu.scape_project.up2ti.identifiers.Identification;
 import eu.scape_project.up2ti.identifiers.IdentifierCollection;
+import eu.scape_project.up2ti.identifiers.IdentifierPool;
 import eu.scape_project.up2ti.output.OutWritable;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.File;
 import java.io.InputStream;
 import java.io.FileNotFoundException;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import org.apache.commons.cli.CommandLine;
@@ -45,6 +50,7 @@ import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.Reducer;
 import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
+import org.apache.hadoop.mapreduce.lib.map.MultithreadedMapper;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
 import org.apache.hadoop.util.GenericOptionsParser;
@@ -64,12 +70,21 @@ import org.apache.hadoop.mapreduce.lib.output.MultipleOutputs;
 public class Unpack2TempIdentify {
 
     public static final String SPRING_CONFIG_RESOURCE_PATH = "eu/scape_project/up2ti/spring-config.xml";
+    public static final String INMEMORY_CONF_KEY = "up2ti.inmemory";
+    public static final String MAXCONTENTLENGTH_CONF_KEY = "up2ti.maxcontentlength";
+    public static final String STREAMING_CONF_KEY = "up2ti.streaming";
+    public static final String NUMTHREADS_CONF_KEY = "up2ti.numthreads";
+    public static final String MAPTHREADS_CONF_KEY = "up2ti.mapthreads";
     private static ApplicationContext ctx;
     private static Up2tiCliConfig config;
     // Logger instance
 
     private static final Log LOG = LogFactory.getLog(Unpack2TempIdentify.class);
 
+    private IdentifierCollection identificationStack;
+
+    private OutWritable outWriter;
+
     /**
      * Reducer class.
      */
@@ -97,36 +112,139 @@ public class Unpack2TempIdentify {
     }
 
     /**
-     * Mapper class.
+     * Mapper class. The spring application context and the identification
+     * stacks are created once per JVM in the setup method and shared by all
+     * mapper instances, which allows running the mapper in a
+     * MultithreadedMapper. Each map thread borrows an identification stack
+     * from a pool with one stack per map thread (parameter -w). If the mapper
+     * runs in a {@link ContainerItemIdentificationMultithreadedMapper}, the
+     * map threads share the multiple outputs of the task, otherwise the
+     * mapper creates its own multiple outputs.
      */
     public static class ContainerItemIdentificationMapper
             extends Mapper<LongWritable, Text, Text, ObjectWritable> {
 
+        private static IdentifierPool identifierPool;
+
+        private static OutWritable sharedOutWriter;
+
+        private static volatile MultipleOutputs taskMos;
+
         private MultipleOutputs mos;
 
+        private boolean ownMos;
+
+        private FileSystem fs;
+
+        private boolean inMemory;
+
+        private boolean streaming;
+
+        private int maxContentLength;
+
+        private int numThreads;
+
         @Override
-        public void setup(Context context) {
-            mos = new MultipleOutputs(context);
+        public void setup(Context context) throws IOException {
+            Configuration conf = context.getConfiguration();
+            synchronized (ContainerItemIdentificationMapper.class) {
+                if (identifierPool == null) {
+                    ApplicationContext appCtx = getApplicationContext();
+                    int poolSize = Math.max(1, conf.getInt(MAPTHREADS_CONF_KEY, 1));
+                    identifierPool = new IdentifierPool(appCtx, "identificationStack", poolSize);
+                    sharedOutWriter = (OutWritable) appCtx.getBean("outWriterBean");
+                }
+            }
+            mos = taskMos;
+            ownMos = (mos == null);
+            if (ownMos) {
+                mos = new MultipleOutputs(context);
+            }
+            fs = FileSystem.get(conf);
+            inMemory = conf.getBoolean(INMEMORY_CONF_KEY, false);
+            streaming = conf.getBoolean(STREAMING_CONF_KEY, false);
+            maxContentLength = conf.getInt(MAXCONTENTLENGTH_CONF_KEY, ItemContent.DEFAULT_MAX_CONTENT_LENGTH);
+            numThreads = conf.getInt(NUMTHREADS_CONF_KEY, 1);
         }
 
         @Override
         public void cleanup(Context context) throws IOException, InterruptedException {
-            mos.close();
+            if (ownMos) {
+                mos.close();
+            }
         }
 
         @Override
         public void map(LongWritable key, Text value, Mapper.Context context) throws IOException, InterruptedException, FileNotFoundException {
-            Unpack2TempIdentify wai = new Unpack2TempIdentify();
             Path pt = new Path("hdfs://" + value);
-            FileSystem fs = FileSystem.get(new Configuration());
-            Container container = wai.createContainer(fs.open(pt), pt.getName());
-            wai.performIdentification(container, mos);
+            InputStream containerFileStream = fs.open(pt);
+            IdentifierCollection identificationStack = null;
+            try {
+                identificationStack = identifierPool.borrow();
+                Unpack2TempIdentify wai = new Unpack2TempIdentify(identificationStack, sharedOutWriter);
+                if (streaming) {
+                    wai.performStreamingIdentification(containerFileStream, pt.getName(), maxContentLength, numThreads, mos);
+                } else {
+                    Container container = wai.createContainer(containerFileStream, pt.getName(), inMemory, maxContentLength);
+                    wai.performIdentification(container, inMemory, numThreads, mos);
+                }
+            } finally {
+                containerFileStream.close();
+                if (identificationStack != null) {
+                    identifierPool.release(identificationStack);
+                }
+            }
+        }
+    }
+
+    /**
+     * Multithreaded mapper which runs the map threads of a task with one
+     * multiple outputs instance. The multiple outputs are created before the
+     * map threads are started and closed after all map threads have finished.
+     */
+    public static class ContainerItemIdentificationMultithreadedMapper
+            extends MultithreadedMapper<LongWritable, Text, Text, ObjectWritable> {
+
+        @Override
+        public void run(Context context) throws IOException, InterruptedException {
+            MultipleOutputs mos = new MultipleOutputs(context);
+            ContainerItemIdentificationMapper.taskMos = mos;
+            try {
+                super.run(context);
+            } finally {
+                ContainerItemIdentificationMapper.taskMos = null;
+                mos.close();
+            }
         }
     }
 
     public Unpack2TempIdentify() {
     }
 
+    /**
+     * Constructor
+     *
+     * @param identificationStack Identification stack
+     * @param outWriter Output writer
+     */
+    public Unpack2TempIdentify(IdentifierCollection identificationStack, OutWritable outWriter) {
+        this.identificationStack = identificationStack;
+        this.outWriter = outWriter;
+    }
+
+    /**
+     * Spring application context, loaded from the class path if it has not
+     * been loaded by the command line application.
+     *
+     * @return Application context
+     */
+    public static synchronized ApplicationContext getApplicationContext() {
+        if (ctx == null) {
+            ctx = new ClassPathXmlApplicationContext(SPRING_CONFIG_RESOURCE_PATH);
+        }
+        return ctx;
+    }
+
     public static Up2tiCliConfig getConfig() {
         return config;
     }
@@ -182,7 +300,9 @@ public class Unpack2TempIdentify {
 
     public static void startApplication() throws FileNotFoundException, IOException, InterruptedException {
         long startTime = System.currentTimeMillis();
-        Unpack2TempIdentify wai = new Unpack2TempIdentify();
+        Unpack2TempIdentify wai = new Unpack2TempIdentify(
+                (IdentifierCollection) getApplicationContext().getBean("identificationStack"),
+                (OutWritable) getApplicationContext().getBean("outWriterBean"));
         wai.traverseDir(new File(config.getInputStr()));
         long elapsedTime = System.currentTimeMillis() - startTime;
         LOG.debug("Processing time (sec): " + elapsedTime / 1000F);
@@ -199,9 +319,22 @@ public class Unpack2TempIdentify {
                 job.getConfiguration().set("fs.default.name", "file:///");
             }
 
+            job.getConfiguration().setBoolean(INMEMORY_CONF_KEY, config.isInMemory());
+            job.getConfiguration().setInt(MAXCONTENTLENGTH_CONF_KEY, config.getMaxContentLength());
+            job.getConfiguration().setBoolean(STREAMING_CONF_KEY, config.isStreaming());
+            job.getConfiguration().setInt(NUMTHREADS_CONF_KEY, config.getNumThreads());
+            job.getConfiguration().setInt(MAPTHREADS_CONF_KEY, config.getNumMapThreads());
+
             job.setJarByClass(Unpack2TempIdentify.class);
 
-            job.setMapperClass(Unpack2TempIdentify.ContainerItemIdentificationMapper.class);
+            if (config.getNumMapThreads() > 1) {
+                // the map threads share the identification resources of the JVM
+                job.setMapperClass(Unpack2TempIdentify.ContainerItemIdentificationMultithreadedMapper.class);
+                MultithreadedMapper.setMapperClass(job, Unpack2TempIdentify.ContainerItemIdentificationMapper.class);
+                MultithreadedMapper.setNumberOfThreads(job, config.getNumMapThreads());
+            } else {
+                job.setMapperClass(Unpack2TempIdentify.ContainerItemIdentificationMapper.class);
+            }
             job.setReducerClass(Unpack2TempIdentify.ContainerItemIdentificationReducer.class);
 
             job.setInputFormatClass(TextInputFormat.class);
@@ -229,16 +362,25 @@ public class Unpack2TempIdentify {
         }
     }
 
-    private Container createContainer(InputStream containerFileStream, String containerFileName) throws IOException {
-        Container container;
+    private Container newContainer(String containerFileName) {
         if (containerFileName.endsWith(".arc.gz") || containerFileName.endsWith(".arc")) {
-            container = new ArcContainer();
+            return new ArcContainer();
         } else if (containerFileName.endsWith(".zip")) {
-            container = new ZipContainer();
+            return new ZipContainer();
         } else {
             LOG.warn("Unsupported file skipped: " + containerFileName);
             return null;
         }
+    }
+
+    private Container createContainer(InputStream containerFileStream, String containerFileName, boolean inMemory,
+            int maxContentLength) throws IOException {
+        Container container = newContainer(containerFileName);
+        if (container == null) {
+            return null;
+        }
+        container.setInMemory(inMemory);
+        container.setMaxContentLength(maxContentLength);
         container.init(containerFileName, containerFileStream);
         return container;
     }
@@ -246,30 +388,112 @@ public class Unpack2TempIdentify {
     /**
      * Apply identification stack
      *
-     * @param containerFileStream Content of the container file
-     * @param containerFileName File name
-     * @param context Hadoop context (only for Hadoop job execution)
+     * @param container Initialised container
+     * @param inMemory Identify the item contents held in memory instead of
+     * the temporary files
+     * @param numThreads Number of worker threads, the identifiers are applied
+     * concurrently if greater than one
+     * @param mos Hadoop multiple outputs (only for Hadoop job execution)
      * @throws FileNotFoundException Exception if the container file cannot be
      * found
      * @throws IOException I/O Exception
      */
-    private void performIdentification(Container container, MultipleOutputs mos) throws FileNotFoundException, IOException, InterruptedException {
-        if (ctx == null) {
-            ctx = new ClassPathXmlApplicationContext(SPRING_CONFIG_RESOURCE_PATH);
+    private void performIdentification(Container container, boolean inMemory, int numThreads, MultipleOutputs mos) throws FileNotFoundException, IOException, InterruptedException {
+        if (container == null) {
+            return;
+        }
+        if (numThreads > 1) {
+            ConcurrentIdentification concurrentIdentification = new ConcurrentIdentification(
+                    identificationStack.getIdentifiers(), numThreads);
+            try {
+                HashMap<String, List<String>> resultMap;
+                if (inMemory) {
+                    resultMap = concurrentIdentification.identifyItemContents(container.getItemContentMap());
+                } else {
+                    resultMap = concurrentIdentification.identifyFileList(container.getBidiIdentifierFilenameMap());
+                }
+                writeResult(resultMap, mos);
+            } finally {
+                concurrentIdentification.shutdown();
+            }
+            return;
         }
-        IdentifierCollection identificationStack = (IdentifierCollection) ctx.getBean("identificationStack");
         for (Identification identifierItem : identificationStack.getIdentifiers()) {
             Identification fli = (Identification) identifierItem;
-            OutWritable outWriter = (OutWritable) ctx.getBean("outWriterBean");
-            HashMap<String, List<String>> identifyFileList = fli.identifyFileList(container.getBidiIdentifierFilenameMap());
-            if (mos != null) {
-                outWriter.write(identifyFileList, mos);
+            HashMap<String, List<String>> identifyFileList;
+            if (inMemory) {
+                identifyFileList = fli.identifyItemContents(container.getItemContentMap());
             } else {
-                if(config.getOutputStr() != null) {
-                    outWriter.setOutputFilePath(config.getOutputStr());
+                identifyFileList = fli.identifyFileList(container.getBidiIdentifierFilenameMap());
+            }
+            writeResult(identifyFileList, mos);
+        }
+    }
+
+    /**
+     * Apply identification stack in streaming mode. The container items are
+     * read one after the other, each item is identified by all identifiers of
+     * the stack and the result is written before the next item is read.
+     *
+     * @param containerFileStream Content of the container file
+     * @param containerFileName File name
+     * @param maxContentLength Maximum number of bytes per item held in memory
+     * @param numThreads Number of worker threads, the identifiers are applied
+     * concurrently if greater than one
+     * @param mos Hadoop multiple outputs (only for Hadoop job execution)
+     * @throws IOException I/O Exception
+     */
+    private void performStreamingIdentification(InputStream containerFileStream, String containerFileName,
+            int maxContentLength, int numThreads, final MultipleOutputs mos) throws IOException, InterruptedException {
+        Container container = newContainer(containerFileName);
+        if (container == null) {
+            return;
+        }
+        container.setMaxContentLength(maxContentLength);
+        final Collection<Identification> identifiers = identificationStack.getIdentifiers();
+        if (numThreads > 1) {
+            final ConcurrentIdentification concurrentIdentification = new ConcurrentIdentification(identifiers,
+                    numThreads);
+            try {
+                container.stream(containerFileName, containerFileStream, new ItemHandler() {
+                    @Override
+                    public void handle(String recordKey, ItemContent content) throws IOException, InterruptedException {
+                        writeResult(concurrentIdentification.identifyItem(recordKey, content), mos);
+                    }
+                });
+            } finally {
+                concurrentIdentification.shutdown();
+            }
+            return;
+        }
+        container.stream(containerFileName, containerFileStream, new ItemHandler() {
+            @Override
+            public void handle(String recordKey, ItemContent content) throws IOException, InterruptedException {
+                for (Identification fli : identifiers) {
+                    writeResult(fli.identifyItem(recordKey, content), mos);
                 }
-                outWriter.write(identifyFileList);
             }
+        });
+    }
+
+    /**
+     * Write identification result. The multiple outputs may be shared by the
+     * threads of a MultithreadedMapper, writing is synchronized on the
+     * multiple outputs.
+     *
+     * @param resultMap Output { "recordkey": [ "tool/property/value" ] }
+     * @param mos Hadoop multiple outputs (only for Hadoop job execution)
+     */
+    private void writeResult(HashMap<String, List<String>> resultMap, MultipleOutputs mos) {
+        if (mos != null) {
+            synchronized (mos) {
+                outWriter.write(resultMap, mos);
+            }
+        } else {
+            if(config.getOutputStr() != null) {
+                outWriter.setOutputFilePath(config.getOutputStr());
+            }
+            outWriter.write(resultMap);
         }
     }
 
@@ -289,8 +513,18 @@ public class Unpack2TempIdentify {
         } else if (!dirStructItem.isDirectory()) {
             File arcFile = new File(dirStructItem.getAbsolutePath());
             FileInputStream fileInputStream = new FileInputStream(arcFile);
-            Container container = createContainer(fileInputStream, arcFile.getName());
-            performIdentification(container, null);
+            try {
+                if (config.isStreaming()) {
+                    performStreamingIdentification(fileInputStream, arcFile.getName(), config.getMaxContentLength(),
+                            config.getNumThreads(), null);
+                } else {
+                    Container container = createContainer(fileInputStream, arcFile.getName(), config.isInMemory(),
+                            config.getMaxContentLength());
+                    performIdentification(container, config.isInMemory(), config.getNumThreads(), null);
+                }
+            } finally {
+                fileInputStream.close();
+            }
         }
     }
 }
@@ -17,6 +17,7 @@
 package eu.scape_project.up2ti.cli;
 
 import eu.scape_project.hawarp.cli.CliConfig;
+import eu.scape_project.up2ti.container.ItemContent;
 
 
 /**
@@ -29,6 +30,16 @@ public class Up2tiCliConfig extends CliConfig {
 
     private String springConfig;
 
+    private boolean inMemory;
+
+    private int maxContentLength = ItemContent.DEFAULT_MAX_CONTENT_LENGTH;
+
+    private boolean streaming;
+
+    private int numThreads = 1;
+
+    private int numMapThreads = 1;
+
     public String getSpringConfig() {
         return springConfig;
     }
@@ -37,4 +48,44 @@ public class Up2tiCliConfig extends CliConfig {
         this.springConfig = springConfig;
     }
 
+    public boolean isInMemory() {
+        return inMemory;
+    }
+
+    public void setInMemory(boolean inMemory) {
+        this.inMemory = inMemory;
+    }
+
+    public int getMaxContentLength() {
+        return maxContentLength;
+    }
+
+    public void setMaxContentLength(int maxContentLength) {
+        this.maxContentLength = maxContentLength;
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    public void setNumThreads(int numThreads) {
+        this.numThreads = numThreads;
+    }
+
+    public int getNumMapThreads() {
+        return numMapThreads;
+    }
+
+    public void setNumMapThreads(int numMapThreads) {
+        this.numMapThreads = numMapThreads;
+    }
+
 }
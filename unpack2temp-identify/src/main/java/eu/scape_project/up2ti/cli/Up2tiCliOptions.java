@@ -33,12 +33,37 @@ public class Up2tiCliOptions extends CliOptions {
     public String SPRING_FLG = "s";
     public String SPRING_OPT = "springconfig";
     public String SPRING_OPT_DESC = "Spring configuration XML file [optional].";
+
+    public String INMEMORY_FLG = "m";
+    public String INMEMORY_OPT = "inmemory";
+    public String INMEMORY_OPT_DESC = "Identify container items in memory instead of extracting them to temporary files [optional].";
+
+    public String STREAMING_FLG = "t";
+    public String STREAMING_OPT = "streaming";
+    public String STREAMING_OPT_DESC = "Identify and output container items one after the other while reading the container, items are held in memory [optional].";
+
+    public String NUMTHREADS_FLG = "n";
+    public String NUMTHREADS_OPT = "numthreads";
+    public String NUMTHREADS_OPT_DESC = "Number of worker threads, the identification tools are executed concurrently if greater than 1, default: 1 [optional].";
+
+    public String MAPTHREADS_FLG = "w";
+    public String MAPTHREADS_OPT = "mapthreads";
+    public String MAPTHREADS_OPT_DESC = "Number of map threads per map task of the Hadoop job (MultithreadedMapper), default: 1 [optional].";
+
+    public String MAXCONTENT_FLG = "b";
+    public String MAXCONTENT_OPT = "maxcontentlength";
+    public String MAXCONTENT_OPT_DESC = "Maximum number of bytes per item held in memory, default: 1048576 [optional].";
     
     public Up2tiCliOptions() {
         super();
         options.addOption(SPRING_FLG, SPRING_OPT, true, SPRING_OPT_DESC);
         options.addOption(OUTPUT_FLG, OUTPUT_OPT, true, OUTPUT_OPT_DESC);
         options.addOption(LOCAL_FLG, LOCAL_OPT, false, LOCAL_OPT_DESC);
+        options.addOption(INMEMORY_FLG, INMEMORY_OPT, false, INMEMORY_OPT_DESC);
+        options.addOption(STREAMING_FLG, STREAMING_OPT, false, STREAMING_OPT_DESC);
+        options.addOption(NUMTHREADS_FLG, NUMTHREADS_OPT, true, NUMTHREADS_OPT_DESC);
+        options.addOption(MAPTHREADS_FLG, MAPTHREADS_OPT, true, MAPTHREADS_OPT_DESC);
+        options.addOption(MAXCONTENT_FLG, MAXCONTENT_OPT, true, MAXCONTENT_OPT_DESC);
     }
     
     public void initOptions(CommandLine cmd, Up2tiCliConfig pc) {
@@ -55,6 +80,59 @@ public class Up2tiCliOptions extends CliOptions {
             LOG.debug("Spring configuration : " + springConfig);
         }
 
+        // In-memory identification
+        if (cmd.hasOption(INMEMORY_OPT)) {
+            pc.setInMemory(true);
+            LOG.debug("In-memory identification");
+        }
+
+        // Streaming identification
+        if (cmd.hasOption(STREAMING_OPT)) {
+            pc.setStreaming(true);
+            LOG.debug("Streaming identification");
+        }
+
+        // Number of worker threads
+        if (cmd.hasOption(NUMTHREADS_OPT) && cmd.getOptionValue(NUMTHREADS_OPT) != null) {
+            try {
+                int numThreads = Integer.parseInt(cmd.getOptionValue(NUMTHREADS_OPT));
+                if (numThreads <= 0) {
+                    exit("Number of threads must be a positive number.", 1);
+                }
+                pc.setNumThreads(numThreads);
+                LOG.debug("Number of threads: " + numThreads);
+            } catch (NumberFormatException ex) {
+                exit("Invalid number of threads: " + cmd.getOptionValue(NUMTHREADS_OPT), 1);
+            }
+        }
+
+        // Number of map threads
+        if (cmd.hasOption(MAPTHREADS_OPT) && cmd.getOptionValue(MAPTHREADS_OPT) != null) {
+            try {
+                int numMapThreads = Integer.parseInt(cmd.getOptionValue(MAPTHREADS_OPT));
+                if (numMapThreads <= 0) {
+                    exit("Number of map threads must be a positive number.", 1);
+                }
+                pc.setNumMapThreads(numMapThreads);
+                LOG.debug("Number of map threads: " + numMapThreads);
+            } catch (NumberFormatException ex) {
+                exit("Invalid number of map threads: " + cmd.getOptionValue(MAPTHREADS_OPT), 1);
+            }
+        }
+
+        // Maximum content length
+        if (cmd.hasOption(MAXCONTENT_OPT) && cmd.getOptionValue(MAXCONTENT_OPT) != null) {
+            try {
+                int maxContentLength = Integer.parseInt(cmd.getOptionValue(MAXCONTENT_OPT));
+                if (maxContentLength <= 0) {
+                    exit("Maximum content length must be a positive number.", 1);
+                }
+                pc.setMaxContentLength(maxContentLength);
+                LOG.debug("Maximum content length: " + maxContentLength);
+            } catch (NumberFormatException ex) {
+                exit("Invalid maximum content length: " + cmd.getOptionValue(MAXCONTENT_OPT), 1);
+            }
+        }
         
     }
 
@@ -22,6 +22,8 @@ import java.io.InputStream;
 import java.io.PushbackInputStream;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 import org.apache.commons.collections.bidimap.DualHashBidiMap;
 import org.apache.commons.lang.RandomStringUtils;
@@ -49,6 +51,12 @@ public class ArcContainer extends DualHashBidiMap implements Container {
     
     private String containerFileName;
 
+    private boolean inMemory;
+
+    private int maxContentLength = ItemContent.DEFAULT_MAX_CONTENT_LENGTH;
+
+    private final Map<String, ItemContent> itemContentMap = new LinkedHashMap<String, ItemContent>();
+
     @Override
     public String getExtractDirectoryName() {
         return extractDirectoryName;
@@ -80,6 +88,51 @@ public class ArcContainer extends DualHashBidiMap implements Container {
     @Override
     public void init(String containerFileName, InputStream containerFileStream) throws IOException {
         this.containerFileName = containerFileName;
+        reader = openReader(containerFileStream);
+        archiveRecords = new ArrayList<ArcRecordBase>();
+        if (inMemory) {
+            // initialise object by reading the record contents into memory
+            arcRecContentsToMemory();
+        } else {
+            // initialise object by create temporary files and the bidirectional
+            // file-record map.
+            arcRecContentsToTempFiles();
+        }
+    }
+
+    @Override
+    public void stream(String containerFileName, InputStream containerFileStream, ItemHandler handler)
+            throws IOException, InterruptedException {
+        this.containerFileName = containerFileName;
+        reader = openReader(containerFileStream);
+        Iterator<ArcRecordBase> recordIterator = reader.iterator();
+        try {
+            // the record is closed by the reader when the next record is read,
+            // nothing is kept once the handler has returned
+            while (recordIterator.hasNext()) {
+                ArcRecordBase arcRecord = recordIterator.next();
+                String recordIdentifier = arcRecord.getUrlStr();
+                String recordKey = containerFileName + "/" + arcRecord.getArchiveDateStr() + "/" + recordIdentifier;
+                if (arcRecord.hasPayload()) {
+                    long size = arcRecord.getPayload().getRemaining();
+                    handler.handle(recordKey, ItemContent.read(recordIdentifier, arcRecord.getPayloadContent(), size,
+                            maxContentLength));
+                }
+            }
+        } catch (RuntimeException ex) {
+            LOG.error("ARC reader error, skipped.", ex);
+        }
+    }
+
+    /**
+     * Open ARC reader, compressed or uncompressed depending on the first
+     * bytes of the stream.
+     *
+     * @param containerFileStream File stream of the container file
+     * @return ARC reader
+     * @throws IOException IO Error
+     */
+    private static ArcReader openReader(InputStream containerFileStream) throws IOException {
         // Read first two bytes to check if we have a gzipped input stream
         PushbackInputStream pb = new PushbackInputStream(containerFileStream, 2);
         byte[] signature = new byte[2];
@@ -87,14 +140,10 @@ public class ArcContainer extends DualHashBidiMap implements Container {
         pb.unread(signature);
         // use compressed reader if gzip magic number is matched
         if (signature[ 0] == (byte) 0x1f && signature[ 1] == (byte) 0x8b) {
-            reader = ArcReaderFactory.getReaderCompressed(pb);
+            return ArcReaderFactory.getReaderCompressed(pb);
         } else {
-            reader = ArcReaderFactory.getReaderUncompressed(pb);
+            return ArcReaderFactory.getReaderUncompressed(pb);
         }
-        archiveRecords = new ArrayList<ArcRecordBase>();
-        // initialise object by create temporary files and the bidirectional 
-        // file-record map.
-        arcRecContentsToTempFiles();
     }
 
     @Override
@@ -102,6 +151,29 @@ public class ArcContainer extends DualHashBidiMap implements Container {
         return this;
     }
 
+    @Override
+    public Map<String, ItemContent> getItemContentMap() {
+        return itemContentMap;
+    }
+
+    public boolean isInMemory() {
+        return inMemory;
+    }
+
+    @Override
+    public void setInMemory(boolean inMemory) {
+        this.inMemory = inMemory;
+    }
+
+    public int getMaxContentLength() {
+        return maxContentLength;
+    }
+
+    @Override
+    public void setMaxContentLength(int maxContentLength) {
+        this.maxContentLength = maxContentLength;
+    }
+
     public ArrayList<ArcRecordBase> getArchiveRecords() {
         return archiveRecords;
     }
@@ -138,4 +210,33 @@ public class ArcContainer extends DualHashBidiMap implements Container {
         }
     }
 
+    /**
+     * Read the beginning of the record contents into memory and create the
+     * record-content map. No temporary files are created, the payload beyond
+     * the maximum content length is skipped by the reader.
+     *
+     * @throws IOException IO Error
+     */
+    private void arcRecContentsToMemory() throws IOException {
+        Iterator<ArcRecordBase> recordIterator = reader.iterator();
+        try {
+            // K: Record key V: Record content
+            while (recordIterator.hasNext()) {
+                ArcRecordBase arcRecord = recordIterator.next();
+                String archiveDateStr = arcRecord.getArchiveDateStr();
+                archiveRecords.add(arcRecord);
+                String recordIdentifier = arcRecord.getUrlStr();
+                String recordKey = containerFileName + "/" + archiveDateStr + "/" + recordIdentifier;
+                if (arcRecord.hasPayload()) {
+                    long size = arcRecord.getPayload().getRemaining();
+                    ItemContent content = ItemContent.read(recordIdentifier, arcRecord.getPayloadContent(), size,
+                            maxContentLength);
+                    itemContentMap.put(recordKey, content);
+                }
+            }
+        } catch (RuntimeException ex) {
+            LOG.error("ARC reader error, skipped.", ex);
+        }
+    }
+
 }
@@ -18,6 +18,7 @@ package eu.scape_project.up2ti.container;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Map;
 import org.apache.commons.collections.bidimap.DualHashBidiMap;
 
 /**
@@ -33,7 +34,10 @@ public interface Container {
      * input stream. The bidirectional map must use some item identifier as key
      * and a temporary file name pointing to an existing file as value. The data
      * structure must be initialised before the bidirectional HashMap is
-     * accessed, see {@link #getBidiIdentifierFilenameMap()}.
+     * accessed, see {@link #getBidiIdentifierFilenameMap()}. In in-memory
+     * mode, the container instead initialises a map from the item identifier
+     * to the item content, see {@link #getItemContentMap()}, and no temporary
+     * files are created.
      *
      * @param containerFileName File name of the container file
      * @param containerFileStream File stream of the container file
@@ -41,6 +45,22 @@ public interface Container {
      */
     public void init(String containerFileName, InputStream containerFileStream) throws IOException;
 
+    /**
+     * Read the container items one after the other and pass each item to the
+     * handler. Only the item currently handled is held in memory (at most the
+     * maximum content length, see {@link #setMaxContentLength(int)}), neither
+     * temporary files nor the maps of the container are created. This is an
+     * alternative to {@link #init(String, InputStream)}.
+     *
+     * @param containerFileName File name of the container file
+     * @param containerFileStream File stream of the container file
+     * @param handler Item handler
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public void stream(String containerFileName, InputStream containerFileStream, ItemHandler handler)
+            throws IOException, InterruptedException;
+
     /**
      * Get bidirectional map (DualHashBidiMap). The bidirectional map has one
      * value per key and one key per value which is a strict 1:1 relationship.
@@ -49,6 +69,31 @@ public interface Container {
      * @return bidirectional map (DualHashBidiMap)
      */
     public DualHashBidiMap getBidiIdentifierFilenameMap();
+
+    /**
+     * Get map of item identifiers to item contents held in memory. The map is
+     * only filled if the container is initialised in in-memory mode, see
+     * {@link #setInMemory(boolean)}, otherwise it is empty.
+     *
+     * @return Map { "recordkey": item content }
+     */
+    public Map<String, ItemContent> getItemContentMap();
+
+    /**
+     * Keep the items in memory instead of extracting them to temporary files.
+     * Must be set before the container is initialised.
+     *
+     * @param inMemory In-memory mode
+     */
+    public void setInMemory(boolean inMemory);
+
+    /**
+     * Maximum number of bytes per item held in memory in in-memory mode.
+     * Must be set before the container is initialised.
+     *
+     * @param maxContentLength Maximum number of bytes
+     */
+    public void setMaxContentLength(int maxContentLength);
     
     /**
      * Directory where container files are extracted to. The files of a 
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2012 The SCAPE Project Consortium.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * under the License.
+ */
+package eu.scape_project.up2ti.container;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Content of a container item held in memory. Only the first bytes of the
+ * item (at most the maximum content length given when reading the item) are
+ * kept, which is sufficient for the identification tools as they mainly look
+ * at the beginning of a file. The content can be read any number of times,
+ * see {@link #getInputStream()}.
+ *
+ * @author Sven Schlarb https://github.com/shsdev
+ * @version 0.1
+ */
+public class ItemContent {
+
+    /**
+     * Default maximum number of bytes kept per item (1 MB)
+     */
+    public static final int DEFAULT_MAX_CONTENT_LENGTH = 1048576;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final String name;
+
+    private final byte[] data;
+
+    private final int length;
+
+    private final long size;
+
+    /**
+     * Constructor
+     *
+     * @param name Item name
+     * @param data Content buffer
+     * @param length Number of valid bytes in the content buffer
+     * @param size Size of the complete item in bytes, -1 if unknown
+     */
+    public ItemContent(String name, byte[] data, int length, long size) {
+        this.name = name;
+        this.data = data;
+        this.length = length;
+        this.size = size;
+    }
+
+    /**
+     * Read the content of an item from the input stream. At most
+     * maxContentLength bytes are read, the rest of the item is left in the
+     * stream.
+     *
+     * @param name Item name
+     * @param in Input stream positioned at the beginning of the item
+     * @param size Size of the complete item in bytes, -1 if unknown
+     * @param maxContentLength Maximum number of bytes to keep
+     * @return Item content
+     * @throws IOException I/O Error
+     */
+    public static ItemContent read(String name, InputStream in, long size, int maxContentLength) throws IOException {
+        int capacity = (size >= 0 && size < maxContentLength) ? (int) size : Math.min(maxContentLength, BUFFER_SIZE);
+        byte[] data = new byte[capacity];
+        int length = 0;
+        while (length < maxContentLength && length != size) {
+            if (length == data.length) {
+                data = Arrays.copyOf(data, (int) Math.min((long) maxContentLength, 2L * data.length));
+            }
+            int read = in.read(data, length, data.length - length);
+            if (read == -1) {
+                break;
+            }
+            length += read;
+        }
+        return new ItemContent(name, data, length, size);
+    }
+
+    /**
+     * Item name
+     *
+     * @return Item name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Content buffer, only the first {@link #getLength()} bytes are valid.
+     *
+     * @return Content buffer
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    /**
+     * Number of bytes held in memory
+     *
+     * @return Number of bytes
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Size of the complete item
+     *
+     * @return Size in bytes, -1 if unknown
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * True if only the beginning of the item is held in memory.
+     *
+     * @return True if the content is truncated
+     */
+    public boolean isTruncated() {
+        return size > length;
+    }
+
+    /**
+     * New input stream on the content held in memory.
+     *
+     * @return Input stream
+     */
+    public InputStream getInputStream() {
+        return new ByteArrayInputStream(data, 0, length);
+    }
+
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2012 The SCAPE Project Consortium.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * under the License.
+ */
+package eu.scape_project.up2ti.container;
+
+import java.io.IOException;
+
+/**
+ * Interface which must be implemented by a handler of container items in
+ * streaming mode, see {@link Container#stream(String, java.io.InputStream, ItemHandler)}.
+ *
+ * @author Sven Schlarb https://github.com/shsdev
+ * @version 0.1
+ */
+public interface ItemHandler {
+
+    /**
+     * Handle a container item. The item content is only valid during the
+     * call, the container reads the next item after the handler returns.
+     *
+     * @param recordKey Record key
+     * @param content Item content
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public void handle(String recordKey, ItemContent content) throws IOException, InterruptedException;
+}
@@ -16,6 +16,8 @@
 package eu.scape_project.up2ti.container;
 
 import java.io.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.zip.ZipEntry;
 import org.apache.commons.collections.bidimap.DualHashBidiMap;
@@ -40,6 +42,12 @@ public class ZipContainer extends DualHashBidiMap implements Container {
     
     private String extractDirectoryName;
 
+    private boolean inMemory;
+
+    private int maxContentLength = ItemContent.DEFAULT_MAX_CONTENT_LENGTH;
+
+    private final Map<String, ItemContent> itemContentMap = new LinkedHashMap<String, ItemContent>();
+
     @Override
     public String getExtractDirectoryName() {
         return extractDirectoryName;
@@ -70,7 +78,27 @@ public class ZipContainer extends DualHashBidiMap implements Container {
 
     @Override
     public void init(String containerFileName, InputStream containerFileStream) throws IOException {
-        unzip(containerFileName,containerFileStream);
+        if (inMemory) {
+            unzipToMemory(containerFileName, containerFileStream);
+        } else {
+            unzip(containerFileName,containerFileStream);
+        }
+    }
+
+    @Override
+    public void stream(String containerFileName, InputStream containerFileStream, ItemHandler handler)
+            throws IOException, InterruptedException {
+        ZipInputStream zipIn = new ZipInputStream(containerFileStream);
+        ZipEntry entry = zipIn.getNextEntry();
+        while (entry != null) {
+            if (!entry.isDirectory()) {
+                String recordKey = containerFileName + "/" + entry.getName();
+                handler.handle(recordKey, ItemContent.read(entry.getName(), zipIn, entry.getSize(), maxContentLength));
+            }
+            zipIn.closeEntry();
+            entry = zipIn.getNextEntry();
+        }
+        zipIn.close();
     }
 
     @Override
@@ -78,6 +106,29 @@ public class ZipContainer extends DualHashBidiMap implements Container {
         return this;
     }
 
+    @Override
+    public Map<String, ItemContent> getItemContentMap() {
+        return itemContentMap;
+    }
+
+    public boolean isInMemory() {
+        return inMemory;
+    }
+
+    @Override
+    public void setInMemory(boolean inMemory) {
+        this.inMemory = inMemory;
+    }
+
+    public int getMaxContentLength() {
+        return maxContentLength;
+    }
+
+    @Override
+    public void setMaxContentLength(int maxContentLength) {
+        this.maxContentLength = maxContentLength;
+    }
+
     /**
      * Extracts a zip file specified by the zipFilePath to a directory specified by
      * destDirectory (will be created if does not exists)
@@ -107,6 +158,27 @@ public class ZipContainer extends DualHashBidiMap implements Container {
         }
         zipIn.close();
     }
+
+    /**
+     * Reads the beginning of each zip entry into memory, the record key is
+     * the container file name followed by the entry name.
+     * @param containerFileName
+     * @param containerFileStream
+     * @throws IOException
+     */
+    public void unzipToMemory(String containerFileName, InputStream containerFileStream) throws IOException {
+        ZipInputStream zipIn = new ZipInputStream(containerFileStream);
+        ZipEntry entry = zipIn.getNextEntry();
+        while (entry != null) {
+            if (!entry.isDirectory()) {
+                String recordKey = containerFileName + "/" + entry.getName();
+                itemContentMap.put(recordKey, ItemContent.read(entry.getName(), zipIn, entry.getSize(), maxContentLength));
+            }
+            zipIn.closeEntry();
+            entry = zipIn.getNextEntry();
+        }
+        zipIn.close();
+    }
     /**
      * Extracts a zip entry (file entry)
      * @param zipIn
@@ -0,0 +1,196 @@
+/*
+ *  Copyright 2012 The SCAPE Project Consortium.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package eu.scape_project.up2ti.identifiers;
+
+import eu.scape_project.up2ti.container.ItemContent;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.commons.collections.bidimap.DualHashBidiMap;
+
+/**
+ * Concurrent execution of an identification stack. The identifiers of the
+ * stack are applied in parallel on a pool of worker threads and the results
+ * of the identifiers are merged per record key, the value lists are ordered
+ * as the identifiers in the stack. The identifiers must be thread-safe.
+ *
+ * @author Sven Schlarb https://github.com/shsdev
+ * @version 0.1
+ */
+public class ConcurrentIdentification {
+
+    private final Collection<Identification> identifiers;
+
+    private final ExecutorService executor;
+
+    private final int numThreads;
+
+    /**
+     * Constructor
+     *
+     * @param identifiers Identification stack
+     * @param numThreads Number of worker threads
+     */
+    public ConcurrentIdentification(Collection<Identification> identifiers, int numThreads) {
+        this.identifiers = identifiers;
+        this.numThreads = numThreads;
+        this.executor = Executors.newFixedThreadPool(numThreads);
+    }
+
+    /**
+     * File list identification. Each identifier processes the complete file
+     * list in its own task, see
+     * {@link Identification#identifyFileList(DualHashBidiMap)}, as some
+     * identifiers process the file list in one batch.
+     *
+     * @param fileRecidBidiMap Input { "recordkey" <-> "tempfilename" }
+     * @return Output { "recordkey": [ "tool/property/value" ] }
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public HashMap<String, List<String>> identifyFileList(final DualHashBidiMap fileRecidBidiMap)
+            throws IOException, InterruptedException {
+        List<Future<HashMap<String, List<String>>>> futures = new ArrayList<Future<HashMap<String, List<String>>>>();
+        for (final Identification identification : identifiers) {
+            futures.add(executor.submit(new Callable<HashMap<String, List<String>>>() {
+                @Override
+                public HashMap<String, List<String>> call() throws IOException {
+                    return identification.identifyFileList(fileRecidBidiMap);
+                }
+            }));
+        }
+        return merge(futures);
+    }
+
+    /**
+     * Identification of items held in memory. The items are split into one
+     * part per worker thread and each identifier processes each part in its
+     * own task, see {@link Identification#identifyItemContents(Map)}, as some
+     * identifiers process the items in batches.
+     *
+     * @param itemContentMap Input { "recordkey": item content }
+     * @return Output { "recordkey": [ "tool/property/value" ] }
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public HashMap<String, List<String>> identifyItemContents(Map<String, ItemContent> itemContentMap)
+            throws IOException, InterruptedException {
+        List<Map<String, ItemContent>> parts = new ArrayList<Map<String, ItemContent>>();
+        int partSize = Math.max(1, (itemContentMap.size() + numThreads - 1) / numThreads);
+        Map<String, ItemContent> part = null;
+        for (Map.Entry<String, ItemContent> entry : itemContentMap.entrySet()) {
+            if (part == null || part.size() == partSize) {
+                part = new LinkedHashMap<String, ItemContent>();
+                parts.add(part);
+            }
+            part.put(entry.getKey(), entry.getValue());
+        }
+        List<Future<HashMap<String, List<String>>>> futures = new ArrayList<Future<HashMap<String, List<String>>>>();
+        for (final Identification identification : identifiers) {
+            for (final Map<String, ItemContent> itemContentPart : parts) {
+                futures.add(executor.submit(new Callable<HashMap<String, List<String>>>() {
+                    @Override
+                    public HashMap<String, List<String>> call() throws IOException {
+                        return identification.identifyItemContents(itemContentPart);
+                    }
+                }));
+            }
+        }
+        return merge(futures);
+    }
+
+    /**
+     * Identification of a single item held in memory by all identifiers in
+     * parallel, used in streaming mode.
+     *
+     * @param recordKey Record key
+     * @param content Item content
+     * @return Output { "recordkey": [ "tool/property/value" ] }
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public HashMap<String, List<String>> identifyItem(String recordKey, ItemContent content)
+            throws IOException, InterruptedException {
+        List<Future<HashMap<String, List<String>>>> futures = new ArrayList<Future<HashMap<String, List<String>>>>();
+        submitItem(futures, recordKey, content);
+        return merge(futures);
+    }
+
+    /**
+     * Stop the worker threads, running identification tasks are completed.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void submitItem(List<Future<HashMap<String, List<String>>>> futures, final String recordKey,
+            final ItemContent content) {
+        for (final Identification identification : identifiers) {
+            futures.add(executor.submit(new Callable<HashMap<String, List<String>>>() {
+                @Override
+                public HashMap<String, List<String>> call() throws IOException {
+                    return identification.identifyItem(recordKey, content);
+                }
+            }));
+        }
+    }
+
+    /**
+     * Wait for the identification tasks and merge the results in the order of
+     * the tasks. If a task fails, the remaining tasks are cancelled.
+     */
+    private HashMap<String, List<String>> merge(List<Future<HashMap<String, List<String>>>> futures)
+            throws IOException, InterruptedException {
+        HashMap<String, List<String>> resultMap = new HashMap<String, List<String>>();
+        try {
+            for (Future<HashMap<String, List<String>>> future : futures) {
+                for (Map.Entry<String, List<String>> entry : future.get().entrySet()) {
+                    List<String> valueLineList = resultMap.get(entry.getKey());
+                    if (valueLineList == null) {
+                        resultMap.put(entry.getKey(), new ArrayList<String>(entry.getValue()));
+                    } else {
+                        valueLineList.addAll(entry.getValue());
+                    }
+                }
+            }
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            for (Future<HashMap<String, List<String>>> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return resultMap;
+    }
+}
@@ -18,6 +18,7 @@ package eu.scape_project.up2ti.identifiers;
 
 import static eu.scape_project.hawarp.interfaces.Identifier.MIME_UNKNOWN;
 
+import eu.scape_project.up2ti.container.ItemContent;
 import java.io.*;
 import java.net.URI;
 import java.util.HashMap;
@@ -34,6 +35,7 @@ import uk.gov.nationalarchives.droid.core.interfaces.IdentificationResultCollect
 import uk.gov.nationalarchives.droid.core.interfaces.RequestIdentifier;
 import uk.gov.nationalarchives.droid.core.interfaces.resource.FileSystemIdentificationRequest;
 import uk.gov.nationalarchives.droid.core.interfaces.resource.RequestMetaData;
+import uk.gov.nationalarchives.droid.core.interfaces.resource.ZipEntryIdentificationRequest;
 
 import org.springframework.core.io.Resource;
 
@@ -86,20 +88,45 @@ public class DroidIdentification extends Identification {
      */
     @Override
     public HashMap<String, String> identify(File file) throws FileNotFoundException {
-        HashMap<String, String> droidIdRes = new HashMap<String, String>();
-        InputStream in = null;
-        IdentificationRequest request = null;
+        URI resourceUri = file.toURI();
+        LOG.debug("Identification of resource: " + resourceUri.toString());
+        RequestMetaData metaData = new RequestMetaData(file.length(), file.lastModified(), file.getName());
+        LOG.debug("File length: " + file.length());
+        LOG.debug("File modified: " + file.lastModified());
+        LOG.debug("File name: " + file.getName());
+        RequestIdentifier identifier = new RequestIdentifier(resourceUri);
+        IdentificationRequest request = new FileSystemIdentificationRequest(metaData, identifier);
+        return identify(request, new FileInputStream(file));
+    }
+
+    /**
+     * Run droid identification on the item content held in memory. The
+     * request used for zip entries keeps small contents in memory, the item
+     * content is limited by the maximum content length of the container.
+     *
+     * @param content Item content
+     * @return Result list
+     */
+    @Override
+    public HashMap<String, String> identify(ItemContent content) {
+        URI resourceUri = URI.create("up2ti:" + Integer.toHexString(System.identityHashCode(content)));
+        RequestMetaData metaData = new RequestMetaData((long) content.getLength(), null, content.getName());
+        RequestIdentifier identifier = new RequestIdentifier(resourceUri);
+        IdentificationRequest request = new ZipEntryIdentificationRequest(metaData, identifier,
+                new File(System.getProperty("java.io.tmpdir")));
+        return identify(request, content.getInputStream());
+    }
 
+    /**
+     * Run droid identification request
+     *
+     * @param request Identification request
+     * @param in Input stream of the resource
+     * @return Result list
+     */
+    private HashMap<String, String> identify(IdentificationRequest request, InputStream in) {
+        HashMap<String, String> droidIdRes = new HashMap<String, String>();
         try {
-            URI resourceUri = file.toURI();
-            in = new FileInputStream(file);
-            LOG.debug("Identification of resource: " + resourceUri.toString());
-            RequestMetaData metaData = new RequestMetaData(file.length(), file.lastModified(), file.getName());
-            LOG.debug("File length: " + file.length());
-            LOG.debug("File modified: " + file.lastModified());
-            LOG.debug("File name: " + file.getName());
-            RequestIdentifier identifier = new RequestIdentifier(resourceUri);
-            request = new FileSystemIdentificationRequest(metaData, identifier);
             request.open(in);
             IdentificationResultCollection results = bsi.matchBinarySignatures(request);
             bsi.removeLowerPriorityHits(results);
@@ -126,8 +153,6 @@ public class DroidIdentification extends Identification {
                     }
                 }
             }
-            in.close();
-            request.close();
         } catch (IOException ex) {
             LOG.error("I/O Exception", ex);
         } finally {
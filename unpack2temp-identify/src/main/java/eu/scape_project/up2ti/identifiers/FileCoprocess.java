@@ -0,0 +1,131 @@
+/*
+ *  Copyright 2012 The SCAPE Project Consortium.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package eu.scape_project.up2ti.identifiers;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Long-lived process of the unix tool "file" which reads file names from the
+ * standard input (file -f -). The process is started with the options -b
+ * (brief output without the file name) and -n (flush the output after each
+ * file), so that it writes exactly one result line per file name and the
+ * results are assigned to the file names by order. File names containing a
+ * colon are therefore no problem, file names containing a line break cannot
+ * be passed to the process. The file names must be passed in bounded batches,
+ * see {@link #identify(List)}.
+ *
+ * @author Sven Schlarb https://github.com/shsdev
+ * @version 0.1
+ */
+public class FileCoprocess {
+
+    private static final Log LOG = LogFactory.getLog(FileCoprocess.class);
+
+    private final Process process;
+
+    private final BufferedWriter writer;
+
+    private final BufferedReader reader;
+
+    /**
+     * Start the process
+     *
+     * @param command Command, e.g. [ "file", "--mime-type" ]
+     * @throws IOException
+     */
+    public FileCoprocess(List<String> command) throws IOException {
+        List<String> cmdList = new ArrayList<String>(command);
+        cmdList.add("-b");
+        cmdList.add("-n");
+        cmdList.add("-f");
+        cmdList.add("-");
+        process = new ProcessBuilder(cmdList).start();
+        writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()));
+        reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+        // the error output is drained so that the process never blocks on it
+        final BufferedReader errorReader = new BufferedReader(new InputStreamReader(process.getErrorStream()));
+        Thread errorThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    String line;
+                    while ((line = errorReader.readLine()) != null) {
+                        LOG.warn(line);
+                    }
+                } catch (IOException ex) {
+                    // process terminated
+                } finally {
+                    IOUtils.closeQuietly(errorReader);
+                }
+            }
+        }, "file-stderr");
+        errorThread.setDaemon(true);
+        errorThread.start();
+    }
+
+    /**
+     * Identify a batch of files. All file names of the batch are written to
+     * the process before the results are read, the batch must therefore be
+     * small enough for the results to fit into the pipe buffer (a few hundred
+     * files).
+     *
+     * @param fileNames Absolute file paths
+     * @return One result per file name, in the same order
+     * @throws IOException If the process terminated or a file name contains a
+     * line break
+     */
+    public List<String> identify(List<String> fileNames) throws IOException {
+        for (String fileName : fileNames) {
+            if (fileName.indexOf('\n') != -1) {
+                throw new IOException("File name contains a line break: " + fileName);
+            }
+        }
+        for (String fileName : fileNames) {
+            writer.write(fileName);
+            writer.write('\n');
+        }
+        writer.flush();
+        List<String> results = new ArrayList<String>(fileNames.size());
+        for (int i = 0; i < fileNames.size(); i++) {
+            String line = reader.readLine();
+            if (line == null) {
+                throw new IOException("Process terminated unexpectedly");
+            }
+            results.add(line.trim());
+        }
+        return results;
+    }
+
+    /**
+     * Stop the process, the process terminates when its standard input is
+     * closed.
+     */
+    public void close() {
+        IOUtils.closeQuietly(writer);
+        IOUtils.closeQuietly(reader);
+        process.destroy();
+    }
+}
@@ -16,13 +16,17 @@
  */
 package eu.scape_project.up2ti.identifiers;
 
+import eu.scape_project.up2ti.container.ItemContent;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import org.apache.commons.collections.bidimap.DualHashBidiMap;
 
 /**
@@ -88,20 +92,103 @@ public abstract class Identification {
             String recordKey = (String) iter.next();
             String tmpFileName = (String) fileRecidBidiMap.get(recordKey);
             File file = new File(tmpFileName);
-            HashMap idRes = this.identify(file);
-            String containerFileName = recordKey.substring(0, recordKey.indexOf("/"));
-            String containerIdentifier = recordKey.substring(recordKey.indexOf("/") + 1);
-            String outputKey = String.format(outputKeyFormat, containerFileName, containerIdentifier);
-            List<String> valueLineList = new ArrayList<String>();
-            for (Object k : idRes.keySet()) {
-                String property = (String) k;
-                String value = (String) idRes.get(k);
-                String outputValue = String.format(outputValueFormat, tool, property, value);
-                valueLineList.add(outputValue);
+            HashMap<String, String> idRes = this.identify(file);
+            putResult(resultMap, recordKey, idRes);
+        }
+        return resultMap;
+    }
+
+    /**
+     * Identification of an item held in memory. The default implementation
+     * writes the content to a temporary file and calls
+     * {@link #identify(File)}, identifiers which are able to work on a
+     * stream or a byte array should override this method.
+     *
+     * @param content Item content
+     * @return Output { "property": "value" }
+     * @throws IOException
+     */
+    public HashMap<String, String> identify(ItemContent content) throws IOException {
+        File tmpFile = writeTempFile(content);
+        try {
+            return this.identify(tmpFile);
+        } finally {
+            tmpFile.delete();
+        }
+    }
 
+    /**
+     * Write the item content to a new temporary file, the caller is
+     * responsible for deleting the file.
+     *
+     * @param content Item content
+     * @return Temporary file
+     * @throws IOException
+     */
+    protected static File writeTempFile(ItemContent content) throws IOException {
+        File tmpFile = File.createTempFile("up2ti", ".tmp");
+        try {
+            OutputStream out = new FileOutputStream(tmpFile);
+            try {
+                out.write(content.getData(), 0, content.getLength());
+            } finally {
+                out.close();
             }
-            resultMap.put(outputKey, valueLineList);
+        } catch (IOException ex) {
+            tmpFile.delete();
+            throw ex;
+        }
+        return tmpFile;
+    }
+
+    /**
+     * Identification of items held in memory.
+     *
+     * @param itemContentMap Input { "recordkey": item content }
+     * @return Output { "recordkey": [ "tool/property/value" ] }
+     * @throws IOException
+     */
+    public HashMap<String, List<String>> identifyItemContents(Map<String, ItemContent> itemContentMap) throws IOException {
+        HashMap<String, List<String>> resultMap = new HashMap<String, List<String>>();
+        for (Map.Entry<String, ItemContent> entry : itemContentMap.entrySet()) {
+            HashMap<String, String> idRes = this.identify(entry.getValue());
+            putResult(resultMap, entry.getKey(), idRes);
         }
         return resultMap;
     }
+
+    /**
+     * Identification of a single item held in memory, used in streaming mode.
+     *
+     * @param recordKey Record key
+     * @param content Item content
+     * @return Output { "recordkey": [ "tool/property/value" ] }
+     * @throws IOException
+     */
+    public HashMap<String, List<String>> identifyItem(String recordKey, ItemContent content) throws IOException {
+        HashMap<String, List<String>> resultMap = new HashMap<String, List<String>>();
+        putResult(resultMap, recordKey, this.identify(content));
+        return resultMap;
+    }
+
+    /**
+     * Format the identification result of a record and add it to the result
+     * map.
+     *
+     * @param resultMap Output { "recordkey": [ "tool/property/value" ] }
+     * @param recordKey Record key
+     * @param idRes Identification result { "property": "value" }
+     */
+    protected void putResult(HashMap<String, List<String>> resultMap, String recordKey, HashMap<String, String> idRes) {
+        String containerFileName = recordKey.substring(0, recordKey.indexOf("/"));
+        String containerIdentifier = recordKey.substring(recordKey.indexOf("/") + 1);
+        String outputKey = String.format(outputKeyFormat, containerFileName, containerIdentifier);
+        List<String> valueLineList = new ArrayList<String>();
+        for (String property : idRes.keySet()) {
+            String value = idRes.get(property);
+            String outputValue = String.format(outputValueFormat, tool, property, value);
+            valueLineList.add(outputValue);
+        }
+        resultMap.put(outputKey, valueLineList);
+    }
 }
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2012 The SCAPE Project Consortium.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * under the License.
+ */
+package eu.scape_project.up2ti.identifiers;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import org.springframework.context.ApplicationContext;
+
+/**
+ * Thread-safe pool of identification stacks. The stacks are created once from
+ * the application context, each thread borrows a stack for the identification
+ * of a container and releases it afterwards, see {@link #borrow()} and
+ * {@link #release(IdentifierCollection)}. In order to get independent
+ * identifier instances per stack (e.g. one Droid signature identifier per
+ * thread), the identification stack bean and the identifier beans must have
+ * the scope "prototype".
+ *
+ * @author Sven Schlarb https://github.com/shsdev
+ * @version 0.1
+ */
+public class IdentifierPool {
+
+    private final BlockingQueue<IdentifierCollection> pool;
+
+    private final int size;
+
+    /**
+     * Constructor which creates the identification stacks
+     *
+     * @param ctx Application context
+     * @param beanName Name of the identification stack bean
+     * @param size Number of identification stacks
+     */
+    public IdentifierPool(ApplicationContext ctx, String beanName, int size) {
+        this.size = size;
+        this.pool = new LinkedBlockingQueue<IdentifierCollection>(size);
+        for (int i = 0; i < size; i++) {
+            pool.add((IdentifierCollection) ctx.getBean(beanName));
+        }
+    }
+
+    /**
+     * Number of identification stacks
+     *
+     * @return Number of identification stacks
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Borrow an identification stack, waits until a stack is available.
+     *
+     * @return Identification stack
+     * @throws InterruptedException
+     */
+    public IdentifierCollection borrow() throws InterruptedException {
+        return pool.take();
+    }
+
+    /**
+     * Return a borrowed identification stack to the pool.
+     *
+     * @param identificationStack Identification stack
+     */
+    public void release(IdentifierCollection identificationStack) {
+        pool.offer(identificationStack);
+    }
+}
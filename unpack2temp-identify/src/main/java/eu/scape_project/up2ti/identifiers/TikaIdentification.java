@@ -16,6 +16,7 @@
  */
 package eu.scape_project.up2ti.identifiers;
 
+import eu.scape_project.up2ti.container.ItemContent;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -32,8 +33,8 @@ import org.apache.tika.detect.DefaultDetector;
  */
 public class TikaIdentification extends Identification {
         
-    private static Tika tika;
-    private static DefaultDetector detector;
+    private final Tika tika;
+    private final DefaultDetector detector;
 
     /**
      * Constructor which initialises tika
@@ -59,5 +60,19 @@ public class TikaIdentification extends Identification {
         idRes.put("mime", tika.detect(file));
         return idRes;
     }
+
+    /**
+     * Run tika identification on the item content held in memory
+     *
+     * @param content Item content
+     * @return Result list
+     * @throws IOException
+     */
+    @Override
+    public HashMap<String,String> identify(ItemContent content) throws IOException {
+        HashMap<String,String> idRes = new HashMap<String,String>();
+        idRes.put("mime", tika.detect(content.getInputStream()));
+        return idRes;
+    }
     
 }
@@ -16,6 +16,7 @@
  */
 package eu.scape_project.up2ti.identifiers;
 
+import eu.scape_project.up2ti.container.ItemContent;
 import org.apache.commons.collections.bidimap.DualHashBidiMap;
 import org.apache.commons.io.IOUtils;
 
@@ -23,22 +24,49 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Scanner;
-import java.util.StringTokenizer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
 
 /**
- * Unix file identification
+ * Unix file identification. Files are identified by long-lived processes of
+ * the unix tool "file" which read the file names from the standard input, see
+ * {@link FileCoprocess}. At most poolSize processes are started, which allows
+ * concurrent identification, and the file names are passed to the processes
+ * in batches of at most batchSize files.
+ *
+ * Items held in memory are passed to the standard input of a "file" process
+ * per item by default, so that no temporary files are created. If
+ * scratchFileBatching is enabled, the items are instead written to temporary
+ * files in batches and identified by the pooled processes.
  *
  * @author Sven Schlarb https://github.com/shsdev
  * @version 0.1
  */
 public class UnixFileIdentification extends Identification {
 
-    private String command;
+    public static final String DEFAULT_COMMAND = "file --mime-type";
+
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    private String command = DEFAULT_COMMAND;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    private int poolSize = 1;
+
+    private boolean scratchFileBatching = false;
+
+    private Semaphore permits = new Semaphore(poolSize);
+
+    private final ConcurrentLinkedQueue<FileCoprocess> idleProcesses = new ConcurrentLinkedQueue<FileCoprocess>();
 
     public String getCommand() {
         return command;
@@ -48,92 +76,274 @@ public class UnixFileIdentification extends Identification {
         this.command = command;
     }
 
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
     /**
-     * un unix file identification on file (used!)
+     * Maximum number of "file" processes, must be set before the first
+     * identification.
      *
-     * @param recordFileList
-     * @return
-     * @throws FileNotFoundException
+     * @param poolSize Number of processes
+     */
+    public void setPoolSize(int poolSize) {
+        this.poolSize = poolSize;
+        this.permits = new Semaphore(poolSize);
+    }
+
+    public boolean isScratchFileBatching() {
+        return scratchFileBatching;
+    }
+
+    /**
+     * Identify items held in memory by writing them to temporary files in
+     * batches which are passed to the pooled "file" processes, instead of
+     * starting a process per item which reads the item from standard input.
+     *
+     * @param scratchFileBatching Use temporary files for items in memory
+     */
+    public void setScratchFileBatching(boolean scratchFileBatching) {
+        this.scratchFileBatching = scratchFileBatching;
+    }
+
+    /**
+     * Run unix file identification on a list of files
+     *
+     * @param fileNames Absolute file paths
+     * @return One mime type per file, in the same order
      * @throws IOException
      */
-    public String identify(Collection<String> recordFileList) throws FileNotFoundException, IOException {
-        if (command.isEmpty()) {
-            command = "file --mime-type";
-        }
-        command += " "; // add trailing white space
-        // files names are added to the command, the unix tool "file" returns
-        // one file identification result per line.
-        for (String fileName : recordFileList) {
-            File file = new File(fileName);
-            command += file.getAbsolutePath() + " ";
+    public List<String> identifyFiles(List<String> fileNames) throws IOException {
+        List<String> results = new ArrayList<String>(fileNames.size());
+        List<String> batch = new ArrayList<String>(Math.min(batchSize, fileNames.size()));
+        for (String fileName : fileNames) {
+            if (fileName.indexOf('\n') != -1) {
+                // cannot be passed as a line to the file process
+                results.addAll(identifyBatch(batch));
+                batch.clear();
+                results.add(identifySingle(fileName));
+                continue;
+            }
+            batch.add(fileName);
+            if (batch.size() == batchSize) {
+                results.addAll(identifyBatch(batch));
+                batch.clear();
+            }
         }
-        return this.executeProcess(command);
+        results.addAll(identifyBatch(batch));
+        return results;
     }
 
     /**
-     * Run unix file identification on file (unused)
+     * Run unix file identification on file
      *
-     * @param file Absolute file path
+     * @param file File
      * @return Result list
      * @throws FileNotFoundException
      * @throws IOException
      */
     @Override
     public HashMap<String, String> identify(File file) throws FileNotFoundException, IOException {
-        if (command.isEmpty()) {
-            command = "file --mime-type";
-        }
-        command += " "; // add trailing white space
-        command += file.getAbsolutePath();
         HashMap<String, String> idRes = new HashMap<String, String>();
-        idRes.put("mime", this.executeProcess(command));
+        idRes.put("mime", identifyFiles(Collections.singletonList(file.getAbsolutePath())).get(0));
         return idRes;
     }
 
     /**
-     * Run unix file identification on file
+     * Run unix file identification on the item content held in memory. The
+     * content is passed to the standard input of the unix tool "file", or
+     * written to a temporary file if scratchFileBatching is enabled.
      *
+     * @param content Item content
      * @return Result list
-     * @throws FileNotFoundException
      * @throws IOException
      */
-    private synchronized String executeProcess(String command) throws FileNotFoundException, IOException {
-        Process p = Runtime.getRuntime().exec(command);
+    @Override
+    public HashMap<String, String> identify(ItemContent content) throws IOException {
+        if (scratchFileBatching) {
+            return super.identify(content);
+        }
+        List<String> cmdList = getCommandList();
+        // brief output (no file name), read from standard input
+        cmdList.add("-b");
+        cmdList.add("-");
+        Process p = new ProcessBuilder(cmdList).start();
+        OutputStream os = p.getOutputStream();
+        try {
+            os.write(content.getData(), 0, content.getLength());
+        } catch (IOException ex) {
+            // the tool stops reading when it has seen enough bytes
+        } finally {
+            IOUtils.closeQuietly(os);
+        }
         InputStream is = p.getInputStream();
+        HashMap<String, String> idRes = new HashMap<String, String>();
         try {
-            return org.apache.commons.io.IOUtils.toString(is);
+            idRes.put("mime", IOUtils.toString(is).trim());
         } finally {
             IOUtils.closeQuietly(is);
+            IOUtils.closeQuietly(p.getErrorStream());
+            p.destroy();
         }
+        return idRes;
     }
 
+    /**
+     * Run unix file identification on items held in memory. If
+     * scratchFileBatching is enabled, the items are written to temporary files
+     * in batches of batchSize items and the file names are passed to a pooled
+     * "file" process, otherwise each item is passed to the standard input of
+     * its own "file" process.
+     *
+     * @param itemContentMap Input { "recordkey": item content }
+     * @return Output { "recordkey": [ "tool/property/value" ] }
+     * @throws IOException
+     */
     @Override
-    public HashMap<String, List<String>> identifyFileList(DualHashBidiMap fileRecidBidiMap) throws IOException {
+    public HashMap<String, List<String>> identifyItemContents(Map<String, ItemContent> itemContentMap) throws IOException {
+        if (!scratchFileBatching) {
+            return super.identifyItemContents(itemContentMap);
+        }
         HashMap<String, List<String>> resultMap = new HashMap<String, List<String>>();
-        String ufidRes = this.identify(fileRecidBidiMap.values());
-        Scanner s = new Scanner(ufidRes);
-        // one file identification result per line
-        s.useDelimiter("\n");
-        while (s.hasNext()) {
-            // output syntax of the unix-tool 'file' is ${fileName} : ${mimeType}
-            StringTokenizer st = new StringTokenizer(s.next(), ":");
-            String fileName = st.nextToken().trim();
-            // output key
-            String key = (String) fileRecidBidiMap.getKey(fileName);
-            if (key != null) {
-                String containerFileName = key.substring(0, key.indexOf("/"));
-                String containerIdentifier = key.substring(key.indexOf("/") + 1);
-                String outputKey = String.format(outputKeyFormat, containerFileName, containerIdentifier);
-                // output value
-                String property = "mime";
-                String value = st.nextToken().trim();
-                String outputValue = String.format(outputValueFormat, tool, property, value);
-                List<String> valueLineList = new ArrayList<String>();
-                valueLineList.add(outputValue);
-                resultMap.put(outputKey, valueLineList);
-            } else {
+        List<String> keys = new ArrayList<String>();
+        List<File> tmpFiles = new ArrayList<File>();
+        try {
+            for (Map.Entry<String, ItemContent> entry : itemContentMap.entrySet()) {
+                keys.add(entry.getKey());
+                tmpFiles.add(writeTempFile(entry.getValue()));
+                if (tmpFiles.size() == batchSize) {
+                    identifyTempFiles(keys, tmpFiles, resultMap);
+                }
             }
+            identifyTempFiles(keys, tmpFiles, resultMap);
+        } finally {
+            deleteFiles(tmpFiles);
+        }
+        return resultMap;
+    }
+
+    @Override
+    public HashMap<String, List<String>> identifyFileList(DualHashBidiMap fileRecidBidiMap) throws IOException {
+        HashMap<String, List<String>> resultMap = new HashMap<String, List<String>>();
+        List<String> keys = new ArrayList<String>();
+        List<String> fileNames = new ArrayList<String>();
+        Iterator iter = fileRecidBidiMap.keySet().iterator();
+        while (iter.hasNext()) {
+            String key = (String) iter.next();
+            keys.add(key);
+            fileNames.add(new File((String) fileRecidBidiMap.get(key)).getAbsolutePath());
+        }
+        List<String> mimeTypes = identifyFiles(fileNames);
+        for (int i = 0; i < keys.size(); i++) {
+            HashMap<String, String> idRes = new HashMap<String, String>();
+            idRes.put("mime", mimeTypes.get(i));
+            putResult(resultMap, keys.get(i), idRes);
         }
         return resultMap;
     }
+
+    /**
+     * Stop the "file" processes. Processes which are in use are not stopped.
+     */
+    public void close() {
+        FileCoprocess process;
+        while ((process = idleProcesses.poll()) != null) {
+            process.close();
+        }
+    }
+
+    /**
+     * Identify a batch of files using an idle process of the pool or a new
+     * process if less than poolSize processes have been started.
+     */
+    private List<String> identifyBatch(List<String> fileNames) throws IOException {
+        if (fileNames.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Semaphore poolPermits = permits;
+        try {
+            poolPermits.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a file process", ex);
+        }
+        try {
+            FileCoprocess process = idleProcesses.poll();
+            if (process == null) {
+                process = new FileCoprocess(getCommandList());
+            }
+            List<String> results;
+            try {
+                results = process.identify(fileNames);
+            } catch (IOException ex) {
+                // the process is in an undefined state and is not reused
+                process.close();
+                throw ex;
+            }
+            idleProcesses.offer(process);
+            return results;
+        } finally {
+            poolPermits.release();
+        }
+    }
+
+    /**
+     * Identify a single file by a separate process, the file name is passed as
+     * an argument.
+     */
+    private String identifySingle(String fileName) throws IOException {
+        List<String> cmdList = getCommandList();
+        cmdList.add("-b");
+        cmdList.add("--");
+        cmdList.add(fileName);
+        Process p = new ProcessBuilder(cmdList).start();
+        IOUtils.closeQuietly(p.getOutputStream());
+        InputStream is = p.getInputStream();
+        try {
+            return IOUtils.toString(is).trim();
+        } finally {
+            IOUtils.closeQuietly(is);
+            IOUtils.closeQuietly(p.getErrorStream());
+            p.destroy();
+        }
+    }
+
+    /**
+     * Identify the temporary files of a batch of items, add the results to
+     * the result map and delete the files.
+     */
+    private void identifyTempFiles(List<String> keys, List<File> tmpFiles, HashMap<String, List<String>> resultMap) throws IOException {
+        List<String> fileNames = new ArrayList<String>(tmpFiles.size());
+        for (File tmpFile : tmpFiles) {
+            fileNames.add(tmpFile.getAbsolutePath());
+        }
+        List<String> mimeTypes = identifyFiles(fileNames);
+        for (int i = 0; i < keys.size(); i++) {
+            HashMap<String, String> idRes = new HashMap<String, String>();
+            idRes.put("mime", mimeTypes.get(i));
+            putResult(resultMap, keys.get(i), idRes);
+        }
+        deleteFiles(tmpFiles);
+        keys.clear();
+    }
+
+    private static void deleteFiles(List<File> files) {
+        for (File file : files) {
+            file.delete();
+        }
+        files.clear();
+    }
+
+    private List<String> getCommandList() {
+        String cmd = (command == null || command.trim().isEmpty()) ? DEFAULT_COMMAND : command.trim();
+        return new ArrayList<String>(Arrays.asList(cmd.split("\\s+")));
+    }
 }
@@ -5,6 +5,8 @@
 package eu.scape_project.up2ti.container;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
 import org.apache.commons.collections.bidimap.DualHashBidiMap;
 import org.apache.commons.compress.utils.IOUtils;
 import org.junit.*;
@@ -66,4 +68,44 @@ public class ArcContainerTest {
         assertTrue("File does not exist: " + tmpFile.getAbsolutePath(), tmpFile.exists());
     }
 
+    /**
+     * Test of init method in in-memory mode, of class ArcContainer.
+     */
+    @Test
+    public void testInitInMemory() throws Exception {
+        InputStream testFileStream = ArcContainer.class.getResourceAsStream("test.arc.gz");
+        ArcContainer arcContainer = new ArcContainer();
+        arcContainer.setInMemory(true);
+        arcContainer.init("test.arc.gz", testFileStream);
+        assertTrue(arcContainer.getBidiIdentifierFilenameMap().isEmpty());
+        assertNull(arcContainer.getExtractDirectoryName());
+        assertEquals(bidiIdentifierFilenameMap.size(), arcContainer.getItemContentMap().size());
+        String key = "test.arc.gz/20130522085321/http://fue.onb.ac.at/test/";
+        ItemContent content = arcContainer.getItemContentMap().get(key);
+        assertNotNull(content);
+        assertEquals(new File((String) bidiIdentifierFilenameMap.get(key)).length(), content.getLength());
+    }
+
+    /**
+     * Test of stream method, of class ArcContainer.
+     */
+    @Test
+    public void testStream() throws Exception {
+        InputStream testFileStream = ArcContainer.class.getResourceAsStream("test.arc.gz");
+        final List<String> recordKeys = new ArrayList<String>();
+        ArcContainer arcContainer = new ArcContainer();
+        arcContainer.stream("test.arc.gz", testFileStream, new ItemHandler() {
+            @Override
+            public void handle(String recordKey, ItemContent content) {
+                assertTrue(bidiIdentifierFilenameMap.containsKey(recordKey));
+                File tmpFile = new File((String) bidiIdentifierFilenameMap.get(recordKey));
+                assertEquals(tmpFile.length(), content.getLength());
+                recordKeys.add(recordKey);
+            }
+        });
+        assertEquals(bidiIdentifierFilenameMap.size(), recordKeys.size());
+        assertTrue(arcContainer.getArchiveRecords() == null || arcContainer.getArchiveRecords().isEmpty());
+        assertTrue(arcContainer.getItemContentMap().isEmpty());
+    }
+
 }
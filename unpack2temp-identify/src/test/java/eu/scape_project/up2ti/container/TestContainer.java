@@ -26,7 +26,9 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Test container class
@@ -43,6 +45,8 @@ public class TestContainer extends DualHashBidiMap implements Container {
     
     private List<String> testfiles;
 
+    private final Map<String, ItemContent> itemContentMap = new LinkedHashMap<String, ItemContent>();
+
     /**
      * Get the list of testfiles
      * @return 
@@ -61,6 +65,32 @@ public class TestContainer extends DualHashBidiMap implements Container {
         return this;
     }
 
+    /**
+     * Get the map of item contents, the test container does not support the
+     * in-memory mode, the map is always empty.
+     * @return item content map
+     */
+    @Override
+    public Map<String, ItemContent> getItemContentMap() {
+        return itemContentMap;
+    }
+
+    @Override
+    public void setInMemory(boolean inMemory) {
+        if (inMemory) {
+            throw new UnsupportedOperationException("In-memory mode not supported by the test container");
+        }
+    }
+
+    @Override
+    public void setMaxContentLength(int maxContentLength) {
+    }
+
+    @Override
+    public void stream(String containerFileName, InputStream containerFileStream, ItemHandler handler) {
+        throw new UnsupportedOperationException("Streaming mode not supported by the test container");
+    }
+
     /**
      * Get the extract directory name
      * @return extract directory name
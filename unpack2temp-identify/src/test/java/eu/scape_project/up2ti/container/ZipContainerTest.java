@@ -17,6 +17,8 @@ package eu.scape_project.up2ti.container;
 
 import eu.scape_project.up2ti.identifiers.ArcFilesTestMap;
 import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
 import org.apache.commons.collections.bidimap.DualHashBidiMap;
 import org.apache.commons.compress.utils.IOUtils;
 import org.junit.*;
@@ -104,5 +106,67 @@ public class ZipContainerTest {
         File tmpFile = new File(value);
         assertTrue("File does not exist: "+tmpFile.getAbsolutePath(),tmpFile.exists());
     }
-   
+
+    /**
+     * Test of init method in in-memory mode, of class ZipContainer.
+     */
+    @Test
+    public void testInitInMemory() throws Exception {
+        InputStream testFileStream = ZipContainer.class.getResourceAsStream("testsub.zip");
+        if(testFileStream == null)
+            fail();
+        ZipContainer instance = new ZipContainer();
+        instance.setInMemory(true);
+        instance.init("testsub.zip", testFileStream);
+        assertTrue(instance.getBidiIdentifierFilenameMap().isEmpty());
+        assertNull(instance.getExtractDirectoryName());
+        ItemContent content = instance.getItemContentMap().get("testsub.zip/test/sub/test.doc");
+        assertNotNull(content);
+        assertTrue(content.getLength() > 0);
+        assertFalse(content.isTruncated());
+    }
+
+    /**
+     * Test of the maximum content length in in-memory mode, of class
+     * ZipContainer.
+     */
+    @Test
+    public void testInitInMemoryMaxContentLength() throws Exception {
+        InputStream testFileStream = ZipContainer.class.getResourceAsStream("test.zip");
+        if(testFileStream == null)
+            fail();
+        ZipContainer instance = new ZipContainer();
+        instance.setInMemory(true);
+        instance.setMaxContentLength(16);
+        instance.init("test.zip", testFileStream);
+        ItemContent content = instance.getItemContentMap().get("test.zip/test.doc");
+        assertNotNull(content);
+        assertEquals(16, content.getLength());
+        // OLE2 compound document signature
+        assertEquals((byte) 0xD0, content.getData()[0]);
+        assertEquals((byte) 0xCF, content.getData()[1]);
+    }
+
+    /**
+     * Test of stream method, of class ZipContainer.
+     */
+    @Test
+    public void testStream() throws Exception {
+        InputStream testFileStream = ZipContainer.class.getResourceAsStream("testsub.zip");
+        if(testFileStream == null)
+            fail();
+        final List<String> recordKeys = new ArrayList<String>();
+        ZipContainer instance = new ZipContainer();
+        instance.stream("testsub.zip", testFileStream, new ItemHandler() {
+            @Override
+            public void handle(String recordKey, ItemContent content) {
+                recordKeys.add(recordKey);
+                assertTrue(content.getLength() > 0);
+            }
+        });
+        assertEquals(4, recordKeys.size());
+        assertEquals("testsub.zip/test/sub/test.doc", recordKeys.get(0));
+        assertTrue(instance.getItemContentMap().isEmpty());
+    }
+
 }
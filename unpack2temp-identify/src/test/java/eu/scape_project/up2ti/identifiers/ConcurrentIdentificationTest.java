@@ -0,0 +1,132 @@
+/*
+ * Copyright 2012 The SCAPE Project Consortium.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * under the License.
+ */
+package eu.scape_project.up2ti.identifiers;
+
+import eu.scape_project.up2ti.container.ItemContent;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * ConcurrentIdentification test class.
+ *
+ * @author Sven Schlarb https://github.com/shsdev
+ * @version 0.1
+ */
+public class ConcurrentIdentificationTest {
+
+    /**
+     * Identifier returning the first byte of the content, the identification
+     * takes the given time.
+     */
+    private static class FirstByteIdentification extends Identification {
+
+        private final long millis;
+
+        FirstByteIdentification(String tool, long millis) {
+            this.millis = millis;
+            setTool(tool);
+            setOutputKeyFormat("%1$s/%2$s");
+            setOutputValueFormat("%1$s %2$s %3$s");
+        }
+
+        @Override
+        public HashMap<String, String> identify(File file) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public HashMap<String, String> identify(ItemContent content) throws IOException {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException ex) {
+                throw new IOException(ex);
+            }
+            if (content.getLength() == 0) {
+                throw new IOException("Empty content");
+            }
+            HashMap<String, String> idRes = new HashMap<String, String>();
+            idRes.put("byte", Integer.toString(content.getData()[0]));
+            return idRes;
+        }
+    }
+
+    private ConcurrentIdentification instance;
+
+    @Before
+    public void setUp() {
+        List<Identification> identifiers = new ArrayList<Identification>();
+        // the slower identifier comes first in the stack
+        identifiers.add(new FirstByteIdentification("slow", 200));
+        identifiers.add(new FirstByteIdentification("fast", 0));
+        instance = new ConcurrentIdentification(identifiers, 4);
+    }
+
+    @After
+    public void tearDown() {
+        instance.shutdown();
+    }
+
+    private static ItemContent content(int firstByte) {
+        return new ItemContent("test", new byte[]{(byte) firstByte}, 1, 1);
+    }
+
+    /**
+     * Test of identifyItem method, of class ConcurrentIdentification.
+     */
+    @Test
+    public void testIdentifyItem() throws Exception {
+        HashMap<String, List<String>> result = instance.identifyItem("test.arc/1", content(7));
+        assertEquals(1, result.size());
+        assertEquals(Arrays.asList("slow byte 7", "fast byte 7"), result.get("test.arc/1"));
+    }
+
+    /**
+     * Test of identifyItemContents method, of class ConcurrentIdentification.
+     */
+    @Test
+    public void testIdentifyItemContents() throws Exception {
+        Map<String, ItemContent> itemContentMap = new LinkedHashMap<String, ItemContent>();
+        for (int i = 0; i < 8; i++) {
+            itemContentMap.put("test.arc/" + i, content(i));
+        }
+        long start = System.currentTimeMillis();
+        HashMap<String, List<String>> result = instance.identifyItemContents(itemContentMap);
+        long elapsed = System.currentTimeMillis() - start;
+        assertEquals(8, result.size());
+        for (int i = 0; i < 8; i++) {
+            assertEquals(Arrays.asList("slow byte " + i, "fast byte " + i), result.get("test.arc/" + i));
+        }
+        // 8 x 200ms sequentially, 4 threads in parallel
+        assertTrue("Elapsed: " + elapsed, elapsed < 8 * 200);
+    }
+
+    /**
+     * A failing identification is reported to the caller.
+     */
+    @Test(expected = IOException.class)
+    public void testIdentifyItemError() throws Exception {
+        instance.identifyItem("test.arc/1", new ItemContent("test", new byte[0], 0, 0));
+    }
+}
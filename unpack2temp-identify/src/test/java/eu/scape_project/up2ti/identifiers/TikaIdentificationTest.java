@@ -18,6 +18,7 @@ package eu.scape_project.up2ti.identifiers;
 
 import eu.scape_project.up2ti.identifiers.TikaIdentification;
 import eu.scape_project.up2ti.container.ArcContainer;
+import java.io.InputStream;
 import java.io.File;
 import java.util.HashMap;
 import java.util.List;
@@ -75,4 +76,23 @@ public class TikaIdentificationTest {
         List<String> vals = result.get(tmpTestFilePath + "/20130522085321/http://fue.onb.ac.at/test/image.png");
         assertEquals(vals.get(0), "tika mime image/png");
     }
+
+    /**
+     * Test of identify method in in-memory mode, of class TikaIdentification.
+     */
+    @Test
+    public void testIdentifyInMemory() throws Exception {
+        InputStream testFileStream = ArcFilesTestMap.class.getResourceAsStream("test.arc.gz");
+        ArcContainer arcContainer = new ArcContainer();
+        arcContainer.setInMemory(true);
+        arcContainer.init("test.arc.gz", testFileStream);
+        TikaIdentification id = new TikaIdentification();
+        id.setTool("tika");
+        id.setOutputKeyFormat("%1$s/%2$s");
+        id.setOutputValueFormat("%1$s %2$s %3$s");
+        HashMap<String, List<String>> result = id.identifyItemContents(arcContainer.getItemContentMap());
+        assertEquals(5, result.size());
+        List<String> vals = result.get("test.arc.gz/20130522085321/http://fue.onb.ac.at/test/image.png");
+        assertEquals("tika mime image/png", vals.get(0));
+    }
 }
@@ -18,10 +18,16 @@ package eu.scape_project.up2ti.identifiers;
 
 import eu.scape_project.up2ti.identifiers.UnixFileIdentification;
 import eu.scape_project.up2ti.container.ArcContainer;
+import eu.scape_project.up2ti.container.ItemContent;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import org.apache.commons.collections.bidimap.DualHashBidiMap;
 import org.junit.*;
 import static org.junit.Assert.*;
@@ -78,4 +84,86 @@ public class UnixFileIdentificationTest {
         List<String> vals = result.get(tmpTestFilePath+"/20130522085321/http://fue.onb.ac.at/test/image.png");
         assertEquals(vals.get(0),"unixfile mime image/png");
     }
+
+    private static File createTestFile(File dir, String name, byte[] content) throws IOException {
+        File file = new File(dir, name);
+        file.deleteOnExit();
+        FileOutputStream fos = new FileOutputStream(file);
+        fos.write(content);
+        fos.close();
+        return file;
+    }
+
+    /**
+     * Test of identifyFiles method, of class UnixFileIdentification. File
+     * names containing a colon and more files than the batch size.
+     */
+    @Test
+    public void testIdentifyFiles() throws Exception {
+        File dir = File.createTempFile("up2ti", "");
+        dir.delete();
+        dir.mkdir();
+        dir.deleteOnExit();
+        byte[] png = new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n', 0, 0, 0, 13, 'I', 'H', 'D', 'R',
+            0, 0, 0, 1, 0, 0, 0, 1, 8, 2, 0, 0, 0};
+        File pngFile = createTestFile(dir, "image: test.png", png);
+        File txtFile = createTestFile(dir, "text:plain.txt", "Some text\n".getBytes("US-ASCII"));
+        UnixFileIdentification id = new UnixFileIdentification();
+        id.setCommand("file --mime-type");
+        id.setBatchSize(2);
+        try {
+            List<String> result = id.identifyFiles(Arrays.asList(pngFile.getAbsolutePath(),
+                    txtFile.getAbsolutePath(), pngFile.getAbsolutePath(), txtFile.getAbsolutePath(),
+                    pngFile.getAbsolutePath()));
+            assertEquals(Arrays.asList("image/png", "text/plain", "image/png", "text/plain", "image/png"), result);
+            assertEquals("image/png", id.identify(pngFile).get("mime"));
+        } finally {
+            id.close();
+        }
+    }
+
+    /**
+     * Test of identifyItemContents method, of class UnixFileIdentification.
+     * The items are passed to the standard input of the "file" processes.
+     */
+    @Test
+    public void testIdentifyItemContents() throws Exception {
+        assertIdentifyItemContents(false);
+    }
+
+    /**
+     * Test of identifyItemContents method, of class UnixFileIdentification.
+     * Scratch file batching with more items than the batch size.
+     */
+    @Test
+    public void testIdentifyItemContentsScratchFiles() throws Exception {
+        assertIdentifyItemContents(true);
+    }
+
+    private static void assertIdentifyItemContents(boolean scratchFileBatching) throws Exception {
+        byte[] png = new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n', 0, 0, 0, 13, 'I', 'H', 'D', 'R',
+            0, 0, 0, 1, 0, 0, 0, 1, 8, 2, 0, 0, 0};
+        byte[] txt = "Some text\n".getBytes("US-ASCII");
+        Map<String, ItemContent> items = new LinkedHashMap<String, ItemContent>();
+        items.put("test.arc/image.png", new ItemContent("image.png", png, png.length, png.length));
+        items.put("test.arc/text.txt", new ItemContent("text.txt", txt, txt.length, txt.length));
+        items.put("test.arc/image2.png", new ItemContent("image2.png", png, png.length, png.length));
+        UnixFileIdentification id = new UnixFileIdentification();
+        id.setTool("unixfile");
+        id.setOutputKeyFormat("%1$s/%2$s");
+        id.setOutputValueFormat("%1$s %2$s %3$s");
+        id.setCommand("file --mime-type");
+        id.setBatchSize(2);
+        id.setScratchFileBatching(scratchFileBatching);
+        try {
+            HashMap<String, List<String>> result = id.identifyItemContents(items);
+            assertEquals(3, result.size());
+            assertEquals("unixfile mime image/png", result.get("test.arc/image.png").get(0));
+            assertEquals("unixfile mime text/plain", result.get("test.arc/text.txt").get(0));
+            assertEquals("unixfile mime image/png", result.get("test.arc/image2.png").get(0));
+            assertEquals("image/png", id.identify(items.get("test.arc/image.png")).get("mime"));
+        } finally {
+            id.close();
+        }
+    }
 }
@@ -1 +1 @@
-java -jar /path/to/cdx-creator/target/cdx-creator-1.0-jar-with-dependencies.jar -i /path/to/hawarp/cdx-creator/src/test/resources/arc/example.arc.gz -o /path/to/waybackbasedir/cdx-index/index.cdx -d; echo -e "example.arc.gz\t/path/to/hawarp/cdx-creator/src/test/resources/arc/example.arc.gz" > /path/to/waybackbasedir/path-index.txt
+java -jar /path/to/cdx-creator/target/cdx-creator-1.0-jar-with-dependencies.jar -i /path/to/hawarp/cdx-creator/src/test/resources/arc/example.arc.gz -o /path/to/waybackbasedir/cdx-index/index.cdx -d -s; echo -e "example.arc.gz\t/path/to/hawarp/cdx-creator/src/test/resources/arc/example.arc.gz" > /path/to/waybackbasedir/path-index.txt